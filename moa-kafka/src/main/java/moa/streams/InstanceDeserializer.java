@@ -0,0 +1,162 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * InstanceDeserializer.java
+ * Copyright (C) 2020 University of Waikato, Hamilton, NZ
+ */
+
+package moa.streams;
+
+import com.yahoo.labs.samoa.instances.DenseInstance;
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+import com.yahoo.labs.samoa.instances.SparseInstance;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Kafka deserialiser for instances serialised by {@link InstanceSerializer}.
+ *
+ * The values are read straight from the record into the new instance,
+ * which is given the last header read from the same topic. A header sent
+ * again unchanged is not deserialised again, so the instances keep
+ * sharing it. The records read before any header, e.g. by a consumer
+ * starting in the middle of a topic, are given no header: the consumer
+ * must hold them back until a header is read and set it (as
+ * {@link KafkaStream} does), or give it beforehand with
+ * {@link #setHeader(String, InstancesHeader)}.
+ *
+ * Records serialised with Java's serialisation tools (i.e. by
+ * {@link ObjectSerializer}) are also read, so topics written before can
+ * still be consumed.
+ */
+public class InstanceDeserializer
+  implements Deserializer<Instance> {
+
+  // The first byte of Java's serialisation stream
+  protected static final byte JAVA_STREAM_MAGIC = (byte) 0xAC;
+
+  // The last header read from each topic
+  protected final Map<String, InstancesHeader> m_Headers = new HashMap<>();
+
+  // The serialised form of the last header read from each topic
+  protected final Map<String, byte[]> m_HeaderBytes = new HashMap<>();
+
+  // Deserialiser for the records serialised by ObjectSerializer
+  protected final ObjectDeserializer<Instance> m_ObjectDeserializer = new ObjectDeserializer<>();
+
+  @Override
+  public Instance deserialize(String topic, byte[] bytes) {
+    // Bytes can be null; deserialise to null
+    if (bytes == null)
+      return null;
+
+    // Records written by ObjectSerializer
+    if (bytes.length > 0 && bytes[0] == JAVA_STREAM_MAGIC)
+      return m_ObjectDeserializer.deserialize(topic, bytes);
+
+    try {
+      ByteBuffer buffer = ByteBuffer.wrap(bytes);
+      byte flags = buffer.get();
+
+      // Read the header if the record includes it
+      if ((flags & InstanceSerializer.FLAG_HEADER) != 0) {
+        int length = buffer.getInt();
+        int offset = buffer.position();
+        buffer.position(offset + length);
+        byte[] lastBytes = m_HeaderBytes.get(topic);
+        if (!sameBytes(lastBytes, bytes, offset, length)) {
+          m_Headers.put(topic, deserializeHeader(bytes, offset, length));
+          m_HeaderBytes.put(topic, Arrays.copyOfRange(bytes, offset, offset + length));
+        }
+      }
+      InstancesHeader header = m_Headers.get(topic);
+
+      // Read the values
+      double weight = buffer.getDouble();
+      int numValues = buffer.getInt();
+      Instance instance;
+      if ((flags & InstanceSerializer.FLAG_SPARSE) != 0) {
+        int numAttributes = buffer.getInt();
+        int[] indices = new int[numValues];
+        double[] values = new double[numValues];
+        for (int i = 0; i < numValues; i++) {
+          indices[i] = buffer.getInt();
+          values[i] = buffer.getDouble();
+        }
+        instance = new SparseInstance(weight, values, indices, numAttributes);
+      } else {
+        double[] values = new double[numValues];
+        for (int i = 0; i < numValues; i++)
+          values[i] = buffer.getDouble();
+        instance = new DenseInstance(weight, values);
+      }
+      if (header != null)
+        instance.setDataset(header);
+
+      return instance;
+    } catch (BufferUnderflowException | IllegalArgumentException e) {
+      throw new RuntimeException("Failed to deserialise instance from Kafka", e);
+    }
+  }
+
+  /**
+   * Sets the header of the instances of a topic, until a header is read
+   * from the topic.
+   *
+   * @param topic the topic
+   * @param header the header of its instances
+   */
+  public void setHeader(String topic, InstancesHeader header) {
+    m_Headers.put(topic, header);
+    m_HeaderBytes.remove(topic);
+  }
+
+  /**
+   * Whether some bytes are the same as a range of a record.
+   */
+  protected static boolean sameBytes(byte[] bytes, byte[] record, int offset, int length) {
+    if (bytes == null || bytes.length != length)
+      return false;
+
+    for (int i = 0; i < length; i++) {
+      if (bytes[i] != record[offset + i])
+        return false;
+    }
+
+    return true;
+  }
+
+  /**
+   * Deserialises a header sent with a record.
+   */
+  protected InstancesHeader deserializeHeader(byte[] bytes, int offset, int length) {
+    try {
+      ObjectInputStream streamDeserialiser = new ObjectInputStream(new ByteArrayInputStream(bytes, offset, length));
+      return (InstancesHeader) streamDeserialiser.readObject();
+    } catch (IOException | ClassNotFoundException | ClassCastException e) {
+      throw new RuntimeException("Failed to deserialise instance header from Kafka", e);
+    }
+  }
+}
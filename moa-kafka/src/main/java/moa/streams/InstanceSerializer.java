@@ -0,0 +1,204 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * InstanceSerializer.java
+ * Copyright (C) 2020 University of Waikato, Hamilton, NZ
+ */
+
+package moa.streams;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.Instances;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Kafka serialiser for instances, in a compact binary form read by
+ * {@link InstanceDeserializer}.
+ *
+ * The header of the instances is sent (using Java's serialisation
+ * tools) with the first record of a topic, whenever the instances sent
+ * to the topic change header, and again every headerInterval records
+ * (see {@link #HEADER_INTERVAL_CONFIG}), so that a consumer starting
+ * anywhere in the topic, or after its first records were deleted, finds
+ * a header after a bounded number of records. The other records only
+ * carry the weight and the values of an instance:
+ *   - a flags byte (header included, sparse values),
+ *   - the header, as its length and its serialised form, if included,
+ *   - the weight,
+ *   - the number of values, then, if the values are sparse, the number
+ *     of attributes,
+ *   - the values, preceded by their attribute index if they are sparse.
+ * An instance is sent sparse when it has fewer values than attributes.
+ *
+ * As the header is not sent with every record, records may be read before
+ * any header: see {@link InstanceDeserializer}.
+ */
+public class InstanceSerializer
+  implements Serializer<Instance> {
+
+  // Flag for records which include the header
+  public static final byte FLAG_HEADER = 1;
+
+  // Flag for records with sparse values
+  public static final byte FLAG_SPARSE = 2;
+
+  // The configuration key of the number of records between two headers
+  public static final String HEADER_INTERVAL_CONFIG = "moa.header.interval";
+
+  // The default number of records between two headers
+  public static final int DEFAULT_HEADER_INTERVAL = 1000;
+
+  // The number of records between two headers sent to a topic
+  protected int m_HeaderInterval = DEFAULT_HEADER_INTERVAL;
+
+  // The headers sent to each topic
+  protected final Map<String, SentHeader> m_SentHeaders = new ConcurrentHashMap<>();
+
+  @Override
+  public void configure(Map<String, ?> configs, boolean isKey) {
+    Object interval = configs.get(HEADER_INTERVAL_CONFIG);
+    if (interval != null)
+      setHeaderInterval(Integer.parseInt(interval.toString()));
+  }
+
+  /**
+   * Sets the number of records between two headers sent to a topic.
+   *
+   * @param interval the number of records, at least 1
+   */
+  public void setHeaderInterval(int interval) {
+    if (interval < 1)
+      throw new IllegalArgumentException("Header interval must be at least 1: " + interval);
+
+    m_HeaderInterval = interval;
+  }
+
+  /**
+   * Gets the number of records between two headers sent to a topic.
+   */
+  public int getHeaderInterval() {
+    return m_HeaderInterval;
+  }
+
+  @Override
+  public byte[] serialize(String topic, Instance data) {
+    // Null serialises to null
+    if (data == null)
+      return null;
+
+    // Include the header if it wasn't the last one sent to the topic, or
+    // if it was sent too many records ago
+    byte flags = 0;
+    byte[] header = null;
+    Instances dataset = data.dataset();
+    if (dataset != null) {
+      header = m_SentHeaders.computeIfAbsent(topic, t -> new SentHeader()).next(dataset);
+      if (header != null)
+        flags |= FLAG_HEADER;
+    }
+
+    int numValues = data.numValues();
+    boolean sparse = numValues < data.numAttributes();
+    if (sparse)
+      flags |= FLAG_SPARSE;
+
+    // Work out the size of the record
+    int size = 1 + 8 + 4 + (sparse ? 4 + numValues * 12 : numValues * 8);
+    if (header != null)
+      size += 4 + header.length;
+
+    // Write the record
+    ByteBuffer buffer = ByteBuffer.allocate(size);
+    buffer.put(flags);
+    if (header != null) {
+      buffer.putInt(header.length);
+      buffer.put(header);
+    }
+    buffer.putDouble(data.weight());
+    buffer.putInt(numValues);
+    if (sparse)
+      buffer.putInt(data.numAttributes());
+    for (int i = 0; i < numValues; i++) {
+      if (sparse)
+        buffer.putInt(data.index(i));
+      buffer.putDouble(data.valueSparse(i));
+    }
+
+    return buffer.array();
+  }
+
+  /**
+   * Serialises the header of some instances.
+   */
+  protected byte[] serializeHeader(Instances dataset) {
+    InstancesHeader header = dataset instanceof InstancesHeader
+      ? (InstancesHeader) dataset
+      : new InstancesHeader(dataset);
+
+    try {
+      ByteArrayOutputStream streamSerialiser = new ByteArrayOutputStream();
+      ObjectOutputStream objectStream = new ObjectOutputStream(streamSerialiser);
+      objectStream.writeObject(header);
+      objectStream.flush();
+      return streamSerialiser.toByteArray();
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to serialise instance header for Kafka", e);
+    }
+  }
+
+  /**
+   * The last header sent to a topic, and the number of records sent
+   * since.
+   */
+  protected class SentHeader {
+
+    // The last header sent
+    protected Instances m_Dataset;
+
+    // Its serialised form
+    protected byte[] m_Bytes;
+
+    // The number of records sent since
+    protected int m_NumRecordsSince;
+
+    /**
+     * Gets the header to include in the next record, if any.
+     *
+     * @param dataset the header of the instance of the next record
+     * @return the serialised header, or null if not included
+     */
+    public synchronized byte[] next(Instances dataset) {
+      if (dataset != m_Dataset) {
+        m_Dataset = dataset;
+        m_Bytes = serializeHeader(dataset);
+        m_NumRecordsSince = 0;
+      }
+      else if (++m_NumRecordsSince >= m_HeaderInterval) {
+        m_NumRecordsSince = 0;
+      }
+
+      return m_NumRecordsSince == 0 ? m_Bytes : null;
+    }
+  }
+}
@@ -32,6 +32,7 @@ import moa.core.InstanceExample;
 import moa.core.ObjectRepository;
 import moa.options.AbstractOptionHandler;
 import moa.tasks.TaskMonitor;
+import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
@@ -41,6 +42,7 @@ import org.apache.kafka.common.serialization.LongDeserializer;
 
 import java.io.Closeable;
 import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
@@ -58,8 +60,14 @@ import java.util.Queue;
  *     partition.
  *   - The stream is considered ended when a record with a null
  *     value is found.
- *   - The serialised form of the instances is using Java's own
- *     serialisation tools (i.e. {@link ObjectSerializer}).
+ *   - The instances are serialised by {@link InstanceSerializer},
+ *     or using Java's own serialisation tools (i.e.
+ *     {@link ObjectSerializer}).
+ *
+ * The instances read before their header (see {@link InstanceSerializer})
+ * are held back until a header is read, and are then given it. The
+ * stream fails if it ends before any header is read, so it never hands
+ * out an instance without a header.
  *
  * @author Corey Sterling (csterlin at waikato dot ac dot nz)
  */
@@ -89,7 +97,7 @@ public class KafkaStream extends AbstractOptionHandler implements
   // -- TRANSIENTS -- //
 
   // The consumer which will retrieve records from the Kafka stream
-  protected transient KafkaConsumer<Long, Instance> m_Consumer = null;
+  protected transient Consumer<Long, Instance> m_Consumer = null;
 
   // A buffer of instances retrieved from the Kafka stream
   protected transient Queue<Instance> m_InstanceBuffer = null;
@@ -112,7 +120,13 @@ public class KafkaStream extends AbstractOptionHandler implements
 
   @Override
   public InstancesHeader getHeader() {
-    fillBufferIfNecessary();
+    // Wait for a header if none has been read yet
+    if (m_Header == null)
+      fillBufferIfNecessary();
+
+    // The stream ended without one
+    if (m_Header == null)
+      throw noHeaderFound();
 
     return m_Header;
   }
@@ -134,7 +148,8 @@ public class KafkaStream extends AbstractOptionHandler implements
   public boolean hasMoreInstances() {
     fillBufferIfNecessary();
 
-    return !m_EndOfStreamReached;
+    // The last records may be buffered with the end of stream sentinel
+    return !bufferIsEmpty();
   }
 
   @Override
@@ -207,7 +222,7 @@ public class KafkaStream extends AbstractOptionHandler implements
       return;
 
     // Create the consumer
-    m_Consumer = new KafkaConsumer<>(createConsumerConfiguration());
+    m_Consumer = createConsumer();
 
     // Subscribe to the given topic
     m_Consumer.subscribe(Collections.singletonList(topicOption.getValue()));
@@ -216,6 +231,35 @@ public class KafkaStream extends AbstractOptionHandler implements
     restartConsumer();
   }
 
+  /**
+   * Creates the Kafka consumer. Can be overridden to consume from
+   * another consumer, e.g. a MockConsumer.
+   */
+  protected Consumer<Long, Instance> createConsumer() {
+    return new KafkaConsumer<>(createConsumerConfiguration());
+  }
+
+  /**
+   * Creates a consumer of the topic which doesn't subscribe to it, for
+   * reading some of its partitions in parallel with other consumers. The
+   * consumer doesn't commit its offsets automatically either, and doesn't
+   * seek back to the beginning of its partitions.
+   *
+   * @param groupID the consumer group to commit the offsets to
+   * @param header  the header of the instances, given to the instances
+   *                read before their header
+   */
+  public Consumer<Long, Instance> createPartitionConsumer(String groupID, InstancesHeader header) {
+    Map<String, Object> config = createConsumerConfiguration();
+    config.put("group.id", groupID);
+    config.put("enable.auto.commit", false);
+
+    InstanceDeserializer deserializer = new InstanceDeserializer();
+    deserializer.setHeader(topicOption.getValue(), header);
+
+    return new KafkaConsumer<>(config, new LongDeserializer(), deserializer);
+  }
+
   /**
    * Creates the configuration for the Kafka consumer.
    */
@@ -223,7 +267,7 @@ public class KafkaStream extends AbstractOptionHandler implements
     Map<String, Object> config = new HashMap<>();
 
     config.put("key.deserializer", LongDeserializer.class);
-    config.put("value.deserializer", ObjectDeserializer.class);
+    config.put("value.deserializer", InstanceDeserializer.class);
     config.put("bootstrap.servers", broker());
     config.put("fetch.min.bytes", 1);
     config.put("group.id", uniqueGroupIDString());
@@ -297,8 +341,8 @@ public class KafkaStream extends AbstractOptionHandler implements
     if (m_EndOfStreamReached)
       return;
 
-    // If the buffer isn't empty, no need to fill it yet
-    if (!bufferIsEmpty())
+    // If the buffer holds instances with their header, no need to fill it yet
+    if (!bufferIsEmpty() && m_Header != null)
       return;
 
     // Make sure we have a consumer instance to use
@@ -306,56 +350,81 @@ public class KafkaStream extends AbstractOptionHandler implements
 
     // If the buffer isn't there, create it
     if (m_InstanceBuffer == null)
-      m_InstanceBuffer = new LinkedList<>();
-
-    // Get some records from Kafka
-    ConsumerRecords<Long, Instance> records = m_Consumer.poll(WAIT_AS_LONG_AS_POSSIBLE);
-
-    // Add each instance to the buffer
-    for (ConsumerRecord<Long, Instance> record : records) {
-      System.out.println(record.key());
-
-      // Extract the instance from the record
-      Instance instance = record.value();
-
-      // If it's null, this is the sentinel that the end of stream has been reached
-      if (instance == null) {
-        m_EndOfStreamReached = true;
-        close();
-        break;
+      m_InstanceBuffer = new ArrayDeque<>();
+
+    // Keep reading until there are buffered instances with a header
+    do {
+      // Get some records from Kafka
+      ConsumerRecords<Long, Instance> records = m_Consumer.poll(WAIT_AS_LONG_AS_POSSIBLE);
+
+      // Add each instance to the buffer
+      for (ConsumerRecord<Long, Instance> record : records) {
+        // Extract the instance from the record
+        Instance instance = record.value();
+
+        // If it's null, this is the sentinel that the end of stream has been reached
+        if (instance == null) {
+          m_EndOfStreamReached = true;
+          close();
+          break;
+        }
+
+        // Add the instance to the buffer
+        m_InstanceBuffer.add(instance);
       }
 
-      // Add the instance to the buffer
-      m_InstanceBuffer.add(record.value());
+      // Save the header if we can and need to
+      cacheHeaderIfNecessary();
+    } while ((m_Header == null || bufferIsEmpty()) && !m_EndOfStreamReached);
+
+    // Never hand out instances without a header
+    if (m_Header == null && !bufferIsEmpty()) {
+      m_InstanceBuffer.clear();
+      throw noHeaderFound();
     }
+  }
 
-    // Save the header if we can and need to
-    cacheHeaderIfNecessary();
+  /**
+   * The error raised when the stream ends before any header is read.
+   */
+  protected IllegalStateException noHeaderFound() {
+    return new IllegalStateException("No instance header found in Kafka topic '"
+      + topicOption.getValue() + "'");
   }
 
   /**
-   * Caches the header for these instances if it hasn't already.
+   * Caches the header for these instances if it hasn't already, and
+   * gives it to the buffered instances read before their header (see
+   * {@link InstanceDeserializer}).
    */
   protected void cacheHeaderIfNecessary() {
-    // Skip if we've already cached a header
-    if (m_Header != null)
-      return;
-
-    // Get one of the instances
-    Instance instance = m_InstanceBuffer.peek();
+    // Look for the header if we haven't already cached one
+    if (m_Header == null) {
+      for (Instance instance : m_InstanceBuffer) {
+        // Get it's dataset
+        Instances dataset = instance.dataset();
+
+        // Skip the instances read before their header
+        if (dataset == null)
+          continue;
+
+        // Save it for future reference
+        if (dataset instanceof InstancesHeader)
+          m_Header = (InstancesHeader) dataset;
+        else
+          m_Header = new InstancesHeader(dataset);
+        break;
+      }
+    }
 
-    // If there isn't one (should always be at this point), abort
-    if (instance == null)
+    // If there isn't one yet, the instances keep no header
+    if (m_Header == null)
       return;
 
-    // Get it's dataset
-    Instances dataset = instance.dataset();
-
-    // Save it for future reference
-    if (dataset instanceof InstancesHeader)
-      m_Header = (InstancesHeader) dataset;
-    else
-      m_Header = new InstancesHeader(dataset);
+    for (Instance instance : m_InstanceBuffer) {
+      if (instance.dataset() == null)
+        instance.setDataset(m_Header);
+    }
   }
 
   /**
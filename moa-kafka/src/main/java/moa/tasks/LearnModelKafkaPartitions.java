@@ -0,0 +1,377 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * LearnModelKafkaPartitions.java
+ * Copyright (C) 2020 University of Waikato, Hamilton, NZ
+ */
+
+package moa.tasks;
+
+import com.github.javacliparser.FileOption;
+import com.github.javacliparser.IntOption;
+import com.github.javacliparser.StringOption;
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+import moa.classifiers.Classifier;
+import moa.classifiers.MultiClassClassifier;
+import moa.classifiers.meta.OzaBag;
+import moa.core.ObjectRepository;
+import moa.core.SerializeUtils;
+import moa.options.ClassOption;
+import moa.streams.KafkaStream;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Task for learning a model from a Kafka topic, consuming its partitions
+ * in parallel.
+ *
+ * The partitions of the topic are split between shards, partition p going
+ * to shard p % numShards. Each shard consumes its partitions with its own
+ * consumer on its own thread, and trains its own copy of the learner. The
+ * model learnt is the bag of the learners of the shards, which aggregates
+ * their votes.
+ *
+ * Every checkpointFrequency instances trained on by a shard, all the
+ * shards stop training, the model is written to the checkpoint file, and
+ * each shard then commits the offsets of the instances it has trained on
+ * to the consumer group. The offsets are only committed once the model
+ * has been written, so without a checkpoint file nothing is committed, and
+ * the committed offsets never go past the model checkpointed: if a
+ * consumer group is given and the checkpoint file exists, the task resumes
+ * from the model in the file and from the committed offsets of the group.
+ *
+ * The shards stop when a record with a null value is found in any of the
+ * partitions, or when the maximum number of instances is reached.
+ */
+public class LearnModelKafkaPartitions extends ClassificationMainTask {
+
+  // Serialisation UID#
+  private static final long serialVersionUID = 1L;
+
+  // How long the shards wait for records before checking for a checkpoint
+  protected static final Duration POLL_TIMEOUT = Duration.ofMillis(100);
+
+  // How long the task waits for the shards between monitor updates
+  protected static final long MONITOR_UPDATE_MILLIS = 500;
+
+  // -- OPTIONS -- //
+
+  public ClassOption learnerOption = new ClassOption("learner", 'l',
+    "Classifier to train on each shard.", MultiClassClassifier.class, "moa.classifiers.bayes.NaiveBayes");
+
+  public ClassOption streamOption = new ClassOption("stream", 's',
+    "Kafka stream to learn from.", KafkaStream.class, "KafkaStream");
+
+  public IntOption numShardsOption = new IntOption("numShards", 'n',
+    "The number of shards consuming the partitions in parallel, at most one per partition.",
+    4, 1, Integer.MAX_VALUE);
+
+  public IntOption maxInstancesOption = new IntOption("maxInstances", 'm',
+    "Maximum number of instances to train on, over all the shards.",
+    10000000, 0, Integer.MAX_VALUE);
+
+  public IntOption checkpointFrequencyOption = new IntOption("checkpointFrequency", 'c',
+    "How many instances a shard trains on between checkpoints.",
+    100000, 1, Integer.MAX_VALUE);
+
+  public FileOption checkpointFileOption = new FileOption("checkpointFile", 'f',
+    "File to write the model to at every checkpoint, offsets are only committed to the group with one.",
+    null, "moa", true);
+
+  public StringOption groupIDOption = new StringOption("groupID", 'g',
+    "The consumer group to commit the offsets to, a new one if empty.", "");
+
+  // -- TRANSIENTS -- //
+
+  // The model trained by the shards
+  protected transient OzaBag m_Model = null;
+
+  // The header of the instances
+  protected transient InstancesHeader m_Header = null;
+
+  // The number of instances trained on by all the shards
+  protected transient AtomicLong m_NumInstances = null;
+
+  // Barrier of the checkpoints, writing the model when all the shards reach it
+  protected transient Phaser m_Checkpoints = null;
+
+  // Whether a shard has asked for a checkpoint
+  protected transient volatile boolean m_CheckpointRequested = false;
+
+  // Whether the model was written at the last checkpoint
+  protected transient volatile boolean m_CheckpointWritten = false;
+
+  // Whether the shards should stop
+  protected transient volatile boolean m_Stop = false;
+
+  // The first error of the shards
+  protected transient volatile Throwable m_Failure = null;
+
+  @Override
+  public String getPurposeString() {
+    return "Learns a model from the partitions of a Kafka topic in parallel.";
+  }
+
+  @Override
+  public Class<?> getTaskResultType() {
+    return MultiClassClassifier.class;
+  }
+
+  @Override
+  protected Object doMainTask(TaskMonitor monitor, ObjectRepository repository) {
+    // Read the header from the beginning of the topic
+    monitor.setCurrentActivity("Reading the header of the instances...", -1.0);
+    KafkaStream stream = (KafkaStream) getPreparedClassOption(this.streamOption);
+    m_Header = stream.getHeader();
+    stream.close();
+    if (m_Header == null)
+      throw new IllegalStateException("No instance header found in Kafka topic '"
+        + stream.topicOption.getValue() + "'");
+
+    // Create the consumers and split the partitions between them
+    String groupID = groupIDOption.getValue();
+    boolean newGroup = groupID.isEmpty();
+    if (newGroup)
+      groupID = getClass().getName() + "-" + Long.toHexString(System.currentTimeMillis());
+    List<Consumer<Long, Instance>> consumers = new ArrayList<>();
+    List<PartitionInfo> partitions = null;
+    for (int shard = 0; shard < numShardsOption.getValue(); shard++) {
+      Consumer<Long, Instance> consumer = stream.createPartitionConsumer(groupID, m_Header);
+      if (partitions == null) {
+        partitions = consumer.partitionsFor(stream.topicOption.getValue());
+        if (partitions == null || partitions.isEmpty()) {
+          consumer.close();
+          throw new IllegalArgumentException("Kafka topic '" + stream.topicOption.getValue() + "' has no partitions");
+        }
+      }
+      if (shard >= partitions.size()) {
+        consumer.close();
+        break;
+      }
+      consumers.add(consumer);
+    }
+    int numShards = consumers.size();
+    for (int shard = 0; shard < numShards; shard++) {
+      List<TopicPartition> assigned = new ArrayList<>();
+      for (PartitionInfo info : partitions) {
+        if (info.partition() % numShards == shard)
+          assigned.add(new TopicPartition(info.topic(), info.partition()));
+      }
+      consumers.get(shard).assign(assigned);
+    }
+
+    // Resume from the checkpoint or start a new model
+    File checkpointFile = checkpointFileOption.getFile();
+    boolean resume = !newGroup && checkpointFile != null && checkpointFile.exists();
+    if (resume) {
+      monitor.setCurrentActivity("Reading the checkpoint...", -1.0);
+      try {
+        m_Model = (OzaBag) SerializeUtils.readFromFile(checkpointFile);
+      } catch (IOException | ClassNotFoundException | ClassCastException e) {
+        m_Model = null;
+        closeConsumers(consumers);
+        throw new RuntimeException("Failed to read checkpoint " + checkpointFile, e);
+      }
+      if (m_Model.getSubClassifiers().length != numShards) {
+        closeConsumers(consumers);
+        throw new IllegalArgumentException("The checkpoint has " + m_Model.getSubClassifiers().length
+          + " shards instead of " + numShards);
+      }
+    } else {
+      m_Model = new OzaBag();
+      m_Model.baseLearnerOption.setCurrentObject(getPreparedClassOption(learnerOption));
+      m_Model.ensembleSizeOption.setValue(numShards);
+      m_Model.prepareForUse();
+      m_Model.setModelContext(m_Header);
+      for (Classifier learner : m_Model.getSubClassifiers())
+        learner.setModelContext(m_Header);
+
+      // A new model trains on the partitions from their beginning
+      for (Consumer<Long, Instance> consumer : consumers)
+        consumer.seekToBeginning(consumer.assignment());
+    }
+
+    // Train the shards
+    monitor.setCurrentActivity("Training the shards...", -1.0);
+    m_NumInstances = new AtomicLong();
+    m_CheckpointRequested = false;
+    m_CheckpointWritten = false;
+    m_Stop = false;
+    m_Failure = null;
+    m_Checkpoints = new Phaser(numShards) {
+      @Override
+      protected boolean onAdvance(int phase, int registeredParties) {
+        writeCheckpoint();
+        return registeredParties == 0;
+      }
+    };
+    Classifier[] learners = m_Model.getSubClassifiers();
+    Thread[] threads = new Thread[numShards];
+    for (int shard = 0; shard < numShards; shard++) {
+      threads[shard] = new Thread(new Shard(consumers.get(shard), learners[shard]),
+        getClass().getSimpleName() + "-shard-" + shard);
+      threads[shard].start();
+    }
+    try {
+      for (Thread thread : threads) {
+        while (thread.isAlive()) {
+          thread.join(MONITOR_UPDATE_MILLIS);
+          if (monitor.taskShouldAbort())
+            m_Stop = true;
+          monitor.setCurrentActivityDescription("Training the shards... ("
+            + m_NumInstances.get() + " instances)");
+        }
+      }
+    } catch (InterruptedException e) {
+      m_Stop = true;
+      Thread.currentThread().interrupt();
+    }
+
+    if (m_Failure != null)
+      throw new RuntimeException("Failed to train a shard", m_Failure);
+    if (monitor.taskShouldAbort())
+      return null;
+
+    return m_Model;
+  }
+
+  /**
+   * Closes the consumers of the shards.
+   */
+  protected void closeConsumers(List<Consumer<Long, Instance>> consumers) {
+    for (Consumer<Long, Instance> consumer : consumers)
+      consumer.close();
+  }
+
+  /**
+   * Writes the model to the checkpoint file, while all the shards wait.
+   */
+  protected void writeCheckpoint() {
+    m_CheckpointRequested = false;
+    m_CheckpointWritten = false;
+
+    File checkpointFile = checkpointFileOption.getFile();
+    if (checkpointFile == null || m_Failure != null)
+      return;
+
+    // Replace the previous checkpoint only once the model is written
+    try {
+      File tempFile = new File(checkpointFile.getPath() + ".tmp");
+      SerializeUtils.writeToFile(tempFile, m_Model);
+      Files.move(tempFile.toPath(), checkpointFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      m_CheckpointWritten = true;
+    } catch (Throwable t) {
+      m_Failure = t;
+      m_Stop = true;
+    }
+  }
+
+  /**
+   * Consumes some partitions and trains a learner on their instances.
+   */
+  protected class Shard implements Runnable {
+
+    // The consumer of the partitions of the shard
+    protected Consumer<Long, Instance> m_Consumer;
+
+    // The learner of the shard
+    protected Classifier m_Learner;
+
+    // The offsets after the last instance trained on in each partition
+    protected Map<TopicPartition, OffsetAndMetadata> m_TrainedOffsets = new HashMap<>();
+
+    // The number of instances trained on since the last checkpoint
+    protected long m_NumInstancesSinceCheckpoint = 0;
+
+    public Shard(Consumer<Long, Instance> consumer, Classifier learner) {
+      m_Consumer = consumer;
+      m_Learner = learner;
+    }
+
+    @Override
+    public void run() {
+      try {
+        while (!m_Stop) {
+          ConsumerRecords<Long, Instance> records = m_Consumer.poll(POLL_TIMEOUT);
+          for (ConsumerRecord<Long, Instance> record : records) {
+            // If it's null, this is the sentinel that the end of stream has been reached
+            Instance instance = record.value();
+            if (instance == null || m_NumInstances.incrementAndGet() > maxInstancesOption.getValue()) {
+              m_Stop = true;
+              break;
+            }
+
+            // The deserialiser of the consumer was given the header, but make sure of it
+            if (instance.dataset() == null)
+              instance.setDataset(m_Header);
+            m_Learner.trainOnInstance(instance);
+            m_TrainedOffsets.put(new TopicPartition(record.topic(), record.partition()),
+              new OffsetAndMetadata(record.offset() + 1));
+
+            if (++m_NumInstancesSinceCheckpoint >= checkpointFrequencyOption.getValue())
+              m_CheckpointRequested = true;
+            if (m_CheckpointRequested)
+              checkpoint();
+          }
+          if (m_CheckpointRequested)
+            checkpoint();
+        }
+
+        // Checkpoint what was trained on since the last checkpoint
+        checkpoint();
+      } catch (Throwable t) {
+        if (m_Failure == null)
+          m_Failure = t;
+        m_Stop = true;
+      } finally {
+        m_Checkpoints.arriveAndDeregister();
+        m_Consumer.close();
+      }
+    }
+
+    /**
+     * Waits until all the shards have stopped training and the model is
+     * written, then commits the offsets trained on. The offsets are kept
+     * for the next checkpoint if the model wasn't written.
+     */
+    protected void checkpoint() {
+      m_Checkpoints.arriveAndAwaitAdvance();
+      m_NumInstancesSinceCheckpoint = 0;
+
+      if (m_Failure != null || !m_CheckpointWritten || m_TrainedOffsets.isEmpty())
+        return;
+      m_Consumer.commitSync(m_TrainedOffsets);
+      m_TrainedOffsets = new HashMap<>();
+    }
+  }
+}
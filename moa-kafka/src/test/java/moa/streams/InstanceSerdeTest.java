@@ -0,0 +1,143 @@
+package moa.streams;
+
+import static org.junit.Assert.*;
+
+import moa.streams.generators.RandomTreeGenerator;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+import com.yahoo.labs.samoa.instances.SparseInstance;
+
+/**
+ * Test that InstanceDeserializer reads back the records written by
+ * InstanceSerializer and ObjectSerializer
+ */
+public class InstanceSerdeTest {
+
+	private static final String TOPIC = "instances";
+
+	private static RandomTreeGenerator generator() {
+		RandomTreeGenerator generator = new RandomTreeGenerator();
+		generator.prepareForUse();
+		return generator;
+	}
+
+	private static Instance sparse(Instance dense) {
+		int numValues = 0;
+		for (int i = 0; i < dense.numAttributes(); i++) {
+			if (dense.value(i) != 0.0)
+				numValues++;
+		}
+		int[] indices = new int[numValues];
+		double[] values = new double[numValues];
+		for (int i = 0, j = 0; i < dense.numAttributes(); i++) {
+			if (dense.value(i) != 0.0) {
+				indices[j] = i;
+				values[j++] = dense.value(i);
+			}
+		}
+		Instance inst = new SparseInstance(dense.weight(), values, indices, dense.numAttributes());
+		inst.setDataset(dense.dataset());
+		return inst;
+	}
+
+	private static void assertSameInstance(Instance expected, Instance actual) {
+		assertEquals(expected.numAttributes(), actual.numAttributes());
+		assertEquals(expected.numValues(), actual.numValues());
+		assertArrayEquals(expected.toDoubleArray(), actual.toDoubleArray(), 0.0);
+		assertEquals(expected.weight(), actual.weight(), 0.0);
+		assertNotNull(actual.dataset());
+		assertEquals(expected.dataset().numAttributes(), actual.dataset().numAttributes());
+		assertEquals(expected.dataset().classIndex(), actual.dataset().classIndex());
+		assertEquals(expected.classValue(), actual.classValue(), 0.0);
+	}
+
+	@Test
+	public void testDense() {
+		RandomTreeGenerator generator = generator();
+		InstanceSerializer serializer = new InstanceSerializer();
+		InstanceDeserializer deserializer = new InstanceDeserializer();
+		InstancesHeader header = null;
+		for (int i = 0; i < 100; i++) {
+			Instance expected = generator.nextInstance().getData();
+			if (i == 5) {
+				expected.setMissing(0);
+				expected.setWeight(2.5);
+			}
+			byte[] record = serializer.serialize(TOPIC, expected);
+			assertEquals(i == 0, (record[0] & InstanceSerializer.FLAG_HEADER) != 0);
+			assertEquals(0, record[0] & InstanceSerializer.FLAG_SPARSE);
+			Instance actual = deserializer.deserialize(TOPIC, record);
+			assertSameInstance(expected, actual);
+			if (header == null)
+				header = (InstancesHeader) actual.dataset();
+			assertSame(header, actual.dataset());
+		}
+	}
+
+	@Test
+	public void testSparse() {
+		RandomTreeGenerator generator = generator();
+		InstanceSerializer serializer = new InstanceSerializer();
+		InstanceDeserializer deserializer = new InstanceDeserializer();
+		for (int i = 0; i < 100; i++) {
+			Instance expected = sparse(generator.nextInstance().getData());
+			byte[] record = serializer.serialize(TOPIC, expected);
+			assertTrue(expected.numValues() == expected.numAttributes()
+				|| (record[0] & InstanceSerializer.FLAG_SPARSE) != 0);
+			Instance actual = deserializer.deserialize(TOPIC, record);
+			assertSameInstance(expected, actual);
+			for (int j = 0; j < expected.numValues(); j++)
+				assertEquals(expected.index(j), actual.index(j));
+		}
+	}
+
+	@Test
+	public void testObjectSerializerRecords() {
+		RandomTreeGenerator generator = generator();
+		ObjectSerializer<Instance> serializer = new ObjectSerializer<>();
+		InstanceDeserializer deserializer = new InstanceDeserializer();
+		for (int i = 0; i < 10; i++) {
+			Instance expected = generator.nextInstance().getData();
+			byte[] record = serializer.serialize(TOPIC, expected);
+			assertEquals((byte) 0xAC, record[0]);
+			assertSameInstance(expected, deserializer.deserialize(TOPIC, record));
+		}
+	}
+
+	@Test
+	public void testHeaderInterval() {
+		RandomTreeGenerator generator = generator();
+		InstanceSerializer serializer = new InstanceSerializer();
+		serializer.setHeaderInterval(4);
+		for (int i = 0; i < 20; i++) {
+			byte[] record = serializer.serialize(TOPIC, generator.nextInstance().getData());
+			assertEquals(i % 4 == 0, (record[0] & InstanceSerializer.FLAG_HEADER) != 0);
+		}
+
+		// A deserialiser reading from the middle of the topic finds the next header
+		generator.restart();
+		serializer = new InstanceSerializer();
+		serializer.setHeaderInterval(4);
+		InstanceDeserializer deserializer = new InstanceDeserializer();
+		for (int i = 0; i < 20; i++) {
+			Instance expected = generator.nextInstance().getData();
+			byte[] record = serializer.serialize(TOPIC, expected);
+			if (i < 2)
+				continue;
+			Instance actual = deserializer.deserialize(TOPIC, record);
+			if (i < 4)
+				assertNull(actual.dataset());
+			else
+				assertSameInstance(expected, actual);
+		}
+	}
+
+	@Test
+	public void testNull() {
+		assertNull(new InstanceSerializer().serialize(TOPIC, null));
+		assertNull(new InstanceDeserializer().deserialize(TOPIC, null));
+	}
+}
@@ -0,0 +1,152 @@
+package moa.streams;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import moa.streams.generators.RandomTreeGenerator;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Instance;
+
+/**
+ * Test that KafkaStream reads the instances of a topic, with their header,
+ * from a MockConsumer
+ */
+public class KafkaStreamTest {
+
+	private static final String TOPIC = "instances";
+
+	/**
+	 * Stream consuming from a MockConsumer holding the records of one
+	 * partition, deserialised by InstanceDeserializer, from a given offset.
+	 */
+	private static class MockKafkaStream extends KafkaStream {
+
+		private static final long serialVersionUID = 1L;
+
+		private final List<byte[]> m_Records;
+
+		private final int m_FirstOffset;
+
+		public MockKafkaStream(List<byte[]> records, int firstOffset) {
+			m_Records = records;
+			m_FirstOffset = firstOffset;
+			topicOption.setValue(TOPIC);
+		}
+
+		@Override
+		protected Consumer<Long, Instance> createConsumer() {
+			MockConsumer<Long, Instance> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+			TopicPartition partition = new TopicPartition(TOPIC, 0);
+			consumer.schedulePollTask(() -> {
+				consumer.rebalance(Collections.singletonList(partition));
+				consumer.updateBeginningOffsets(Collections.singletonMap(partition, (long) m_FirstOffset));
+				InstanceDeserializer deserializer = new InstanceDeserializer();
+				for (int offset = m_FirstOffset; offset < m_Records.size(); offset++) {
+					consumer.addRecord(new ConsumerRecord<>(TOPIC, 0, offset, (long) offset,
+						deserializer.deserialize(TOPIC, m_Records.get(offset))));
+				}
+			});
+			return consumer;
+		}
+	}
+
+	/**
+	 * Serialises some instances, followed by the end of stream record.
+	 */
+	private static List<byte[]> serialize(List<Instance> instances, int headerInterval) {
+		InstanceSerializer serializer = new InstanceSerializer();
+		serializer.setHeaderInterval(headerInterval);
+		List<byte[]> records = new ArrayList<>();
+		for (Instance inst : instances)
+			records.add(serializer.serialize(TOPIC, inst));
+		records.add(null);
+		return records;
+	}
+
+	private static List<Instance> instances(int numInstances) {
+		RandomTreeGenerator generator = new RandomTreeGenerator();
+		generator.prepareForUse();
+		List<Instance> instances = new ArrayList<>();
+		for (int i = 0; i < numInstances; i++)
+			instances.add(generator.nextInstance().getData());
+		return instances;
+	}
+
+	private static void assertReads(List<Instance> expected, KafkaStream stream) {
+		stream.prepareForUse();
+		assertNotNull(stream.getHeader());
+		assertEquals(expected.get(0).numAttributes(), stream.getHeader().numAttributes());
+		int numRead = 0;
+		while (stream.hasMoreInstances()) {
+			Instance actual = stream.nextInstance().getData();
+			assertNotNull(actual.dataset());
+			assertEquals(stream.getHeader().numAttributes(), actual.dataset().numAttributes());
+			assertArrayEquals(expected.get(numRead).toDoubleArray(), actual.toDoubleArray(), 0.0);
+			numRead++;
+		}
+		assertEquals(expected.size(), numRead);
+	}
+
+	@Test
+	public void testFromBeginning() {
+		List<Instance> instances = instances(50);
+		assertReads(instances, new MockKafkaStream(serialize(instances, 1000), 0));
+	}
+
+	@Test
+	public void testAfterHeaderRecord() {
+		List<Instance> instances = instances(50);
+		assertReads(instances.subList(3, 50), new MockKafkaStream(serialize(instances, 10), 3));
+	}
+
+	@Test
+	public void testObjectSerializerRecords() {
+		List<Instance> instances = instances(20);
+		ObjectSerializer<Instance> serializer = new ObjectSerializer<>();
+		List<byte[]> records = new ArrayList<>();
+		for (Instance inst : instances)
+			records.add(serializer.serialize(TOPIC, inst));
+		records.add(null);
+		assertReads(instances.subList(5, 20), new MockKafkaStream(records, 5));
+	}
+
+	@Test
+	public void testNoHeader() {
+		List<Instance> instances = instances(50);
+		KafkaStream stream = new MockKafkaStream(serialize(instances, 1000), 1);
+		stream.prepareForUse();
+		try {
+			stream.getHeader();
+			fail("Read a stream without a header");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		assertFalse(stream.hasMoreInstances());
+		assertNull(stream.nextInstance());
+	}
+
+	@Test
+	public void testEmptyTopic() {
+		KafkaStream stream = new MockKafkaStream(Arrays.asList((byte[]) null), 0);
+		stream.prepareForUse();
+		assertFalse(stream.hasMoreInstances());
+		assertNull(stream.nextInstance());
+		try {
+			stream.getHeader();
+			fail("Read a stream without a header");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,183 @@
+package moa.tasks;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import moa.classifiers.meta.OzaBag;
+import moa.core.SerializeUtils;
+import moa.streams.KafkaStream;
+import moa.streams.generators.RandomTreeGenerator;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+
+/**
+ * Test that LearnModelKafkaPartitions only commits offsets once the model
+ * has been checkpointed
+ */
+public class LearnModelKafkaPartitionsTest {
+
+	private static final String TOPIC = "instances";
+
+	private static final int NUM_PARTITIONS = 2;
+
+	private static final int NUM_INSTANCES = 100;
+
+	/**
+	 * The instances of each partition, the first partition ending with the
+	 * end of stream record.
+	 */
+	private static final List<List<Instance>> PARTITIONS = new ArrayList<>();
+
+	/**
+	 * The commits of the consumers, each with whether the checkpoint file
+	 * existed when it was made.
+	 */
+	private static final List<Commit> COMMITS = Collections.synchronizedList(new ArrayList<>());
+
+	private static File s_CheckpointFile;
+
+	private static class Commit {
+
+		final Map<TopicPartition, OffsetAndMetadata> offsets;
+
+		final boolean checkpointed;
+
+		Commit(Map<TopicPartition, OffsetAndMetadata> offsets, boolean checkpointed) {
+			this.offsets = new HashMap<>(offsets);
+			this.checkpointed = checkpointed;
+		}
+	}
+
+	/**
+	 * Consumer recording its commits.
+	 */
+	private static class RecordingConsumer extends MockConsumer<Long, Instance> {
+
+		RecordingConsumer() {
+			super(OffsetResetStrategy.EARLIEST);
+			List<PartitionInfo> partitions = new ArrayList<>();
+			Map<TopicPartition, Long> beginningOffsets = new HashMap<>();
+			for (int p = 0; p < NUM_PARTITIONS; p++) {
+				partitions.add(new PartitionInfo(TOPIC, p, null, null, null));
+				beginningOffsets.put(new TopicPartition(TOPIC, p), 0L);
+			}
+			updatePartitions(TOPIC, partitions);
+			updateBeginningOffsets(beginningOffsets);
+			schedulePollTask(() -> {
+				for (TopicPartition partition : assignment())
+					addRecords(this, partition);
+			});
+		}
+
+		@Override
+		public synchronized void commitSync(Map<TopicPartition, OffsetAndMetadata> offsets) {
+			COMMITS.add(new Commit(offsets, s_CheckpointFile != null && s_CheckpointFile.exists()));
+			super.commitSync(offsets);
+		}
+	}
+
+	/**
+	 * Stream reading the header from, and creating partition consumers
+	 * over, the instances of PARTITIONS.
+	 */
+	public static class MockKafkaStream extends KafkaStream {
+
+		private static final long serialVersionUID = 1L;
+
+		public MockKafkaStream() {
+			topicOption.setValue(TOPIC);
+		}
+
+		@Override
+		protected Consumer<Long, Instance> createConsumer() {
+			MockConsumer<Long, Instance> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+			TopicPartition partition = new TopicPartition(TOPIC, 0);
+			consumer.schedulePollTask(() -> {
+				consumer.rebalance(Collections.singletonList(partition));
+				consumer.updateBeginningOffsets(Collections.singletonMap(partition, 0L));
+				addRecords(consumer, partition);
+			});
+			return consumer;
+		}
+
+		@Override
+		public Consumer<Long, Instance> createPartitionConsumer(String groupID, InstancesHeader header) {
+			return new RecordingConsumer();
+		}
+	}
+
+	private static void addRecords(MockConsumer<Long, Instance> consumer, TopicPartition partition) {
+		List<Instance> instances = PARTITIONS.get(partition.partition());
+		for (int offset = 0; offset < instances.size(); offset++) {
+			consumer.addRecord(new ConsumerRecord<>(TOPIC, partition.partition(), offset,
+				(long) offset, instances.get(offset)));
+		}
+	}
+
+	private static LearnModelKafkaPartitions task(File checkpointFile) {
+		RandomTreeGenerator generator = new RandomTreeGenerator();
+		generator.prepareForUse();
+		PARTITIONS.clear();
+		for (int p = 0; p < NUM_PARTITIONS; p++) {
+			List<Instance> instances = new ArrayList<>();
+			for (int i = 0; i < NUM_INSTANCES; i++)
+				instances.add(generator.nextInstance().getData());
+			PARTITIONS.add(instances);
+		}
+		PARTITIONS.get(0).add(null);
+		COMMITS.clear();
+		s_CheckpointFile = checkpointFile;
+
+		LearnModelKafkaPartitions task = new LearnModelKafkaPartitions();
+		task.streamOption.setCurrentObject(new MockKafkaStream());
+		task.numShardsOption.setValue(NUM_PARTITIONS);
+		task.checkpointFrequencyOption.setValue(10);
+		task.groupIDOption.setValue("test");
+		if (checkpointFile != null)
+			task.checkpointFileOption.setValue(checkpointFile.getPath());
+		task.prepareForUse();
+		return task;
+	}
+
+	@Test
+	public void testCommitsAfterCheckpoints() throws IOException, ClassNotFoundException {
+		File checkpointFile = File.createTempFile("moa", ".moa");
+		checkpointFile.delete();
+		checkpointFile.deleteOnExit();
+		Object model = task(checkpointFile).doTask();
+		assertTrue(model instanceof OzaBag);
+		assertTrue(checkpointFile.exists());
+		assertTrue(SerializeUtils.readFromFile(checkpointFile) instanceof OzaBag);
+
+		assertFalse(COMMITS.isEmpty());
+		for (Commit commit : COMMITS) {
+			assertTrue(commit.checkpointed);
+			for (Map.Entry<TopicPartition, OffsetAndMetadata> offset : commit.offsets.entrySet())
+				assertTrue(offset.getValue().offset() <= NUM_INSTANCES);
+		}
+	}
+
+	@Test
+	public void testNoCommitsWithoutCheckpointFile() {
+		Object model = task(null).doTask();
+		assertTrue(model instanceof OzaBag);
+		assertTrue(COMMITS.isEmpty());
+	}
+}
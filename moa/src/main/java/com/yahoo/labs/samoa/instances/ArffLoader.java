@@ -51,6 +51,16 @@ public class ArffLoader {
     public ArffLoader(Reader reader, int size, int classAttribute) {
         // size is not used
         this(reader);
+        setClassAttribute(classAttribute);
+    }
+
+    /**
+     * Sets the class index from the class attribute option: -1 for the last
+     * attribute, 0 for none, or the position of the attribute starting at 1.
+     *
+     * @param classAttribute the class attribute
+     */
+    protected void setClassAttribute(int classAttribute) {
         if (classAttribute < 0) {
             this.instanceInformation.setClassIndex(this.instanceInformation.numAttributes() - 1);
             //System.out.print(this.instanceInformation.classIndex());
@@ -0,0 +1,76 @@
+/*
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package com.yahoo.labs.samoa.instances;
+
+/**
+ * The Class ColumnarInstance. View of one row of an InstanceBatch: values and
+ * weight are read from and written to the columns of the batch.
+ */
+public class ColumnarInstance extends InstanceImpl {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The batch holding the values.
+     */
+    protected InstanceBatch batch;
+
+    /**
+     * The row of the batch.
+     */
+    protected int row;
+
+    /**
+     * Instantiates a new view.
+     *
+     * @param batch the batch
+     * @param row the row
+     */
+    public ColumnarInstance(InstanceBatch batch, int row) {
+        super(batch.weight(row), new ColumnarInstanceData(batch, row));
+        this.batch = batch;
+        this.row = row;
+        this.instanceHeader = batch.getHeader();
+    }
+
+    @Override
+    public double weight() {
+        return this.batch.weightColumn[this.row];
+    }
+
+    @Override
+    public void setWeight(double weight) {
+        this.weight = weight;
+        this.batch.weightColumn[this.row] = weight;
+    }
+
+    /**
+     * Copies the row into a new dense instance, detached from the batch.
+     *
+     * @return the instance
+     */
+    @Override
+    public Instance copy() {
+        InstanceImpl inst = new InstanceImpl(weight(), this.instanceData.copy());
+        inst.instanceHeader = this.instanceHeader;
+        return inst;
+    }
+
+    @Override
+    public void addSparseValues(int[] indexValues, double[] attributeValues, int numberAttributes) {
+        throw new UnsupportedOperationException("Values of a batch row can not be replaced");
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package com.yahoo.labs.samoa.instances;
+
+/**
+ * The Class ColumnarInstanceData. Instance data that reads one row of the
+ * columns of an InstanceBatch.
+ */
+public class ColumnarInstanceData implements InstanceData {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The batch holding the values.
+     */
+    protected InstanceBatch batch;
+
+    /**
+     * The row of the batch.
+     */
+    protected int row;
+
+    /**
+     * Instantiates a new columnar instance data.
+     *
+     * @param batch the batch
+     * @param row the row
+     */
+    public ColumnarInstanceData(InstanceBatch batch, int row) {
+        this.batch = batch;
+        this.row = row;
+    }
+
+    @Override
+    public int numAttributes() {
+        return this.batch.attributeColumns.length;
+    }
+
+    @Override
+    public double value(int instAttIndex) {
+        return this.batch.attributeColumns[instAttIndex][this.row];
+    }
+
+    @Override
+    public boolean isMissing(int instAttIndex) {
+        return Double.isNaN(this.value(instAttIndex));
+    }
+
+    @Override
+    public int numValues() {
+        return numAttributes();
+    }
+
+    @Override
+    public int index(int i) {
+        return i;
+    }
+
+    @Override
+    public double valueSparse(int i) {
+        return value(i);
+    }
+
+    @Override
+    public boolean isMissingSparse(int p1) {
+        return isMissing(p1);
+    }
+
+    @Override
+    public double[] toDoubleArray() {
+        double[][] columns = this.batch.attributeColumns;
+        double[] values = new double[columns.length];
+        for (int j = 0; j < columns.length; j++) {
+            values[j] = columns[j][this.row];
+        }
+        return values;
+    }
+
+    @Override
+    public void setValue(int attributeIndex, double d) {
+        this.batch.attributeColumns[attributeIndex][this.row] = d;
+    }
+
+    @Override
+    public void deleteAttributeAt(int index) {
+        throw new UnsupportedOperationException("Attributes of a batch row can not be deleted");
+    }
+
+    @Override
+    public void insertAttributeAt(int index) {
+        throw new UnsupportedOperationException("Attributes of a batch row can not be inserted");
+    }
+
+    /**
+     * Copies the row into a new dense instance data, detached from the batch.
+     *
+     * @return the instance data
+     */
+    @Override
+    public InstanceData copy() {
+        return new DenseInstanceData(toDoubleArray());
+    }
+}
@@ -0,0 +1,831 @@
+/*
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package com.yahoo.labs.samoa.instances;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StreamTokenizer;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The Class FastArffLoader. Loads an Arff file with sparse or dense format
+ * parsing the data section directly from bytes.
+ *
+ * Files are memory mapped and input streams are read through a channel into a
+ * byte buffer. Numbers are converted from the bytes of the buffer without
+ * creating strings, and nominal values are looked up in a hash table of the
+ * encoded labels of each attribute. The header is parsed by ArffLoader, and
+ * data lines follow the same tokenization rules as the StreamTokenizer of
+ * ArffLoader, so both loaders give the same instances.
+ */
+public class FastArffLoader extends ArffLoader implements Closeable {
+
+    /**
+     * Size of the regions of a file mapped at a time.
+     */
+    protected static final int MAPPED_WINDOW_SIZE = 1 << 26;
+
+    /**
+     * Initial size of the buffer used to read input streams.
+     */
+    protected static final int CHANNEL_BUFFER_SIZE = 1 << 16;
+
+    protected static final int TOKEN_END = 0;
+
+    protected static final int TOKEN_WORD = 1;
+
+    protected static final int TOKEN_QUOTED = 2;
+
+    protected static final int TOKEN_OPEN = 3;
+
+    protected static final int TOKEN_CLOSE = 4;
+
+    /**
+     * Powers of ten that are exactly representable as doubles.
+     */
+    protected static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    /**
+     * The bytes of the file.
+     */
+    protected ByteSource source;
+
+    /**
+     * The charset used to decode the header and encode the nominal labels.
+     */
+    protected Charset charset;
+
+    /**
+     * The attributes, indexed by position.
+     */
+    protected Attribute[] attributes;
+
+    /**
+     * The lookup tables of the nominal attributes, created lazily.
+     */
+    protected NominalTable[] nominalTables;
+
+    protected int tokenType;
+
+    protected int tokenStart;
+
+    protected int tokenEnd;
+
+    /**
+     * The value of a quoted token with escape sequences, null otherwise.
+     */
+    protected String tokenString;
+
+    protected int[] sparseIndices = new int[16];
+
+    protected double[] sparseValues = new double[16];
+
+    /**
+     * Opens a loader that memory maps a file.
+     *
+     * @param file the file
+     * @param classAttribute the class attribute, -1 for the last one
+     * @return the loader, to be closed
+     * @throws IOException if the file can not be read
+     */
+    public static FastArffLoader open(File file, int classAttribute) throws IOException {
+        return open(file, null, classAttribute);
+    }
+
+    /**
+     * Opens a multi-target loader that memory maps a file.
+     *
+     * @param file the file
+     * @param range the range of the output attributes
+     * @return the loader, to be closed
+     * @throws IOException if the file can not be read
+     */
+    public static FastArffLoader open(File file, Range range) throws IOException {
+        return open(file, range, 0);
+    }
+
+    /**
+     * Opens a loader that memory maps a file. The file is closed if the
+     * header can not be read.
+     *
+     * @param file the file
+     * @param range the range of the output attributes, null for a single target
+     * @param classAttribute the class attribute of a single target loader
+     * @return the loader
+     * @throws IOException if the file can not be read
+     */
+    protected static FastArffLoader open(File file, Range range, int classAttribute)
+            throws IOException {
+        FileInputStream input = new FileInputStream(file);
+        boolean opened = false;
+        try {
+            FastArffLoader loader = new FastArffLoader(new ByteSource(input.getChannel()), range);
+            if (range == null) {
+                loader.setClassAttribute(classAttribute);
+            }
+            opened = true;
+            return loader;
+        } finally {
+            if (!opened) {
+                input.close();
+            }
+        }
+    }
+
+    /**
+     * Instantiates a new loader that reads an input stream.
+     *
+     * @param input the input stream
+     * @param classAttribute the class attribute, -1 for the last one
+     * @throws IOException if the header can not be read
+     */
+    public FastArffLoader(InputStream input, int classAttribute) throws IOException {
+        this(new ByteSource(Channels.newChannel(input)), null);
+        setClassAttribute(classAttribute);
+    }
+
+    /**
+     * Instantiates a new multi-target loader that reads an input stream.
+     *
+     * @param input the input stream
+     * @param range the range of the output attributes
+     * @throws IOException if the header can not be read
+     */
+    public FastArffLoader(InputStream input, Range range) throws IOException {
+        this(new ByteSource(Channels.newChannel(input)), range);
+    }
+
+    protected FastArffLoader(ByteSource source, Range range) throws IOException {
+        super(source.readHeader(Charset.defaultCharset()), range);
+        this.source = source;
+        this.charset = Charset.defaultCharset();
+        int numAttributes = this.instanceInformation.numAttributes();
+        this.attributes = new Attribute[numAttributes];
+        for (int i = 0; i < numAttributes; i++) {
+            this.attributes[i] = this.instanceInformation.attribute(i);
+        }
+        this.nominalTables = new NominalTable[numAttributes];
+    }
+
+    /**
+     * Reads instance. It detects if it is dense or sparse.
+     *
+     * @return the instance, or null at the end of the file
+     */
+    @Override
+    public Instance readInstance() {
+        try {
+            int end;
+            while ((end = this.source.lineEnd()) >= 0) {
+                int start = this.source.position;
+                this.source.skipLineEnd(end);
+                int position = nextToken(start, end);
+                Instance instance = null;
+                if (this.tokenType == TOKEN_OPEN) {
+                    instance = readInstanceSparse(position, end);
+                } else if (this.tokenType != TOKEN_END) {
+                    instance = readInstanceDense(start, end);
+                }
+                if (instance != null) {
+                    return instance;
+                }
+            }
+        } catch (IOException ex) {
+            Logger.getLogger(FastArffLoader.class.getName()).log(Level.SEVERE, null, ex);
+        }
+        return null;
+    }
+
+    /**
+     * Reads a dense instance from a line of the buffer.
+     *
+     * @param start the start of the line
+     * @param end the end of the line
+     * @return the instance, or null if the line has no values
+     * @throws IOException if a quoted value can not be decoded
+     */
+    protected Instance readInstanceDense(int start, int end) throws IOException {
+        Instance instance = newDenseInstance(this.attributes.length);
+        int numAttribute = 0;
+        int position = start;
+        while (true) {
+            position = nextToken(position, end);
+            if (this.tokenType == TOKEN_END) {
+                break;
+            }
+            if (this.tokenType == TOKEN_WORD || this.tokenType == TOKEN_QUOTED) {
+                Attribute attribute = this.attributes[numAttribute];
+                boolean isNumeric = attribute.isNumeric();
+                double value;
+                if (tokenIsMissing()) {
+                    value = Double.NaN;
+                } else if (isNumeric) {
+                    value = parseNumber();
+                } else {
+                    value = nominalIndex(numAttribute);
+                }
+                this.setValue(instance, numAttribute, value, isNumeric);
+                numAttribute++;
+            }
+        }
+        return (numAttribute > 0) ? instance : null;
+    }
+
+    /**
+     * Reads a sparse instance from a line of the buffer.
+     *
+     * @param start the position after the opening brace
+     * @param end the end of the line
+     * @return the instance
+     * @throws IOException if a quoted value can not be decoded
+     */
+    protected Instance readInstanceSparse(int start, int end) throws IOException {
+        Instance instance = newSparseInstance(1.0);
+        int numValues = 0;
+        int position = start;
+        while (true) {
+            position = nextToken(position, end);
+            if (this.tokenType == TOKEN_END || this.tokenType == TOKEN_CLOSE) {
+                break;
+            }
+            int numAttribute = parseIndex();
+            position = nextToken(position, end);
+            if (this.tokenType == TOKEN_END || this.tokenType == TOKEN_CLOSE) {
+                break;
+            }
+            if (this.tokenType == TOKEN_WORD || this.tokenType == TOKEN_QUOTED) {
+                double value;
+                if (tokenIsMissing()) {
+                    value = Double.NaN;
+                } else if (this.attributes[numAttribute].isNumeric()) {
+                    value = parseNumber();
+                } else {
+                    value = nominalIndex(numAttribute);
+                }
+                if (numValues == this.sparseIndices.length) {
+                    this.sparseIndices = Arrays.copyOf(this.sparseIndices, 2 * numValues);
+                    this.sparseValues = Arrays.copyOf(this.sparseValues, 2 * numValues);
+                }
+                this.sparseIndices[numValues] = numAttribute;
+                this.sparseValues[numValues] = value;
+                numValues++;
+            }
+        }
+        instance.addSparseValues(Arrays.copyOf(this.sparseIndices, numValues),
+                Arrays.copyOf(this.sparseValues, numValues), this.attributes.length);
+        return instance;
+    }
+
+    /**
+     * Finds the next token of a line, with the same rules as the
+     * StreamTokenizer of ArffLoader: spaces, control characters and commas
+     * separate tokens, '%' starts a comment, values can be quoted with single
+     * or double quotes, and braces are tokens by themselves.
+     *
+     * @param start the position to start from
+     * @param end the end of the line
+     * @return the position after the token
+     * @throws IOException if a quoted value can not be decoded
+     */
+    protected int nextToken(int start, int end) throws IOException {
+        ByteBuffer buffer = this.source.buffer;
+        this.tokenString = null;
+        int position = start;
+        while (position < end) {
+            int c = buffer.get(position) & 0xFF;
+            if (c > ' ' && c != ',') {
+                break;
+            }
+            position++;
+        }
+        if (position >= end) {
+            this.tokenType = TOKEN_END;
+            return end;
+        }
+        byte b = buffer.get(position);
+        if (b == '%') {
+            this.tokenType = TOKEN_END;
+            return end;
+        }
+        if (b == '{' || b == '}') {
+            this.tokenType = b == '{' ? TOKEN_OPEN : TOKEN_CLOSE;
+            return position + 1;
+        }
+        if (b == '"' || b == '\'') {
+            boolean escaped = false;
+            int close = position + 1;
+            while (close < end && buffer.get(close) != b) {
+                if (buffer.get(close) == '\\') {
+                    escaped = true;
+                    close++;
+                }
+                close++;
+            }
+            close = Math.min(close, end);
+            this.tokenType = TOKEN_QUOTED;
+            this.tokenStart = position + 1;
+            this.tokenEnd = close;
+            int next = close < end ? close + 1 : end;
+            if (escaped) {
+                this.tokenString = unescape(decode(position, next));
+            }
+            return next;
+        }
+        int wordEnd = position + 1;
+        while (wordEnd < end && isWordByte(buffer.get(wordEnd))) {
+            wordEnd++;
+        }
+        this.tokenType = TOKEN_WORD;
+        this.tokenStart = position;
+        this.tokenEnd = wordEnd;
+        return wordEnd;
+    }
+
+    protected static boolean isWordByte(byte b) {
+        int c = b & 0xFF;
+        return c > ' ' && c != ',' && c != '%' && c != '"' && c != '\'' && c != '{' && c != '}';
+    }
+
+    protected boolean tokenIsMissing() {
+        if (this.tokenString != null) {
+            return "?".equals(this.tokenString);
+        }
+        return this.tokenEnd - this.tokenStart == 1 && this.source.buffer.get(this.tokenStart) == '?';
+    }
+
+    /**
+     * Gets the value of the current token as a string.
+     *
+     * @return the value
+     */
+    protected String tokenString() {
+        if (this.tokenString != null) {
+            return this.tokenString;
+        }
+        return decode(this.tokenStart, this.tokenEnd);
+    }
+
+    /**
+     * Parses the current token as a number. Decimal numbers with at most 15
+     * significant digits and a power of ten up to 22 are converted with a
+     * single exact multiplication or division, which is correctly rounded and
+     * therefore equal to Double.valueOf. Other numbers use Double.valueOf.
+     *
+     * @return the value
+     */
+    protected double parseNumber() {
+        if (this.tokenString != null) {
+            return Double.valueOf(this.tokenString).doubleValue();
+        }
+        ByteBuffer buffer = this.source.buffer;
+        int position = this.tokenStart;
+        int end = this.tokenEnd;
+        boolean negative = false;
+        byte b = buffer.get(position);
+        if (b == '-' || b == '+') {
+            negative = b == '-';
+            position++;
+        }
+        long mantissa = 0;
+        int significantDigits = 0;
+        int exponent = 0;
+        boolean hasDigits = false;
+        int digit;
+        while (position < end && (digit = buffer.get(position) - '0') >= 0 && digit <= 9) {
+            if (mantissa != 0 || digit != 0) {
+                significantDigits++;
+            }
+            mantissa = mantissa * 10 + digit;
+            hasDigits = true;
+            position++;
+        }
+        if (position < end && buffer.get(position) == '.') {
+            position++;
+            while (position < end && (digit = buffer.get(position) - '0') >= 0 && digit <= 9) {
+                if (mantissa != 0 || digit != 0) {
+                    significantDigits++;
+                }
+                mantissa = mantissa * 10 + digit;
+                exponent--;
+                hasDigits = true;
+                position++;
+            }
+        }
+        if (!hasDigits || significantDigits > 15) {
+            return Double.valueOf(tokenString()).doubleValue();
+        }
+        if (position < end && (buffer.get(position) == 'e' || buffer.get(position) == 'E')) {
+            position++;
+            boolean negativeExponent = false;
+            if (position < end && (buffer.get(position) == '-' || buffer.get(position) == '+')) {
+                negativeExponent = buffer.get(position) == '-';
+                position++;
+            }
+            int value = 0;
+            boolean hasExponentDigits = false;
+            while (position < end && (digit = buffer.get(position) - '0') >= 0 && digit <= 9
+                    && value < 10000) {
+                value = value * 10 + digit;
+                hasExponentDigits = true;
+                position++;
+            }
+            if (!hasExponentDigits) {
+                return Double.valueOf(tokenString()).doubleValue();
+            }
+            exponent += negativeExponent ? -value : value;
+        }
+        if (position != end) {
+            return Double.valueOf(tokenString()).doubleValue();
+        }
+        if (mantissa == 0) {
+            return negative ? -0.0 : 0.0;
+        }
+        if (exponent < -22 || exponent > 22) {
+            return Double.valueOf(tokenString()).doubleValue();
+        }
+        double value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent]
+                : mantissa * POWERS_OF_TEN[exponent];
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses the current token as the index of a sparse value.
+     *
+     * @return the index
+     */
+    protected int parseIndex() {
+        if (this.tokenString == null && this.tokenEnd - this.tokenStart <= 9) {
+            ByteBuffer buffer = this.source.buffer;
+            int value = 0;
+            int position = this.tokenStart;
+            int digit;
+            while (position < this.tokenEnd && (digit = buffer.get(position) - '0') >= 0 && digit <= 9) {
+                value = value * 10 + digit;
+                position++;
+            }
+            if (position == this.tokenEnd) {
+                return value;
+            }
+        }
+        return Integer.parseInt(tokenString());
+    }
+
+    /**
+     * Gets the index of the current token in the labels of a nominal
+     * attribute. Labels that are not in the header are added to the attribute,
+     * as in ArffLoader.
+     *
+     * @param attIndex the index of the attribute
+     * @return the index of the value
+     */
+    protected int nominalIndex(int attIndex) {
+        Attribute attribute = this.attributes[attIndex];
+        if (this.tokenString != null) {
+            return attribute.indexOfValue(this.tokenString);
+        }
+        NominalTable table = this.nominalTables[attIndex];
+        if (table == null) {
+            table = new NominalTable(attribute.numValues());
+            for (int i = 0; i < attribute.numValues(); i++) {
+                table.put(attribute.value(i).getBytes(this.charset), i);
+            }
+            this.nominalTables[attIndex] = table;
+        }
+        int index = table.get(this.source.buffer, this.tokenStart, this.tokenEnd);
+        if (index < 0) {
+            String value = tokenString();
+            index = attribute.indexOfValue(value);
+            table.put(value.getBytes(this.charset), index);
+        }
+        return index;
+    }
+
+    protected String decode(int start, int end) {
+        byte[] bytes = new byte[end - start];
+        ByteBuffer buffer = this.source.buffer;
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(start + i);
+        }
+        return new String(bytes, this.charset);
+    }
+
+    /**
+     * Decodes the escape sequences of a quoted value with the rules of
+     * StreamTokenizer.
+     *
+     * @param quoted the value including the quotes
+     * @return the value
+     * @throws IOException never, the value is read from a string
+     */
+    protected static String unescape(String quoted) throws IOException {
+        StreamTokenizer tokenizer = new StreamTokenizer(new StringReader(quoted));
+        tokenizer.resetSyntax();
+        tokenizer.quoteChar('"');
+        tokenizer.quoteChar('\'');
+        tokenizer.nextToken();
+        return tokenizer.sval;
+    }
+
+    /**
+     * Gets the fraction of the input already read.
+     *
+     * @return the fraction, or -1 if the size of the input is unknown
+     */
+    public double getProgressFraction() {
+        return this.source.getProgressFraction();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.source.close();
+    }
+
+    /**
+     * Bytes of a file or input stream, available a line at a time. Files are
+     * mapped by regions that start at the line being read, and input streams
+     * are read into a buffer that grows when a line does not fit in it.
+     */
+    protected static class ByteSource implements Closeable {
+
+        protected FileChannel fileChannel;
+
+        protected ReadableByteChannel channel;
+
+        protected ByteBuffer buffer;
+
+        /**
+         * The position in the input of the first byte of the buffer.
+         */
+        protected long bufferOffset;
+
+        /**
+         * The size of the input, or -1 if unknown.
+         */
+        protected long size;
+
+        protected boolean endOfInput;
+
+        /**
+         * The position of the next byte to read in the buffer.
+         */
+        protected int position;
+
+        protected int windowSize;
+
+        public ByteSource(FileChannel fileChannel) throws IOException {
+            this.fileChannel = fileChannel;
+            this.channel = fileChannel;
+            this.size = fileChannel.size();
+            this.windowSize = MAPPED_WINDOW_SIZE;
+            this.buffer = ByteBuffer.allocate(0);
+            this.endOfInput = this.size == 0;
+        }
+
+        public ByteSource(ReadableByteChannel channel) {
+            this.channel = channel;
+            this.size = -1;
+            this.buffer = ByteBuffer.allocate(CHANNEL_BUFFER_SIZE);
+            this.buffer.limit(0);
+        }
+
+        /**
+         * Finds the end of the line that starts at the current position,
+         * reading more input if the line is not complete in the buffer.
+         *
+         * @return the position of the line terminator, or of the end of the
+         * buffer for the last line, or -1 at the end of the input
+         * @throws IOException if the input can not be read
+         */
+        public int lineEnd() throws IOException {
+            int from = this.position;
+            while (true) {
+                int limit = this.buffer.limit();
+                for (int i = from; i < limit; i++) {
+                    byte b = this.buffer.get(i);
+                    if (b == '\n' || b == '\r') {
+                        return i;
+                    }
+                }
+                if (this.endOfInput) {
+                    return this.position < limit ? limit : -1;
+                }
+                int scanned = limit - this.position;
+                fill();
+                from = this.position + scanned;
+            }
+        }
+
+        /**
+         * Moves the position after a line terminator.
+         *
+         * @param end the position of the terminator
+         */
+        public void skipLineEnd(int end) {
+            int limit = this.buffer.limit();
+            if (end + 1 < limit && this.buffer.get(end) == '\r' && this.buffer.get(end + 1) == '\n') {
+                this.position = end + 2;
+            } else {
+                this.position = Math.min(end + 1, limit);
+            }
+        }
+
+        protected void fill() throws IOException {
+            int pending = this.buffer.limit() - this.position;
+            if (this.fileChannel != null) {
+                long start = this.bufferOffset + this.position;
+                while (this.windowSize <= pending && this.windowSize < Integer.MAX_VALUE / 2) {
+                    this.windowSize *= 2;
+                }
+                long length = Math.min(this.windowSize, this.size - start);
+                this.buffer = this.fileChannel.map(FileChannel.MapMode.READ_ONLY, start, length);
+                this.bufferOffset = start;
+                this.position = 0;
+                this.endOfInput = start + length == this.size;
+            } else {
+                this.buffer.position(this.position);
+                this.buffer.compact();
+                if (!this.buffer.hasRemaining()) {
+                    ByteBuffer larger = ByteBuffer.allocate(2 * this.buffer.capacity());
+                    this.buffer.flip();
+                    larger.put(this.buffer);
+                    this.buffer = larger;
+                }
+                this.bufferOffset += this.position;
+                int read;
+                do {
+                    read = this.channel.read(this.buffer);
+                } while (read == 0);
+                this.endOfInput = read < 0;
+                this.buffer.flip();
+                this.position = 0;
+            }
+        }
+
+        /**
+         * Reads the lines of the header, up to the line of the data keyword.
+         *
+         * @param charset the charset of the input
+         * @return a reader of the header
+         * @throws IOException if the input can not be read
+         */
+        public Reader readHeader(Charset charset) throws IOException {
+            ByteArrayOutputStream header = new ByteArrayOutputStream();
+            int end;
+            while ((end = lineEnd()) >= 0) {
+                boolean isData = startsWithData(this.position, end);
+                for (int i = this.position; i < end; i++) {
+                    header.write(this.buffer.get(i));
+                }
+                header.write('\n');
+                skipLineEnd(end);
+                if (isData) {
+                    break;
+                }
+            }
+            return new StringReader(new String(header.toByteArray(), charset));
+        }
+
+        protected boolean startsWithData(int start, int end) {
+            int i = start;
+            while (i < end && (this.buffer.get(i) & 0xFF) <= ' ') {
+                i++;
+            }
+            String keyword = "@data";
+            if (end - i < keyword.length()) {
+                return false;
+            }
+            for (int j = 0; j < keyword.length(); j++) {
+                if (Character.toLowerCase((char) this.buffer.get(i + j)) != keyword.charAt(j)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public double getProgressFraction() {
+            if (this.size <= 0) {
+                return -1.0;
+            }
+            return (this.bufferOffset + this.position) / (double) this.size;
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.channel.close();
+        }
+    }
+
+    /**
+     * Open addressing hash table from the encoded labels of a nominal
+     * attribute to their indices, queried with bytes of the buffer.
+     */
+    protected static class NominalTable {
+
+        protected byte[][] keys;
+
+        protected int[] values;
+
+        protected int size;
+
+        public NominalTable(int expectedSize) {
+            int capacity = 16;
+            while (capacity < 2 * expectedSize) {
+                capacity *= 2;
+            }
+            this.keys = new byte[capacity][];
+            this.values = new int[capacity];
+        }
+
+        /**
+         * Gets the index of a label.
+         *
+         * @param buffer the buffer
+         * @param start the start of the label in the buffer
+         * @param end the end of the label in the buffer
+         * @return the index, or -1 if the label is not in the table
+         */
+        public int get(ByteBuffer buffer, int start, int end) {
+            int mask = this.keys.length - 1;
+            for (int i = hash(buffer, start, end) & mask; this.keys[i] != null; i = (i + 1) & mask) {
+                byte[] key = this.keys[i];
+                if (key.length == end - start) {
+                    int j = 0;
+                    while (j < key.length && key[j] == buffer.get(start + j)) {
+                        j++;
+                    }
+                    if (j == key.length) {
+                        return this.values[i];
+                    }
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Adds a label, replacing the index if the label is already present.
+         *
+         * @param key the encoded label
+         * @param value the index
+         */
+        public void put(byte[] key, int value) {
+            if (2 * (this.size + 1) > this.keys.length) {
+                byte[][] oldKeys = this.keys;
+                int[] oldValues = this.values;
+                this.keys = new byte[2 * oldKeys.length][];
+                this.values = new int[2 * oldKeys.length];
+                this.size = 0;
+                for (int i = 0; i < oldKeys.length; i++) {
+                    if (oldKeys[i] != null) {
+                        put(oldKeys[i], oldValues[i]);
+                    }
+                }
+            }
+            int mask = this.keys.length - 1;
+            int i = hash(ByteBuffer.wrap(key), 0, key.length) & mask;
+            while (this.keys[i] != null && !Arrays.equals(this.keys[i], key)) {
+                i = (i + 1) & mask;
+            }
+            if (this.keys[i] == null) {
+                this.size++;
+            }
+            this.keys[i] = key;
+            this.values[i] = value;
+        }
+
+        protected static int hash(ByteBuffer buffer, int start, int end) {
+            int hash = 0x811c9dc5;
+            for (int i = start; i < end; i++) {
+                hash = (hash ^ buffer.get(i)) * 0x01000193;
+            }
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
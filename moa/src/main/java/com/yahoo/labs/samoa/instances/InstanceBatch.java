@@ -0,0 +1,348 @@
+/*
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package com.yahoo.labs.samoa.instances;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Mini-batch of instances stored column by column.
+ *
+ * Every attribute has its own primitive array holding the values of all the
+ * instances of the batch, and the weights are kept in a separate column. The
+ * class values are the column of the class attribute. Batch-aware code can
+ * scan the columns directly, while existing learners access the rows through
+ * <code>instance(int)</code>, which returns an InstanceImpl view over the
+ * columns without copying any value.
+ *
+ * The views are the only rows of the batch: <code>add(Instance)</code> copies
+ * the values of the instance into the columns and keeps no reference to it,
+ * and writing a view writes the columns, so the rows and the columns never
+ * disagree. Views are owned by the batch and reused after
+ * <code>clear()</code>, so a learner that needs to keep an instance must
+ * store <code>copy()</code>.
+ */
+public class InstanceBatch implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The header shared by all the instances of the batch.
+     */
+    protected InstancesHeader instanceHeader;
+
+    /**
+     * The attribute columns, indexed by [attribute][instance].
+     */
+    protected double[][] attributeColumns;
+
+    /**
+     * The weight column.
+     */
+    protected double[] weightColumn;
+
+    /**
+     * The number of instances stored.
+     */
+    protected int numInstances;
+
+    /**
+     * The row views, created lazily and reused.
+     */
+    protected ColumnarInstance[] views;
+
+    /**
+     * Instantiates a new empty batch.
+     *
+     * @param header the header of the instances
+     * @param capacity the initial number of rows
+     */
+    public InstanceBatch(InstancesHeader header, int capacity) {
+        if (capacity < 1) {
+            capacity = 1;
+        }
+        this.instanceHeader = header;
+        this.attributeColumns = new double[header.numAttributes()][capacity];
+        this.weightColumn = new double[capacity];
+        this.views = new ColumnarInstance[capacity];
+        this.numInstances = 0;
+    }
+
+    /**
+     * Gets the header of the batch.
+     *
+     * @return the header
+     */
+    public InstancesHeader getHeader() {
+        return this.instanceHeader;
+    }
+
+    /**
+     * Num instances.
+     *
+     * @return the number of instances stored
+     */
+    public int numInstances() {
+        return this.numInstances;
+    }
+
+    /**
+     * Size.
+     *
+     * @return the number of instances stored
+     */
+    public int size() {
+        return this.numInstances;
+    }
+
+    /**
+     * Capacity.
+     *
+     * @return the number of rows available before the columns grow
+     */
+    public int capacity() {
+        return this.weightColumn.length;
+    }
+
+    /**
+     * Checks if the batch is full.
+     *
+     * @return true, if adding another instance would grow the columns
+     */
+    public boolean isFull() {
+        return this.numInstances == capacity();
+    }
+
+    /**
+     * Checks if the batch is empty.
+     *
+     * @return true, if no instance is stored
+     */
+    public boolean isEmpty() {
+        return this.numInstances == 0;
+    }
+
+    /**
+     * Num attributes.
+     *
+     * @return the number of attributes
+     */
+    public int numAttributes() {
+        return this.attributeColumns.length;
+    }
+
+    /**
+     * Removes all the instances, keeping the columns allocated.
+     */
+    public void clear() {
+        this.numInstances = 0;
+    }
+
+    /**
+     * Appends the values and weight of an instance. Sparse instances are
+     * expanded, so that missing indices are stored as zero.
+     *
+     * @param inst the instance to add
+     */
+    public void add(Instance inst) {
+        int row = nextRow();
+        int numValues = inst.numValues();
+        if (numValues != this.attributeColumns.length) {
+            for (int j = 0; j < this.attributeColumns.length; j++) {
+                this.attributeColumns[j][row] = 0.0;
+            }
+        }
+        for (int i = 0; i < numValues; i++) {
+            this.attributeColumns[inst.index(i)][row] = inst.valueSparse(i);
+        }
+        this.weightColumn[row] = inst.weight();
+    }
+
+    /**
+     * Appends a row of values.
+     *
+     * @param weight the weight of the row
+     * @param values the value of each attribute
+     */
+    public void add(double weight, double[] values) {
+        int row = nextRow();
+        for (int j = 0; j < this.attributeColumns.length; j++) {
+            this.attributeColumns[j][row] = values[j];
+        }
+        this.weightColumn[row] = weight;
+    }
+
+    /**
+     * Gets a view of an instance of the batch. The view reads and writes the
+     * columns directly and remains valid until the batch is cleared.
+     *
+     * @param row the index of the instance
+     * @return the instance
+     */
+    public Instance instance(int row) {
+        checkRow(row);
+        ColumnarInstance view = this.views[row];
+        if (view == null) {
+            view = new ColumnarInstance(this, row);
+            this.views[row] = view;
+        } else {
+            view.weight = this.weightColumn[row];
+        }
+        return view;
+    }
+
+    /**
+     * Gets a view of an instance of the batch.
+     *
+     * @param row the index of the instance
+     * @return the instance
+     */
+    public Instance get(int row) {
+        return instance(row);
+    }
+
+    /**
+     * Value.
+     *
+     * @param row the index of the instance
+     * @param attIndex the index of the attribute
+     * @return the value
+     */
+    public double value(int row, int attIndex) {
+        return this.attributeColumns[attIndex][row];
+    }
+
+    /**
+     * Sets the value.
+     *
+     * @param row the index of the instance
+     * @param attIndex the index of the attribute
+     * @param value the new value
+     */
+    public void setValue(int row, int attIndex, double value) {
+        this.attributeColumns[attIndex][row] = value;
+    }
+
+    /**
+     * Weight.
+     *
+     * @param row the index of the instance
+     * @return the weight
+     */
+    public double weight(int row) {
+        return this.weightColumn[row];
+    }
+
+    /**
+     * Sets the weight.
+     *
+     * @param row the index of the instance
+     * @param weight the new weight
+     */
+    public void setWeight(int row, double weight) {
+        this.weightColumn[row] = weight;
+    }
+
+    /**
+     * Class value.
+     *
+     * @param row the index of the instance
+     * @return the class value
+     */
+    public double classValue(int row) {
+        return this.attributeColumns[classIndex()][row];
+    }
+
+    /**
+     * Gets the column of an attribute. The array is the storage of the batch,
+     * only the first <code>numInstances()</code> positions are in use.
+     *
+     * @param attIndex the index of the attribute
+     * @return the column
+     */
+    public double[] attributeColumn(int attIndex) {
+        return this.attributeColumns[attIndex];
+    }
+
+    /**
+     * Gets the column of weights. Only the first <code>numInstances()</code>
+     * positions are in use.
+     *
+     * @return the column
+     */
+    public double[] weightColumn() {
+        return this.weightColumn;
+    }
+
+    /**
+     * Gets the column of class values. Only the first
+     * <code>numInstances()</code> positions are in use.
+     *
+     * @return the column
+     */
+    public double[] classColumn() {
+        return this.attributeColumns[classIndex()];
+    }
+
+    /**
+     * Class index, with the same defaults as InstanceImpl.
+     *
+     * @return the index of the class attribute
+     */
+    public int classIndex() {
+        int classIndex = this.instanceHeader.classIndex();
+        if (classIndex == Integer.MAX_VALUE) {
+            if (this.instanceHeader.instanceInformation.range != null) {
+                classIndex = this.instanceHeader.instanceInformation.range.getStart();
+            } else {
+                classIndex = 0;
+            }
+        }
+        return classIndex;
+    }
+
+    /**
+     * Copies the instances of the batch into a new Instances object.
+     *
+     * @return the instances
+     */
+    public Instances toInstances() {
+        Instances instances = new Instances(this.instanceHeader, this.numInstances);
+        for (int i = 0; i < this.numInstances; i++) {
+            instances.add(instance(i));
+        }
+        return instances;
+    }
+
+    protected int nextRow() {
+        if (this.numInstances == capacity()) {
+            int newCapacity = capacity() * 2;
+            for (int j = 0; j < this.attributeColumns.length; j++) {
+                this.attributeColumns[j] = Arrays.copyOf(this.attributeColumns[j], newCapacity);
+            }
+            this.weightColumn = Arrays.copyOf(this.weightColumn, newCapacity);
+            this.views = Arrays.copyOf(this.views, newCapacity);
+        }
+        return this.numInstances++;
+    }
+
+    protected void checkRow(int row) {
+        if (row < 0 || row >= this.numInstances) {
+            throw new IndexOutOfBoundsException("Row " + row + " out of range, batch size is "
+                    + this.numInstances);
+        }
+    }
+}
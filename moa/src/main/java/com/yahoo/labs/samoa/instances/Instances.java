@@ -119,6 +119,18 @@ public class Instances implements Serializable {
         this.computeAttributesIndices();
     }
 
+    /**
+     * Instantiates a new instances that reads its instances from a loader.
+     *
+     * @param loader the loader
+     */
+    public Instances(ArffLoader loader) {
+        this.arff = loader;
+        this.instanceInformation = arff.getStructure();
+        this.instances = new ArrayList<Instance>();
+        this.computeAttributesIndices();
+    }
+
     /**
      * Instantiates a new instances.
      *
@@ -472,6 +484,15 @@ public class Instances implements Serializable {
      * @return true, if successful
      */
     public boolean readInstance(Reader fileReader) {
+        return readInstance();
+    }
+
+    /**
+     * Reads the next instance from the loader of this dataset.
+     *
+     * @return true, if successful
+     */
+    public boolean readInstance() {
 
         //ArffReader arff = new ArffReader(reader, this, m_Lines, 1);
         Instance inst = arff.readInstance();
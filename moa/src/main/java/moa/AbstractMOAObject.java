@@ -19,7 +19,7 @@
  */
 package moa;
 
-import moa.core.SerializeUtils;
+import moa.core.CopyUtils;
 import moa.core.SizeOf;
 
 /**
@@ -61,7 +61,7 @@ public abstract class AbstractMOAObject implements MOAObject {
      */
     public static MOAObject copy(MOAObject obj) {
         try {
-            return (MOAObject) SerializeUtils.copyObject(obj);
+            return (MOAObject) CopyUtils.copyObject(obj);
         } catch (Exception e) {
             throw new RuntimeException("Object copy failed.", e);
         }
@@ -35,6 +35,7 @@ import com.yahoo.labs.samoa.instances.InstancesHeader;
 
 import moa.core.Measurement;
 import moa.core.ObjectRepository;
+import moa.core.SizeOf;
 import moa.core.StringUtils;
 import moa.gui.AWTRenderer;
 import moa.learners.Learner;
@@ -45,6 +46,7 @@ import com.github.javacliparser.IntOption;
 import moa.tasks.TaskMonitor;
 
 import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstanceBatch;
 import com.yahoo.labs.samoa.instances.Instances;
 import com.yahoo.labs.samoa.instances.MultiLabelPrediction;
 import com.yahoo.labs.samoa.instances.Prediction;
@@ -65,6 +67,18 @@ public abstract class AbstractClassifier extends AbstractOptionHandler
     /** Sum of the weights of the instances trained by this model */
     protected double trainingWeightSeenByModel = 0.0;
 
+    /** Size of the model when it was last measured by estimateByteSize */
+    protected int measuredByteSize = -1;
+
+    /** Training weight seen by the model when its size was last measured */
+    protected double byteSizeMeasureTrainingWeight = 0.0;
+
+    /** Whether estimateByteSize measures the exact size every time */
+    protected boolean exactByteSize = false;
+
+    /** Maximum training weight seen between two measures of the model size */
+    protected static final double MAX_BYTE_SIZE_MEASURE_INTERVAL = 100000.0;
+
     /** Random seed used in randomizable learners */
     protected int randomSeed = 1;
 
@@ -160,6 +174,8 @@ public abstract class AbstractClassifier extends AbstractOptionHandler
     @Override
     public void resetLearning() {
         this.trainingWeightSeenByModel = 0.0;
+        this.measuredByteSize = -1;
+        this.byteSizeMeasureTrainingWeight = 0.0;
         if (isRandomizable()) {
             this.classifierRandom = new Random(this.randomSeed);
         }
@@ -179,13 +195,47 @@ public abstract class AbstractClassifier extends AbstractOptionHandler
         }
     }
 
+    @Override
+    public void trainOnInstances(InstanceBatch batch) {
+        for (int i = 0; i < batch.numInstances(); i++) {
+            trainOnInstance(batch.instance(i));
+        }
+    }
+
+    @Override
+    public double[][] getVotesForInstances(InstanceBatch batch) {
+        double[][] votes = new double[batch.numInstances()][];
+        for (int i = 0; i < votes.length; i++) {
+            votes[i] = getVotesForInstance(batch.instance(i));
+        }
+        return votes;
+    }
+
+    /**
+     * Returns if an instance of a batch is used for training, following the
+     * same rules as <code>trainOnInstance</code>. Classifiers that train on a
+     * batch without calling <code>trainOnInstance</code> use it to skip
+     * instances, and override it if they change those rules.
+     *
+     * @param batch the batch
+     * @param row the index of the instance in the batch
+     * @return true if the instance has to be used for training
+     */
+    protected boolean isTrainingInstance(InstanceBatch batch, int row) {
+        if (batch.weight(row) <= 0.0) {
+            return false;
+        }
+        return this instanceof SemiSupervisedLearner
+                || !Double.isNaN(batch.classValue(row));
+    }
+
     @Override
     public Measurement[] getModelMeasurements() {
         List<Measurement> measurementList = new LinkedList<Measurement>();
         measurementList.add(new Measurement("model training instances",
                 trainingWeightSeenByModel()));
         measurementList.add(new Measurement("model serialized size (bytes)",
-                measureByteSize()));
+                estimateByteSize()));
         Measurement[] modelMeasurements = getModelMeasurementsImpl();
         if (modelMeasurements != null) {
             measurementList.addAll(Arrays.asList(modelMeasurements));
@@ -196,6 +246,7 @@ public abstract class AbstractClassifier extends AbstractOptionHandler
             List<Measurement[]> subMeasurements = new LinkedList<Measurement[]>();
             for (Learner subModel : subModels) {
                 if (subModel != null) {
+                    subModel.setExactByteSize(this.exactByteSize);
                     subMeasurements.add(subModel.getModelMeasurements());
                 }
             }
@@ -205,6 +256,73 @@ public abstract class AbstractClassifier extends AbstractOptionHandler
         return measurementList.toArray(new Measurement[measurementList.size()]);
     }
 
+    /**
+     * Estimates the size of the model. A model is measured again once it has
+     * seen twice as much training weight as at the previous measure, or
+     * MAX_BYTE_SIZE_MEASURE_INTERVAL more, so a growing model costs a
+     * logarithmic number of full measures and no estimate is older than the
+     * interval. The size of an ensemble is the sum of the estimates of its
+     * members plus the rest of the ensemble, such as drift detectors and
+     * background learners, measured on the same schedule. Learners that
+     * maintain their own size counters override this method.
+     *
+     * @return the estimated size in bytes
+     */
+    @Override
+    public int estimateByteSize() {
+        if (this.exactByteSize) {
+            return measureByteSize();
+        }
+        Learner[] subModels = getSublearners();
+        boolean ensemble = (subModels != null) && (subModels.length > 0);
+        if (byteSizeMeasureIsDue()) {
+            long byteSize = measureByteSize();
+            if (ensemble && (byteSize >= 0)) {
+                for (Learner subModel : subModels) {
+                    if (subModel != null) {
+                        byteSize -= subModel.measureByteSize();
+                    }
+                }
+                // members sharing objects, like the header, are counted twice
+                byteSize = Math.max(byteSize, 0);
+            }
+            this.measuredByteSize = (int) byteSize;
+            this.byteSizeMeasureTrainingWeight = this.trainingWeightSeenByModel;
+        }
+        if (!ensemble || (this.measuredByteSize < 0)) {
+            return this.measuredByteSize;
+        }
+        long byteSize = this.measuredByteSize;
+        for (Learner subModel : subModels) {
+            if (subModel != null) {
+                byteSize += subModel.estimateByteSize();
+            }
+        }
+        return (int) Math.min(byteSize, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns if the size of the model must be measured again by
+     * estimateByteSize.
+     *
+     * @return true if the last measure is missing or too old
+     */
+    protected boolean byteSizeMeasureIsDue() {
+        double weightSinceMeasure = this.trainingWeightSeenByModel
+                - this.byteSizeMeasureTrainingWeight;
+        // a model measured before training waits for its first instance
+        return (this.measuredByteSize < 0)
+                || (weightSinceMeasure < 0.0)
+                || ((weightSinceMeasure > 0.0)
+                        && (weightSinceMeasure >= Math.min(this.byteSizeMeasureTrainingWeight,
+                                MAX_BYTE_SIZE_MEASURE_INTERVAL)));
+    }
+
+    @Override
+    public void setExactByteSize(boolean exact) {
+        this.exactByteSize = exact;
+    }
+
     @Override
     public void getDescription(StringBuilder out, int indent) {
         StringUtils.appendIndented(out, indent, "Model type: ");
@@ -23,6 +23,7 @@ import moa.core.Example;
 import moa.learners.Learner;
 
 import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstanceBatch;
 import com.yahoo.labs.samoa.instances.InstanceData;
 import com.yahoo.labs.samoa.instances.Prediction;
 
@@ -76,6 +77,23 @@ public interface Classifier extends Learner<Example<Instance>> {
      * test instance in each class
      */
     public double[] getVotesForInstance(Instance inst);
+
+    /**
+     * Trains this learner incrementally using the instances of a batch, in
+     * order.
+     *
+     * @param batch the instances to be used for training
+     */
+    public void trainOnInstances(InstanceBatch batch);
+
+    /**
+     * Predicts the class memberships for the instances of a batch, using the
+     * same model for all of them.
+     *
+     * @param batch the instances to be classified
+     * @return an array containing the votes for each instance of the batch
+     */
+    public double[][] getVotesForInstances(InstanceBatch batch);
     
     /**
      * Sets the reference to the header of the data stream. The header of the
@@ -32,6 +32,8 @@ import moa.core.DoubleVector;
 import moa.core.Measurement;
 import moa.core.StringUtils;
 import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstanceBatch;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
 
 /**
  * Naive Bayes incremental learner.
@@ -88,6 +90,85 @@ public class NaiveBayes extends AbstractClassifier  implements MultiClassClassif
                 this.attributeObservers);
     }
 
+    /**
+     * Trains on a batch attribute by attribute, scanning the columns of the
+     * batch. Each observer sees the values in the same order as when
+     * training instance by instance, so the model is the same.
+     *
+     * @param batch the instances to be used for training
+     */
+    @Override
+    public void trainOnInstances(InstanceBatch batch) {
+        int numInstances = batch.numInstances();
+        double[] weights = batch.weightColumn();
+        double[] classValues = batch.classColumn();
+        for (int row = 0; row < numInstances; row++) {
+            if (isTrainingInstance(batch, row)) {
+                this.trainingWeightSeenByModel += weights[row];
+                this.observedClassDistribution.addToValue((int) classValues[row], weights[row]);
+            }
+        }
+        InstancesHeader header = batch.getHeader();
+        int classIndex = batch.classIndex();
+        for (int i = 0; i < batch.numAttributes() - 1; i++) {
+            int instAttIndex = classIndex > i ? i : i + 1;
+            AttributeClassObserver obs = this.attributeObservers.get(i);
+            double[] values = batch.attributeColumn(instAttIndex);
+            for (int row = 0; row < numInstances; row++) {
+                if (!isTrainingInstance(batch, row)) {
+                    continue;
+                }
+                if (obs == null) {
+                    obs = header.attribute(instAttIndex).isNominal() ? newNominalClassObserver()
+                            : newNumericClassObserver();
+                    this.attributeObservers.set(i, obs);
+                }
+                obs.observeAttributeClass(values[row], (int) classValues[row], weights[row]);
+            }
+        }
+    }
+
+    /**
+     * Predicts a batch attribute by attribute, computing the class priors
+     * once for the whole batch.
+     *
+     * @param batch the instances to be classified
+     * @return an array containing the votes for each instance of the batch
+     */
+    @Override
+    public double[][] getVotesForInstances(InstanceBatch batch) {
+        int numInstances = batch.numInstances();
+        double[] priors = new double[this.observedClassDistribution.numValues()];
+        double observedClassSum = this.observedClassDistribution.sumOfValues();
+        for (int classIndex = 0; classIndex < priors.length; classIndex++) {
+            priors[classIndex] = this.observedClassDistribution.getValue(classIndex)
+                    / observedClassSum;
+        }
+        double[][] votes = new double[numInstances][];
+        for (int row = 0; row < numInstances; row++) {
+            votes[row] = priors.clone();
+        }
+        int classIndex = batch.classIndex();
+        for (int attIndex = 0; attIndex < batch.numAttributes() - 1; attIndex++) {
+            AttributeClassObserver obs = this.attributeObservers.get(attIndex);
+            if (obs == null) {
+                continue;
+            }
+            double[] values = batch.attributeColumn(classIndex > attIndex ? attIndex : attIndex + 1);
+            for (int row = 0; row < numInstances; row++) {
+                double value = values[row];
+                if (Double.isNaN(value)) {
+                    continue;
+                }
+                double[] rowVotes = votes[row];
+                for (int classValue = 0; classValue < rowVotes.length; classValue++) {
+                    rowVotes[classValue] *= obs.probabilityOfAttributeValueGivenClass(value, classValue);
+                }
+            }
+        }
+        return votes;
+    }
+
     @Override
     protected Measurement[] getModelMeasurementsImpl() {
         return null;
@@ -0,0 +1,123 @@
+/*
+ *    ParallelSplitEvaluation.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers.core;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import moa.classifiers.core.attributeclassobservers.AttributeClassObserver;
+import moa.classifiers.core.splitcriteria.SplitCriterion;
+
+/**
+ * Evaluates the best split of every attribute of a tree node.
+ *
+ * <p>In parallel, the attributes are divided among the tasks of the common
+ * fork-join pool. Each observer is evaluated by a single task and the
+ * suggestions are returned in the order of the attributes, so the tree makes
+ * the same decisions as with a sequential evaluation. The observers and the
+ * split criterion must not be modified while they are evaluated.</p>
+ *
+ * @version $Revision: 7 $
+ */
+public class ParallelSplitEvaluation {
+
+    /**
+     * Number of attributes below which a task evaluates them itself.
+     */
+    protected static final int SEQUENTIAL_THRESHOLD = 4;
+
+    /**
+     * Gets the best split suggestion of each observer.
+     *
+     * @param observers the observers of the attributes, some of them null
+     * @param criterion the split criterion to use
+     * @param preSplitDist the class distribution before the split
+     * @param binaryOnly true to use binary splits
+     * @param parallel true to evaluate the attributes in parallel
+     * @return the suggestion of each attribute, null for the attributes
+     * without observer or suggestion
+     */
+    public static AttributeSplitSuggestion[] getBestSplitSuggestions(
+            List<? extends AttributeClassObserver> observers, SplitCriterion criterion,
+            double[] preSplitDist, boolean binaryOnly, boolean parallel) {
+        AttributeSplitSuggestion[] suggestions = new AttributeSplitSuggestion[observers.size()];
+        EvaluationTask task = new EvaluationTask(observers, criterion, preSplitDist,
+                binaryOnly, suggestions, 0, suggestions.length);
+        if (parallel && (suggestions.length > SEQUENTIAL_THRESHOLD)) {
+            ForkJoinPool.commonPool().invoke(task);
+        } else {
+            task.evaluate();
+        }
+        return suggestions;
+    }
+
+    protected static class EvaluationTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        protected final List<? extends AttributeClassObserver> observers;
+
+        protected final SplitCriterion criterion;
+
+        protected final double[] preSplitDist;
+
+        protected final boolean binaryOnly;
+
+        protected final AttributeSplitSuggestion[] suggestions;
+
+        protected final int from;
+
+        protected final int to;
+
+        public EvaluationTask(List<? extends AttributeClassObserver> observers,
+                SplitCriterion criterion, double[] preSplitDist, boolean binaryOnly,
+                AttributeSplitSuggestion[] suggestions, int from, int to) {
+            this.observers = observers;
+            this.criterion = criterion;
+            this.preSplitDist = preSplitDist;
+            this.binaryOnly = binaryOnly;
+            this.suggestions = suggestions;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from <= SEQUENTIAL_THRESHOLD) {
+                evaluate();
+            } else {
+                int middle = (this.from + this.to) >>> 1;
+                invokeAll(new EvaluationTask(this.observers, this.criterion,
+                        this.preSplitDist, this.binaryOnly, this.suggestions, this.from, middle),
+                        new EvaluationTask(this.observers, this.criterion,
+                        this.preSplitDist, this.binaryOnly, this.suggestions, middle, this.to));
+            }
+        }
+
+        protected void evaluate() {
+            for (int i = this.from; i < this.to; i++) {
+                AttributeClassObserver obs = this.observers.get(i);
+                if (obs != null) {
+                    this.suggestions[i] = obs.getBestEvaluatedSplitSuggestion(
+                            this.criterion, this.preSplitDist, i, this.binaryOnly);
+                }
+            }
+        }
+    }
+}
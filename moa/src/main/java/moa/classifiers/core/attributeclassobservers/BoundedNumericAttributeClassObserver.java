@@ -0,0 +1,190 @@
+/*
+ *    BoundedNumericAttributeClassObserver.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers.core.attributeclassobservers;
+
+import moa.classifiers.core.AttributeSplitSuggestion;
+import moa.classifiers.core.conditionaltests.NumericAttributeBinaryTest;
+import moa.classifiers.core.splitcriteria.GiniSplitCriterion;
+import moa.classifiers.core.splitcriteria.InfoGainSplitCriterion;
+import moa.classifiers.core.splitcriteria.SplitCriterion;
+import moa.core.BoundedValueTree;
+import moa.core.DoubleVector;
+import moa.core.ObjectRepository;
+import moa.core.StringUtils;
+import moa.options.AbstractOptionHandler;
+import moa.tasks.TaskMonitor;
+
+import com.github.javacliparser.IntOption;
+
+/**
+ * Class for observing the class data distribution for a numeric attribute
+ * using a balanced binary tree with a maximum number of nodes.
+ * Like BinaryTreeNumericAttributeClassObserver, every distinct value is a
+ * candidate split point, until the maximum number of nodes is reached: the
+ * nodes are then merged into groups of similar weight, which at least halves
+ * the number of candidates and keeps them close to quantiles of the values.
+ * Inserting a value takes O(log n) time even on sorted streams, and the
+ * memory used per attribute is bounded.
+ *
+ * The density of a value given a class, used by naive Bayes predictions, is
+ * a histogram of the weights of the class in the nodes: a node holds the
+ * values between the value of the previous node, excluded, and its own value,
+ * and its weights are smoothed with a Laplace correction, as the nominal
+ * observers do. Values beyond the nodes get the density of an empty node.
+ *
+ * @version $Revision: 7 $
+ */
+public class BoundedNumericAttributeClassObserver extends AbstractOptionHandler
+        implements NumericAttributeClassObserver {
+
+    private static final long serialVersionUID = 1L;
+
+    public IntOption maxNodesOption = new IntOption("maxNodes", 'm',
+            "The maximum number of nodes of the tree.", 1000, 2, Integer.MAX_VALUE);
+
+    // the statistics of a node are the weights of the classes
+    protected BoundedValueTree tree;
+
+    // the weight of each class over all the nodes
+    protected DoubleVector classWeights = new DoubleVector();
+
+    @Override
+    public void observeAttributeClass(double attVal, int classVal, double weight) {
+        if (Double.isNaN(attVal)) { //Instance.isMissingValue(attVal)
+        } else {
+            if (this.tree == null) {
+                this.tree = new BoundedValueTree(this.maxNodesOption.getValue(), classVal + 1);
+            } else if (classVal >= this.tree.getNumStatistics()) {
+                this.tree.setNumStatistics(classVal + 1);
+            }
+            int node = this.tree.insert(attVal, weight);
+            this.tree.getStatistics()[node * this.tree.getNumStatistics() + classVal] += weight;
+            this.classWeights.addToValue(classVal, weight);
+        }
+    }
+
+    @Override
+    public double probabilityOfAttributeValueGivenClass(double attVal,
+            int classVal) {
+        double classWeight = this.classWeights.getValue(classVal);
+        if ((this.tree == null) || (classWeight <= 0.0) || Double.isNaN(attVal)) {
+            return 0.0;
+        }
+        double totalWeight = classWeight + this.tree.size();
+        int node = this.tree.ceiling(attVal);
+        if (node < 0) {
+            // beyond the largest value
+            int last = this.tree.lower(Double.POSITIVE_INFINITY);
+            return 1.0 / totalWeight / nodeWidth(last);
+        }
+        double width = nodeWidth(node);
+        if ((this.tree.lower(attVal) < 0) && (attVal < this.tree.getValue(node) - width)) {
+            // before the smallest value, further than the width of its node
+            return 1.0 / totalWeight / width;
+        }
+        double weight = this.tree.getStatistics()[node * this.tree.getNumStatistics() + classVal];
+        return (weight + 1.0) / totalWeight / width;
+    }
+
+    /**
+     * Gets the width of the values held by a node, from the value of the
+     * previous node. The first node is given the width of the second one.
+     */
+    protected double nodeWidth(int node) {
+        double value = this.tree.getValue(node);
+        int previous = this.tree.lower(value);
+        if (previous >= 0) {
+            return value - this.tree.getValue(previous);
+        }
+        int next = this.tree.higher(value);
+        if (next >= 0) {
+            return this.tree.getValue(next) - value;
+        }
+        return 1.0;
+    }
+
+    @Override
+    public AttributeSplitSuggestion getBestEvaluatedSplitSuggestion(
+            SplitCriterion criterion, double[] preSplitDist, int attIndex,
+            boolean binaryOnly) {
+        if (this.tree == null) {
+            return null;
+        }
+        int numClasses = this.tree.getNumStatistics();
+        double[] statistics = this.tree.getStatistics();
+        int[] sorted = this.tree.getSortedNodes();
+        double[] totalDist = new double[numClasses];
+        for (int node : sorted) {
+            for (int c = 0; c < numClasses; c++) {
+                totalDist[c] += statistics[node * numClasses + c];
+            }
+        }
+        InfoGainSplitCriterion infoGain = criterion.getClass() == InfoGainSplitCriterion.class
+                ? (InfoGainSplitCriterion) criterion : null;
+        GiniSplitCriterion gini = criterion.getClass() == GiniSplitCriterion.class
+                ? (GiniSplitCriterion) criterion : null;
+        double preSplitEntropy = infoGain != null
+                ? InfoGainSplitCriterion.computeEntropy(preSplitDist) : 0.0;
+        // splitting after the last node would leave the right branch empty
+        AttributeSplitSuggestion bestSuggestion = null;
+        double[] lhsDist = new double[numClasses];
+        double[] rhsDist = new double[numClasses];
+        for (int i = 0; i < sorted.length - 1; i++) {
+            int node = sorted[i];
+            for (int c = 0; c < numClasses; c++) {
+                lhsDist[c] += statistics[node * numClasses + c];
+                rhsDist[c] = totalDist[c] - lhsDist[c];
+            }
+            double merit;
+            if (infoGain != null) {
+                merit = infoGain.getMeritOfBinarySplit(preSplitEntropy,
+                        lhsDist, numClasses, rhsDist, numClasses);
+            } else if (gini != null) {
+                merit = gini.getMeritOfBinarySplit(lhsDist, numClasses, rhsDist, numClasses);
+            } else {
+                merit = criterion.getMeritOfSplit(preSplitDist,
+                        new double[][]{lhsDist.clone(), rhsDist.clone()});
+            }
+            if ((bestSuggestion == null) || (merit > bestSuggestion.merit)) {
+                bestSuggestion = new AttributeSplitSuggestion(
+                        new NumericAttributeBinaryTest(attIndex,
+                        this.tree.getValue(node), true),
+                        new double[][]{lhsDist.clone(), rhsDist.clone()}, merit);
+            }
+        }
+        return bestSuggestion;
+    }
+
+    @Override
+    public void getDescription(StringBuilder sb, int indent) {
+        StringUtils.appendIndented(sb, indent, "Bounded numeric observer of "
+                + (this.tree == null ? 0 : this.tree.size()) + " values, at most "
+                + this.maxNodesOption.getValue());
+    }
+
+    @Override
+    protected void prepareForUseImpl(TaskMonitor monitor, ObjectRepository repository) {
+        this.tree = null;
+        this.classWeights = new DoubleVector();
+    }
+
+    @Override
+    public void observeAttributeTarget(double attVal, double target) {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ *    FIMTDDBoundedNumericAttributeClassObserver.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers.core.attributeclassobservers;
+
+import moa.classifiers.core.AttributeSplitSuggestion;
+import moa.classifiers.core.conditionaltests.NumericAttributeBinaryTest;
+import moa.classifiers.core.splitcriteria.SplitCriterion;
+import moa.core.BoundedValueTree;
+
+import com.github.javacliparser.IntOption;
+
+/**
+ * Class for observing the target distribution of a numeric attribute for
+ * regression, like FIMTDDNumericAttributeClassObserver, using a balanced
+ * binary tree with a maximum number of nodes. When the maximum is reached,
+ * consecutive nodes are merged into groups of similar counts. Inserting a value takes O(log n) time even
+ * on sorted streams, and the memory used per attribute is bounded.
+ *
+ * @version $Revision: 7 $
+ */
+public class FIMTDDBoundedNumericAttributeClassObserver extends FIMTDDNumericAttributeClassObserver {
+
+    private static final long serialVersionUID = 1L;
+
+    public IntOption maxNodesOption = new IntOption("maxNodes", 'm',
+            "The maximum number of nodes of the tree.", 1000, 2, Integer.MAX_VALUE);
+
+    // the statistics of a node are the count, sum and sum of squares of the target
+    protected BoundedValueTree valueTree;
+
+    @Override
+    public void observeAttributeClass(double attVal, double classVal, double weight) {
+        if (Double.isNaN(attVal)) { //Instance.isMissingValue(attVal)
+        } else {
+            if (this.valueTree == null) {
+                this.valueTree = new BoundedValueTree(this.maxNodesOption.getValue(), 3);
+            }
+            int offset = this.valueTree.insert(attVal, 1) * 3;
+            double[] statistics = this.valueTree.getStatistics();
+            statistics[offset] += 1;
+            statistics[offset + 1] += classVal;
+            statistics[offset + 2] += classVal * classVal;
+        }
+    }
+
+    @Override
+    public AttributeSplitSuggestion getBestEvaluatedSplitSuggestion(SplitCriterion criterion, double[] preSplitDist, int attIndex, boolean binaryOnly) {
+        if (this.valueTree == null) {
+            return null;
+        }
+        double[] statistics = this.valueTree.getStatistics();
+        double countLeft = 0;
+        double sumLeft = 0;
+        double sumSqLeft = 0;
+        double countRight = preSplitDist[0];
+        double sumRight = preSplitDist[1];
+        double sumSqRight = preSplitDist[2];
+        AttributeSplitSuggestion bestSuggestion = null;
+        for (int node : this.valueTree.getSortedNodes()) {
+            if (countRight == 0.0) {
+                break;
+            }
+            int offset = node * 3;
+            countLeft += statistics[offset];
+            countRight -= statistics[offset];
+            sumLeft += statistics[offset + 1];
+            sumRight -= statistics[offset + 1];
+            sumSqLeft += statistics[offset + 2];
+            sumSqRight -= statistics[offset + 2];
+            double[][] postSplitDists = new double[][]{{countLeft, sumLeft, sumSqLeft}, {countRight, sumRight, sumSqRight}};
+            double[] splitDist = new double[]{(countLeft + countRight), (sumLeft + sumRight), (sumSqLeft + sumSqRight)};
+            double merit = criterion.getMeritOfSplit(splitDist, postSplitDists);
+            if ((bestSuggestion == null) || (merit > bestSuggestion.merit)) {
+                bestSuggestion = new AttributeSplitSuggestion(
+                        new NumericAttributeBinaryTest(attIndex,
+                        this.valueTree.getValue(node), true), postSplitDists, merit);
+            }
+        }
+        return bestSuggestion;
+    }
+
+    /**
+     * Does nothing: the number of nodes is bounded instead.
+     */
+    @Override
+    public void removeBadSplits(SplitCriterion criterion, double lastCheckRatio, double lastCheckSDR, double lastCheckE) {
+    }
+}
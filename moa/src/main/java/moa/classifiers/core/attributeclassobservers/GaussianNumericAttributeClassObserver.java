@@ -23,15 +23,19 @@ import moa.core.ObjectRepository;
 import moa.tasks.TaskMonitor;
 import moa.core.Utils;
 
+import java.util.Arrays;
 import java.util.Set;
 import java.util.TreeSet;
 import moa.classifiers.core.AttributeSplitSuggestion;
 import moa.classifiers.core.conditionaltests.NumericAttributeBinaryTest;
+import moa.classifiers.core.splitcriteria.GiniSplitCriterion;
+import moa.classifiers.core.splitcriteria.InfoGainSplitCriterion;
 import moa.classifiers.core.splitcriteria.SplitCriterion;
 
 import moa.core.AutoExpandVector;
 import moa.core.DoubleVector;
 import moa.core.GaussianEstimator;
+import moa.core.Statistics;
 import moa.options.AbstractOptionHandler;
 import com.github.javacliparser.IntOption;
 
@@ -86,23 +90,84 @@ public class GaussianNumericAttributeClassObserver extends AbstractOptionHandler
         return obs != null ? obs.probabilityDensity(attVal) : 0.0;
     }
 
+    /**
+     * Gets the estimator of the values of a class.
+     *
+     * @param classVal the class
+     * @return the estimator, or null if the class was not observed
+     */
+    public GaussianEstimator getClassEstimator(int classVal) {
+        return this.attValDistPerClass.get(classVal);
+    }
+
     @Override
     public AttributeSplitSuggestion getBestEvaluatedSplitSuggestion(
             SplitCriterion criterion, double[] preSplitDist, int attIndex,
             boolean binaryOnly) {
-        AttributeSplitSuggestion bestSuggestion = null;
-        double[] suggestedSplitValues = getSplitPointSuggestions();
-        for (double splitValue : suggestedSplitValues) {
-            double[][] postSplitDists = getClassDistsResultingFromBinarySplit(splitValue);
-            double merit = criterion.getMeritOfSplit(preSplitDist,
-                    postSplitDists);
-            if ((bestSuggestion == null) || (merit > bestSuggestion.merit)) {
-                bestSuggestion = new AttributeSplitSuggestion(
-                        new NumericAttributeBinaryTest(attIndex, splitValue,
-                        true), postSplitDists, merit);
+        // the same candidates as getSplitPointSuggestions, evaluated in two
+        // buffers reused for every candidate: only the distributions of the
+        // best split are allocated
+        double minValue = Double.POSITIVE_INFINITY;
+        double maxValue = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < this.attValDistPerClass.size(); i++) {
+            if (this.attValDistPerClass.get(i) != null) {
+                if (this.minValueObservedPerClass.getValue(i) < minValue) {
+                    minValue = this.minValueObservedPerClass.getValue(i);
+                }
+                if (this.maxValueObservedPerClass.getValue(i) > maxValue) {
+                    maxValue = this.maxValueObservedPerClass.getValue(i);
+                }
             }
         }
-        return bestSuggestion;
+        if (!(minValue < Double.POSITIVE_INFINITY)) {
+            return null;
+        }
+        InfoGainSplitCriterion infoGain = criterion.getClass() == InfoGainSplitCriterion.class
+                ? (InfoGainSplitCriterion) criterion : null;
+        GiniSplitCriterion gini = criterion.getClass() == GiniSplitCriterion.class
+                ? (GiniSplitCriterion) criterion : null;
+        double preSplitEntropy = infoGain != null
+                ? InfoGainSplitCriterion.computeEntropy(preSplitDist) : 0.0;
+        double[] lhsDist = new double[this.attValDistPerClass.size()];
+        double[] rhsDist = new double[this.attValDistPerClass.size()];
+        boolean found = false;
+        double bestMerit = 0.0;
+        double bestSplitValue = 0.0;
+        double range = maxValue - minValue;
+        double lastSplitValue = Double.NaN;
+        int numBins = this.numBinsOption.getValue();
+        for (int b = 0; b < numBins; b++) {
+            // the candidates increase with b, so equal ones are consecutive
+            double splitValue = range / (numBins + 1.0) * (b + 1) + minValue;
+            if ((splitValue > minValue) && (splitValue < maxValue)
+                    && (splitValue != lastSplitValue)) {
+                lastSplitValue = splitValue;
+                long lengths = fillClassDistsResultingFromBinarySplit(splitValue, lhsDist, rhsDist);
+                int lhsLength = (int) (lengths >>> 32);
+                int rhsLength = (int) lengths;
+                double merit;
+                if (infoGain != null) {
+                    merit = infoGain.getMeritOfBinarySplit(preSplitEntropy,
+                            lhsDist, lhsLength, rhsDist, rhsLength);
+                } else if (gini != null) {
+                    merit = gini.getMeritOfBinarySplit(lhsDist, lhsLength, rhsDist, rhsLength);
+                } else {
+                    merit = criterion.getMeritOfSplit(preSplitDist, new double[][]{
+                        Arrays.copyOf(lhsDist, lhsLength), Arrays.copyOf(rhsDist, rhsLength)});
+                }
+                if (!found || (merit > bestMerit)) {
+                    found = true;
+                    bestMerit = merit;
+                    bestSplitValue = splitValue;
+                }
+            }
+        }
+        if (!found) {
+            return null;
+        }
+        return new AttributeSplitSuggestion(new NumericAttributeBinaryTest(
+                attIndex, bestSplitValue, true),
+                getClassDistsResultingFromBinarySplit(bestSplitValue), bestMerit);
     }
 
     public double[] getSplitPointSuggestions() {
@@ -159,6 +224,51 @@ public class GaussianNumericAttributeClassObserver extends AbstractOptionHandler
         return new double[][]{lhsDist.getArrayRef(), rhsDist.getArrayRef()};
     }
 
+    /**
+     * Fills the class distributions of getClassDistsResultingFromBinarySplit
+     * into two buffers of at least the number of classes observed.
+     *
+     * @return the length of the left distribution in the high 32 bits and the
+     * length of the right one in the low 32 bits
+     */
+    protected long fillClassDistsResultingFromBinarySplit(double splitValue,
+            double[] lhsDist, double[] rhsDist) {
+        int lhsLength = 0;
+        int rhsLength = 0;
+        for (int i = 0; i < this.attValDistPerClass.size(); i++) {
+            lhsDist[i] = 0.0;
+            rhsDist[i] = 0.0;
+            GaussianEstimator estimator = this.attValDistPerClass.get(i);
+            if (estimator != null) {
+                if (splitValue < this.minValueObservedPerClass.getValue(i)) {
+                    rhsDist[i] += estimator.getTotalWeightObserved();
+                    rhsLength = i + 1;
+                } else if (splitValue >= this.maxValueObservedPerClass.getValue(i)) {
+                    lhsDist[i] += estimator.getTotalWeightObserved();
+                    lhsLength = i + 1;
+                } else {
+                    // estimatedWeight_LessThan_EqualTo_GreaterThan_Value
+                    double weightSum = estimator.getTotalWeightObserved();
+                    double mean = estimator.getMean();
+                    double equalToWeight = estimator.probabilityDensity(splitValue) * weightSum;
+                    double stdDev = estimator.getStdDev();
+                    double lessThanWeight = stdDev > 0.0 ? Statistics.normalProbability((splitValue - mean) / stdDev)
+                            * weightSum - equalToWeight
+                            : (splitValue < mean ? weightSum - equalToWeight : 0.0);
+                    double greaterThanWeight = weightSum - equalToWeight - lessThanWeight;
+                    if (greaterThanWeight < 0.0) {
+                        greaterThanWeight = 0.0;
+                    }
+                    lhsDist[i] += lessThanWeight + equalToWeight;
+                    rhsDist[i] += greaterThanWeight;
+                    lhsLength = i + 1;
+                    rhsLength = i + 1;
+                }
+            }
+        }
+        return ((long) lhsLength << 32) | rhsLength;
+    }
+
     @Override
     public void getDescription(StringBuilder sb, int indent) {
         // TODO Auto-generated method stub
@@ -0,0 +1,622 @@
+/*
+ *    PackedAttributeClassObservers.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers.core.attributeclassobservers;
+
+import java.util.Arrays;
+
+import moa.AbstractMOAObject;
+import moa.classifiers.core.AttributeSplitSuggestion;
+import moa.classifiers.core.conditionaltests.NominalAttributeBinaryTest;
+import moa.classifiers.core.conditionaltests.NominalAttributeMultiwayTest;
+import moa.classifiers.core.conditionaltests.NumericAttributeBinaryTest;
+import moa.classifiers.core.splitcriteria.SplitCriterion;
+import moa.core.GaussianEstimator;
+import moa.core.ObjectRepository;
+import moa.core.Statistics;
+import moa.core.Utils;
+import moa.options.AbstractOptionHandler;
+import moa.tasks.TaskMonitor;
+
+/**
+ * Statistics of all the attributes of a leaf, packed into primitive arrays.
+ *
+ * <p>The observers created by newNumericClassObserver and
+ * newNominalClassObserver keep their statistics here instead of in their own
+ * objects: for every class, the Gaussian estimator of a numeric attribute
+ * takes five consecutive doubles of one array, and the counts of the values
+ * of a nominal attribute take a row of another one. The observers give the
+ * same results as GaussianNumericAttributeClassObserver and
+ * NominalAttributeClassObserver, with a few objects per leaf instead of
+ * several per attribute and class.</p>
+ *
+ * @version $Revision: 7 $
+ */
+public class PackedAttributeClassObservers extends AbstractMOAObject {
+
+    private static final long serialVersionUID = 1L;
+
+    protected static final int WEIGHT = 0;
+
+    protected static final int MEAN = 1;
+
+    protected static final int VARIANCE = 2;
+
+    protected static final int MIN = 3;
+
+    protected static final int MAX = 4;
+
+    protected static final int NUM_STATS = 5;
+
+    protected int numClasses;
+
+    protected int numBins;
+
+    /**
+     * Weight, mean, variance sum, min and max for each numeric attribute and
+     * class. The min is NaN for the classes not observed yet.
+     */
+    protected double[] numericStats = new double[0];
+
+    protected int numNumeric;
+
+    /**
+     * Weight of each value for each nominal attribute and class.
+     */
+    protected double[] nominalCounts = new double[0];
+
+    protected int nominalCountsSize;
+
+    protected int[] nominalOffsets = new int[0];
+
+    protected int[] nominalNumValues = new int[0];
+
+    /**
+     * Largest value observed plus one for each nominal attribute and class,
+     * 0 for the classes not observed yet.
+     */
+    protected int[] nominalObservedValues = new int[0];
+
+    /**
+     * Total and missing weight for each nominal attribute.
+     */
+    protected double[] nominalWeights = new double[0];
+
+    protected int numNominal;
+
+    /**
+     * Creates the statistics of a leaf.
+     *
+     * @param numClasses the number of classes of the stream
+     * @param numBins the number of bins of the numeric attributes
+     */
+    public PackedAttributeClassObservers(int numClasses, int numBins) {
+        this.numClasses = Math.max(numClasses, 1);
+        this.numBins = numBins;
+    }
+
+    /**
+     * Creates the observer of a numeric attribute, equivalent to a
+     * GaussianNumericAttributeClassObserver.
+     *
+     * @return the observer
+     */
+    public AttributeClassObserver newNumericClassObserver() {
+        int slot = this.numNumeric++;
+        int stride = this.numClasses * NUM_STATS;
+        if (this.numNumeric * stride > this.numericStats.length) {
+            this.numericStats = Arrays.copyOf(this.numericStats,
+                    Math.max(this.numNumeric, 2 * this.numericStats.length / stride) * stride);
+        }
+        for (int i = slot * stride; i < this.numNumeric * stride; i += NUM_STATS) {
+            this.numericStats[i + MIN] = Double.NaN;
+        }
+        return new NumericObserver(this, slot);
+    }
+
+    /**
+     * Creates the observer of a nominal attribute, equivalent to a
+     * NominalAttributeClassObserver.
+     *
+     * @param numValues the number of values of the attribute
+     * @return the observer
+     */
+    public AttributeClassObserver newNominalClassObserver(int numValues) {
+        int slot = this.numNominal++;
+        if (this.numNominal > this.nominalOffsets.length) {
+            int capacity = Math.max(this.numNominal, 2 * this.nominalOffsets.length);
+            this.nominalOffsets = Arrays.copyOf(this.nominalOffsets, capacity);
+            this.nominalNumValues = Arrays.copyOf(this.nominalNumValues, capacity);
+            this.nominalObservedValues = Arrays.copyOf(this.nominalObservedValues, capacity * this.numClasses);
+            this.nominalWeights = Arrays.copyOf(this.nominalWeights, capacity * 2);
+        }
+        this.nominalOffsets[slot] = this.nominalCountsSize;
+        this.nominalNumValues[slot] = Math.max(numValues, 1);
+        this.nominalCountsSize += this.numClasses * this.nominalNumValues[slot];
+        if (this.nominalCountsSize > this.nominalCounts.length) {
+            this.nominalCounts = Arrays.copyOf(this.nominalCounts,
+                    Math.max(this.nominalCountsSize, 2 * this.nominalCounts.length));
+        }
+        return new NominalObserver(this, slot);
+    }
+
+    protected void observeNumeric(int slot, double attVal, int classVal, double weight) {
+        if (Utils.isMissingValue(attVal)) {
+            return;
+        }
+        if (classVal >= this.numClasses) {
+            setNumClasses(classVal + 1);
+        }
+        double[] stats = this.numericStats;
+        int i = (slot * this.numClasses + classVal) * NUM_STATS;
+        if (Double.isNaN(stats[i + MIN])) {
+            stats[i + MIN] = attVal;
+            stats[i + MAX] = attVal;
+        } else {
+            if (attVal < stats[i + MIN]) {
+                stats[i + MIN] = attVal;
+            }
+            if (attVal > stats[i + MAX]) {
+                stats[i + MAX] = attVal;
+            }
+        }
+        if (Double.isInfinite(attVal)) {
+            return;
+        }
+        // same update as GaussianEstimator.addObservation
+        if (stats[i + WEIGHT] > 0.0) {
+            stats[i + WEIGHT] += weight;
+            double lastMean = stats[i + MEAN];
+            stats[i + MEAN] += weight * (attVal - lastMean) / stats[i + WEIGHT];
+            stats[i + VARIANCE] += weight * (attVal - lastMean) * (attVal - stats[i + MEAN]);
+        } else {
+            stats[i + MEAN] = attVal;
+            stats[i + WEIGHT] = weight;
+        }
+    }
+
+    protected double getStdDev(int i) {
+        double weightSum = this.numericStats[i + WEIGHT];
+        return Math.sqrt(weightSum > 1.0 ? this.numericStats[i + VARIANCE] / (weightSum - 1.0) : 0.0);
+    }
+
+    protected double probabilityDensity(int i, double value) {
+        if (this.numericStats[i + WEIGHT] > 0.0) {
+            double stdDev = getStdDev(i);
+            double mean = this.numericStats[i + MEAN];
+            if (stdDev > 0.0) {
+                double diff = value - mean;
+                return (1.0 / (GaussianEstimator.NORMAL_CONSTANT * stdDev))
+                        * Math.exp(-(diff * diff / (2.0 * stdDev * stdDev)));
+            }
+            return value == mean ? 1.0 : 0.0;
+        }
+        return 0.0;
+    }
+
+    protected double numericProbability(int slot, double attVal, int classVal) {
+        if (classVal >= this.numClasses) {
+            return 0.0;
+        }
+        int i = (slot * this.numClasses + classVal) * NUM_STATS;
+        return Double.isNaN(this.numericStats[i + MIN]) ? 0.0 : probabilityDensity(i, attVal);
+    }
+
+    protected GaussianEstimator getNumericEstimator(int slot, int classVal) {
+        if (classVal >= this.numClasses) {
+            return null;
+        }
+        int i = (slot * this.numClasses + classVal) * NUM_STATS;
+        return Double.isNaN(this.numericStats[i + MIN]) ? null
+                : new GaussianEstimator(this.numericStats[i + WEIGHT],
+                this.numericStats[i + MEAN], this.numericStats[i + VARIANCE]);
+    }
+
+    protected AttributeSplitSuggestion getBestNumericSplit(int slot,
+            SplitCriterion criterion, double[] preSplitDist, int attIndex) {
+        int base = slot * this.numClasses * NUM_STATS;
+        double minValue = Double.POSITIVE_INFINITY;
+        double maxValue = Double.NEGATIVE_INFINITY;
+        for (int c = 0; c < this.numClasses; c++) {
+            int i = base + c * NUM_STATS;
+            if (!Double.isNaN(this.numericStats[i + MIN])) {
+                if (this.numericStats[i + MIN] < minValue) {
+                    minValue = this.numericStats[i + MIN];
+                }
+                if (this.numericStats[i + MAX] > maxValue) {
+                    maxValue = this.numericStats[i + MAX];
+                }
+            }
+        }
+        AttributeSplitSuggestion bestSuggestion = null;
+        if (minValue < Double.POSITIVE_INFINITY) {
+            // the split points grow with the bin, so skipping the repeated
+            // ones visits them in the order of a sorted set
+            double range = maxValue - minValue;
+            double lastSplitValue = Double.NaN;
+            for (int b = 0; b < this.numBins; b++) {
+                double splitValue = range / (this.numBins + 1.0) * (b + 1) + minValue;
+                if ((splitValue > minValue) && (splitValue < maxValue)
+                        && (splitValue != lastSplitValue)) {
+                    lastSplitValue = splitValue;
+                    double[][] postSplitDists = getNumericBinarySplitDists(base, splitValue);
+                    double merit = criterion.getMeritOfSplit(preSplitDist, postSplitDists);
+                    if ((bestSuggestion == null) || (merit > bestSuggestion.merit)) {
+                        bestSuggestion = new AttributeSplitSuggestion(
+                                new NumericAttributeBinaryTest(attIndex, splitValue, true),
+                                postSplitDists, merit);
+                    }
+                }
+            }
+        }
+        return bestSuggestion;
+    }
+
+    // assume all values equal to splitValue go to lhs
+    protected double[][] getNumericBinarySplitDists(int base, double splitValue) {
+        double[] stats = this.numericStats;
+        int lhsLength = 0;
+        int rhsLength = 0;
+        for (int c = 0; c < this.numClasses; c++) {
+            int i = base + c * NUM_STATS;
+            if (!Double.isNaN(stats[i + MIN])) {
+                if (splitValue < stats[i + MIN]) {
+                    rhsLength = c + 1;
+                } else if (splitValue >= stats[i + MAX]) {
+                    lhsLength = c + 1;
+                } else {
+                    lhsLength = c + 1;
+                    rhsLength = c + 1;
+                }
+            }
+        }
+        double[] lhsDist = new double[lhsLength];
+        double[] rhsDist = new double[rhsLength];
+        for (int c = 0; c < this.numClasses; c++) {
+            int i = base + c * NUM_STATS;
+            if (!Double.isNaN(stats[i + MIN])) {
+                double weightSum = stats[i + WEIGHT];
+                if (splitValue < stats[i + MIN]) {
+                    rhsDist[c] += weightSum;
+                } else if (splitValue >= stats[i + MAX]) {
+                    lhsDist[c] += weightSum;
+                } else {
+                    // same as GaussianEstimator.estimatedWeight_LessThan_EqualTo_GreaterThan_Value
+                    double equalToWeight = probabilityDensity(i, splitValue) * weightSum;
+                    double stdDev = getStdDev(i);
+                    double mean = stats[i + MEAN];
+                    double lessThanWeight = stdDev > 0.0
+                            ? Statistics.normalProbability((splitValue - mean) / stdDev)
+                            * weightSum - equalToWeight
+                            : (splitValue < mean ? weightSum - equalToWeight : 0.0);
+                    double greaterThanWeight = weightSum - equalToWeight - lessThanWeight;
+                    if (greaterThanWeight < 0.0) {
+                        greaterThanWeight = 0.0;
+                    }
+                    lhsDist[c] += lessThanWeight + equalToWeight;
+                    rhsDist[c] += greaterThanWeight;
+                }
+            }
+        }
+        return new double[][]{lhsDist, rhsDist};
+    }
+
+    protected void observeNominal(int slot, double attVal, int classVal, double weight) {
+        if (Utils.isMissingValue(attVal)) {
+            this.nominalWeights[2 * slot + 1] += weight;
+        } else {
+            int attValInt = (int) attVal;
+            if (classVal >= this.numClasses) {
+                setNumClasses(classVal + 1);
+            }
+            if (attValInt >= this.nominalNumValues[slot]) {
+                setNominalNumValues(slot, Math.max(attValInt + 1, 2 * this.nominalNumValues[slot]));
+            }
+            this.nominalCounts[this.nominalOffsets[slot]
+                    + classVal * this.nominalNumValues[slot] + attValInt] += weight;
+            int observed = slot * this.numClasses + classVal;
+            if (this.nominalObservedValues[observed] <= attValInt) {
+                this.nominalObservedValues[observed] = attValInt + 1;
+            }
+        }
+        this.nominalWeights[2 * slot] += weight;
+    }
+
+    protected double nominalProbability(int slot, double attVal, int classVal) {
+        if (classVal >= this.numClasses) {
+            return 0.0;
+        }
+        int numValues = this.nominalObservedValues[slot * this.numClasses + classVal];
+        if (numValues == 0) {
+            return 0.0;
+        }
+        int row = this.nominalOffsets[slot] + classVal * this.nominalNumValues[slot];
+        int attValInt = (int) attVal;
+        double sum = 0.0;
+        for (int v = 0; v < numValues; v++) {
+            sum += this.nominalCounts[row + v];
+        }
+        double count = (attValInt >= 0) && (attValInt < numValues)
+                ? this.nominalCounts[row + attValInt] : 0.0;
+        return (count + 1.0) / (sum + numValues);
+    }
+
+    protected AttributeSplitSuggestion getBestNominalSplit(int slot,
+            SplitCriterion criterion, double[] preSplitDist, int attIndex,
+            boolean binaryOnly) {
+        AttributeSplitSuggestion bestSuggestion = null;
+        int maxAttValsObserved = 0;
+        for (int c = 0; c < this.numClasses; c++) {
+            maxAttValsObserved = Math.max(maxAttValsObserved,
+                    this.nominalObservedValues[slot * this.numClasses + c]);
+        }
+        if (!binaryOnly) {
+            double[][] postSplitDists = getNominalMultiwaySplitDists(slot, maxAttValsObserved);
+            double merit = criterion.getMeritOfSplit(preSplitDist, postSplitDists);
+            bestSuggestion = new AttributeSplitSuggestion(
+                    new NominalAttributeMultiwayTest(attIndex), postSplitDists,
+                    merit);
+        }
+        for (int valIndex = 0; valIndex < maxAttValsObserved; valIndex++) {
+            double[][] postSplitDists = getNominalBinarySplitDists(slot, valIndex);
+            double merit = criterion.getMeritOfSplit(preSplitDist, postSplitDists);
+            if ((bestSuggestion == null) || (merit > bestSuggestion.merit)) {
+                bestSuggestion = new AttributeSplitSuggestion(
+                        new NominalAttributeBinaryTest(attIndex, valIndex),
+                        postSplitDists, merit);
+            }
+        }
+        return bestSuggestion;
+    }
+
+    protected double[][] getNominalMultiwaySplitDists(int slot, int maxAttValsObserved) {
+        int[] lengths = new int[maxAttValsObserved];
+        for (int c = 0; c < this.numClasses; c++) {
+            int numValues = this.nominalObservedValues[slot * this.numClasses + c];
+            for (int v = 0; v < numValues; v++) {
+                lengths[v] = c + 1;
+            }
+        }
+        double[][] distributions = new double[maxAttValsObserved][];
+        for (int v = 0; v < maxAttValsObserved; v++) {
+            distributions[v] = new double[lengths[v]];
+        }
+        for (int c = 0; c < this.numClasses; c++) {
+            int numValues = this.nominalObservedValues[slot * this.numClasses + c];
+            int row = this.nominalOffsets[slot] + c * this.nominalNumValues[slot];
+            for (int v = 0; v < numValues; v++) {
+                distributions[v][c] += this.nominalCounts[row + v];
+            }
+        }
+        return distributions;
+    }
+
+    protected double[][] getNominalBinarySplitDists(int slot, int valIndex) {
+        int equalsLength = 0;
+        int notEqualLength = 0;
+        for (int c = 0; c < this.numClasses; c++) {
+            int numValues = this.nominalObservedValues[slot * this.numClasses + c];
+            if (numValues > valIndex) {
+                equalsLength = c + 1;
+            }
+            if ((numValues > 1) || ((numValues == 1) && (valIndex != 0))) {
+                notEqualLength = c + 1;
+            }
+        }
+        double[] equalsDist = new double[equalsLength];
+        double[] notEqualDist = new double[notEqualLength];
+        for (int c = 0; c < this.numClasses; c++) {
+            int numValues = this.nominalObservedValues[slot * this.numClasses + c];
+            int row = this.nominalOffsets[slot] + c * this.nominalNumValues[slot];
+            for (int v = 0; v < numValues; v++) {
+                if (v == valIndex) {
+                    equalsDist[c] += this.nominalCounts[row + v];
+                } else {
+                    notEqualDist[c] += this.nominalCounts[row + v];
+                }
+            }
+        }
+        return new double[][]{equalsDist, notEqualDist};
+    }
+
+    /**
+     * Moves the statistics to arrays with room for more classes.
+     *
+     * @param numClasses the new number of classes
+     */
+    protected void setNumClasses(int numClasses) {
+        int oldStride = this.numClasses * NUM_STATS;
+        int stride = numClasses * NUM_STATS;
+        double[] stats = new double[Math.max(this.numNumeric, 1) * stride];
+        for (int slot = 0; slot < this.numNumeric; slot++) {
+            System.arraycopy(this.numericStats, slot * oldStride, stats, slot * stride, oldStride);
+            for (int i = slot * stride + oldStride; i < (slot + 1) * stride; i += NUM_STATS) {
+                stats[i + MIN] = Double.NaN;
+            }
+        }
+        this.numericStats = stats;
+        int[] observed = new int[this.nominalOffsets.length * numClasses];
+        for (int slot = 0; slot < this.numNominal; slot++) {
+            System.arraycopy(this.nominalObservedValues, slot * this.numClasses,
+                    observed, slot * numClasses, this.numClasses);
+        }
+        this.nominalObservedValues = observed;
+        relayoutNominalCounts(numClasses, -1, 0);
+    }
+
+    /**
+     * Moves the counts to arrays with room for more values of a nominal
+     * attribute.
+     *
+     * @param slot the nominal attribute
+     * @param numValues the new number of values
+     */
+    protected void setNominalNumValues(int slot, int numValues) {
+        relayoutNominalCounts(this.numClasses, slot, numValues);
+    }
+
+    protected void relayoutNominalCounts(int numClasses, int grownSlot, int grownNumValues) {
+        int size = 0;
+        int[] offsets = new int[this.nominalOffsets.length];
+        int[] numValues = Arrays.copyOf(this.nominalNumValues, this.nominalNumValues.length);
+        if (grownSlot >= 0) {
+            numValues[grownSlot] = grownNumValues;
+        }
+        for (int slot = 0; slot < this.numNominal; slot++) {
+            offsets[slot] = size;
+            size += numClasses * numValues[slot];
+        }
+        double[] counts = new double[size];
+        for (int slot = 0; slot < this.numNominal; slot++) {
+            for (int c = 0; c < this.numClasses; c++) {
+                System.arraycopy(this.nominalCounts,
+                        this.nominalOffsets[slot] + c * this.nominalNumValues[slot],
+                        counts, offsets[slot] + c * numValues[slot],
+                        this.nominalNumValues[slot]);
+            }
+        }
+        this.nominalCounts = counts;
+        this.nominalCountsSize = size;
+        this.nominalOffsets = offsets;
+        this.nominalNumValues = numValues;
+        this.numClasses = numClasses;
+    }
+
+    @Override
+    public void getDescription(StringBuilder sb, int indent) {
+    }
+
+    /**
+     * Observer of a numeric attribute using gaussian estimators, with its
+     * statistics in the packed arrays.
+     */
+    public static class NumericObserver extends AbstractOptionHandler
+            implements NumericAttributeClassObserver {
+
+        private static final long serialVersionUID = 1L;
+
+        protected PackedAttributeClassObservers observers;
+
+        protected int slot;
+
+        public NumericObserver(PackedAttributeClassObservers observers, int slot) {
+            this.observers = observers;
+            this.slot = slot;
+        }
+
+        @Override
+        public void observeAttributeClass(double attVal, int classVal, double weight) {
+            this.observers.observeNumeric(this.slot, attVal, classVal, weight);
+        }
+
+        @Override
+        public double probabilityOfAttributeValueGivenClass(double attVal,
+                int classVal) {
+            return this.observers.numericProbability(this.slot, attVal, classVal);
+        }
+
+        /**
+         * Gets the estimator of the values of a class.
+         *
+         * @param classVal the class
+         * @return a copy of the estimator, or null if the class was not observed
+         */
+        public GaussianEstimator getClassEstimator(int classVal) {
+            return this.observers.getNumericEstimator(this.slot, classVal);
+        }
+
+        @Override
+        public AttributeSplitSuggestion getBestEvaluatedSplitSuggestion(
+                SplitCriterion criterion, double[] preSplitDist, int attIndex,
+                boolean binaryOnly) {
+            return this.observers.getBestNumericSplit(this.slot, criterion,
+                    preSplitDist, attIndex);
+        }
+
+        @Override
+        public void getDescription(StringBuilder sb, int indent) {
+        }
+
+        @Override
+        protected void prepareForUseImpl(TaskMonitor monitor, ObjectRepository repository) {
+        }
+
+        @Override
+        public void observeAttributeTarget(double attVal, double target) {
+            throw new UnsupportedOperationException("Not supported yet.");
+        }
+    }
+
+    /**
+     * Observer of a nominal attribute, with its statistics in the packed
+     * arrays.
+     */
+    public static class NominalObserver extends AbstractOptionHandler
+            implements DiscreteAttributeClassObserver {
+
+        private static final long serialVersionUID = 1L;
+
+        protected PackedAttributeClassObservers observers;
+
+        protected int slot;
+
+        public NominalObserver(PackedAttributeClassObservers observers, int slot) {
+            this.observers = observers;
+            this.slot = slot;
+        }
+
+        @Override
+        public void observeAttributeClass(double attVal, int classVal, double weight) {
+            this.observers.observeNominal(this.slot, attVal, classVal, weight);
+        }
+
+        @Override
+        public double probabilityOfAttributeValueGivenClass(double attVal,
+                int classVal) {
+            return this.observers.nominalProbability(this.slot, attVal, classVal);
+        }
+
+        public double totalWeightOfClassObservations() {
+            return this.observers.nominalWeights[2 * this.slot];
+        }
+
+        public double weightOfObservedMissingValues() {
+            return this.observers.nominalWeights[2 * this.slot + 1];
+        }
+
+        @Override
+        public AttributeSplitSuggestion getBestEvaluatedSplitSuggestion(
+                SplitCriterion criterion, double[] preSplitDist, int attIndex,
+                boolean binaryOnly) {
+            return this.observers.getBestNominalSplit(this.slot, criterion,
+                    preSplitDist, attIndex, binaryOnly);
+        }
+
+        @Override
+        public void getDescription(StringBuilder sb, int indent) {
+        }
+
+        @Override
+        protected void prepareForUseImpl(TaskMonitor monitor, ObjectRepository repository) {
+        }
+
+        @Override
+        public void observeAttributeTarget(double attVal, double target) {
+            throw new UnsupportedOperationException("Not supported yet.");
+        }
+    }
+}
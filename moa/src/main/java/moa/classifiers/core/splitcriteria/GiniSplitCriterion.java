@@ -55,6 +55,35 @@ public class GiniSplitCriterion extends AbstractOptionHandler implements
         return 1.0 - gini;
     }
 
+    /**
+     * Computes the merit of a binary split like getMeritOfSplit, from the
+     * first entries of two distributions and without allocating them.
+     *
+     * @param lhsDist the class distribution of the left branch
+     * @param lhsLength the length of the left distribution
+     * @param rhsDist the class distribution of the right branch
+     * @param rhsLength the length of the right distribution
+     * @return value of the merit of splitting
+     */
+    public double getMeritOfBinarySplit(double[] lhsDist, int lhsLength,
+            double[] rhsDist, int rhsLength) {
+        double lhsWeight = 0.0;
+        for (int i = 0; i < lhsLength; i++) {
+            lhsWeight += lhsDist[i];
+        }
+        double rhsWeight = 0.0;
+        for (int i = 0; i < rhsLength; i++) {
+            rhsWeight += rhsDist[i];
+        }
+        double totalWeight = 0.0;
+        totalWeight += lhsWeight;
+        totalWeight += rhsWeight;
+        double gini = 0.0;
+        gini += (lhsWeight / totalWeight) * computeGini(lhsDist, lhsLength, lhsWeight);
+        gini += (rhsWeight / totalWeight) * computeGini(rhsDist, rhsLength, rhsWeight);
+        return 1.0 - gini;
+    }
+
     @Override
     public double getRangeOfMerit(double[] preSplitDist) {
         return 1.0;
@@ -69,6 +98,15 @@ public class GiniSplitCriterion extends AbstractOptionHandler implements
         return gini;
     }
 
+    public static double computeGini(double[] dist, int length, double distSumOfWeights) {
+        double gini = 1.0;
+        for (int i = 0; i < length; i++) {
+            double relFreq = dist[i] / distSumOfWeights;
+            gini -= relFreq * relFreq;
+        }
+        return gini;
+    }
+
     public static double computeGini(double[] dist) {
         return computeGini(dist, Utils.sum(dist));
     }
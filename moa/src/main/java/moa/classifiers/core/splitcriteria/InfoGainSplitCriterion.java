@@ -39,6 +39,19 @@ public class InfoGainSplitCriterion extends AbstractOptionHandler implements
 
     private static final long serialVersionUID = 1L;
 
+    protected static final int NUM_TABULATED_WEIGHTS = 4096;
+
+    // d * Utils.log2(d) for the integer weights d below NUM_TABULATED_WEIGHTS,
+    // computed as for any other weight
+    protected static final double[] WEIGHT_LOG2_WEIGHT = new double[NUM_TABULATED_WEIGHTS];
+
+    static {
+        for (int i = 1; i < NUM_TABULATED_WEIGHTS; i++) {
+            double d = i;
+            WEIGHT_LOG2_WEIGHT[i] = d * Utils.log2(d);
+        }
+    }
+
     public FloatOption minBranchFracOption = new FloatOption("minBranchFrac",
             'f',
             "Minimum fraction of weight required down at least two branches.",
@@ -47,10 +60,29 @@ public class InfoGainSplitCriterion extends AbstractOptionHandler implements
     @Override
     public double getMeritOfSplit(double[] preSplitDist,
             double[][] postSplitDists) {
-        if (numSubsetsGreaterThanFrac(postSplitDists, this.minBranchFracOption.getValue()) < 2) {
+        // same as numSubsetsGreaterThanFrac and computeEntropy(postSplitDists),
+        // summing the distributions once
+        double totalWeight = 0.0;
+        double[] distWeights = new double[postSplitDists.length];
+        for (int i = 0; i < postSplitDists.length; i++) {
+            distWeights[i] = Utils.sum(postSplitDists[i]);
+            totalWeight += distWeights[i];
+        }
+        int numGreater = 0;
+        double minFrac = this.minBranchFracOption.getValue();
+        for (double d : distWeights) {
+            if (d / totalWeight > minFrac) {
+                numGreater++;
+            }
+        }
+        if (numGreater < 2) {
             return Double.NEGATIVE_INFINITY;
         }
-        return computeEntropy(preSplitDist) - computeEntropy(postSplitDists);
+        double entropy = 0.0;
+        for (int i = 0; i < postSplitDists.length; i++) {
+            entropy += distWeights[i] * computeEntropy(postSplitDists[i]);
+        }
+        return computeEntropy(preSplitDist) - entropy / totalWeight;
     }
 
     @Override
@@ -59,16 +91,79 @@ public class InfoGainSplitCriterion extends AbstractOptionHandler implements
         return Utils.log2(numClasses);
     }
 
+    /**
+     * Computes d * Utils.log2(d), looking it up for small integer weights.
+     *
+     * @param d a positive weight
+     * @return d * Utils.log2(d)
+     */
+    public static double weightLog2Weight(double d) {
+        if (d < NUM_TABULATED_WEIGHTS) {
+            int i = (int) d;
+            if (i == d) {
+                return WEIGHT_LOG2_WEIGHT[i];
+            }
+        }
+        return d * Utils.log2(d);
+    }
+
     public static double computeEntropy(double[] dist) {
         double entropy = 0.0;
         double sum = 0.0;
         for (double d : dist) {
             if (d > 0.0) { // TODO: how small can d be before log2 overflows?
-                entropy -= d * Utils.log2(d);
+                entropy -= weightLog2Weight(d);
+                sum += d;
+            }
+        }
+        return sum > 0.0 ? (entropy + weightLog2Weight(sum)) / sum : 0.0;
+    }
+
+    /**
+     * Computes the merit of a binary split like getMeritOfSplit, from the
+     * first entries of two distributions and without allocating them.
+     *
+     * @param preSplitEntropy the entropy of the distribution before the split
+     * @param lhsDist the class distribution of the left branch
+     * @param lhsLength the length of the left distribution
+     * @param rhsDist the class distribution of the right branch
+     * @param rhsLength the length of the right distribution
+     * @return value of the merit of splitting
+     */
+    public double getMeritOfBinarySplit(double preSplitEntropy,
+            double[] lhsDist, int lhsLength, double[] rhsDist, int rhsLength) {
+        double lhsWeight = 0.0;
+        for (int i = 0; i < lhsLength; i++) {
+            lhsWeight += lhsDist[i];
+        }
+        double rhsWeight = 0.0;
+        for (int i = 0; i < rhsLength; i++) {
+            rhsWeight += rhsDist[i];
+        }
+        double totalWeight = 0.0;
+        totalWeight += lhsWeight;
+        totalWeight += rhsWeight;
+        double minFrac = this.minBranchFracOption.getValue();
+        if (!(lhsWeight / totalWeight > minFrac) || !(rhsWeight / totalWeight > minFrac)) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        double entropy = 0.0;
+        entropy += lhsWeight * computeEntropy(lhsDist, lhsLength);
+        entropy += rhsWeight * computeEntropy(rhsDist, rhsLength);
+        return preSplitEntropy - entropy / totalWeight;
+    }
+
+    public static double computeEntropy(double[] dist, int length) {
+        double entropy = 0.0;
+        double sum = 0.0;
+        for (int i = 0; i < length; i++) {
+            double d = dist[i];
+            if (d > 0.0) {
+                entropy -= weightLog2Weight(d);
                 sum += d;
             }
         }
-        return sum > 0.0 ? (entropy + sum * Utils.log2(sum)) / sum : 0.0;
+        return sum > 0.0 ? (entropy + weightLog2Weight(sum)) / sum : 0.0;
     }
 
     public static double computeEntropy(double[][] dists) {
@@ -22,6 +22,7 @@ package moa.classifiers.functions;
 import moa.core.DoubleVector;
 import com.github.javacliparser.FloatOption;
 import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstanceBatch;
 import moa.core.Utils;
 
 /**
@@ -184,6 +185,19 @@ public class AdaGrad extends SGD{
         m_t += 1.0;
     }
 
+    /**
+     * Trains on a batch one instance at a time, as AdaGrad replaces the
+     * update of SGD.
+     *
+     * @param batch    the instances to include in the model
+     */
+    @Override
+    public void trainOnInstances(InstanceBatch batch) {
+        for (int i = 0; i < batch.numInstances(); i++) {
+            trainOnInstance(batch.instance(i));
+        }
+    }
+
     @Override
     protected String getModelName() {
         return "AdaGrad";
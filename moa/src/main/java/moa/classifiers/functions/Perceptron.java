@@ -25,6 +25,8 @@ import moa.core.Measurement;
 import moa.core.Utils;
 import com.github.javacliparser.FloatOption;
 import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstanceBatch;
+import com.yahoo.labs.samoa.instances.InstanceInformation;
 
 /**
  * Single perceptron classifier.
@@ -67,15 +69,7 @@ public class Perceptron extends AbstractClassifier  implements MultiClassClassif
 
         //Init Perceptron
         if (this.reset == true) {
-            this.reset = false;
-            this.numberAttributes = inst.numAttributes();
-            this.numberClasses = inst.numClasses();
-            this.weightAttribute = new double[inst.numClasses()][inst.numAttributes()];
-            for (int i = 0; i < inst.numClasses(); i++) {
-                for (int j = 0; j < inst.numAttributes(); j++) {
-                    weightAttribute[i][j] = 0.2 * this.classifierRandom.nextDouble() - 0.1;
-                }
-            }
+            initWeights(inst.numAttributes(), inst.numClasses());
         }
 
         double[] preds = new double[inst.numClasses()];
@@ -95,6 +89,98 @@ public class Perceptron extends AbstractClassifier  implements MultiClassClassif
         }
     }
 
+    protected void initWeights(int numAttributes, int numClasses) {
+        this.reset = false;
+        this.numberAttributes = numAttributes;
+        this.numberClasses = numClasses;
+        this.weightAttribute = new double[numClasses][numAttributes];
+        for (int i = 0; i < numClasses; i++) {
+            for (int j = 0; j < numAttributes; j++) {
+                weightAttribute[i][j] = 0.2 * this.classifierRandom.nextDouble() - 0.1;
+            }
+        }
+    }
+
+    /**
+     * Trains on a batch reading the inputs from the columns of the batch, with
+     * the learning ratio and the attribute mapping looked up once per batch.
+     *
+     * @param batch the instances to be used for training
+     */
+    @Override
+    public void trainOnInstances(InstanceBatch batch) {
+        int numAttributes = batch.numAttributes();
+        int numClasses = batch.getHeader().numClasses();
+        double learningRatio = learningRatioOption.getValue();
+        double[][] inputColumns = inputColumns(batch);
+        double[] inputs = new double[numAttributes - 1];
+        double[] preds = new double[numClasses];
+        double[] classValues = batch.classColumn();
+        for (int row = 0; row < batch.numInstances(); row++) {
+            if (!isTrainingInstance(batch, row)) {
+                continue;
+            }
+            this.trainingWeightSeenByModel += batch.weight(row);
+            if (this.reset == true) {
+                initWeights(numAttributes, numClasses);
+            }
+            for (int j = 0; j < inputs.length; j++) {
+                inputs[j] = inputColumns[j][row];
+            }
+            for (int i = 0; i < numClasses; i++) {
+                preds[i] = prediction(inputs, i);
+            }
+            int actualClass = (int) classValues[row];
+            for (int i = 0; i < numClasses; i++) {
+                double actual = (i == actualClass) ? 1.0 : 0.0;
+                double delta = (actual - preds[i]) * preds[i] * (1 - preds[i]);
+                for (int j = 0; j < inputs.length; j++) {
+                    this.weightAttribute[i][j] += learningRatio * delta * inputs[j];
+                }
+                this.weightAttribute[i][inputs.length] += learningRatio * delta;
+            }
+        }
+    }
+
+    /**
+     * Predicts a batch reading the inputs from the columns of the batch.
+     *
+     * @param batch the instances to be classified
+     * @return an array containing the votes for each instance of the batch
+     */
+    @Override
+    public double[][] getVotesForInstances(InstanceBatch batch) {
+        int numClasses = batch.getHeader().numClasses();
+        double[][] votes = new double[batch.numInstances()][numClasses];
+        if (this.reset == false) {
+            double[][] inputColumns = inputColumns(batch);
+            double[] inputs = new double[batch.numAttributes() - 1];
+            for (int row = 0; row < votes.length; row++) {
+                for (int j = 0; j < inputs.length; j++) {
+                    inputs[j] = inputColumns[j][row];
+                }
+                for (int i = 0; i < numClasses; i++) {
+                    votes[row][i] = prediction(inputs, i);
+                }
+                try {
+                    Utils.normalize(votes[row]);
+                } catch (Exception e) {
+                    // ignore all zero votes error
+                }
+            }
+        }
+        return votes;
+    }
+
+    protected double[][] inputColumns(InstanceBatch batch) {
+        InstanceInformation instanceInformation = batch.getHeader().getInstanceInformation();
+        double[][] inputColumns = new double[batch.numAttributes() - 1][];
+        for (int j = 0; j < inputColumns.length; j++) {
+            inputColumns[j] = batch.attributeColumn(instanceInformation.inputAttributeIndex(j));
+        }
+        return inputColumns;
+    }
+
     public void setWeights(double[][] w) {
         //Perceptron Hoeffding Tree
         this.weightAttribute = w;
@@ -124,6 +210,15 @@ public class Perceptron extends AbstractClassifier  implements MultiClassClassif
         return 1.0 / (1.0 + Math.exp(-sum));
     }
 
+    protected double prediction(double[] inputs, int classVal) {
+        double sum = 0.0;
+        for (int i = 0; i < inputs.length; i++) {
+            sum += weightAttribute[classVal][i] * inputs[i];
+        }
+        sum += weightAttribute[classVal][inputs.length];
+        return 1.0 / (1.0 + Math.exp(-sum));
+    }
+
     @Override
     public double[] getVotesForInstance(Instance inst) {
         double[] votes = new double[inst.numClasses()];
@@ -35,7 +35,9 @@ import moa.core.StringUtils;
 import com.github.javacliparser.FloatOption;
 import com.github.javacliparser.MultiChoiceOption;
 import moa.classifiers.Regressor;
+import com.yahoo.labs.samoa.instances.Attribute;
 import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstanceBatch;
 import moa.core.Utils;
 
 /**
@@ -292,7 +294,120 @@ public class SGD extends AbstractClassifier implements MultiClassClassifier, Reg
         double wx = dotProd(inst, m_weights, inst.classIndex());// * m_wScale;
         double z = (wx + m_bias);
 
-        if (inst.classAttribute().isNumeric()) {
+        return scoreToVotes(z, inst.classAttribute(), result);
+    }
+
+    /**
+     * Trains on a batch reading the values from the columns of the batch.
+     *
+     * @param batch 	the instances to include in the model
+     */
+    @Override
+    public void trainOnInstances(InstanceBatch batch) {
+        int classIndex = batch.classIndex();
+        int numAttributes = batch.numAttributes();
+        boolean nominalClass = batch.getHeader().classAttribute().isNominal();
+        double[] classValues = batch.classColumn();
+        for (int row = 0; row < batch.numInstances(); row++) {
+            if (!isTrainingInstance(batch, row)) {
+                continue;
+            }
+            this.trainingWeightSeenByModel += batch.weight(row);
+            if (m_weights == null) {
+                m_weights = new DoubleVector();
+                m_bias = 0.0;
+            }
+
+            double wx = 0;
+            int numWeights = Math.min(numAttributes, m_weights.numValues());
+            for (int j = 0; j < numWeights; j++) {
+                double value = batch.value(row, j);
+                if (j != classIndex && !Double.isNaN(value)) {
+                    wx += value * m_weights.getValue(j);
+                }
+            }
+
+            double y;
+            double z;
+            if (nominalClass) {
+                y = (classValues[row] == 0) ? -1 : 1;
+                z = y * (wx + m_bias);
+            } else {
+                y = classValues[row];
+                z = y - (wx + m_bias);
+                y = 1;
+            }
+
+            // Compute multiplier for weight decay
+            double multiplier = 1.0;
+            if (m_numInstances == 0) {
+                multiplier = 1.0 - (m_learningRate * m_lambda) / m_t;
+            } else {
+                multiplier = 1.0 - (m_learningRate * m_lambda) / m_numInstances;
+            }
+            for (int i = 0; i < m_weights.numValues(); i++) {
+                m_weights.setValue(i, m_weights.getValue(i) * multiplier);
+            }
+
+            // Only need to do the following if the loss is non-zero
+            if (m_loss != HINGE || (z < 1)) {
+                double factor = m_learningRate * y * dloss(z);
+                for (int j = 0; j < numAttributes; j++) {
+                    double value = batch.value(row, j);
+                    if (j != classIndex && !Double.isNaN(value)) {
+                        m_weights.addToValue(j, factor * value);
+                    }
+                }
+                m_bias += factor;
+            }
+            m_t++;
+        }
+    }
+
+    /**
+     * Predicts a batch computing the dot products attribute by attribute
+     * over the columns of the batch.
+     *
+     * @param batch 	the instances to be classified
+     * @return 		the predicted class probability distribution of each instance
+     */
+    @Override
+    public double[][] getVotesForInstances(InstanceBatch batch) {
+        int numInstances = batch.numInstances();
+        Attribute classAttribute = batch.getHeader().classAttribute();
+        double[][] votes = new double[numInstances][];
+        if (m_weights == null) {
+            for (int row = 0; row < numInstances; row++) {
+                votes[row] = new double[batch.getHeader().numClasses()];
+            }
+            return votes;
+        }
+        double[] wx = new double[numInstances];
+        int classIndex = batch.classIndex();
+        int numWeights = Math.min(batch.numAttributes(), m_weights.numValues());
+        for (int j = 0; j < numWeights; j++) {
+            if (j == classIndex) {
+                continue;
+            }
+            double weight = m_weights.getValue(j);
+            double[] values = batch.attributeColumn(j);
+            for (int row = 0; row < numInstances; row++) {
+                if (!Double.isNaN(values[row])) {
+                    wx[row] += values[row] * weight;
+                }
+            }
+        }
+        for (int row = 0; row < numInstances; row++) {
+            double[] result = classAttribute.isNominal()
+                    ? new double[2]
+                    : new double[1];
+            votes[row] = scoreToVotes(wx[row] + m_bias, classAttribute, result);
+        }
+        return votes;
+    }
+
+    protected double[] scoreToVotes(double z, Attribute classAttribute, double[] result) {
+        if (classAttribute.isNumeric()) {
             result[0] = z;
             return result;
         }
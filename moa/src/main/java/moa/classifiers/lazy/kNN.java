@@ -24,12 +24,11 @@ import com.github.javacliparser.FlagOption;
 import moa.classifiers.AbstractClassifier;
 import moa.classifiers.MultiClassClassifier;
 import moa.classifiers.Regressor;
+import moa.classifiers.lazy.neighboursearch.DistanceFunction;
 import moa.classifiers.lazy.neighboursearch.KDTree;
-import moa.classifiers.lazy.neighboursearch.LinearNNSearch;
-import moa.classifiers.lazy.neighboursearch.NearestNeighbourSearch;
+import moa.classifiers.lazy.neighboursearch.SlidingWindowIndex;
 import moa.core.Measurement;
 import com.yahoo.labs.samoa.instances.Instance;
-import com.yahoo.labs.samoa.instances.Instances;
 import com.yahoo.labs.samoa.instances.InstancesHeader;
 import com.github.javacliparser.IntOption;
 import com.github.javacliparser.MultiChoiceOption;
@@ -70,13 +69,18 @@ public class kNN extends AbstractClassifier implements MultiClassClassifier, Reg
         return "kNN: special.";
     }
 
-    protected Instances window; 
+    protected SlidingWindowIndex window; 
+
+	// KDTree built from the window, and the ids of its instances in the window
+	protected transient KDTree kdTree;
+
+	protected transient long[] kdTreeIds;
 
 	@Override
 	public void setModelContext(InstancesHeader context) {
 		try {
-			this.window = new Instances(context,0); //new StringReader(context.toString())
-			this.window.setClassIndex(context.classIndex());
+			this.window = new SlidingWindowIndex(context);
+			this.kdTree = null;
 		} catch(Exception e) {
 			System.err.println("Error: no Model Context available.");
 			e.printStackTrace();
@@ -87,6 +91,7 @@ public class kNN extends AbstractClassifier implements MultiClassClassifier, Reg
     @Override
     public void resetLearningImpl() {
 		this.window = null;
+		this.kdTree = null;
     }
 
     @Override
@@ -94,10 +99,10 @@ public class kNN extends AbstractClassifier implements MultiClassClassifier, Reg
 		if (inst.classValue() > C)
 			C = (int)inst.classValue();
 		if (this.window == null) {
-			this.window = new Instances(inst.dataset());
+			this.window = new SlidingWindowIndex(inst.dataset());
 		}
-		if (this.limitOption.getValue() <= this.window.numInstances()) {
-			this.window.delete(0);
+		if (this.limitOption.getValue() <= this.window.size()) {
+			this.window.removeOldest();
 		}
 		this.window.add(inst);
     }
@@ -106,30 +111,19 @@ public class kNN extends AbstractClassifier implements MultiClassClassifier, Reg
     public double[] getVotesForInstance(Instance inst) {
 		double v[] = new double[C+1];
 		try {
-			NearestNeighbourSearch search;
-			if (this.nearestNeighbourSearchOption.getChosenIndex()== 0) {
-				search = new LinearNNSearch(this.window);  
-			} else {
-				search = new KDTree();
-				search.setInstances(this.window);
-			}	
-			if (this.window.numInstances()>0) {	
-				Instances neighbours = search.kNearestNeighbours(inst,Math.min(kOption.getValue(),this.window.numInstances()));
+			if (this.window.size()>0) {	
+				double[] neighbourClassValues = getNeighbourClassValues(inst,Math.min(kOption.getValue(),this.window.size()));
 				//================== Regression ====================
 				if(inst.classAttribute().isNumeric()){
 					double[] result = new double[1];
 					// For storing the sum of class values of all the k nearest neighbours
 					double sum = 0;
 					// For storing the number of the nearest neighbours
-					int num = neighbours.numInstances();
+					int num = neighbourClassValues.length;
 					//================== Median ====================
 					if(medianOption.isSet()){
 						// For storing every neighbour's class value
-						double[] classValues = new double[num];
-
-						for(int i=0;i<num;i++){
-							classValues[i] = neighbours.instance(i).classValue();
-						}
+						double[] classValues = neighbourClassValues;
 						// Sort the class values
 						Arrays.sort(classValues);
 						// Assign the median value into result
@@ -143,7 +137,7 @@ public class kNN extends AbstractClassifier implements MultiClassClassifier, Reg
 					}else{
 						//================== Mean ==================
 						for(int i=0;i<num;i++){
-							sum += neighbours.instance(i).classValue();
+							sum += neighbourClassValues[i];
 						}
 						// Calculate the mean of all k nearest neighbours' class values
 						result[0] = sum / num;
@@ -152,8 +146,8 @@ public class kNN extends AbstractClassifier implements MultiClassClassifier, Reg
 					}
 					//============= End of Regression ==============
 				}else{
-					for (int i = 0; i < neighbours.numInstances(); i++) {
-						v[(int) neighbours.instance(i).classValue()]++;
+					for (int i = 0; i < neighbourClassValues.length; i++) {
+						v[(int) neighbourClassValues[i]]++;
 					}
 				}
 			}
@@ -166,6 +160,103 @@ public class kNN extends AbstractClassifier implements MultiClassClassifier, Reg
 		return v;
     }
 
+	/**
+	 * Gets the class values of the k nearest neighbours of an instance in the
+	 * window, searched with the chosen nearest neighbour search. The KDTree is
+	 * kept across training steps: the instances evicted since it was built are
+	 * skipped and the ones added since are scanned, with the attribute ranges
+	 * of the instances the tree was built from.
+	 *
+	 * @param inst the instance
+	 * @param k the number of neighbours
+	 * @return the class values of the neighbours
+	 * @throws Exception if the neighbours could not be found
+	 */
+	protected double[] getNeighbourClassValues(Instance inst, int k) throws Exception {
+		if (this.nearestNeighbourSearchOption.getChosenIndex() == 0) {
+			int[] neighbours = this.window.kNearestNeighbours(inst, k);
+			double[] classValues = new double[neighbours.length];
+			for (int i = 0; i < neighbours.length; i++) {
+				classValues[i] = this.window.classValue(neighbours[i]);
+			}
+			return classValues;
+		}
+		// the instances of the window older than the newest one of the tree
+		// are in the tree, the others were added since it was built
+		int numKept = 0;
+		int numEvicted = 0;
+		if (this.kdTree != null) {
+			numKept = this.window.position(this.kdTreeIds[this.kdTreeIds.length - 1] + 1);
+			numEvicted = this.kdTreeIds.length - numKept;
+		}
+		int numAdded = this.window.size() - numKept;
+		// a rebuild costs about n log n and the changes since the last one are
+		// scanned at each search, so the tree is rebuilt once they exceed
+		// sqrt(n log n)
+		if (this.kdTree == null || numEvicted + numAdded
+				> Math.sqrt(this.kdTreeIds.length * Math.log(this.kdTreeIds.length + 1))) {
+			KDTree tree = new KDTree();
+			tree.setInstances(this.window.toInstances());
+			this.kdTree = tree;
+			this.kdTreeIds = new long[this.window.size()];
+			for (int i = 0; i < this.kdTreeIds.length; i++) {
+				this.kdTreeIds[i] = this.window.id(i);
+			}
+			numKept = this.window.size();
+			numEvicted = 0;
+			numAdded = 0;
+		}
+		// the evicted instances may be among the nearest ones of the tree
+		int[] indices = this.kdTree.kNearestNeighbourIndices(inst,
+				Math.min(k + numEvicted, this.kdTreeIds.length));
+		double[] treeDistances = this.kdTree.getDistances();
+		double[] distances = new double[indices.length + numAdded];
+		double[] classValues = new double[distances.length];
+		int n = 0;
+		for (int i = 0; i < indices.length; i++) {
+			long id = this.kdTreeIds[indices[i]];
+			int position = this.window.position(id);
+			if (position < numKept && this.window.id(position) == id) {
+				distances[n] = treeDistances[i];
+				classValues[n++] = this.window.classValue(position);
+			}
+		}
+		// the added instances are compared with the ranges of the tree
+		DistanceFunction distanceFunction = this.kdTree.getDistanceFunction();
+		for (int position = numKept; position < this.window.size(); position++) {
+			distances[n] = distanceFunction.distance(inst, this.window.instance(position));
+			classValues[n++] = this.window.classValue(position);
+		}
+		return nearestClassValues(distances, classValues, n, k);
+	}
+
+	/**
+	 * Gets the class values of the k nearest candidates, along with the ones
+	 * at the distance of the kth nearest, as the searches do.
+	 *
+	 * @param distances the distances of the candidates
+	 * @param classValues the class values of the candidates
+	 * @param n the number of candidates
+	 * @param k the number of neighbours
+	 * @return the class values of the neighbours
+	 */
+	protected static double[] nearestClassValues(double[] distances, double[] classValues, int n, int k) {
+		double[] sortedDistances = Arrays.copyOf(distances, n);
+		Arrays.sort(sortedDistances);
+		double kthDistance = sortedDistances[Math.min(k, n) - 1];
+		int numNeighbours = 0;
+		while (numNeighbours < n && sortedDistances[numNeighbours] <= kthDistance) {
+			numNeighbours++;
+		}
+		double[] neighbourClassValues = new double[numNeighbours];
+		for (int i = 0, j = 0; i < n; i++) {
+			if (distances[i] <= kthDistance) {
+				neighbourClassValues[j++] = classValues[i];
+			}
+		}
+		return neighbourClassValues;
+	}
+
     @Override
     protected Measurement[] getModelMeasurementsImpl() {
         return null;
@@ -19,8 +19,8 @@ package moa.classifiers.lazy;
 
 import moa.classifiers.MultiClassClassifier;
 import moa.classifiers.core.driftdetection.ADWIN;
+import moa.classifiers.lazy.neighboursearch.SlidingWindowIndex;
 import com.yahoo.labs.samoa.instances.Instance;
-import com.yahoo.labs.samoa.instances.Instances;
 
 /**
  * k Nearest Neighbor ADAPTIVE with PAW.<p>
@@ -49,6 +49,7 @@ public class kNNwithPAW extends kNN implements MultiClassClassifier {
     @Override
     public void resetLearningImpl() {
         this.window = null;
+        this.kdTree = null;
         this.prob = Math.pow(2.0, -1.0 / this.limitOption.getValue());
     }
 
@@ -58,14 +59,24 @@ public class kNNwithPAW extends kNN implements MultiClassClassifier {
             C = (int) inst.classValue();
         }
         if (this.window == null) {
-            this.window = new Instances(inst.dataset());
+            this.window = new SlidingWindowIndex(inst.dataset());
         }
 
-        for (int i = 0; i < this.window.size(); i++) {
+        // the instance following an evicted one is kept without a draw
+        boolean[] removed = new boolean[this.window.size()];
+        boolean evicted = false;
+        for (int i = 0; i < removed.length; i++) {
+            if (i > 0 && removed[i - 1]) {
+                continue;
+            }
             if (this.classifierRandom.nextDouble() > this.prob) {
-                this.window.delete(i);
+                removed[i] = true;
+                evicted = true;
             }
         }
+        if (evicted) {
+            this.window.removeAll(removed);
+        }
         this.window.add(inst);
 
     }
@@ -21,8 +21,8 @@ import java.util.ArrayList;
 
 import moa.classifiers.MultiClassClassifier;
 import moa.classifiers.core.driftdetection.ADWIN;
+import moa.classifiers.lazy.neighboursearch.SlidingWindowIndex;
 import com.yahoo.labs.samoa.instances.Instance;
-import com.yahoo.labs.samoa.instances.Instances;
 
 /**
  * k Nearest Neighbor ADAPTIVE with ADWIN+PAW.<p>
@@ -55,6 +55,7 @@ public class kNNwithPAWandADWIN extends kNN implements MultiClassClassifier {
     @Override
     public void resetLearningImpl() {
         this.window = null;
+        this.kdTree = null;
         this.adwin = new ADWIN();
         this.prob = Math.pow(2.0, -1.0 / this.limitOption.getValue());
         this.time = 0;
@@ -69,18 +70,27 @@ public class kNNwithPAWandADWIN extends kNN implements MultiClassClassifier {
         }
         // ADWIN
         if (this.window == null) {
-            this.window = new Instances(inst.dataset());
+            this.window = new SlidingWindowIndex(inst.dataset());
         }
 
         if (this.timeStamp == null) {
             this.timeStamp = new ArrayList<Integer>(10);
         }
-        for (int i = 0; i < this.window.size(); i++) {
+        // the instance following an evicted one is kept without a draw
+        boolean[] removed = new boolean[this.window.size()];
+        boolean evicted = false;
+        for (int i = 0; i < removed.length; i++) {
+            if (i > 0 && removed[i - 1]) {
+                continue;
+            }
             if (this.classifierRandom.nextDouble() > this.prob) {
-                this.window.delete(i);
-                this.timeStamp.remove(i);
+                removed[i] = true;
+                evicted = true;
             }
         }
+        if (evicted) {
+            removeAll(removed);
+        }
         this.window.add(inst);
         this.timeStamp.add(this.time);
         this.time++;
@@ -88,16 +98,40 @@ public class kNNwithPAWandADWIN extends kNN implements MultiClassClassifier {
         if (this.adwin.setInput(correctlyClassifies ? 0 : 1)) {
             //Change
             int size = (int) this.adwin.getWidth();
-            for (int i = 0; i < this.window.size(); i++) {
+            removed = new boolean[this.window.size()];
+            evicted = false;
+            for (int i = 0; i < removed.length; i++) {
+                if (i > 0 && removed[i - 1]) {
+                    continue;
+                }
                 if (this.timeStamp.get(i) < this.time - size) {
-                    this.window.delete(i);
-                    this.timeStamp.remove(i);
+                    removed[i] = true;
+                    evicted = true;
                 }
             }
+            if (evicted) {
+                removeAll(removed);
+            }
         }
 
     }
 
+    /**
+     * Evicts instances from the window along with their time stamps.
+     *
+     * @param removed whether to evict each instance, from the oldest one
+     */
+    protected void removeAll(boolean[] removed) {
+        this.window.removeAll(removed);
+        int kept = 0;
+        for (int i = 0; i < removed.length; i++) {
+            if (!removed[i]) {
+                this.timeStamp.set(kept++, this.timeStamp.get(i));
+            }
+        }
+        this.timeStamp.subList(kept, this.timeStamp.size()).clear();
+    }
+
     @Override
     public void getModelDescription(StringBuilder out, int indent) {
     }
@@ -326,13 +326,33 @@ public class KDTree
    * @throws Exception 	if the nearest neighbour could not be found.
    */
   public Instances kNearestNeighbours(Instance target, int k) throws Exception {
+    int[] indices = kNearestNeighbourIndices(target, k);
+
+    Instances neighbours = new Instances(m_Instances, indices.length);
+    for (int idx = 0; idx < indices.length; idx++) {
+      neighbours.add(m_Instances.instance(indices[idx]));
+    }
+
+    return neighbours;
+  }
+
+  /**
+   * Returns the indices of the k nearest neighbours of the supplied target,
+   * in the instances the tree was built on, without copying the neighbours.
+   * Their distances are then given by getDistances().
+   *
+   * @param target	The instance to find the nearest neighbours for.
+   * @param k 		The number of neighbours to find.
+   * @return The indices of the k nearest neighbours (or &gt;k if more there
+   * are than one neighbours at the kth boundary).
+   * @throws Exception 	if the nearest neighbour could not be found.
+   */
+  public int[] kNearestNeighbourIndices(Instance target, int k) throws Exception {
     checkMissing(target);
     
     MyHeap heap = new MyHeap(k);
     findNearestNeighbours(target, m_Root, k, heap, 0.0);
 
-    Instances neighbours = new Instances(m_Instances, (heap.size() + heap
-        .noOfKthNearest()));
     m_DistanceList = new double[heap.size() + heap.noOfKthNearest()];
     int[] indices = new int[heap.size() + heap.noOfKthNearest()];
     int i = indices.length - 1;
@@ -351,11 +371,7 @@ public class KDTree
     }
     m_DistanceFunction.postProcessDistances(m_DistanceList);
 
-    for (int idx = 0; idx < indices.length; idx++) {
-      neighbours.add(m_Instances.instance(indices[idx]));
-    }
-
-    return neighbours;
+    return indices;
   }
   
 
@@ -0,0 +1,539 @@
+/*
+ *    SlidingWindowIndex.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers.lazy.neighboursearch;
+
+import java.io.Serializable;
+
+import com.yahoo.labs.samoa.instances.DenseInstance;
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.Instances;
+
+/**
+ * Window of instances for nearest neighbour search, where instances are added
+ * at the end and evicted in place.
+ *
+ * <p>The values are stored in a ring buffer of doubles, one row per instance,
+ * and the minimum and maximum of each attribute are maintained as instances
+ * are added. An attribute is only rescanned when an instance holding one of
+ * its extreme values is evicted.</p>
+ *
+ * <p>kNearestNeighbours gives the same neighbours, in the same order, as a
+ * LinearNNSearch with the default EuclideanDistance over the instances of the
+ * window: attributes are normalized by the ranges of the window, missing
+ * values are handled the same way, and all the instances at the distance of
+ * the kth nearest one are returned.</p>
+ */
+public class SlidingWindowIndex implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    protected static final int INITIAL_CAPACITY = 16;
+
+    protected Instances header;
+
+    protected int numAttributes;
+
+    protected int classIndex;
+
+    protected boolean[] isNominal;
+
+    /**
+     * Attributes used in distances, all but the class.
+     */
+    protected int[] distanceAttributes;
+
+    protected double[] values;
+
+    protected double[] weights;
+
+    /**
+     * Ids of the instances, increasing from the oldest one.
+     */
+    protected long[] ids;
+
+    protected long nextId;
+
+    protected int capacity;
+
+    protected int first;
+
+    protected int size;
+
+    protected double[] minValues;
+
+    protected double[] maxValues;
+
+    protected boolean[] staleRanges;
+
+    protected boolean anyStaleRange;
+
+    protected transient double[] targetValues;
+
+    protected transient double[] normalizedTarget;
+
+    protected transient double[] rangeWidths;
+
+    protected transient boolean[] constantRanges;
+
+    protected transient int[] heapPositions;
+
+    protected transient double[] heapDistances;
+
+    protected transient int[] kthPositions;
+
+    /**
+     * Creates an empty window.
+     *
+     * @param header the header of the instances
+     */
+    public SlidingWindowIndex(Instances header) {
+        this.header = new Instances(header, 0);
+        this.header.setClassIndex(header.classIndex());
+        this.numAttributes = header.numAttributes();
+        this.classIndex = header.classIndex();
+        this.isNominal = new boolean[this.numAttributes];
+        int numDistanceAttributes = 0;
+        for (int j = 0; j < this.numAttributes; j++) {
+            this.isNominal[j] = header.attribute(j).isNominal();
+            if (j != this.classIndex) {
+                numDistanceAttributes++;
+            }
+        }
+        this.distanceAttributes = new int[numDistanceAttributes];
+        for (int j = 0, i = 0; j < this.numAttributes; j++) {
+            if (j != this.classIndex) {
+                this.distanceAttributes[i++] = j;
+            }
+        }
+        this.capacity = INITIAL_CAPACITY;
+        this.values = new double[this.capacity * this.numAttributes];
+        this.weights = new double[this.capacity];
+        this.ids = new long[this.capacity];
+        this.minValues = new double[this.numAttributes];
+        this.maxValues = new double[this.numAttributes];
+        this.staleRanges = new boolean[this.numAttributes];
+        resetRanges();
+    }
+
+    /**
+     * Num instances.
+     *
+     * @return the number of instances in the window
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Adds an instance at the end of the window.
+     *
+     * @param inst the instance, whose values are copied
+     */
+    public void add(Instance inst) {
+        if (this.size == this.capacity) {
+            grow();
+        }
+        int slot = slot(this.size);
+        int offset = slot * this.numAttributes;
+        for (int j = 0; j < this.numAttributes; j++) {
+            double value = inst.value(j);
+            this.values[offset + j] = value;
+            if (!Double.isNaN(value)) {
+                if (value < this.minValues[j]) {
+                    this.minValues[j] = value;
+                }
+                if (value > this.maxValues[j]) {
+                    this.maxValues[j] = value;
+                }
+            }
+        }
+        this.weights[slot] = inst.weight();
+        this.ids[slot] = this.nextId++;
+        this.size++;
+    }
+
+    /**
+     * Evicts the oldest instance of the window.
+     */
+    public void removeOldest() {
+        if (this.size == 0) {
+            return;
+        }
+        invalidateRanges(this.first);
+        this.first = (this.first + 1) % this.capacity;
+        this.size--;
+        if (this.size == 0) {
+            this.first = 0;
+            resetRanges();
+        }
+    }
+
+    /**
+     * Evicts several instances, keeping the others in the same order.
+     *
+     * @param removed whether to evict each instance, from the oldest one
+     */
+    public void removeAll(boolean[] removed) {
+        int kept = 0;
+        for (int i = 0; i < this.size; i++) {
+            int slot = slot(i);
+            if (removed[i]) {
+                invalidateRanges(slot);
+            } else {
+                if (kept != i) {
+                    int keptSlot = slot(kept);
+                    System.arraycopy(this.values, slot * this.numAttributes,
+                            this.values, keptSlot * this.numAttributes, this.numAttributes);
+                    this.weights[keptSlot] = this.weights[slot];
+                    this.ids[keptSlot] = this.ids[slot];
+                }
+                kept++;
+            }
+        }
+        this.size = kept;
+        if (this.size == 0) {
+            this.first = 0;
+            resetRanges();
+        }
+    }
+
+    /**
+     * Removes all the instances.
+     */
+    public void clear() {
+        this.first = 0;
+        this.size = 0;
+        resetRanges();
+    }
+
+    /**
+     * Gets the id of an instance of the window. Instances get increasing ids
+     * as they are added, so that structures built from the window can tell
+     * which of their instances are still in it.
+     *
+     * @param position the position of the instance, 0 being the oldest
+     * @return the id
+     */
+    public long id(int position) {
+        return this.ids[slot(position)];
+    }
+
+    /**
+     * Gets the position of the oldest instance of the window whose id is at
+     * least the given one.
+     *
+     * @param id the id
+     * @return the position, or the size of the window if all the instances
+     * are older
+     */
+    public int position(long id) {
+        int low = 0;
+        int high = this.size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (id(middle) < id) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Gets the value of an attribute of an instance of the window.
+     *
+     * @param position the position of the instance, 0 being the oldest
+     * @param attIndex the index of the attribute
+     * @return the value
+     */
+    public double value(int position, int attIndex) {
+        return this.values[slot(position) * this.numAttributes + attIndex];
+    }
+
+    /**
+     * Gets the class value of an instance of the window.
+     *
+     * @param position the position of the instance, 0 being the oldest
+     * @return the class value
+     */
+    public double classValue(int position) {
+        return value(position, this.classIndex);
+    }
+
+    /**
+     * Gets an instance of the window.
+     *
+     * @param position the position of the instance, 0 being the oldest
+     * @return a new instance with the values stored in the window
+     */
+    public Instance instance(int position) {
+        double[] instValues = new double[this.numAttributes];
+        int slot = slot(position);
+        System.arraycopy(this.values, slot * this.numAttributes, instValues, 0, this.numAttributes);
+        Instance inst = new DenseInstance(this.weights[slot], instValues);
+        inst.setDataset(this.header);
+        return inst;
+    }
+
+    /**
+     * Gets the instances of the window, for other nearest neighbour searches.
+     *
+     * @return the instances, from the oldest one
+     */
+    public Instances toInstances() {
+        Instances instances = new Instances(this.header, this.size);
+        for (int i = 0; i < this.size; i++) {
+            instances.add(instance(i));
+        }
+        return instances;
+    }
+
+    /**
+     * Returns the k nearest instances of the window to the target.
+     *
+     * @param target the instance to find the nearest neighbours for
+     * @param k the number of nearest neighbours to find
+     * @return the positions of the nearest neighbours in the window
+     * @throws Exception if the neighbours could not be found
+     */
+    public int[] kNearestNeighbours(Instance target, int k) throws Exception {
+        prepareSearch(target, k);
+        int heapSize = 0;
+        int kthSize = 0;
+        for (int i = 0; i < this.size; i++) {
+            if (i < k) {
+                heapSize = heapPut(heapSize, i, distance(slot(i), Double.POSITIVE_INFINITY));
+                continue;
+            }
+            double headDistance = this.heapDistances[1];
+            double distance = distance(slot(i), headDistance);
+            if (distance < headDistance) {
+                // substitute the head, keeping it if it ties with the new one
+                int headPosition = this.heapPositions[1];
+                heapSize = heapRemoveHead(heapSize);
+                heapSize = heapPut(heapSize, i, distance);
+                if (headDistance == this.heapDistances[1]) {
+                    kthSize = kthPut(kthSize, headPosition);
+                } else if (headDistance > this.heapDistances[1]) {
+                    kthSize = 0;
+                } else {
+                    throw new Exception("The substituted element is smaller than the head element.");
+                }
+            } else if (distance == headDistance) {
+                kthSize = kthPut(kthSize, i);
+            }
+        }
+        int[] neighbours = new int[heapSize + kthSize];
+        int n = neighbours.length;
+        while (kthSize > 0) {
+            neighbours[--n] = this.kthPositions[--kthSize];
+        }
+        while (heapSize > 0) {
+            neighbours[--n] = this.heapPositions[1];
+            heapSize = heapRemoveHead(heapSize);
+        }
+        return neighbours;
+    }
+
+    protected int slot(int position) {
+        int slot = this.first + position;
+        return slot < this.capacity ? slot : slot - this.capacity;
+    }
+
+    protected void grow() {
+        int newCapacity = this.capacity * 2;
+        double[] newValues = new double[newCapacity * this.numAttributes];
+        double[] newWeights = new double[newCapacity];
+        long[] newIds = new long[newCapacity];
+        for (int i = 0; i < this.size; i++) {
+            int slot = slot(i);
+            System.arraycopy(this.values, slot * this.numAttributes,
+                    newValues, i * this.numAttributes, this.numAttributes);
+            newWeights[i] = this.weights[slot];
+            newIds[i] = this.ids[slot];
+        }
+        this.values = newValues;
+        this.weights = newWeights;
+        this.ids = newIds;
+        this.capacity = newCapacity;
+        this.first = 0;
+    }
+
+    protected void resetRanges() {
+        for (int j = 0; j < this.numAttributes; j++) {
+            this.minValues[j] = Double.POSITIVE_INFINITY;
+            this.maxValues[j] = Double.NEGATIVE_INFINITY;
+            this.staleRanges[j] = false;
+        }
+        this.anyStaleRange = false;
+    }
+
+    protected void invalidateRanges(int slot) {
+        int offset = slot * this.numAttributes;
+        for (int j = 0; j < this.numAttributes; j++) {
+            double value = this.values[offset + j];
+            if (value <= this.minValues[j] || value >= this.maxValues[j]) {
+                this.staleRanges[j] = true;
+                this.anyStaleRange = true;
+            }
+        }
+    }
+
+    protected void updateRanges() {
+        if (!this.anyStaleRange) {
+            return;
+        }
+        for (int j = 0; j < this.numAttributes; j++) {
+            if (!this.staleRanges[j]) {
+                continue;
+            }
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < this.size; i++) {
+                double value = this.values[slot(i) * this.numAttributes + j];
+                if (!Double.isNaN(value)) {
+                    if (value < min) {
+                        min = value;
+                    }
+                    if (value > max) {
+                        max = value;
+                    }
+                }
+            }
+            this.minValues[j] = min;
+            this.maxValues[j] = max;
+            this.staleRanges[j] = false;
+        }
+        this.anyStaleRange = false;
+    }
+
+    protected void prepareSearch(Instance target, int k) {
+        updateRanges();
+        if (this.targetValues == null) {
+            this.targetValues = new double[this.numAttributes];
+            this.normalizedTarget = new double[this.numAttributes];
+            this.rangeWidths = new double[this.numAttributes];
+            this.constantRanges = new boolean[this.numAttributes];
+        }
+        if (this.heapPositions == null || this.heapPositions.length < k + 1) {
+            this.heapPositions = new int[k + 1];
+            this.heapDistances = new double[k + 1];
+        }
+        if (this.kthPositions == null) {
+            this.kthPositions = new int[INITIAL_CAPACITY];
+        }
+        for (int j : this.distanceAttributes) {
+            double min = this.minValues[j];
+            double max = this.maxValues[j];
+            this.constantRanges[j] = Double.isNaN(min) || max == min;
+            this.rangeWidths[j] = min == Double.POSITIVE_INFINITY ? Double.POSITIVE_INFINITY : max - min;
+            double value = target.value(j);
+            this.targetValues[j] = value;
+            this.normalizedTarget[j] = norm(value, j);
+        }
+    }
+
+    protected double norm(double x, int j) {
+        if (this.constantRanges[j]) {
+            return 0;
+        }
+        return (x - this.minValues[j]) / this.rangeWidths[j];
+    }
+
+    /**
+     * Squared Euclidean distance from the target to an instance, or
+     * POSITIVE_INFINITY as soon as it exceeds the cut off value.
+     */
+    protected double distance(int slot, double cutOffValue) {
+        double distance = 0;
+        int offset = slot * this.numAttributes;
+        for (int j : this.distanceAttributes) {
+            double targetValue = this.targetValues[j];
+            double value = this.values[offset + j];
+            double diff;
+            if (this.isNominal[j]) {
+                diff = Double.isNaN(targetValue) || Double.isNaN(value)
+                        || (int) targetValue != (int) value ? 1 : 0;
+            } else if (Double.isNaN(targetValue) || Double.isNaN(value)) {
+                if (Double.isNaN(targetValue) && Double.isNaN(value)) {
+                    diff = 1;
+                } else {
+                    diff = Double.isNaN(value) ? this.normalizedTarget[j] : norm(value, j);
+                    if (diff < 0.5) {
+                        diff = 1.0 - diff;
+                    }
+                }
+            } else {
+                diff = this.normalizedTarget[j] - norm(value, j);
+            }
+            distance += diff * diff;
+            if (distance > cutOffValue) {
+                return Double.POSITIVE_INFINITY;
+            }
+        }
+        return distance;
+    }
+
+    protected int heapPut(int heapSize, int position, double distance) {
+        int i = ++heapSize;
+        this.heapPositions[i] = position;
+        this.heapDistances[i] = distance;
+        while (i > 1 && this.heapDistances[i] > this.heapDistances[i / 2]) {
+            heapSwap(i, i / 2);
+            i = i / 2;
+        }
+        return heapSize;
+    }
+
+    protected int heapRemoveHead(int heapSize) {
+        this.heapPositions[1] = this.heapPositions[heapSize];
+        this.heapDistances[1] = this.heapDistances[heapSize];
+        heapSize--;
+        int i = 1;
+        while ((2 * i <= heapSize && this.heapDistances[i] < this.heapDistances[2 * i])
+                || (2 * i + 1 <= heapSize && this.heapDistances[i] < this.heapDistances[2 * i + 1])) {
+            int child = 2 * i;
+            if (2 * i + 1 <= heapSize && !(this.heapDistances[2 * i] > this.heapDistances[2 * i + 1])) {
+                child = 2 * i + 1;
+            }
+            heapSwap(i, child);
+            i = child;
+        }
+        return heapSize;
+    }
+
+    protected void heapSwap(int i, int j) {
+        int position = this.heapPositions[i];
+        double distance = this.heapDistances[i];
+        this.heapPositions[i] = this.heapPositions[j];
+        this.heapDistances[i] = this.heapDistances[j];
+        this.heapPositions[j] = position;
+        this.heapDistances[j] = distance;
+    }
+
+    protected int kthPut(int kthSize, int position) {
+        if (kthSize == this.kthPositions.length) {
+            int[] newPositions = new int[kthSize * 2];
+            System.arraycopy(this.kthPositions, 0, newPositions, 0, kthSize);
+            this.kthPositions = newPositions;
+        }
+        this.kthPositions[kthSize] = position;
+        return kthSize + 1;
+    }
+}
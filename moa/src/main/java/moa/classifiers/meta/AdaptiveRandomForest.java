@@ -36,6 +36,8 @@ import com.github.javacliparser.FloatOption;
 import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.IntOption;
 import com.github.javacliparser.MultiChoiceOption;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.concurrent.Callable;
@@ -45,6 +47,10 @@ import moa.evaluation.BasicClassificationPerformanceEvaluator;
 
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import moa.AbstractMOAObject;
 import moa.classifiers.core.driftdetection.ChangeDetector;
 
@@ -74,6 +80,8 @@ import moa.classifiers.core.driftdetection.ChangeDetector;
  * values corresponds to M - m</li>
  * <li>-a : The lambda value for bagging (lambda=6 corresponds to levBag)</li>
  * <li>-j : Number of threads to be used for training</li>
+ * <li>-b : Number of instances the trees can lag behind when trained by 
+ * persistent worker threads (0 = use a task per tree and instance)</li>
  * <li>-x : Change detector for drifts and its parameters</li>
  * <li>-p : Change detector for warnings (start training bkg learner)</li>
  * <li>-w : Should use weighted voting?</li>
@@ -115,6 +123,9 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
 
     public IntOption numberOfJobsOption = new IntOption("numberOfJobs", 'j',
         "Total number of concurrent jobs used for processing (-1 = as much as possible, 0 = do not use multithreading)", 1, -1, Integer.MAX_VALUE);
+
+    public IntOption trainingLagOption = new IntOption("trainingLag", 'b',
+        "Number of instances the trees can lag behind when trained by persistent worker threads (0 = use a task per tree and instance)", 0, 0, Integer.MAX_VALUE);
     
     public ClassOption driftDetectionMethodOption = new ClassOption("driftDetectionMethod", 'x',
         "Change detector for drifts and its parameters", ChangeDetector.class, "ADWINChangeDetector -a 1.0E-3");
@@ -145,6 +156,13 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
 
     private ExecutorService executor;
     
+    // Persistent workers, started with the ensemble when trainingLag > 0, 
+    // and the ring of jobs they process. The workers only reference their 
+    // handler weakly, so that they end when the ensemble is discarded. 
+    protected transient EnsembleWorkerPool workerPool;
+    protected transient WorkerJobHandler workerJobHandler;
+    protected transient WorkerJob[] workerJobs;
+    
     @Override
     public void resetLearningImpl() {
         // Reset attributes
@@ -154,15 +172,50 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
         this.evaluator = new BasicClassificationPerformanceEvaluator();
         
         // Multi-threading
-        int numberOfJobs;
-        if(this.numberOfJobsOption.getValue() == -1) 
-            numberOfJobs = Runtime.getRuntime().availableProcessors();
-        else 
-            numberOfJobs = this.numberOfJobsOption.getValue();
+        if(this.executor != null) {
+            this.executor.shutdown();
+            this.executor = null;
+        }
+        if(this.workerPool != null) {
+            this.workerPool.shutdown();
+            this.workerPool = null;
+            this.workerJobHandler = null;
+        }
+        int numberOfJobs = getNumberOfJobs();
         // SINGLE_THREAD and requesting for only 1 thread are equivalent. 
         // this.executor will be null and not used...
-        if(numberOfJobs != AdaptiveRandomForest.SINGLE_THREAD && numberOfJobs != 1)
-            this.executor = Executors.newFixedThreadPool(numberOfJobs);
+        if(numberOfJobs != AdaptiveRandomForest.SINGLE_THREAD && numberOfJobs != 1
+                && this.trainingLagOption.getValue() == 0)
+            this.executor = createExecutor(numberOfJobs);
+    }
+
+    /**
+     * Creates the threads training the trees when trainingLag = 0. They are 
+     * daemon threads ending when idle, so that a discarded ensemble does not 
+     * keep them. 
+     * 
+     * @param numberOfJobs the number of threads
+     * @return the executor
+     */
+    protected static ExecutorService createExecutor(int numberOfJobs) {
+        final ThreadFactory threadFactory = Executors.defaultThreadFactory();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(numberOfJobs, numberOfJobs, 
+            1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = threadFactory.newThread(runnable);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    protected int getNumberOfJobs() {
+        if(this.numberOfJobsOption.getValue() == -1) 
+            return Runtime.getRuntime().availableProcessors();
+        return this.numberOfJobsOption.getValue();
     }
 
     @Override
@@ -171,6 +224,21 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
         if(this.ensemble == null) 
             initEnsemble(instance);
         
+        EnsembleWorkerPool pool = getWorkerPool();
+        if(pool != null) {
+            // The weights are drawn here, in the same order as in the other 
+            // modes, and the trees are trained later by the workers. 
+            long sequence = pool.claim();
+            WorkerJob job = this.workerJobs[(int) (sequence % pool.capacity())];
+            job.instance = instance.copy();
+            job.instancesSeen = this.instancesSeen;
+            job.train = true;
+            for (int i = 0 ; i < this.ensemble.length ; i++) 
+                job.weights[i] = MiscUtils.poisson(this.lambdaOption.getValue(), this.classifierRandom);
+            pool.publish(sequence);
+            return;
+        }
+        
         Collection<TrainingRunnable> trainers = new ArrayList<TrainingRunnable>();
         for (int i = 0 ; i < this.ensemble.length ; i++) {
             DoubleVector vote = new DoubleVector(this.ensemble[i].getVotesForInstance(instance));
@@ -204,11 +272,25 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
             initEnsemble(testInstance);
         DoubleVector combinedVote = new DoubleVector();
 
+        // The workers compute the votes of their trees after the pending 
+        // training jobs, and they are combined here in the usual order. 
+        double[][] votes = null;
+        EnsembleWorkerPool pool = getWorkerPool();
+        if(pool != null) {
+            long sequence = pool.claim();
+            WorkerJob job = this.workerJobs[(int) (sequence % pool.capacity())];
+            job.instance = testInstance;
+            job.train = false;
+            pool.publish(sequence);
+            pool.await(sequence);
+            votes = job.votes;
+        }
+
         for(int i = 0 ; i < this.ensemble.length ; ++i) {
-            DoubleVector vote = new DoubleVector(this.ensemble[i].getVotesForInstance(testInstance));
+            DoubleVector vote = new DoubleVector(votes != null ? votes[i] : this.ensemble[i].getVotesForInstance(testInstance));
             if (vote.sumOfValues() > 0.0) {
                 vote.normalize();
-                double acc = this.ensemble[i].evaluator.getPerformanceMeasurements()[1].getValue();
+                double acc = this.ensemble[i].evaluator.getFractionCorrectlyClassified() * 100.0;
                 if(! this.disableWeightedVote.isSet() && acc > 0.0) {                        
                     for(int v = 0 ; v < vote.numValues() ; ++v) {
                         vote.setValue(v, vote.getValue(v) * acc);
@@ -220,6 +302,46 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
         return combinedVote.getArrayRef();
     }
 
+    /**
+     * Gets the persistent workers, starting them if the ensemble is trained 
+     * with trainingLag > 0 and several jobs. 
+     * 
+     * @return the workers, or null if they are not used
+     */
+    protected EnsembleWorkerPool getWorkerPool() {
+        if(this.workerPool == null && this.trainingLagOption.getValue() > 0 
+                && this.ensemble != null && getNumberOfJobs() > 1) {
+            int capacity = this.trainingLagOption.getValue();
+            this.workerJobs = new WorkerJob[capacity];
+            for(int i = 0 ; i < capacity ; ++i) 
+                this.workerJobs[i] = new WorkerJob(this.ensemble.length);
+            this.workerJobHandler = new WorkerJobHandler();
+            this.workerPool = new EnsembleWorkerPool(this.workerJobHandler, 
+                this.ensemble.length, getNumberOfJobs(), capacity);
+        }
+        return this.workerPool;
+    }
+
+    /**
+     * Waits until the workers have trained the trees with all the instances, 
+     * before the trees are accessed from outside the workers. 
+     */
+    protected void awaitWorkers() {
+        if(this.workerPool != null) 
+            this.workerPool.awaitAll();
+    }
+
+    private void writeObject(ObjectOutputStream stream) throws IOException {
+        awaitWorkers();
+        stream.defaultWriteObject();
+    }
+
+    @Override
+    public int measureByteSize() {
+        awaitWorkers();
+        return super.measureByteSize();
+    }
+
     @Override
     public boolean isRandomizable() {
         return true;
@@ -309,6 +431,7 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
     @Override
     public Classifier[] getSublearners() {
         /* Extracts the reference to the ARFHoeffdingTree object from within the ensemble of ARFBaseLearner's */
+        awaitWorkers();
         Classifier[] forest = new Classifier[this.ensemble.length];
         for(int i = 0 ; i < forest.length ; ++i)
             forest[i] = this.ensemble[i].classifier;
@@ -379,7 +502,7 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
             init(indexOriginal, instantiatedClassifier, evaluatorInstantiated, instancesSeen, useBkgLearner, useDriftDetector, driftOption, warningOption, isBackgroundLearner);
         }
 
-        public void reset() {
+        public void reset(long instancesSeen) {
             if(this.useBkgLearner && this.bkgLearner != null) {
                 this.classifier = this.bkgLearner.classifier;
                 
@@ -442,7 +565,7 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
                 if(this.driftDetectionMethod.getChange()) {
                     this.lastDriftOn = instancesSeen;
                     this.numberOfDriftsDetected++;
-                    this.reset();
+                    this.reset(instancesSeen);
                 }
             }
         }
@@ -457,6 +580,45 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
         }
     }
     
+    /***
+     * Job of the persistent workers: either trains the trees with an instance 
+     * or computes their votes for it. 
+     */
+    protected static class WorkerJob {
+        protected Instance instance;
+        protected long instancesSeen;
+        protected boolean train;
+        protected final int[] weights;
+        protected final double[][] votes;
+
+        public WorkerJob(int ensembleSize) {
+            this.weights = new int[ensembleSize];
+            this.votes = new double[ensembleSize][];
+        }
+    }
+
+    /***
+     * Processes the jobs of the persistent workers, as trainOnInstanceImpl 
+     * and getVotesForInstance do for the other modes. 
+     */
+    protected class WorkerJobHandler implements EnsembleWorkerPool.Handler {
+        @Override
+        public void process(long sequence, int member) {
+            WorkerJob job = workerJobs[(int) (sequence % workerJobs.length)];
+            ARFBaseLearner learner = ensemble[member];
+            double[] vote = learner.getVotesForInstance(job.instance);
+            if(job.train) {
+                InstanceExample example = new InstanceExample(job.instance);
+                learner.evaluator.addResult(example, vote);
+                if(job.weights[member] > 0) 
+                    learner.trainOnInstance(job.instance, job.weights[member], job.instancesSeen);
+            }
+            else {
+                job.votes[member] = vote;
+            }
+        }
+    }
+
     /***
      * Inner class to assist with the multi-thread execution. 
      */
@@ -0,0 +1,224 @@
+/*
+ *    CompiledEnsemble.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers.meta;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+
+import moa.classifiers.AbstractClassifier;
+import moa.classifiers.Classifier;
+import moa.classifiers.MultiClassClassifier;
+import moa.classifiers.trees.CompiledTree;
+import moa.core.Measurement;
+import moa.core.StringUtils;
+import moa.options.ClassOption;
+
+/**
+ * Compiled ensemble: a trained ensemble of trees frozen for fast predictions.
+ *
+ * <p>Every member of the ensemble is compiled into a CompiledTree, and the
+ * weight of its votes is computed once: the accuracy measured by its
+ * evaluator for AdaptiveRandomForest, the boosting weight for OzaBoost and
+ * one for the bagging ensembles. The votes are combined as the ensemble
+ * does, so the predictions are the same, without copying the instance,
+ * without a DoubleVector per member and without building the measurements
+ * of the evaluators.</p>
+ *
+ * <p>getVotesForInstances scores a batch of instances tree by tree, so the
+ * arrays of a tree are read for all the instances at once.</p>
+ *
+ * <p>The model is frozen: training does nothing. The ensemble to compile
+ * is usually read from a file, as in -l file:forest.moa, or compiled with
+ * compile(). It must not be trained while it is compiled.</p>
+ *
+ * <p>Parameters:</p> <ul> <li> -l : Trained ensemble to compile</li> </ul>
+ *
+ * @version $Revision: 7 $
+ */
+public class CompiledEnsemble extends AbstractClassifier implements MultiClassClassifier {
+
+    private static final long serialVersionUID = 1L;
+
+    public ClassOption ensembleOption = new ClassOption("ensemble", 'l',
+            "Trained ensemble to compile.", Classifier.class, "meta.AdaptiveRandomForest");
+
+    protected CompiledTree[] trees = new CompiledTree[0];
+
+    protected double[] treeWeights = new double[0];
+
+    @Override
+    public String getPurposeString() {
+        return "Trained AdaptiveRandomForest, OzaBag, OzaBagAdwin, LeveragingBag or OzaBoost of trees frozen for fast predictions.";
+    }
+
+    /**
+     * Compiles a trained ensemble.
+     *
+     * @param ensemble an AdaptiveRandomForest, OzaBag, OzaBagAdwin,
+     * LeveragingBag or OzaBoost of trees that CompiledTree can compile
+     * @return the compiled ensemble, making the same predictions
+     */
+    public static CompiledEnsemble compile(Classifier ensemble) {
+        CompiledEnsemble compiledEnsemble = new CompiledEnsemble();
+        compiledEnsemble.compileEnsemble(ensemble);
+        return compiledEnsemble;
+    }
+
+    @Override
+    public void resetLearningImpl() {
+        compileEnsemble((Classifier) getPreparedClassOption(this.ensembleOption));
+    }
+
+    @Override
+    public void trainOnInstanceImpl(Instance inst) {
+        // the model is frozen
+    }
+
+    @Override
+    public boolean isRandomizable() {
+        return false;
+    }
+
+    @Override
+    public double[] getVotesForInstance(Instance inst) {
+        double[] combinedVote = new double[0];
+        for (int i = 0; i < this.trees.length; i++) {
+            combinedVote = this.trees[i].addNormalizedVotes(inst, this.treeWeights[i], combinedVote);
+        }
+        return combinedVote;
+    }
+
+    /**
+     * Gets the votes for a batch of instances, the same as
+     * getVotesForInstance for each of them.
+     *
+     * @param instances the instances
+     * @return the votes for every instance
+     */
+    public double[][] getVotesForInstances(Instance[] instances) {
+        double[][] combinedVotes = new double[instances.length][];
+        for (int j = 0; j < instances.length; j++) {
+            combinedVotes[j] = new double[0];
+        }
+        for (int i = 0; i < this.trees.length; i++) {
+            CompiledTree tree = this.trees[i];
+            double weight = this.treeWeights[i];
+            for (int j = 0; j < instances.length; j++) {
+                combinedVotes[j] = tree.addNormalizedVotes(instances[j], weight, combinedVotes[j]);
+            }
+        }
+        return combinedVotes;
+    }
+
+    /**
+     * Replaces the model with the compilation of a trained ensemble.
+     *
+     * @param ensemble an AdaptiveRandomForest, OzaBag, OzaBagAdwin,
+     * LeveragingBag or OzaBoost
+     */
+    protected void compileEnsemble(Classifier ensemble) {
+        InstancesHeader context = ensemble.getModelContext();
+        List<CompiledTree> trees = new ArrayList<CompiledTree>();
+        List<Double> weights = new ArrayList<Double>();
+        if (ensemble instanceof AdaptiveRandomForest) {
+            AdaptiveRandomForest forest = (AdaptiveRandomForest) ensemble;
+            if (forest.ensemble != null) {
+                for (AdaptiveRandomForest.ARFBaseLearner learner : forest.ensemble) {
+                    // as AdaptiveRandomForest.getVotesForInstance
+                    double acc = learner.evaluator.getFractionCorrectlyClassified() * 100.0;
+                    trees.add(compileMember(learner.classifier, context));
+                    weights.add(!forest.disableWeightedVote.isSet() && acc > 0.0 ? acc : 1.0);
+                }
+            }
+        } else if (ensemble instanceof OzaBoost) {
+            OzaBoost boost = (OzaBoost) ensemble;
+            // the members after the first one of weight zero do not vote
+            for (int i = 0; i < boost.ensemble.length; i++) {
+                double memberWeight = boost.getEnsembleMemberWeight(i);
+                if (memberWeight <= 0.0) {
+                    break;
+                }
+                trees.add(compileMember(boost.ensemble[i], context));
+                weights.add(memberWeight);
+            }
+        } else {
+            Classifier[] members;
+            if (ensemble instanceof OzaBag) {
+                members = ((OzaBag) ensemble).ensemble;
+            } else if (ensemble instanceof OzaBagAdwin) {
+                members = ((OzaBagAdwin) ensemble).ensemble;
+            } else if ((ensemble instanceof LeveragingBag)
+                    && !((LeveragingBag) ensemble).outputCodesOption.isSet()) {
+                members = ((LeveragingBag) ensemble).ensemble;
+            } else {
+                throw new IllegalArgumentException("Cannot compile "
+                        + ensemble.getClass().getName()
+                        + ", only AdaptiveRandomForest, OzaBag, OzaBagAdwin, LeveragingBag without output codes and OzaBoost.");
+            }
+            for (Classifier member : members) {
+                trees.add(compileMember(member, context));
+                weights.add(1.0);
+            }
+        }
+        this.trees = trees.toArray(new CompiledTree[trees.size()]);
+        this.treeWeights = new double[weights.size()];
+        for (int i = 0; i < this.treeWeights.length; i++) {
+            this.treeWeights[i] = weights.get(i);
+        }
+        this.modelContext = context;
+        this.trainingWeightSeenByModel = ensemble.trainingWeightSeenByModel();
+    }
+
+    // the members of the ensembles usually have no model context of their own
+    protected static CompiledTree compileMember(Classifier member, InstancesHeader context) {
+        InstancesHeader memberContext = member.getModelContext();
+        return CompiledTree.compile(member, memberContext != null ? memberContext : context);
+    }
+
+    public int getEnsembleSize() {
+        return this.trees.length;
+    }
+
+    public CompiledTree[] getTrees() {
+        return this.trees;
+    }
+
+    public double[] getTreeWeights() {
+        return this.treeWeights;
+    }
+
+    @Override
+    protected Measurement[] getModelMeasurementsImpl() {
+        int numNodes = 0;
+        for (CompiledTree tree : this.trees) {
+            numNodes += tree.getNumNodes();
+        }
+        return new Measurement[]{
+                    new Measurement("ensemble size", this.trees.length),
+                    new Measurement("tree size (nodes)", numNodes)};
+    }
+
+    @Override
+    public void getModelDescription(StringBuilder out, int indent) {
+        StringUtils.appendIndented(out, indent, "Compiled ensemble of " + this.trees.length + " trees");
+        StringUtils.appendNewline(out);
+    }
+}
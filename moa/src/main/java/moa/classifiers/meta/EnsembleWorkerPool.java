@@ -0,0 +1,255 @@
+/*
+ *    EnsembleWorkerPool.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers.meta;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Pool of long-lived threads processing the members of an ensemble.
+ *
+ * <p>The ensemble publishes a sequence of jobs, numbered from 0, and every
+ * worker processes each job for its own members, member m belonging to
+ * worker m % numberOfThreads. Each member therefore sees the jobs in the
+ * order they were published, whatever the number of threads, so the results
+ * are the same as a sequential run.</p>
+ *
+ * <p>The jobs are stored by the ensemble in a ring of capacity() slots
+ * indexed by sequence % capacity(): claim() waits until the slot of the next
+ * job has been processed by all the workers, so the members never lag more
+ * than capacity() jobs behind. Only one thread may publish jobs. The handoff
+ * uses volatile counters, and idle threads yield for a while before parking.</p>
+ *
+ * <p>The threads only hold a weak reference to the handler, which the
+ * ensemble keeps, so that they end when the ensemble is no longer used, even
+ * if it is never reset.</p>
+ */
+public class EnsembleWorkerPool {
+
+    /**
+     * Processes the jobs for the members of the ensemble.
+     */
+    public interface Handler {
+
+        /**
+         * Processes a job for a member.
+         *
+         * @param sequence the sequence number of the job
+         * @param member the index of the member
+         */
+        void process(long sequence, int member);
+    }
+
+    protected static final int SPIN_LIMIT = 100;
+
+    // longest wait of an idle thread, which checks whether the handler is used
+    protected static final long PARK_NANOS = 100000000L;
+
+    protected final WeakReference<Handler> handler;
+
+    protected final int ensembleSize;
+
+    protected final int capacity;
+
+    protected final Worker[] workers;
+
+    /**
+     * Number of jobs published.
+     */
+    protected volatile long published;
+
+    protected volatile boolean shutdown;
+
+    protected volatile Thread waitingPublisher;
+
+    protected volatile Throwable failure;
+
+    /**
+     * Starts the threads of the pool.
+     *
+     * @param handler the handler of the jobs, to be kept by the caller
+     * @param ensembleSize the number of members
+     * @param numberOfThreads the number of threads, at most one per member
+     * @param capacity the maximum number of jobs not yet processed
+     */
+    public EnsembleWorkerPool(Handler handler, int ensembleSize, int numberOfThreads, int capacity) {
+        this.handler = new WeakReference<Handler>(handler);
+        this.ensembleSize = ensembleSize;
+        this.capacity = Math.max(capacity, 1);
+        this.workers = new Worker[Math.max(1, Math.min(numberOfThreads, ensembleSize))];
+        for (int i = 0; i < this.workers.length; i++) {
+            this.workers[i] = new Worker(i);
+            this.workers[i].start();
+        }
+    }
+
+    /**
+     * Capacity.
+     *
+     * @return the number of slots of the ring of jobs
+     */
+    public int capacity() {
+        return this.capacity;
+    }
+
+    /**
+     * Waits until the slot of the next job is free.
+     *
+     * @return the sequence number of the next job
+     */
+    public long claim() {
+        long sequence = this.published;
+        awaitCompleted(sequence - this.capacity + 1);
+        return sequence;
+    }
+
+    /**
+     * Makes the claimed job visible to the workers.
+     *
+     * @param sequence the sequence number returned by claim()
+     */
+    public void publish(long sequence) {
+        this.published = sequence + 1;
+        for (Worker worker : this.workers) {
+            if (worker.sleeping) {
+                LockSupport.unpark(worker);
+            }
+        }
+    }
+
+    /**
+     * Waits until a job has been processed for all the members.
+     *
+     * @param sequence the sequence number of the job
+     */
+    public void await(long sequence) {
+        awaitCompleted(sequence + 1);
+    }
+
+    /**
+     * Waits until all the published jobs have been processed.
+     */
+    public void awaitAll() {
+        awaitCompleted(this.published);
+    }
+
+    /**
+     * Stops the threads once they finish their current job.
+     */
+    public void shutdown() {
+        this.shutdown = true;
+        for (Worker worker : this.workers) {
+            LockSupport.unpark(worker);
+        }
+    }
+
+    protected void awaitCompleted(long numCompleted) {
+        int spins = 0;
+        for (Worker worker : this.workers) {
+            while (worker.completed < numCompleted) {
+                if (this.failure != null) {
+                    throw new RuntimeException("Ensemble worker failed.", this.failure);
+                }
+                if (++spins < SPIN_LIMIT) {
+                    Thread.yield();
+                    continue;
+                }
+                this.waitingPublisher = Thread.currentThread();
+                if (worker.completed < numCompleted && this.failure == null) {
+                    LockSupport.park(this);
+                }
+                this.waitingPublisher = null;
+            }
+        }
+    }
+
+    protected void wakePublisher() {
+        Thread publisher = this.waitingPublisher;
+        if (publisher != null) {
+            LockSupport.unpark(publisher);
+        }
+    }
+
+    protected class Worker extends Thread {
+
+        protected final int firstMember;
+
+        /**
+         * Number of jobs processed.
+         */
+        protected volatile long completed;
+
+        protected volatile boolean sleeping;
+
+        public Worker(int firstMember) {
+            super("EnsembleWorker-" + firstMember);
+            this.firstMember = firstMember;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            long next = 0;
+            int spins = 0;
+            try {
+                while (!shutdown) {
+                    if (next < published) {
+                        if (!process(next)) {
+                            break;
+                        }
+                        this.completed = ++next;
+                        wakePublisher();
+                        spins = 0;
+                    } else if (++spins < SPIN_LIMIT) {
+                        Thread.yield();
+                    } else {
+                        this.sleeping = true;
+                        if (next >= published && !shutdown) {
+                            LockSupport.parkNanos(this, PARK_NANOS);
+                        }
+                        this.sleeping = false;
+                        if (handler.get() == null) {
+                            break;
+                        }
+                    }
+                }
+            } catch (Throwable t) {
+                failure = t;
+                wakePublisher();
+            }
+        }
+
+        /**
+         * Processes a job for the members of the thread. The handler is only
+         * referenced while the job is processed.
+         *
+         * @param sequence the sequence number of the job
+         * @return false if the handler is no longer used
+         */
+        protected boolean process(long sequence) {
+            Handler h = handler.get();
+            if (h == null) {
+                return false;
+            }
+            for (int m = this.firstMember; m < ensembleSize; m += workers.length) {
+                h.process(sequence, m);
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ *    EnsembleWorkers.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers.meta;
+
+import moa.classifiers.Classifier;
+
+import com.yahoo.labs.samoa.instances.Instance;
+
+/**
+ * Runs the members of an ensemble in parallel, for training and for votes.
+ *
+ * <p>forEachMember runs a task for every member on an EnsembleWorkerPool and
+ * returns once all the members are done, so the ensemble can draw the random
+ * weights of its members and combine their votes in the calling thread, in
+ * the usual order. A member is always run by the same thread.</p>
+ *
+ * <p>Ensembles keep the workers in a transient field, created when the
+ * numberOfJobs option asks for several threads, and shut them down when they
+ * are reset. The threads also end once the workers are no longer
+ * referenced.</p>
+ */
+public class EnsembleWorkers {
+
+    /**
+     * Work done for each member of the ensemble.
+     */
+    public interface MemberTask {
+
+        /**
+         * Runs the task for a member.
+         *
+         * @param member the index of the member
+         */
+        void run(int member);
+    }
+
+    protected final EnsembleWorkerPool.Handler handler;
+
+    protected final EnsembleWorkerPool pool;
+
+    protected MemberTask task;
+
+    /**
+     * Starts the worker threads.
+     *
+     * @param ensembleSize the number of members
+     * @param numberOfThreads the number of threads
+     */
+    public EnsembleWorkers(int ensembleSize, int numberOfThreads) {
+        // the pool only references the handler weakly
+        this.handler = new EnsembleWorkerPool.Handler() {
+            @Override
+            public void process(long sequence, int member) {
+                task.run(member);
+            }
+        };
+        this.pool = new EnsembleWorkerPool(this.handler, ensembleSize, numberOfThreads, 1);
+    }
+
+    /**
+     * Checks whether the value of a numberOfJobs option asks for several
+     * threads: -1 for as many as possible, 0 and 1 for none.
+     *
+     * @param numberOfJobs the value of the option
+     * @return true if the members should be run in parallel
+     */
+    public static boolean isParallel(int numberOfJobs) {
+        return numberOfJobs == -1 || numberOfJobs > 1;
+    }
+
+    /**
+     * Starts the workers for the value of a numberOfJobs option.
+     *
+     * @param numberOfJobs the value of the option
+     * @param ensembleSize the number of members
+     * @return the workers, or null if a single thread should be used
+     */
+    public static EnsembleWorkers create(int numberOfJobs, int ensembleSize) {
+        if (numberOfJobs == -1) {
+            numberOfJobs = Runtime.getRuntime().availableProcessors();
+        }
+        if (numberOfJobs <= 1 || ensembleSize <= 1) {
+            return null;
+        }
+        return new EnsembleWorkers(ensembleSize, numberOfJobs);
+    }
+
+    /**
+     * Runs a task for every member and waits until all of them are done.
+     *
+     * @param task the task
+     */
+    public void forEachMember(MemberTask task) {
+        long sequence = this.pool.claim();
+        this.task = task;
+        this.pool.publish(sequence);
+        this.pool.await(sequence);
+        this.task = null;
+    }
+
+    /**
+     * Gets the votes of every member for an instance.
+     *
+     * @param members the members of the ensemble
+     * @param inst the instance, which is not modified
+     * @return the votes of each member
+     */
+    public double[][] getVotesForInstance(final Classifier[] members, final Instance inst) {
+        final double[][] votes = new double[members.length][];
+        forEachMember(new MemberTask() {
+            @Override
+            public void run(int member) {
+                votes[member] = members[member].getVotesForInstance(inst);
+            }
+        });
+        return votes;
+    }
+
+    /**
+     * Stops the worker threads.
+     */
+    public void shutdown() {
+        this.pool.shutdown();
+    }
+}
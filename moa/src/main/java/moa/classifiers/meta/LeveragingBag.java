@@ -36,6 +36,7 @@ import com.yahoo.labs.samoa.instances.Instance;
 import moa.core.DoubleVector;
 import moa.core.Measurement;
 import moa.core.MiscUtils;
+import moa.core.Utils;
 
 /**
  * Leveraging Bagging for evolving data streams using ADWIN. Leveraging Bagging
@@ -84,6 +85,9 @@ public class LeveragingBag extends AbstractClassifier implements MultiClassClass
                 "Leveraging Subagging using resampling without replacement."
             }, 0);
 
+    public IntOption numberOfJobsOption = new IntOption("numberOfJobs", 'j',
+            "Total number of concurrent jobs used for processing (-1 = as much as possible, 0 = do not use multithreading)", 1, -1, Integer.MAX_VALUE);
+
     protected Classifier[] ensemble;
 
     protected ADWIN[] ADError;
@@ -94,8 +98,14 @@ public class LeveragingBag extends AbstractClassifier implements MultiClassClass
 
     protected boolean initMatrixCodes = false;
 
+    protected transient EnsembleWorkers workers;
+
     @Override
     public void resetLearningImpl() {
+        if (this.workers != null) {
+            this.workers.shutdown();
+            this.workers = null;
+        }
         this.ensemble = new Classifier[this.ensembleSizeOption.getValue()];
         Classifier baseLearner = (Classifier) getPreparedClassOption(this.baseLearnerOption);
         baseLearner.resetLearning();
@@ -145,6 +155,11 @@ public class LeveragingBag extends AbstractClassifier implements MultiClassClass
             this.initMatrixCodes = false;
         }
 
+        EnsembleWorkers workers = getWorkers();
+        if (workers != null) {
+            trainOnInstanceParallel(inst, workers);
+            return;
+        }
 
         boolean Change = false;
         Instance weightedInst = (Instance) inst.copy();
@@ -191,21 +206,114 @@ public class LeveragingBag extends AbstractClassifier implements MultiClassClass
             }
         }
         if (Change) {
-            numberOfChangesDetected++;
-            double max = 0.0;
-            int imax = -1;
-            for (int i = 0; i < this.ensemble.length; i++) {
-                if (max < this.ADError[i].getEstimation()) {
-                    max = this.ADError[i].getEstimation();
-                    imax = i;
+            changeDetected();
+        }
+    }
+
+    /**
+     * Trains the members with the workers. The weights, and the class values
+     * given by the output codes, are computed first in the order of the
+     * sequential loop, so the results are the same.
+     *
+     * @param inst the instance
+     * @param workers the workers
+     */
+    protected void trainOnInstanceParallel(final Instance inst, EnsembleWorkers workers) {
+        // LeveragingBagME needs to know which members misclassify the instance
+        final int[] predictedClasses = new int[this.ensemble.length];
+        if (this.leveraginBagAlgorithmOption.getChosenIndex() == 1) {
+            workers.forEachMember(new EnsembleWorkers.MemberTask() {
+                @Override
+                public void run(int member) {
+                    predictedClasses[member] = Utils.maxIndex(ensemble[member].getVotesForInstance(inst));
+                }
+            });
+        }
+
+        final double[] weights = new double[this.ensemble.length];
+        final double[] classValues = new double[this.ensemble.length];
+        double classValue = inst.classValue();
+        double w = this.weightShrinkOption.getValue();
+        for (int i = 0; i < this.ensemble.length; i++) {
+            double k = 0.0;
+            switch (this.leveraginBagAlgorithmOption.getChosenIndex()) {
+                case 0: //LeveragingBag
+                    k = MiscUtils.poisson(w, this.classifierRandom);
+                    break;
+                case 1: //LeveragingBagME
+                    double error = this.ADError[i].getEstimation();
+                    k = predictedClasses[i] != (int) classValue ? 1.0 : (this.classifierRandom.nextDouble() < (error / (1.0 - error)) ? 1.0 : 0.0);
+                    break;
+                case 2: //LeveragingBagHalf
+                    w = 1.0;
+                    k = this.classifierRandom.nextBoolean() ? 0.0 : w;
+                    break;
+                case 3: //LeveragingBagWT
+                    w = 1.0;
+                    k = 1.0 + MiscUtils.poisson(w, this.classifierRandom);
+                    break;
+                case 4: //LeveragingSubag
+                    w = 1.0;
+                    k = MiscUtils.poisson(1, this.classifierRandom);
+                    k = (k > 0) ? w : 0;
+                    break;
+            }
+            if (k > 0 && this.outputCodesOption.isSet()) {
+                classValue = (double) this.matrixCodes[i][(int) inst.classValue()];
+            }
+            weights[i] = k;
+            classValues[i] = classValue;
+        }
+
+        final boolean[] changes = new boolean[this.ensemble.length];
+        workers.forEachMember(new EnsembleWorkers.MemberTask() {
+            @Override
+            public void run(int member) {
+                Instance weightedInst = inst;
+                if (weights[member] > 0 || classValues[member] != inst.classValue()) {
+                    weightedInst = (Instance) inst.copy();
+                    weightedInst.setClassValue(classValues[member]);
+                }
+                if (weights[member] > 0) {
+                    weightedInst.setWeight(inst.weight() * weights[member]);
+                    ensemble[member].trainOnInstance(weightedInst);
+                }
+                boolean correctlyClassifies = ensemble[member].correctlyClassifies(weightedInst);
+                double ErrEstim = ADError[member].getEstimation();
+                if (ADError[member].setInput(correctlyClassifies ? 0 : 1)) {
+                    if (ADError[member].getEstimation() > ErrEstim) {
+                        changes[member] = true;
+                    }
                 }
             }
-            if (imax != -1) {
-                this.ensemble[imax].resetLearning();
-                //this.ensemble[imax].trainOnInstance(inst);
-                this.ADError[imax] = new ADWIN((double) this.deltaAdwinOption.getValue());
+        });
+        for (boolean change : changes) {
+            if (change) {
+                changeDetected();
+                break;
+            }
+        }
+    }
+
+    /**
+     * Resets the member with the largest error estimation, after a change
+     * has been detected.
+     */
+    protected void changeDetected() {
+        numberOfChangesDetected++;
+        double max = 0.0;
+        int imax = -1;
+        for (int i = 0; i < this.ensemble.length; i++) {
+            if (max < this.ADError[i].getEstimation()) {
+                max = this.ADError[i].getEstimation();
+                imax = i;
             }
         }
+        if (imax != -1) {
+            this.ensemble[imax].resetLearning();
+            //this.ensemble[imax].trainOnInstance(inst);
+            this.ADError[imax] = new ADWIN((double) this.deltaAdwinOption.getValue());
+        }
     }
 
     @Override
@@ -214,8 +322,10 @@ public class LeveragingBag extends AbstractClassifier implements MultiClassClass
             return getVotesForInstanceBinary(inst);
         }
         DoubleVector combinedVote = new DoubleVector();
+        EnsembleWorkers workers = getWorkers();
+        double[][] votes = workers != null ? workers.getVotesForInstance(this.ensemble, inst) : null;
         for (int i = 0; i < this.ensemble.length; i++) {
-            DoubleVector vote = new DoubleVector(this.ensemble[i].getVotesForInstance(inst));
+            DoubleVector vote = new DoubleVector(votes != null ? votes[i] : this.ensemble[i].getVotesForInstance(inst));
             if (vote.sumOfValues() > 0.0) {
                 vote.normalize();
                 combinedVote.addValues(vote);
@@ -250,6 +360,19 @@ public class LeveragingBag extends AbstractClassifier implements MultiClassClass
         return combinedVote;
     }
 
+    /**
+     * Gets the workers running the members in parallel, starting them if
+     * several jobs are used.
+     *
+     * @return the workers, or null if the members are run sequentially
+     */
+    protected EnsembleWorkers getWorkers() {
+        if (this.workers == null) {
+            this.workers = EnsembleWorkers.create(this.numberOfJobsOption.getValue(), this.ensemble.length);
+        }
+        return this.workers;
+    }
+
     @Override
     public boolean isRandomizable() {
         return true;
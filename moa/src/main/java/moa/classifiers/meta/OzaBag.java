@@ -48,7 +48,8 @@ import com.github.javacliparser.IntOption;
  *
  * <p>Parameters:</p> <ul>
  * <li>-l : Classiﬁer to train</li>
- * <li>-s : The number of models in the bag</li> </ul>
+ * <li>-s : The number of models in the bag</li>
+ * <li>-j : Number of threads to be used for training and voting</li> </ul>
  *
  * @author Richard Kirkby (rkirkby@cs.waikato.ac.nz)
  * @version $Revision: 7 $
@@ -69,10 +70,19 @@ public class OzaBag extends AbstractClassifier implements MultiClassClassifier,
     public IntOption ensembleSizeOption = new IntOption("ensembleSize", 's',
             "The number of models in the bag.", 10, 1, Integer.MAX_VALUE);
 
+    public IntOption numberOfJobsOption = new IntOption("numberOfJobs", 'j',
+            "Total number of concurrent jobs used for processing (-1 = as much as possible, 0 = do not use multithreading)", 1, -1, Integer.MAX_VALUE);
+
     protected Classifier[] ensemble;
 
+    protected transient EnsembleWorkers workers;
+
     @Override
     public void resetLearningImpl() {
+        if (this.workers != null) {
+            this.workers.shutdown();
+            this.workers = null;
+        }
         this.ensemble = new Classifier[this.ensembleSizeOption.getValue()];
         Classifier baseLearner = (Classifier) getPreparedClassOption(this.baseLearnerOption);
         baseLearner.resetLearning();
@@ -82,22 +92,43 @@ public class OzaBag extends AbstractClassifier implements MultiClassClassifier,
     }
 
     @Override
-    public void trainOnInstanceImpl(Instance inst) {
+    public void trainOnInstanceImpl(final Instance inst) {
+        EnsembleWorkers workers = getWorkers();
+        if (workers != null) {
+            // The weights are drawn in the same order as the sequential loop
+            final int[] weights = new int[this.ensemble.length];
+            for (int i = 0; i < this.ensemble.length; i++) {
+                weights[i] = MiscUtils.poisson(1.0, this.classifierRandom);
+            }
+            workers.forEachMember(new EnsembleWorkers.MemberTask() {
+                @Override
+                public void run(int member) {
+                    trainMember(member, inst, weights[member]);
+                }
+            });
+            return;
+        }
         for (int i = 0; i < this.ensemble.length; i++) {
             int k = MiscUtils.poisson(1.0, this.classifierRandom);
-            if (k > 0) {
-                Instance weightedInst = (Instance) inst.copy();
-                weightedInst.setWeight(inst.weight() * k);
-                this.ensemble[i].trainOnInstance(weightedInst);
-            }
+            trainMember(i, inst, k);
+        }
+    }
+
+    protected void trainMember(int i, Instance inst, int k) {
+        if (k > 0) {
+            Instance weightedInst = (Instance) inst.copy();
+            weightedInst.setWeight(inst.weight() * k);
+            this.ensemble[i].trainOnInstance(weightedInst);
         }
     }
 
     @Override
     public double[] getVotesForInstance(Instance inst) {
         DoubleVector combinedVote = new DoubleVector();
+        EnsembleWorkers workers = getWorkers();
+        double[][] votes = workers != null ? workers.getVotesForInstance(this.ensemble, inst) : null;
         for (int i = 0; i < this.ensemble.length; i++) {
-            DoubleVector vote = new DoubleVector(this.ensemble[i].getVotesForInstance(inst));
+            DoubleVector vote = new DoubleVector(votes != null ? votes[i] : this.ensemble[i].getVotesForInstance(inst));
             if (vote.sumOfValues() > 0.0) {
                 vote.normalize();
                 combinedVote.addValues(vote);
@@ -106,6 +137,19 @@ public class OzaBag extends AbstractClassifier implements MultiClassClassifier,
         return combinedVote.getArrayRef();
     }
 
+    /**
+     * Gets the workers running the members in parallel, starting them if
+     * several jobs are used.
+     *
+     * @return the workers, or null if the members are run sequentially
+     */
+    protected EnsembleWorkers getWorkers() {
+        if (this.workers == null) {
+            this.workers = EnsembleWorkers.create(this.numberOfJobsOption.getValue(), this.ensemble.length);
+        }
+        return this.workers;
+    }
+
     @Override
     public boolean isRandomizable() {
         return true;
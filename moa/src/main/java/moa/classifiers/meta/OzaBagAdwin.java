@@ -99,12 +99,21 @@ public class OzaBagAdwin extends AbstractClassifier implements MultiClassClassif
     public IntOption ensembleSizeOption = new IntOption("ensembleSize", 's',
             "The number of models in the bag.", 10, 1, Integer.MAX_VALUE);
 
+    public IntOption numberOfJobsOption = new IntOption("numberOfJobs", 'j',
+            "Total number of concurrent jobs used for processing (-1 = as much as possible, 0 = do not use multithreading)", 1, -1, Integer.MAX_VALUE);
+
     protected Classifier[] ensemble;
 
     protected ADWIN[] ADError;
 
+    protected transient EnsembleWorkers workers;
+
     @Override
     public void resetLearningImpl() {
+        if (this.workers != null) {
+            this.workers.shutdown();
+            this.workers = null;
+        }
         this.ensemble = new Classifier[this.ensembleSizeOption.getValue()];
         Classifier baseLearner = (Classifier) getPreparedClassOption(this.baseLearnerOption);
         baseLearner.resetLearning();
@@ -118,19 +127,29 @@ public class OzaBagAdwin extends AbstractClassifier implements MultiClassClassif
     }
 
     @Override
-    public void trainOnInstanceImpl(Instance inst) {
+    public void trainOnInstanceImpl(final Instance inst) {
         boolean Change = false;
-        for (int i = 0; i < this.ensemble.length; i++) {
-            int k = MiscUtils.poisson(1.0, this.classifierRandom);
-            if (k > 0) {
-                Instance weightedInst = (Instance) inst.copy();
-                weightedInst.setWeight(inst.weight() * k);
-                this.ensemble[i].trainOnInstance(weightedInst);
+        EnsembleWorkers workers = getWorkers();
+        if (workers != null) {
+            // The weights are drawn in the same order as the sequential loop
+            final int[] weights = new int[this.ensemble.length];
+            for (int i = 0; i < this.ensemble.length; i++) {
+                weights[i] = MiscUtils.poisson(1.0, this.classifierRandom);
             }
-            boolean correctlyClassifies = this.ensemble[i].correctlyClassifies(inst);
-            double ErrEstim = this.ADError[i].getEstimation();
-            if (this.ADError[i].setInput(correctlyClassifies ? 0 : 1)) {
-                if (this.ADError[i].getEstimation() > ErrEstim) {
+            final boolean[] changes = new boolean[this.ensemble.length];
+            workers.forEachMember(new EnsembleWorkers.MemberTask() {
+                @Override
+                public void run(int member) {
+                    changes[member] = trainMember(member, inst, weights[member]);
+                }
+            });
+            for (int i = 0; i < this.ensemble.length; i++) {
+                Change |= changes[i];
+            }
+        } else {
+            for (int i = 0; i < this.ensemble.length; i++) {
+                int k = MiscUtils.poisson(1.0, this.classifierRandom);
+                if (trainMember(i, inst, k)) {
                     Change = true;
                 }
             }
@@ -152,11 +171,37 @@ public class OzaBagAdwin extends AbstractClassifier implements MultiClassClassif
         }
     }
 
+    /**
+     * Trains a member and updates its error estimation.
+     *
+     * @param i the index of the member
+     * @param inst the instance
+     * @param k the weight of the instance
+     * @return true if the error estimation of the member increased
+     */
+    protected boolean trainMember(int i, Instance inst, int k) {
+        if (k > 0) {
+            Instance weightedInst = (Instance) inst.copy();
+            weightedInst.setWeight(inst.weight() * k);
+            this.ensemble[i].trainOnInstance(weightedInst);
+        }
+        boolean correctlyClassifies = this.ensemble[i].correctlyClassifies(inst);
+        double ErrEstim = this.ADError[i].getEstimation();
+        if (this.ADError[i].setInput(correctlyClassifies ? 0 : 1)) {
+            if (this.ADError[i].getEstimation() > ErrEstim) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Override
     public double[] getVotesForInstance(Instance inst) {
         DoubleVector combinedVote = new DoubleVector();
+        EnsembleWorkers workers = getWorkers();
+        double[][] votes = workers != null ? workers.getVotesForInstance(this.ensemble, inst) : null;
         for (int i = 0; i < this.ensemble.length; i++) {
-            DoubleVector vote = new DoubleVector(this.ensemble[i].getVotesForInstance(inst));
+            DoubleVector vote = new DoubleVector(votes != null ? votes[i] : this.ensemble[i].getVotesForInstance(inst));
             if (vote.sumOfValues() > 0.0) {
                 vote.normalize();
                 combinedVote.addValues(vote);
@@ -165,6 +210,19 @@ public class OzaBagAdwin extends AbstractClassifier implements MultiClassClassif
         return combinedVote.getArrayRef();
     }
 
+    /**
+     * Gets the workers running the members in parallel, starting them if
+     * several jobs are used.
+     *
+     * @return the workers, or null if the members are run sequentially
+     */
+    protected EnsembleWorkers getWorkers() {
+        if (this.workers == null) {
+            this.workers = EnsembleWorkers.create(this.numberOfJobsOption.getValue(), this.ensemble.length);
+        }
+        return this.workers;
+    }
+
     @Override
     public boolean isRandomizable() {
         return true;
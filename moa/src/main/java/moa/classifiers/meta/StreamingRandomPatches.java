@@ -65,6 +65,8 @@ import java.util.Random;
  * <li>-w : Should use weighted voting?</li>
  * <li>-u : Should use drift detection? If disabled, then the bkg learner is also disabled.</li>
  * <li>-q : Should use bkg learner? If disabled, then trees are reset immediately.</li>
+ * <li>-j : Number of threads to be used for training and voting. With several threads, each learner
+ * draws its new subspaces from its own random generator.</li>
  * </ul>
  *
  * @author Heitor Murilo Gomes (heitor dot gomes at waikato dot ac dot nz)
@@ -118,6 +120,9 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
     public FlagOption disableBackgroundLearnerOption = new FlagOption("disableBackgroundLearner", 'q',
             "Should use bkg learner? If disabled, then trees are reset immediately.");
 
+    public IntOption numberOfJobsOption = new IntOption("numberOfJobs", 'j',
+            "Total number of concurrent jobs used for processing (-1 = as much as possible, 0 = do not use multithreading)", 1, -1, Integer.MAX_VALUE);
+
     public static final int TRAIN_RANDOM_SUBSPACES = 0;
     public static final int TRAIN_RESAMPLING = 1;
     public static final int TRAIN_RANDOM_PATCHES = 2;
@@ -130,37 +135,68 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
     protected StreamingRandomPatchesClassifier[] ensemble;
     protected long instancesSeen;
     protected ArrayList<ArrayList<Integer>> subspaces;
+    // Random generators of the learners, used instead of classifierRandom for their subspaces when
+    // several jobs are used, so that the results do not depend on the order the learners are trained.
+    protected Random[] memberRandoms;
+    protected transient EnsembleWorkers workers;
 
     @Override
     public void resetLearningImpl() {
         this.instancesSeen = 0;
+        if(this.workers != null) {
+            this.workers.shutdown();
+            this.workers = null;
+        }
     }
 
     @Override
-    public void trainOnInstanceImpl(Instance instance) {
+    public void trainOnInstanceImpl(final Instance instance) {
         ++this.instancesSeen;
         if(this.ensemble == null)
             initEnsemble(instance);
 
-        for (int i = 0 ; i < this.ensemble.length ; i++) {
-            double[] rawVote = this.ensemble[i].getVotesForInstance(instance);
-            DoubleVector vote = new DoubleVector(rawVote);
-            InstanceExample example = new InstanceExample(instance);
-
-            this.ensemble[i].evaluator.addResult(example, vote.getArrayRef());
-            // Train using random subspaces without resampling, i.e. all instances are used for training.
-            if(this.trainingMethodOption.getChosenIndex() == TRAIN_RANDOM_SUBSPACES) {
-                this.ensemble[i].trainOnInstance(instance,1, this.instancesSeen, this.classifierRandom);
-            }
-            // Train using random patches or resampling, thus we simulate online bagging with poisson(lambda=...)
-            else {
-                int k = MiscUtils.poisson(this.lambdaOption.getValue(), this.classifierRandom);
-                if (k > 0) {
-                    double weight = k;
-                    this.ensemble[i].trainOnInstance(instance, weight, this.instancesSeen, this.classifierRandom);
+        if(this.memberRandoms != null) {
+            // The weights are drawn in the same order as the sequential loop.
+            final double[] weights = new double[this.ensemble.length];
+            for (int i = 0 ; i < this.ensemble.length ; i++)
+                weights[i] = getTrainingWeight();
+            final long instancesSeen = this.instancesSeen;
+            EnsembleWorkers.MemberTask task = new EnsembleWorkers.MemberTask() {
+                @Override
+                public void run(int member) {
+                    trainMember(member, instance, weights[member], instancesSeen, memberRandoms[member]);
                 }
-            }
+            };
+            EnsembleWorkers workers = getWorkers();
+            if(workers != null)
+                workers.forEachMember(task);
+            else
+                for (int i = 0 ; i < this.ensemble.length ; i++)
+                    task.run(i);
+            return;
         }
+
+        for (int i = 0 ; i < this.ensemble.length ; i++) {
+            trainMember(i, instance, getTrainingWeight(), this.instancesSeen, this.classifierRandom);
+        }
+    }
+
+    protected double getTrainingWeight() {
+        // Train using random subspaces without resampling, i.e. all instances are used for training.
+        if(this.trainingMethodOption.getChosenIndex() == TRAIN_RANDOM_SUBSPACES)
+            return 1;
+        // Train using random patches or resampling, thus we simulate online bagging with poisson(lambda=...)
+        return MiscUtils.poisson(this.lambdaOption.getValue(), this.classifierRandom);
+    }
+
+    protected void trainMember(int i, Instance instance, double weight, long instancesSeen, Random random) {
+        double[] rawVote = this.ensemble[i].getVotesForInstance(instance);
+        DoubleVector vote = new DoubleVector(rawVote);
+        InstanceExample example = new InstanceExample(instance);
+
+        this.ensemble[i].evaluator.addResult(example, vote.getArrayRef());
+        if (weight > 0)
+            this.ensemble[i].trainOnInstance(instance, weight, instancesSeen, random);
     }
 
     @Override
@@ -172,11 +208,23 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
             initEnsemble(testInstance);
         DoubleVector combinedVote = new DoubleVector();
 
+        final double[][] votes = new double[this.ensemble.length][];
+        EnsembleWorkers workers = getWorkers();
+        if(workers != null) {
+            final Instance sharedInstance = testInstance;
+            workers.forEachMember(new EnsembleWorkers.MemberTask() {
+                @Override
+                public void run(int member) {
+                    votes[member] = ensemble[member].getVotesForInstance(sharedInstance);
+                }
+            });
+        }
+
         for(int i = 0 ; i < this.ensemble.length ; ++i) {
-            DoubleVector vote = new DoubleVector(this.ensemble[i].getVotesForInstance(testInstance));
+            DoubleVector vote = new DoubleVector(workers != null ? votes[i] : this.ensemble[i].getVotesForInstance(testInstance));
             if (vote.sumOfValues() > 0.0) {
                 vote.normalize();
-                double acc = this.ensemble[i].evaluator.getPerformanceMeasurements()[1].getValue();
+                double acc = this.ensemble[i].evaluator.getFractionCorrectlyClassified() * 100.0;
                 if(!this.disableWeightedVote.isSet() && acc > 0.0) {
                     for(int v = 0 ; v < vote.numValues() ; ++v) {
                         vote.setValue(v, vote.getValue(v) * acc);
@@ -188,6 +236,17 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
         return combinedVote.getArrayRef();
     }
 
+    /**
+     * Gets the workers running the learners in parallel, starting them if several jobs are used.
+     *
+     * @return the workers, or null if the learners are run sequentially
+     */
+    protected EnsembleWorkers getWorkers() {
+        if(this.workers == null && this.ensemble != null)
+            this.workers = EnsembleWorkers.create(this.numberOfJobsOption.getValue(), this.ensemble.length);
+        return this.workers;
+    }
+
     @Override
     public boolean isRandomizable() {
         return true;
@@ -306,6 +365,12 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
             }
         }
 
+        if(EnsembleWorkers.isParallel(this.numberOfJobsOption.getValue())) {
+            this.memberRandoms = new Random[ensembleSize];
+            for(int i = 0 ; i < ensembleSize ; ++i)
+                this.memberRandoms[i] = new Random(this.randomSeed + i + 1);
+        }
+
     }
 
     @Override
@@ -28,6 +28,7 @@ import moa.classifiers.trees.HoeffdingTree;
 import moa.core.StringUtils;
 import moa.core.utils.Converter;
 import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstanceBatch;
 import com.yahoo.labs.samoa.instances.Instances;
 import com.yahoo.labs.samoa.instances.InstancesHeader;
 import com.yahoo.labs.samoa.instances.MultiLabelInstance;
@@ -214,6 +215,11 @@ public class MultilabelHoeffdingTree extends HoeffdingTreeClassifLeaves implemen
 		}
 	}
 
+	@Override
+	protected boolean isTrainingInstance(InstanceBatch batch, int row) {
+		return batch.weight(row) > 0.0;
+	}
+
 	@Override
 	public void trainOnInstanceImpl(MultiLabelInstance instance) {
 		trainOnInstanceImpl((Instance) instance);
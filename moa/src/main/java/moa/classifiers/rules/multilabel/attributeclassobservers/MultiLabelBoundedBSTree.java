@@ -0,0 +1,128 @@
+/*
+ *    MultiLabelBoundedBSTree.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers.rules.multilabel.attributeclassobservers;
+
+import moa.classifiers.rules.core.NumericRulePredicate;
+import moa.classifiers.rules.core.Utils;
+import moa.classifiers.rules.multilabel.core.AttributeExpansionSuggestion;
+import moa.classifiers.rules.multilabel.core.splitcriteria.MultiLabelSplitCriterion;
+import moa.core.BoundedValueTree;
+import moa.core.DoubleVector;
+import moa.core.ObjectRepository;
+import moa.options.AbstractOptionHandler;
+import moa.tasks.TaskMonitor;
+
+import com.github.javacliparser.IntOption;
+
+/**
+ * Balanced binary search tree for AMRules splitting points determination,
+ * like MultiLabelBSTree, stored in primitive arrays. When the maximum number
+ * of nodes is reached, consecutive nodes are merged into groups of similar
+ * counts instead of ignoring the new values.
+ */
+public class MultiLabelBoundedBSTree extends AbstractOptionHandler implements NumericStatisticsObserver {
+
+	private static final long serialVersionUID = 1L;
+
+	public IntOption maxNodesOption = new IntOption("maxNodesOption", 'z', "Maximum number of nodes", 50, 2, Integer.MAX_VALUE);
+
+	// the statistics of a node are a block of blockSize values per output
+	protected BoundedValueTree tree;
+
+	protected int numOutputs;
+
+	protected int blockSize;
+
+	@Override
+	public void observeAttribute(double inputAttributeValue,
+			DoubleVector[] statistics) {
+		if (!Double.isNaN(inputAttributeValue))
+		{
+			int numValues = 1;
+			for (DoubleVector outputStatistics : statistics) {
+				numValues = Math.max(numValues, outputStatistics.numValues());
+			}
+			if (this.tree == null) {
+				this.numOutputs = statistics.length;
+				this.blockSize = numValues;
+				this.tree = new BoundedValueTree(this.maxNodesOption.getValue(), this.numOutputs * this.blockSize);
+			} else if (numValues > this.blockSize) {
+				this.tree.setBlockSize(this.numOutputs, numValues);
+				this.blockSize = numValues;
+			}
+			int offset = this.tree.insert(inputAttributeValue, 1) * this.tree.getNumStatistics();
+			double[] nodeStatistics = this.tree.getStatistics();
+			for (int i = 0; i < statistics.length; i++) {
+				double[] values = statistics[i].getArrayRef();
+				for (int j = 0; j < values.length; j++) {
+					nodeStatistics[offset + i * this.blockSize + j] += values[j];
+				}
+			}
+		}
+	}
+
+	@Override
+	public AttributeExpansionSuggestion getBestEvaluatedSplitSuggestion(
+			MultiLabelSplitCriterion criterion, DoubleVector[] preSplitStatistics, int inputAttributeIndex) {
+		if (this.tree == null) {
+			return null;
+		}
+		int numOutputs = preSplitStatistics.length;
+		DoubleVector[][] postSplitDists = new DoubleVector[numOutputs][2];
+		for (int i = 0; i < numOutputs; i++)
+		{
+			postSplitDists[i][0] = new DoubleVector(new double[preSplitStatistics[i].numValues()]); //sets statistics to zeros
+			postSplitDists[i][1] = new DoubleVector(preSplitStatistics[i]);
+		}
+		double[] nodeStatistics = this.tree.getStatistics();
+		AttributeExpansionSuggestion bestSuggestion = null;
+		for (int node : this.tree.getSortedNodes()) {
+			int offset = node * this.tree.getNumStatistics();
+			for (int i = 0; i < numOutputs; i++)
+			{
+				double[] left = postSplitDists[i][0].getArrayRef();
+				double[] right = postSplitDists[i][1].getArrayRef();
+				int numValues = Math.min(left.length, this.blockSize);
+				for (int j = 0; j < numValues; j++) {
+					left[j] += nodeStatistics[offset + i * this.blockSize + j];
+					right[j] -= nodeStatistics[offset + i * this.blockSize + j];
+				}
+			}
+			double merit = criterion.getMeritOfSplit(preSplitStatistics, postSplitDists);
+			if ((bestSuggestion == null) || (merit > bestSuggestion.merit)) {
+				bestSuggestion = new AttributeExpansionSuggestion(new NumericRulePredicate(inputAttributeIndex, this.tree.getValue(node), true), Utils.copy(postSplitDists), merit);
+			}
+		}
+		return bestSuggestion;
+	}
+
+	@Override
+	public String getPurposeString() {
+		return "Stores statistics for all output attributes for a given input attribute in a bounded balanced tree.";
+	}
+
+	@Override
+	public void getDescription(StringBuilder sb, int indent) {
+	}
+
+	@Override
+	protected void prepareForUseImpl(TaskMonitor monitor,
+			ObjectRepository repository) {
+
+	}
+}
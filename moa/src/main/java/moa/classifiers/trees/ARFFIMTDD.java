@@ -31,6 +31,7 @@ import moa.options.ClassOption;
 import moa.AbstractMOAObject;
 import moa.classifiers.Regressor;
 import moa.classifiers.core.AttributeSplitSuggestion;
+import moa.classifiers.core.ParallelSplitEvaluation;
 import moa.classifiers.core.attributeclassobservers.FIMTDDNumericAttributeClassObserver;
 import moa.classifiers.core.conditionaltests.InstanceConditionalTest;
 import moa.classifiers.core.splitcriteria.SplitCriterion;
@@ -125,6 +126,9 @@ public class ARFFIMTDD extends AbstractClassifier implements Regressor {
     public FlagOption learningRatioConstOption = new FlagOption(
             "learningRatioConst", 'p', "Keep learning rate constant instead of decaying.");
 
+    public FlagOption parallelSplitEvaluationOption = new FlagOption(
+            "parallelSplitEvaluation", 'x', "Evaluate the splits of the attributes in parallel.");
+
     //endregion ================ OPTIONS ================
 
     //region ================ CLASSES ================
@@ -362,19 +366,13 @@ public class ARFFIMTDD extends AbstractClassifier implements Regressor {
             // Set the nodeStatistics up as the preSplitDistribution, rather than the observedClassDistribution
             double[] nodeSplitDist = new double[] {examplesSeen, sumOfValues, sumOfSquares};
 
-            for (int i = 0; i < this.attributeObservers.size(); i++) {
-                FIMTDDNumericAttributeClassObserver obs = this.attributeObservers.get(i);
-                if (obs != null) {
-
-                    // AT THIS STAGE NON-NUMERIC ATTRIBUTES ARE IGNORED
-                    AttributeSplitSuggestion bestSuggestion = null;
-                    if (obs instanceof FIMTDDNumericAttributeClassObserver) {
-                        bestSuggestion = obs.getBestEvaluatedSplitSuggestion(criterion, nodeSplitDist, i, true);
-                    }
-
-                    if (bestSuggestion != null) {
-                        bestSuggestions.add(bestSuggestion);
-                    }
+            // AT THIS STAGE NON-NUMERIC ATTRIBUTES ARE IGNORED
+            AttributeSplitSuggestion[] attributeSuggestions = ParallelSplitEvaluation.getBestSplitSuggestions(
+                    this.attributeObservers, criterion, nodeSplitDist, true,
+                    this.tree.parallelSplitEvaluationOption.isSet());
+            for (AttributeSplitSuggestion bestSuggestion : attributeSuggestions) {
+                if (bestSuggestion != null) {
+                    bestSuggestions.add(bestSuggestion);
                 }
             }
             return bestSuggestions.toArray(new AttributeSplitSuggestion[bestSuggestions.size()]);
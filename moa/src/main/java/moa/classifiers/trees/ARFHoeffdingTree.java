@@ -95,7 +95,7 @@ public class ARFHoeffdingTree extends HoeffdingTree {
                 int instAttIndex = modelAttIndexToInstanceAttIndex(i, inst);
                 AttributeClassObserver obs = this.attributeObservers.get(i);
                 if (obs == null) {
-                    obs = inst.attribute(instAttIndex).isNominal() ? ht.newNominalClassObserver() : ht.newNumericClassObserver();
+                    obs = newAttributeClassObserver(inst, instAttIndex, ht);
                     this.attributeObservers.set(i, obs);
                 }
                 obs.observeAttributeClass(inst.value(instAttIndex), (int) inst.classValue(), inst.weight());
@@ -101,7 +101,7 @@ public class ASHoeffdingTree extends HoeffdingTree {
     }
 
     @Override
-    public void trainOnInstanceImpl(Instance inst) {
+    protected void trainOnInstanceImpl(Instance inst, int gracePeriod, int memoryEstimatePeriod) {
         if (this.treeRoot == null) {
             this.treeRoot = newLearningNode();
             this.activeLeafNodeCount = 1;
@@ -121,7 +121,7 @@ public class ASHoeffdingTree extends HoeffdingTree {
                 ActiveLearningNode activeLearningNode = (ActiveLearningNode) learningNode;
                 double weightSeen = activeLearningNode.getWeightSeen();
                 if (weightSeen
-                        - activeLearningNode.getWeightSeenAtLastSplitEvaluation() >= this.gracePeriodOption.getValue()) {
+                        - activeLearningNode.getWeightSeenAtLastSplitEvaluation() >= gracePeriod) {
                     attemptToSplit(activeLearningNode, foundNode.parent,
                             foundNode.parentBranch);
                     //EXTENSION TO ASHT
@@ -139,7 +139,7 @@ public class ASHoeffdingTree extends HoeffdingTree {
             }
         }
         if (this.trainingWeightSeenByModel
-                % this.memoryEstimatePeriodOption.getValue() == 0) {
+                % memoryEstimatePeriod == 0) {
             estimateModelByteSizes();
         }
     }
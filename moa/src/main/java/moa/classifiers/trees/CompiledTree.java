@@ -0,0 +1,853 @@
+/*
+ *    CompiledTree.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers.trees;
+
+import java.util.Arrays;
+
+import com.yahoo.labs.samoa.instances.Attribute;
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+
+import moa.classifiers.AbstractClassifier;
+import moa.classifiers.Classifier;
+import moa.classifiers.MultiClassClassifier;
+import moa.classifiers.Regressor;
+import moa.classifiers.core.attributeclassobservers.AttributeClassObserver;
+import moa.classifiers.core.attributeclassobservers.GaussianNumericAttributeClassObserver;
+import moa.classifiers.core.attributeclassobservers.PackedAttributeClassObservers;
+import moa.classifiers.core.conditionaltests.InstanceConditionalTest;
+import moa.classifiers.core.conditionaltests.NominalAttributeBinaryTest;
+import moa.classifiers.core.conditionaltests.NominalAttributeMultiwayTest;
+import moa.classifiers.core.conditionaltests.NumericAttributeBinaryTest;
+import moa.core.AutoExpandVector;
+import moa.core.GaussianEstimator;
+import moa.core.Measurement;
+import moa.core.StringUtils;
+import moa.core.Utils;
+import moa.options.ClassOption;
+
+/**
+ * Compiled tree: a trained Hoeffding tree, Hoeffding adaptive tree, EFDT or
+ * FIMTDD model frozen for fast predictions.
+ *
+ * <p>The nodes of the trained tree are stored in parallel arrays, in depth
+ * first order: the attribute and the value each split node tests, the
+ * positions of its children and the votes of every node. An instance is
+ * filtered to its leaf in a loop over these arrays instead of through the
+ * node objects and their conditional tests, and the statistics only used for
+ * learning are dropped, so the compiled tree is much smaller than the trained
+ * one. It makes the same predictions: naive Bayes leaves keep the
+ * distributions of the attribute values of every class, and the leaves of a
+ * FIMTDD model tree the weights of their perceptrons.</p>
+ *
+ * <p>The model is frozen: training does nothing. The tree to compile is
+ * usually read from a file, as in -t file:tree.moa, or compiled with
+ * compile().</p>
+ *
+ * <p>Parameters:</p> <ul> <li> -t : Trained tree to compile</li> </ul>
+ *
+ * @version $Revision: 7 $
+ */
+public class CompiledTree extends AbstractClassifier implements MultiClassClassifier,
+        Regressor {
+
+    private static final long serialVersionUID = 1L;
+
+    protected static final int NONE = -1;
+
+    // the types of the nodes: the test of a split node, or how a leaf predicts
+    protected static final int NUMERIC_LESS = 0;
+
+    protected static final int NUMERIC_LESS_OR_EQUAL = 1;
+
+    protected static final int NOMINAL_EQUAL = 2;
+
+    protected static final int NOMINAL_MULTIWAY = 3;
+
+    protected static final int MAJORITY_CLASS = 4;
+
+    protected static final int NAIVE_BAYES = 5;
+
+    protected static final int PERCEPTRON = 6;
+
+    // the types of the distributions of a numeric attribute for a class
+    protected static final int NO_DENSITY = 0;
+
+    protected static final int POINT_DENSITY = 1;
+
+    protected static final int NORMAL_DENSITY = 2;
+
+    protected static final int NUM_NORMAL_PARAMETERS = 4;
+
+    public ClassOption treeOption = new ClassOption("tree", 't',
+            "Trained tree to compile.", Classifier.class, "trees.HoeffdingTree");
+
+    protected int numNodes;
+
+    protected int[] types;
+
+    // the instance attribute a split node tests, NONE for a leaf
+    protected int[] attributes;
+
+    protected double[] splitValues;
+
+    // the children of node n are children[firstChild[n]..firstChild[n + 1]),
+    // NONE for a missing child
+    protected int[] firstChild;
+
+    protected int[] children;
+
+    // the votes of node n are votes[firstVote[n]..firstVote[n + 1]): the
+    // class distribution, or the class priors of a naive Bayes leaf
+    protected int[] firstVote;
+
+    protected double[] votes;
+
+    // the naive Bayes leaf n multiplies its priors by the probabilities of
+    // the attributes firstEstimator[n]..firstEstimator[n + 1], whose
+    // parameters for every class start at firstParameter[e]
+    protected int[] firstEstimator;
+
+    protected int[] estimatorAttributes;
+
+    // the number of values of a nominal attribute, 0 for a numeric one
+    protected int[] estimatorNumValues;
+
+    protected int[] firstParameter;
+
+    protected double[] parameters;
+
+    protected int numEstimators;
+
+    protected int numParameters;
+
+    // the votes of all the leaves reached are added, in the main and the
+    // alternate trees of a HoeffdingAdaptiveTree
+    protected boolean adaptive;
+
+    protected int[] alternates;
+
+    // the error estimations weighting the votes of naive Bayes leaves
+    protected double[] errors;
+
+    protected boolean regression;
+
+    // the perceptron weights of leaf n start at firstWeight[n], the last
+    // one multiplying the constant
+    protected int[] firstWeight;
+
+    protected double[] weights;
+
+    protected int numWeights;
+
+    // the perceptrons normalize the values of the numeric attributes, NONE
+    // for the attributes they ignore
+    protected int[] normalizedAttributes;
+
+    protected double[] attributeMeans;
+
+    protected double[] attributeScales;
+
+    protected double targetMean;
+
+    protected double targetDeviation;
+
+    @Override
+    public String getPurposeString() {
+        return "Trained Hoeffding tree, Hoeffding adaptive tree, EFDT or FIMTDD frozen for fast predictions.";
+    }
+
+    /**
+     * Compiles a trained tree.
+     *
+     * @param tree a HoeffdingTree, HoeffdingAdaptiveTree, EFDT or FIMTDD
+     * @return the compiled tree, making the same predictions
+     */
+    public static CompiledTree compile(Classifier tree) {
+        return compile(tree, tree.getModelContext());
+    }
+
+    /**
+     * Compiles a trained tree that may have no model context, as the members
+     * of an ensemble.
+     *
+     * @param tree a HoeffdingTree, HoeffdingAdaptiveTree, EFDT or FIMTDD
+     * @param context the header of the instances the tree was trained on
+     * @return the compiled tree, making the same predictions
+     */
+    public static CompiledTree compile(Classifier tree, InstancesHeader context) {
+        CompiledTree compiledTree = new CompiledTree();
+        compiledTree.compileTree(tree, context);
+        return compiledTree;
+    }
+
+    @Override
+    public void resetLearningImpl() {
+        Classifier tree = (Classifier) getPreparedClassOption(this.treeOption);
+        compileTree(tree, tree.getModelContext());
+    }
+
+    @Override
+    public void trainOnInstanceImpl(Instance inst) {
+        // the model is frozen
+    }
+
+    @Override
+    public boolean isRandomizable() {
+        return false;
+    }
+
+    @Override
+    public double[] getVotesForInstance(Instance inst) {
+        if (this.numNodes == 0) {
+            if (this.regression) {
+                return new double[]{0};
+            }
+            return this.adaptive ? new double[0]
+                    : new double[inst.dataset().numClasses()];
+        }
+        if (this.adaptive) {
+            return addLeafVotes(0, inst, new double[0]);
+        }
+        return getNodeVotes(filterInstanceToNode(inst), inst);
+    }
+
+    /**
+     * Adds the votes for an instance to a combined vote, as the ensembles
+     * combine the votes of their members: the votes are normalized, then
+     * multiplied by the weight of the tree, unless they sum to zero. The votes
+     * of a majority class leaf are read in place.
+     *
+     * @param inst the instance
+     * @param weight the weight of the tree in the ensemble
+     * @param combinedVote the combined vote
+     * @return the combined vote, grown if it has fewer values than the votes
+     */
+    public double[] addNormalizedVotes(Instance inst, double weight, double[] combinedVote) {
+        double[] nodeVotes;
+        int from = 0;
+        int to;
+        if ((this.numNodes > 0) && !this.adaptive && !this.regression) {
+            int node = filterInstanceToNode(inst);
+            if (this.types[node] == MAJORITY_CLASS) {
+                nodeVotes = this.votes;
+                from = this.firstVote[node];
+                to = this.firstVote[node + 1];
+            } else {
+                nodeVotes = getNodeVotes(node, inst);
+                to = nodeVotes.length;
+            }
+        } else {
+            nodeVotes = getVotesForInstance(inst);
+            to = nodeVotes.length;
+        }
+        // as DoubleVector.sumOfValues, normalize and scaleValues
+        double sum = 0.0;
+        double sumOfAbsoluteValues = 0.0;
+        for (int i = from; i < to; i++) {
+            sum += nodeVotes[i];
+            sumOfAbsoluteValues += Math.abs(nodeVotes[i]);
+        }
+        if (sum > 0.0) {
+            if (to - from > combinedVote.length) {
+                combinedVote = Arrays.copyOf(combinedVote, to - from);
+            }
+            double scale = 1.0 / sumOfAbsoluteValues;
+            for (int i = from; i < to; i++) {
+                combinedVote[i - from] += nodeVotes[i] * scale * weight;
+            }
+        }
+        return combinedVote;
+    }
+
+    /**
+     * Filters an instance from the root to the deepest node it reaches: a
+     * leaf, or a split node with a missing value or child.
+     *
+     * @param inst the instance
+     * @return the node
+     */
+    protected int filterInstanceToNode(Instance inst) {
+        int node = 0;
+        while (this.attributes[node] != NONE) {
+            int branch = branchForInstance(node, inst);
+            if ((branch < 0) || (branch >= this.firstChild[node + 1] - this.firstChild[node])) {
+                return node;
+            }
+            int child = this.children[this.firstChild[node] + branch];
+            if (child == NONE) {
+                return node;
+            }
+            node = child;
+        }
+        return node;
+    }
+
+    protected int branchForInstance(int node, Instance inst) {
+        double value = inst.value(this.attributes[node]);
+        if (Double.isNaN(value)) {
+            return NONE;
+        }
+        switch (this.types[node]) {
+            case NUMERIC_LESS:
+                return value < this.splitValues[node] ? 0 : 1;
+            case NUMERIC_LESS_OR_EQUAL:
+                return value <= this.splitValues[node] ? 0 : 1;
+            case NOMINAL_EQUAL:
+                return (int) value == (int) this.splitValues[node] ? 0 : 1;
+            default:
+                return (int) value;
+        }
+    }
+
+    // adds the votes of the leaves reached from a node of a
+    // HoeffdingAdaptiveTree, as HoeffdingAdaptiveTree.filterInstanceToLeaves
+    protected double[] addLeafVotes(int node, Instance inst, double[] result) {
+        if (this.attributes[node] == NONE) {
+            return addVotes(result, getNodeVotes(node, inst));
+        }
+        int branch = branchForInstance(node, inst);
+        if (branch >= 0) {
+            int child = branch < this.firstChild[node + 1] - this.firstChild[node]
+                    ? this.children[this.firstChild[node] + branch] : NONE;
+            result = child != NONE ? addLeafVotes(child, inst, result)
+                    : addVotes(result, getNodeVotes(node, inst));
+        }
+        if (this.alternates[node] != NONE) {
+            result = addLeafVotes(this.alternates[node], inst, result);
+        }
+        return result;
+    }
+
+    protected static double[] addVotes(double[] result, double[] votes) {
+        if (votes.length > result.length) {
+            result = Arrays.copyOf(result, votes.length);
+        }
+        for (int i = 0; i < votes.length; i++) {
+            result[i] += votes[i];
+        }
+        return result;
+    }
+
+    protected double[] getNodeVotes(int node, Instance inst) {
+        if (this.types[node] == PERCEPTRON) {
+            return new double[]{getPerceptronPrediction(node, inst)};
+        }
+        double[] nodeVotes = Arrays.copyOfRange(this.votes, this.firstVote[node],
+                this.firstVote[node + 1]);
+        if (this.types[node] == NAIVE_BAYES) {
+            multiplyByProbabilities(node, inst, nodeVotes);
+            if (this.errors != null) {
+                double distSum = Utils.sum(nodeVotes);
+                double error = this.errors[node];
+                if (distSum * error * error > 0.0) {
+                    Utils.normalize(nodeVotes, distSum * error * error);
+                }
+            }
+        }
+        return nodeVotes;
+    }
+
+    // the products are done attribute by attribute, in the order of
+    // NaiveBayes.doNaiveBayesPrediction for every class
+    protected void multiplyByProbabilities(int node, Instance inst, double[] classVotes) {
+        for (int e = this.firstEstimator[node]; e < this.firstEstimator[node + 1]; e++) {
+            double value = inst.value(this.estimatorAttributes[e]);
+            if (Double.isNaN(value)) {
+                continue;
+            }
+            int p = this.firstParameter[e];
+            int numValues = this.estimatorNumValues[e];
+            if (numValues > 0) {
+                int valueIndex = (int) value;
+                if ((valueIndex < 0) || (valueIndex >= numValues)) {
+                    valueIndex = numValues;
+                }
+                for (int c = 0; c < classVotes.length; c++) {
+                    classVotes[c] *= this.parameters[p + c * (numValues + 1) + valueIndex];
+                }
+            } else {
+                for (int c = 0; c < classVotes.length; c++, p += NUM_NORMAL_PARAMETERS) {
+                    classVotes[c] *= probabilityDensity(p, value);
+                }
+            }
+        }
+    }
+
+    // as GaussianEstimator.probabilityDensity
+    protected double probabilityDensity(int p, double value) {
+        switch ((int) this.parameters[p]) {
+            case NORMAL_DENSITY:
+                double diff = value - this.parameters[p + 1];
+                return this.parameters[p + 2]
+                        * Math.exp(-(diff * diff / this.parameters[p + 3]));
+            case POINT_DENSITY:
+                return value == this.parameters[p + 1] ? 1.0 : 0.0;
+            default:
+                return 0.0;
+        }
+    }
+
+    // as FIMTDD.FIMTDDPerceptron.prediction
+    protected double getPerceptronPrediction(int node, Instance inst) {
+        int w = this.firstWeight[node];
+        int numInputs = this.normalizedAttributes.length;
+        double prediction = 0.0;
+        for (int j = 0; j < numInputs; j++) {
+            double value = 0.0;
+            if (this.normalizedAttributes[j] != NONE) {
+                value = (inst.value(this.normalizedAttributes[j]) - this.attributeMeans[j])
+                        / this.attributeScales[j];
+            }
+            prediction += this.weights[w + j] * value;
+        }
+        prediction += this.weights[w + numInputs] * 1.0;
+        return prediction * this.targetDeviation * 3 + this.targetMean;
+    }
+
+    /**
+     * Replaces the model with the compilation of a trained tree.
+     *
+     * @param tree a HoeffdingTree, HoeffdingAdaptiveTree, EFDT or FIMTDD
+     * @param context the header of the instances the tree was trained on
+     */
+    protected void compileTree(Classifier tree, InstancesHeader context) {
+        this.numNodes = 0;
+        this.types = new int[16];
+        this.attributes = new int[16];
+        this.splitValues = new double[16];
+        this.firstChild = new int[17];
+        this.children = new int[16];
+        this.firstVote = new int[17];
+        this.votes = new double[16];
+        this.firstEstimator = new int[17];
+        this.estimatorAttributes = new int[16];
+        this.estimatorNumValues = new int[16];
+        this.firstParameter = new int[16];
+        this.parameters = new double[16];
+        this.numEstimators = 0;
+        this.numParameters = 0;
+        this.adaptive = tree instanceof HoeffdingAdaptiveTree;
+        this.alternates = this.adaptive ? new int[16] : null;
+        this.errors = this.adaptive ? new double[16] : null;
+        this.regression = tree instanceof FIMTDD;
+        this.firstWeight = this.regression ? new int[16] : null;
+        this.weights = this.regression ? new double[16] : null;
+        this.numWeights = 0;
+        this.normalizedAttributes = null;
+        if (tree instanceof HoeffdingTree) {
+            HoeffdingTree ht = (HoeffdingTree) tree;
+            if (ht.treeRoot != null) {
+                checkContext(context);
+                compileNode(ht.treeRoot, ht, context);
+            }
+        } else if (tree instanceof EFDT) {
+            EFDT efdt = (EFDT) tree;
+            if (efdt.treeRoot != null) {
+                checkContext(context);
+                compileNode(efdt.treeRoot, efdt, context);
+            }
+        } else if (tree instanceof FIMTDD) {
+            FIMTDD fimtdd = (FIMTDD) tree;
+            if (fimtdd.treeRoot != null) {
+                checkContext(context);
+                compileNormalization(fimtdd, context);
+                compileNode(fimtdd.treeRoot, fimtdd, context);
+            }
+        } else {
+            throw new IllegalArgumentException("Cannot compile "
+                    + tree.getClass().getName() + ", only Hoeffding trees, EFDT and FIMTDD.");
+        }
+        trimToSize();
+        this.modelContext = context;
+        this.trainingWeightSeenByModel = tree.trainingWeightSeenByModel();
+    }
+
+    protected static void checkContext(InstancesHeader context) {
+        if (context == null) {
+            throw new IllegalArgumentException("The tree to compile has no model context.");
+        }
+    }
+
+    protected int compileNode(HoeffdingTree.Node node, HoeffdingTree tree,
+            InstancesHeader context) {
+        if (node instanceof HoeffdingTree.SplitNode) {
+            checkNodeClass(node, HoeffdingTree.SplitNode.class,
+                    HoeffdingAdaptiveTree.AdaSplitNode.class);
+            HoeffdingTree.SplitNode splitNode = (HoeffdingTree.SplitNode) node;
+            int index = addSplitNode(splitNode.getSplitTest(), splitNode.numChildren(),
+                    node.getObservedClassDistribution(), context);
+            for (int branch = 0; branch < splitNode.numChildren(); branch++) {
+                HoeffdingTree.Node child = splitNode.getChild(branch);
+                if (child != null) {
+                    int childIndex = compileNode(child, tree, context);
+                    this.children[this.firstChild[index] + branch] = childIndex;
+                }
+            }
+            if (node instanceof HoeffdingAdaptiveTree.AdaSplitNode) {
+                // the leaf at the root of an alternate tree does not vote
+                HoeffdingTree.Node alternate = ((HoeffdingAdaptiveTree.AdaSplitNode) node).alternateTree;
+                if (alternate instanceof HoeffdingTree.SplitNode) {
+                    int alternateIndex = compileNode(alternate, tree, context);
+                    this.alternates[index] = alternateIndex;
+                }
+            }
+            return index;
+        }
+        double[] classVotes = node.getObservedClassDistribution();
+        AutoExpandVector<AttributeClassObserver> observers = null;
+        if (node.getClass() == HoeffdingAdaptiveTree.AdaLearningNode.class) {
+            HoeffdingAdaptiveTree.AdaLearningNode adaNode = (HoeffdingAdaptiveTree.AdaLearningNode) node;
+            int predictionOption = tree.leafpredictionOption.getChosenIndex();
+            if ((predictionOption == 1) || ((predictionOption == 2)
+                    && !(adaNode.mcCorrectWeight > adaNode.nbCorrectWeight))) {
+                observers = adaNode.attributeObservers;
+            }
+            double error = adaNode.getErrorEstimation();
+            if (observers == null) {
+                double distSum = Utils.sum(classVotes);
+                if (distSum * error * error > 0.0) {
+                    Utils.normalize(classVotes, distSum * error * error);
+                }
+            }
+            int index = addLeaf(classVotes, observers, context);
+            this.errors[index] = error;
+            return index;
+        }
+        if (node.getClass() == HoeffdingTree.LearningNodeNBAdaptive.class) {
+            HoeffdingTree.LearningNodeNBAdaptive nbNode = (HoeffdingTree.LearningNodeNBAdaptive) node;
+            if (!(nbNode.mcCorrectWeight > nbNode.nbCorrectWeight)) {
+                observers = nbNode.attributeObservers;
+            }
+        } else if (node.getClass() == ARFHoeffdingTree.LearningNodeNBAdaptive.class) {
+            ARFHoeffdingTree.LearningNodeNBAdaptive nbNode = (ARFHoeffdingTree.LearningNodeNBAdaptive) node;
+            if (!(nbNode.mcCorrectWeight > nbNode.nbCorrectWeight)) {
+                observers = nbNode.attributeObservers;
+            }
+        } else if ((node.getClass() == HoeffdingTree.LearningNodeNB.class)
+                || (node.getClass() == ARFHoeffdingTree.LearningNodeNB.class)) {
+            HoeffdingTree.ActiveLearningNode nbNode = (HoeffdingTree.ActiveLearningNode) node;
+            if (nbNode.getWeightSeen() >= tree.nbThresholdOption.getValue()) {
+                observers = nbNode.attributeObservers;
+            }
+        } else {
+            checkNodeClass(node, HoeffdingTree.InactiveLearningNode.class,
+                    HoeffdingTree.ActiveLearningNode.class,
+                    ARFHoeffdingTree.RandomLearningNode.class);
+        }
+        return addLeaf(classVotes, observers, context);
+    }
+
+    protected int compileNode(EFDT.Node node, EFDT tree, InstancesHeader context) {
+        if (node instanceof EFDT.SplitNode) {
+            checkNodeClass(node, EFDT.SplitNode.class, EFDT.EFDTSplitNode.class);
+            EFDT.SplitNode splitNode = (EFDT.SplitNode) node;
+            int index = addSplitNode(splitNode.splitTest, splitNode.numChildren(),
+                    node.getObservedClassDistribution(), context);
+            for (int branch = 0; branch < splitNode.numChildren(); branch++) {
+                EFDT.Node child = splitNode.getChild(branch);
+                if (child != null) {
+                    int childIndex = compileNode(child, tree, context);
+                    this.children[this.firstChild[index] + branch] = childIndex;
+                }
+            }
+            return index;
+        }
+        AutoExpandVector<AttributeClassObserver> observers = null;
+        if ((node.getClass() == EFDT.LearningNodeNBAdaptive.class)
+                || (node.getClass() == EFDT.EFDTLearningNode.class)) {
+            EFDT.LearningNodeNBAdaptive nbNode = (EFDT.LearningNodeNBAdaptive) node;
+            if (!(nbNode.mcCorrectWeight > nbNode.nbCorrectWeight)) {
+                observers = nbNode.attributeObservers;
+            }
+        } else if (node.getClass() == EFDT.LearningNodeNB.class) {
+            EFDT.LearningNodeNB nbNode = (EFDT.LearningNodeNB) node;
+            if (nbNode.getWeightSeen() >= tree.nbThresholdOption.getValue()) {
+                observers = nbNode.attributeObservers;
+            }
+        } else {
+            checkNodeClass(node, EFDT.InactiveLearningNode.class,
+                    EFDT.ActiveLearningNode.class);
+        }
+        return addLeaf(node.getObservedClassDistribution(), observers, context);
+    }
+
+    protected int compileNode(FIMTDD.Node node, FIMTDD tree, InstancesHeader context) {
+        // the mean of the node is predicted for a missing value
+        double[] mean = new double[]{node.examplesSeen > 0.0
+            ? node.sumOfValues / node.examplesSeen : 0.0};
+        if (node instanceof FIMTDD.SplitNode) {
+            checkNodeClass(node, FIMTDD.SplitNode.class);
+            FIMTDD.SplitNode splitNode = (FIMTDD.SplitNode) node;
+            int index = addSplitNode(splitNode.splitTest, splitNode.numChildren(),
+                    mean, context);
+            for (int branch = 0; branch < splitNode.numChildren(); branch++) {
+                FIMTDD.Node child = splitNode.getChild(branch);
+                if (child != null) {
+                    int childIndex = compileNode(child, tree, context);
+                    this.children[this.firstChild[index] + branch] = childIndex;
+                }
+            }
+            return index;
+        }
+        checkNodeClass(node, FIMTDD.LeafNode.class);
+        if (!tree.buildingModelTree()) {
+            return addLeaf(mean, null, context);
+        }
+        if (!(tree.examplesSeen > 1)) {
+            // the perceptrons predict 0 until two instances are seen
+            return addLeaf(new double[]{0.0}, null, context);
+        }
+        int index = addLeaf(new double[0], null, context);
+        this.types[index] = PERCEPTRON;
+        int numWeights = this.normalizedAttributes.length + 1;
+        this.weights = ensureCapacity(this.weights, this.numWeights + numWeights);
+        for (int j = 0; j < numWeights; j++) {
+            this.weights[this.numWeights + j] = ((FIMTDD.LeafNode) node).learningModel.getWeights().getValue(j);
+        }
+        this.firstWeight[index] = this.numWeights;
+        this.numWeights += numWeights;
+        return index;
+    }
+
+    // the normalization of the instances and predictions of the perceptrons,
+    // done with the statistics of the whole tree
+    protected void compileNormalization(FIMTDD tree, InstancesHeader context) {
+        int numInputs = context.numAttributes() - 1;
+        this.normalizedAttributes = new int[numInputs];
+        this.attributeMeans = new double[numInputs];
+        this.attributeScales = new double[numInputs];
+        for (int j = 0; j < numInputs; j++) {
+            int instAttIndex = modelAttIndexToInstanceAttIndex(j, context);
+            double mean = tree.sumOfAttrValues.getValue(j) / tree.examplesSeen;
+            double sd = tree.computeSD(tree.sumOfAttrSquares.getValue(j),
+                    tree.sumOfAttrValues.getValue(j), tree.examplesSeen);
+            boolean normalized = context.attribute(instAttIndex).isNumeric()
+                    && (tree.examplesSeen > 1) && (sd > 0);
+            this.normalizedAttributes[j] = normalized ? instAttIndex : NONE;
+            this.attributeMeans[j] = mean;
+            this.attributeScales[j] = 3 * sd;
+        }
+        this.targetMean = tree.sumOfValues / tree.examplesSeen;
+        this.targetDeviation = tree.computeSD(tree.sumOfSquares, tree.sumOfValues,
+                tree.examplesSeen);
+    }
+
+    protected static void checkNodeClass(Object node, Class<?>... nodeClasses) {
+        for (Class<?> nodeClass : nodeClasses) {
+            if (node.getClass() == nodeClass) {
+                return;
+            }
+        }
+        throw new IllegalArgumentException("Cannot compile the nodes of class "
+                + node.getClass().getName() + ".");
+    }
+
+    protected int addSplitNode(InstanceConditionalTest splitTest, int numChildren,
+            double[] nodeVotes, InstancesHeader context) {
+        int attribute;
+        int type;
+        double splitValue = 0.0;
+        // the values are read where the tests read them
+        if (splitTest.getClass() == NumericAttributeBinaryTest.class) {
+            NumericAttributeBinaryTest test = (NumericAttributeBinaryTest) splitTest;
+            attribute = modelAttIndexToInstanceAttIndex(test.getAttsTestDependsOn()[0], context);
+            type = test.isEqualsPassesTest() ? NUMERIC_LESS_OR_EQUAL : NUMERIC_LESS;
+            splitValue = test.getSplitValue();
+        } else if (splitTest.getClass() == NominalAttributeBinaryTest.class) {
+            NominalAttributeBinaryTest test = (NominalAttributeBinaryTest) splitTest;
+            attribute = modelAttIndexToInstanceAttIndex(test.getAttsTestDependsOn()[0], context);
+            type = NOMINAL_EQUAL;
+            splitValue = test.getAttValue();
+        } else if (splitTest.getClass() == NominalAttributeMultiwayTest.class) {
+            attribute = splitTest.getAttsTestDependsOn()[0];
+            type = NOMINAL_MULTIWAY;
+        } else {
+            throw new IllegalArgumentException("Cannot compile the tests of class "
+                    + splitTest.getClass().getName() + ".");
+        }
+        int index = addNode(type, attribute, splitValue, numChildren, nodeVotes);
+        return index;
+    }
+
+    protected int addLeaf(double[] nodeVotes,
+            AutoExpandVector<AttributeClassObserver> observers, InstancesHeader context) {
+        int index = addNode(observers != null ? NAIVE_BAYES : MAJORITY_CLASS, NONE,
+                0.0, 0, nodeVotes);
+        if (observers != null) {
+            // the votes are the class priors
+            double sum = 0.0;
+            for (double vote : nodeVotes) {
+                sum += vote;
+            }
+            for (int c = 0; c < nodeVotes.length; c++) {
+                this.votes[this.firstVote[index] + c] = nodeVotes[c] / sum;
+            }
+            int numInputs = Math.min(observers.size(), context.numAttributes() - 1);
+            for (int i = 0; i < numInputs; i++) {
+                AttributeClassObserver obs = observers.get(i);
+                if (obs != null) {
+                    addEstimator(obs, modelAttIndexToInstanceAttIndex(i, context),
+                            nodeVotes.length, context);
+                }
+            }
+        }
+        this.firstEstimator[index + 1] = this.numEstimators;
+        return index;
+    }
+
+    protected void addEstimator(AttributeClassObserver obs, int instAttIndex,
+            int numClasses, InstancesHeader context) {
+        Attribute attribute = context.attribute(instAttIndex);
+        int numValues = attribute.isNominal() ? Math.max(attribute.numValues(), 1) : 0;
+        int numParameters = numClasses * (numValues > 0 ? numValues + 1 : NUM_NORMAL_PARAMETERS);
+        this.estimatorAttributes = ensureCapacity(this.estimatorAttributes, this.numEstimators + 1);
+        this.estimatorNumValues = ensureCapacity(this.estimatorNumValues, this.numEstimators + 1);
+        this.firstParameter = ensureCapacity(this.firstParameter, this.numEstimators + 1);
+        this.parameters = ensureCapacity(this.parameters, this.numParameters + numParameters);
+        this.estimatorAttributes[this.numEstimators] = instAttIndex;
+        this.estimatorNumValues[this.numEstimators] = numValues;
+        this.firstParameter[this.numEstimators] = this.numParameters;
+        int p = this.numParameters;
+        for (int c = 0; c < numClasses; c++) {
+            if (numValues > 0) {
+                // the last probability is the one of an unknown value
+                for (int v = 0; v <= numValues; v++) {
+                    this.parameters[p++] = obs.probabilityOfAttributeValueGivenClass(v, c);
+                }
+            } else {
+                GaussianEstimator estimator = getClassEstimator(obs, c);
+                if ((estimator == null) || !(estimator.getTotalWeightObserved() > 0.0)) {
+                    this.parameters[p] = NO_DENSITY;
+                } else {
+                    double stdDev = estimator.getStdDev();
+                    this.parameters[p] = stdDev > 0.0 ? NORMAL_DENSITY : POINT_DENSITY;
+                    this.parameters[p + 1] = estimator.getMean();
+                    this.parameters[p + 2] = 1.0 / (GaussianEstimator.NORMAL_CONSTANT * stdDev);
+                    this.parameters[p + 3] = 2.0 * stdDev * stdDev;
+                }
+                p += NUM_NORMAL_PARAMETERS;
+            }
+        }
+        this.numEstimators++;
+        this.numParameters = p;
+    }
+
+    protected static GaussianEstimator getClassEstimator(AttributeClassObserver obs, int classVal) {
+        if (obs.getClass() == GaussianNumericAttributeClassObserver.class) {
+            return ((GaussianNumericAttributeClassObserver) obs).getClassEstimator(classVal);
+        }
+        if (obs.getClass() == PackedAttributeClassObservers.NumericObserver.class) {
+            return ((PackedAttributeClassObservers.NumericObserver) obs).getClassEstimator(classVal);
+        }
+        throw new IllegalArgumentException("Cannot compile the naive Bayes predictions of "
+                + obs.getClass().getName() + ".");
+    }
+
+    protected int addNode(int type, int attribute, double splitValue, int numChildren,
+            double[] nodeVotes) {
+        int index = this.numNodes++;
+        this.types = ensureCapacity(this.types, this.numNodes);
+        this.attributes = ensureCapacity(this.attributes, this.numNodes);
+        this.splitValues = ensureCapacity(this.splitValues, this.numNodes);
+        this.firstChild = ensureCapacity(this.firstChild, this.numNodes + 1);
+        this.firstVote = ensureCapacity(this.firstVote, this.numNodes + 1);
+        this.firstEstimator = ensureCapacity(this.firstEstimator, this.numNodes + 1);
+        this.types[index] = type;
+        this.attributes[index] = attribute;
+        this.splitValues[index] = splitValue;
+        int numChildSlots = this.firstChild[index];
+        this.children = ensureCapacity(this.children, numChildSlots + numChildren);
+        Arrays.fill(this.children, numChildSlots, numChildSlots + numChildren, NONE);
+        this.firstChild[index + 1] = numChildSlots + numChildren;
+        int numVotes = this.firstVote[index];
+        this.votes = ensureCapacity(this.votes, numVotes + nodeVotes.length);
+        System.arraycopy(nodeVotes, 0, this.votes, numVotes, nodeVotes.length);
+        this.firstVote[index + 1] = numVotes + nodeVotes.length;
+        this.firstEstimator[index + 1] = this.numEstimators;
+        if (this.adaptive) {
+            this.alternates = ensureCapacity(this.alternates, this.numNodes);
+            this.errors = ensureCapacity(this.errors, this.numNodes);
+            this.alternates[index] = NONE;
+        }
+        if (this.regression) {
+            this.firstWeight = ensureCapacity(this.firstWeight, this.numNodes);
+            this.firstWeight[index] = NONE;
+        }
+        return index;
+    }
+
+    protected static int[] ensureCapacity(int[] array, int size) {
+        return size > array.length ? Arrays.copyOf(array, Math.max(size, 2 * array.length)) : array;
+    }
+
+    protected static double[] ensureCapacity(double[] array, int size) {
+        return size > array.length ? Arrays.copyOf(array, Math.max(size, 2 * array.length)) : array;
+    }
+
+    protected void trimToSize() {
+        this.types = Arrays.copyOf(this.types, this.numNodes);
+        this.attributes = Arrays.copyOf(this.attributes, this.numNodes);
+        this.splitValues = Arrays.copyOf(this.splitValues, this.numNodes);
+        this.firstChild = Arrays.copyOf(this.firstChild, this.numNodes + 1);
+        this.children = Arrays.copyOf(this.children, this.firstChild[this.numNodes]);
+        this.firstVote = Arrays.copyOf(this.firstVote, this.numNodes + 1);
+        this.votes = Arrays.copyOf(this.votes, this.firstVote[this.numNodes]);
+        this.firstEstimator = Arrays.copyOf(this.firstEstimator, this.numNodes + 1);
+        this.estimatorAttributes = Arrays.copyOf(this.estimatorAttributes, this.numEstimators);
+        this.estimatorNumValues = Arrays.copyOf(this.estimatorNumValues, this.numEstimators);
+        this.firstParameter = Arrays.copyOf(this.firstParameter, this.numEstimators);
+        this.parameters = Arrays.copyOf(this.parameters, this.numParameters);
+        if (this.adaptive) {
+            this.alternates = Arrays.copyOf(this.alternates, this.numNodes);
+            this.errors = Arrays.copyOf(this.errors, this.numNodes);
+        }
+        if (this.regression) {
+            this.firstWeight = Arrays.copyOf(this.firstWeight, this.numNodes);
+            this.weights = Arrays.copyOf(this.weights, this.numWeights);
+        }
+    }
+
+    public int getNumNodes() {
+        return this.numNodes;
+    }
+
+    public int getNumLeaves() {
+        int numLeaves = 0;
+        for (int node = 0; node < this.numNodes; node++) {
+            if (this.attributes[node] == NONE) {
+                numLeaves++;
+            }
+        }
+        return numLeaves;
+    }
+
+    @Override
+    protected Measurement[] getModelMeasurementsImpl() {
+        return new Measurement[]{
+                    new Measurement("tree size (nodes)", this.numNodes),
+                    new Measurement("tree size (leaves)", getNumLeaves())};
+    }
+
+    @Override
+    public void getModelDescription(StringBuilder out, int indent) {
+        StringUtils.appendIndented(out, indent, "Compiled tree of " + this.numNodes
+                + " nodes and " + getNumLeaves() + " leaves");
+        StringUtils.appendNewline(out);
+    }
+}
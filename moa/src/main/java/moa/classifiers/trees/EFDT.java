@@ -59,10 +59,14 @@ import moa.classifiers.AbstractClassifier;
 import moa.classifiers.MultiClassClassifier;
 import moa.classifiers.bayes.NaiveBayes;
 import moa.classifiers.core.AttributeSplitSuggestion;
+import moa.classifiers.core.ParallelSplitEvaluation;
 import moa.classifiers.core.attributeclassobservers.AttributeClassObserver;
 import moa.classifiers.core.attributeclassobservers.DiscreteAttributeClassObserver;
+import moa.classifiers.core.attributeclassobservers.GaussianNumericAttributeClassObserver;
+import moa.classifiers.core.attributeclassobservers.NominalAttributeClassObserver;
 import moa.classifiers.core.attributeclassobservers.NullAttributeClassObserver;
 import moa.classifiers.core.attributeclassobservers.NumericAttributeClassObserver;
+import moa.classifiers.core.attributeclassobservers.PackedAttributeClassObservers;
 import moa.classifiers.core.conditionaltests.InstanceConditionalTest;
 import moa.classifiers.core.conditionaltests.NominalAttributeBinaryTest;
 import moa.classifiers.core.conditionaltests.NominalAttributeMultiwayTest;
@@ -147,6 +151,12 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
   public FlagOption noPrePruneOption = new FlagOption("noPrePrune", 'p',
     "Disable pre-pruning.");
 
+  public FlagOption packedStatisticsOption = new FlagOption("packedStatistics", 'P',
+    "Store the statistics of each node in packed arrays, with the default numeric and nominal estimators.");
+
+  public FlagOption parallelSplitEvaluationOption = new FlagOption("parallelSplitEvaluation", 'x',
+    "Evaluate the splits of the attributes in parallel, when attempting and re-evaluating splits.");
+
   public MultiChoiceOption leafpredictionOption = new MultiChoiceOption(
     "leafprediction", 'l', "Leaf prediction to use.", new String[]{
     "MC", "NB", "NBAdaptive"}, new String[]{
@@ -285,6 +295,38 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
     return (AttributeClassObserver) numericClassObserver.copy();
   }
 
+  /**
+   * Creates the packed statistics of a node, if packedStatistics is set and
+   * the estimators are the default ones.
+   *
+   * @param inst the first instance learnt by the node
+   * @return the statistics, or null if the node should use an observer
+   * object per attribute
+   */
+  protected PackedAttributeClassObservers newPackedClassObservers(Instance inst) {
+    if (!this.packedStatisticsOption.isSet()) {
+      return null;
+    }
+    Object numericClassObserver = getPreparedClassOption(this.numericEstimatorOption);
+    Object nominalClassObserver = getPreparedClassOption(this.nominalEstimatorOption);
+    if ((numericClassObserver.getClass() != GaussianNumericAttributeClassObserver.class)
+      || (nominalClassObserver.getClass() != NominalAttributeClassObserver.class)) {
+      return null;
+    }
+    return new PackedAttributeClassObservers(inst.numClasses(),
+      ((GaussianNumericAttributeClassObserver) numericClassObserver).numBinsOption.getValue());
+  }
+
+  protected AttributeClassObserver newClassObserver(PackedAttributeClassObservers packedObservers,
+						    Instance inst, int instAttIndex) {
+    if (packedObservers != null) {
+      return inst.attribute(instAttIndex).isNominal()
+	? packedObservers.newNominalClassObserver(inst.attribute(instAttIndex).numValues())
+	: packedObservers.newNumericClassObserver();
+    }
+    return inst.attribute(instAttIndex).isNominal() ? newNominalClassObserver() : newNumericClassObserver();
+  }
+
   public void enforceTrackerLimit() {
     if ((this.inactiveLeafNodeCount > 0)
       || ((this.activeLeafNodeCount * this.activeLeafByteSizeEstimate + this.inactiveLeafNodeCount
@@ -540,6 +582,7 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
 	  Node newSplit = newSplitNode(splitDecision.splitTest,
 	    node.getObservedClassDistribution(), splitDecision.numSplits());
 	  ((EFDTSplitNode) newSplit).attributeObservers = node.attributeObservers; // copy the attribute observers
+	  ((EFDTSplitNode) newSplit).packedObservers = node.packedObservers;
 	  newSplit.setInfogainSum(node.getInfogainSum());  // transfer infogain history, leaf to split
 
 	  for (int i = 0; i < splitDecision.numSplits(); i++) {
@@ -888,6 +931,8 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
 
     protected AutoExpandVector<AttributeClassObserver> attributeObservers;
 
+    protected PackedAttributeClassObservers packedObservers;
+
     public EFDTSplitNode(InstanceConditionalTest splitTest, double[] classObservations, int size) {
       super(splitTest, classObservations, size);
     }
@@ -936,14 +981,12 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
 	  new double[0][], criterion.getMeritOfSplit(
 	  preSplitDist, new double[][]{preSplitDist})));
       }
-      for (int i = 0; i < this.attributeObservers.size(); i++) {
-	AttributeClassObserver obs = this.attributeObservers.get(i);
-	if (obs != null) {
-	  AttributeSplitSuggestion bestSuggestion = obs.getBestEvaluatedSplitSuggestion(criterion,
-	    preSplitDist, i, ht.binarySplitsOption.isSet());
-	  if (bestSuggestion != null) {
-	    bestSuggestions.add(bestSuggestion);
-	  }
+      AttributeSplitSuggestion[] attributeSuggestions = ParallelSplitEvaluation.getBestSplitSuggestions(
+	this.attributeObservers, criterion, preSplitDist,
+	ht.binarySplitsOption.isSet(), ht.parallelSplitEvaluationOption.isSet());
+      for (AttributeSplitSuggestion bestSuggestion : attributeSuggestions) {
+	if (bestSuggestion != null) {
+	  bestSuggestions.add(bestSuggestion);
 	}
       }
       return bestSuggestions.toArray(new AttributeSplitSuggestion[bestSuggestions.size()]);
@@ -962,7 +1005,10 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
 	int instAttIndex = modelAttIndexToInstanceAttIndex(i, inst);
 	AttributeClassObserver obs = this.attributeObservers.get(i);
 	if (obs == null) {
-	  obs = inst.attribute(instAttIndex).isNominal() ? ht.newNominalClassObserver() : ht.newNumericClassObserver();
+	  if (this.packedObservers == null) {
+	    this.packedObservers = ht.newPackedClassObservers(inst);
+	  }
+	  obs = ht.newClassObserver(this.packedObservers, inst, instAttIndex);
 	  this.attributeObservers.set(i, obs);
 	}
 	obs.observeAttributeClass(inst.value(instAttIndex), (int) inst.classValue(), inst.weight());
@@ -1087,6 +1133,7 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
 	    node.getObservedClassDistribution(), splitDecision.numSplits());
 
 	  ((EFDTSplitNode) newSplit).attributeObservers = node.attributeObservers; // copy the attribute observers
+	  ((EFDTSplitNode) newSplit).packedObservers = node.packedObservers;
 	  newSplit.setInfogainSum(node.getInfogainSum());  // transfer infogain history, split to replacement split
 
 	  if (node.splitTest == splitDecision.splitTest
@@ -1249,6 +1296,8 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
 
     protected boolean isInitialized;
 
+    protected PackedAttributeClassObservers packedObservers;
+
     public ActiveLearningNode(double[] initialClassObservations) {
       super(initialClassObservations);
       this.weightSeenAtLastSplitEvaluation = getWeightSeen();
@@ -1275,7 +1324,10 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
 	int instAttIndex = modelAttIndexToInstanceAttIndex(i, inst);
 	AttributeClassObserver obs = this.attributeObservers.get(i);
 	if (obs == null) {
-	  obs = inst.attribute(instAttIndex).isNominal() ? ht.newNominalClassObserver() : ht.newNumericClassObserver();
+	  if (this.packedObservers == null) {
+	    this.packedObservers = ht.newPackedClassObservers(inst);
+	  }
+	  obs = ht.newClassObserver(this.packedObservers, inst, instAttIndex);
 	  this.attributeObservers.set(i, obs);
 	}
 	obs.observeAttributeClass(inst.value(instAttIndex), (int) inst.classValue(), inst.weight());
@@ -1304,14 +1356,12 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
 	  new double[0][], criterion.getMeritOfSplit(
 	  preSplitDist, new double[][]{preSplitDist})));
       }
-      for (int i = 0; i < this.attributeObservers.size(); i++) {
-	AttributeClassObserver obs = this.attributeObservers.get(i);
-	if (obs != null) {
-	  AttributeSplitSuggestion bestSuggestion = obs.getBestEvaluatedSplitSuggestion(criterion,
-	    preSplitDist, i, ht.binarySplitsOption.isSet());
-	  if (bestSuggestion != null) {
-	    bestSuggestions.add(bestSuggestion);
-	  }
+      AttributeSplitSuggestion[] attributeSuggestions = ParallelSplitEvaluation.getBestSplitSuggestions(
+	this.attributeObservers, criterion, preSplitDist,
+	ht.binarySplitsOption.isSet(), ht.parallelSplitEvaluationOption.isSet());
+      for (AttributeSplitSuggestion bestSuggestion : attributeSuggestions) {
+	if (bestSuggestion != null) {
+	  bestSuggestions.add(bestSuggestion);
 	}
       }
       return bestSuggestions.toArray(new AttributeSplitSuggestion[bestSuggestions.size()]);
@@ -34,6 +34,7 @@ import moa.options.ClassOption;
 import moa.AbstractMOAObject;
 import moa.classifiers.Regressor;
 import moa.classifiers.core.AttributeSplitSuggestion;
+import moa.classifiers.core.ParallelSplitEvaluation;
 import moa.classifiers.core.attributeclassobservers.FIMTDDNumericAttributeClassObserver;
 import moa.classifiers.core.conditionaltests.InstanceConditionalTest;
 import moa.classifiers.core.splitcriteria.SplitCriterion;
@@ -122,6 +123,13 @@ public class FIMTDD extends AbstractClassifier implements Regressor {
 	public FlagOption learningRatioConstOption = new FlagOption(
 			"learningRatioConst", 'p', "Keep learning rate constant instead of decaying.");
 
+	public ClassOption numericEstimatorOption = new ClassOption(
+			"numericEstimator", 'n', "Numeric estimator to use.",
+			FIMTDDNumericAttributeClassObserver.class, "FIMTDDNumericAttributeClassObserver");
+
+	public FlagOption parallelSplitEvaluationOption = new FlagOption(
+			"parallelSplitEvaluation", 'w', "Evaluate the splits of the attributes in parallel.");
+
 	//endregion ================ OPTIONS ================
 
 	//region ================ CLASSES ================
@@ -328,19 +336,13 @@ public class FIMTDD extends AbstractClassifier implements Regressor {
 			// Set the nodeStatistics up as the preSplitDistribution, rather than the observedClassDistribution
 			double[] nodeSplitDist = new double[] {examplesSeen, sumOfValues, sumOfSquares};
 
-			for (int i = 0; i < this.attributeObservers.size(); i++) {
-				FIMTDDNumericAttributeClassObserver obs = this.attributeObservers.get(i);
-				if (obs != null) {
-
-					// AT THIS STAGE NON-NUMERIC ATTRIBUTES ARE IGNORED
-					AttributeSplitSuggestion bestSuggestion = null;
-					if (obs instanceof FIMTDDNumericAttributeClassObserver) {
-						bestSuggestion = obs.getBestEvaluatedSplitSuggestion(criterion, nodeSplitDist, i, true);
-					}
-
-					if (bestSuggestion != null) {
-						bestSuggestions.add(bestSuggestion);
-					}
+			// AT THIS STAGE NON-NUMERIC ATTRIBUTES ARE IGNORED
+			AttributeSplitSuggestion[] attributeSuggestions = ParallelSplitEvaluation.getBestSplitSuggestions(
+					this.attributeObservers, criterion, nodeSplitDist, true,
+					this.tree.parallelSplitEvaluationOption.isSet());
+			for (AttributeSplitSuggestion bestSuggestion : attributeSuggestions) {
+				if (bestSuggestion != null) {
+					bestSuggestions.add(bestSuggestion);
 				}
 			}
 			return bestSuggestions.toArray(new AttributeSplitSuggestion[bestSuggestions.size()]);
@@ -837,7 +839,7 @@ public class FIMTDD extends AbstractClassifier implements Regressor {
 	// region --- Object instatiation methods
 
 	protected FIMTDDNumericAttributeClassObserver newNumericClassObserver() {
-		return new FIMTDDNumericAttributeClassObserver();
+		return (FIMTDDNumericAttributeClassObserver) ((FIMTDDNumericAttributeClassObserver) getPreparedClassOption(this.numericEstimatorOption)).copy();
 	}
 
 	protected SplitNode newSplitNode(InstanceConditionalTest splitTest) {
@@ -461,7 +461,7 @@ public class HoeffdingAdaptiveTree extends HoeffdingTree {
     }
 
     @Override
-    public void trainOnInstanceImpl(Instance inst) {
+    protected void trainOnInstanceImpl(Instance inst, int gracePeriod, int memoryEstimatePeriod) {
         if (this.treeRoot == null) {
             this.treeRoot = newLearningNode();
             this.activeLeafNodeCount = 1;
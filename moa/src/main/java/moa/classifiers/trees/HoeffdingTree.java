@@ -37,10 +37,14 @@ import moa.classifiers.AbstractClassifier;
 import moa.classifiers.MultiClassClassifier;
 import moa.classifiers.bayes.NaiveBayes;
 import moa.classifiers.core.AttributeSplitSuggestion;
+import moa.classifiers.core.ParallelSplitEvaluation;
 import moa.classifiers.core.attributeclassobservers.AttributeClassObserver;
 import moa.classifiers.core.attributeclassobservers.DiscreteAttributeClassObserver;
+import moa.classifiers.core.attributeclassobservers.GaussianNumericAttributeClassObserver;
+import moa.classifiers.core.attributeclassobservers.NominalAttributeClassObserver;
 import moa.classifiers.core.attributeclassobservers.NullAttributeClassObserver;
 import moa.classifiers.core.attributeclassobservers.NumericAttributeClassObserver;
+import moa.classifiers.core.attributeclassobservers.PackedAttributeClassObservers;
 import moa.classifiers.core.conditionaltests.InstanceConditionalTest;
 import moa.classifiers.core.splitcriteria.SplitCriterion;
 import moa.core.AutoExpandVector;
@@ -51,6 +55,7 @@ import moa.core.StringUtils;
 import moa.core.Utils;
 import moa.options.ClassOption;
 import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstanceBatch;
 
 /**
  * Hoeffding Tree or VFDT.
@@ -167,6 +172,12 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
     public FlagOption noPrePruneOption = new FlagOption("noPrePrune", 'p',
             "Disable pre-pruning.");
 
+    public FlagOption packedStatisticsOption = new FlagOption("packedStatistics", 'P',
+            "Store the statistics of each leaf in packed arrays, with the default numeric and nominal estimators.");
+
+    public FlagOption parallelSplitEvaluationOption = new FlagOption("parallelSplitEvaluation", 'x',
+            "Evaluate the splits of the attributes in parallel.");
+
     public static class FoundNode {
 
         public Node node;
@@ -422,6 +433,8 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
         
         protected boolean isInitialized;
 
+        protected PackedAttributeClassObservers packedObservers;
+
         public ActiveLearningNode(double[] initialClassObservations) {
             super(initialClassObservations);
             this.weightSeenAtLastSplitEvaluation = getWeightSeen();
@@ -446,13 +459,26 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
                 int instAttIndex = modelAttIndexToInstanceAttIndex(i, inst);
                 AttributeClassObserver obs = this.attributeObservers.get(i);
                 if (obs == null) {
-                    obs = inst.attribute(instAttIndex).isNominal() ? ht.newNominalClassObserver() : ht.newNumericClassObserver();
+                    obs = newAttributeClassObserver(inst, instAttIndex, ht);
                     this.attributeObservers.set(i, obs);
                 }
                 obs.observeAttributeClass(inst.value(instAttIndex), (int) inst.classValue(), inst.weight());
             }
         }
 
+        protected AttributeClassObserver newAttributeClassObserver(Instance inst,
+                int instAttIndex, HoeffdingTree ht) {
+            if (this.packedObservers == null) {
+                this.packedObservers = ht.newPackedClassObservers(inst);
+            }
+            if (this.packedObservers != null) {
+                return inst.attribute(instAttIndex).isNominal()
+                        ? this.packedObservers.newNominalClassObserver(inst.attribute(instAttIndex).numValues())
+                        : this.packedObservers.newNumericClassObserver();
+            }
+            return inst.attribute(instAttIndex).isNominal() ? ht.newNominalClassObserver() : ht.newNumericClassObserver();
+        }
+
         public double getWeightSeen() {
             return this.observedClassDistribution.sumOfValues();
         }
@@ -476,14 +502,12 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
                         preSplitDist,
                         new double[][]{preSplitDist})));
             }
-            for (int i = 0; i < this.attributeObservers.size(); i++) {
-                AttributeClassObserver obs = this.attributeObservers.get(i);
-                if (obs != null) {
-                    AttributeSplitSuggestion bestSuggestion = obs.getBestEvaluatedSplitSuggestion(criterion,
-                            preSplitDist, i, ht.binarySplitsOption.isSet());
-                    if (bestSuggestion != null) {
-                        bestSuggestions.add(bestSuggestion);
-                    }
+            AttributeSplitSuggestion[] attributeSuggestions = ParallelSplitEvaluation.getBestSplitSuggestions(
+                    this.attributeObservers, criterion, preSplitDist,
+                    ht.binarySplitsOption.isSet(), ht.parallelSplitEvaluationOption.isSet());
+            for (AttributeSplitSuggestion bestSuggestion : attributeSuggestions) {
+                if (bestSuggestion != null) {
+                    bestSuggestions.add(bestSuggestion);
                 }
             }
             return bestSuggestions.toArray(new AttributeSplitSuggestion[bestSuggestions.size()]);
@@ -532,6 +556,17 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
         return calcByteSize();
     }
 
+    @Override
+    public int estimateByteSize() {
+        if (!this.exactByteSize && (this.activeLeafByteSizeEstimate > 0.0)) {
+            // leaf sizes last computed by estimateModelByteSizes
+            return (int) ((this.activeLeafNodeCount * this.activeLeafByteSizeEstimate
+                    + this.inactiveLeafNodeCount * this.inactiveLeafByteSizeEstimate)
+                    * this.byteSizeEstimateOverheadFraction);
+        }
+        return super.estimateByteSize();
+    }
+
     @Override
     public void resetLearningImpl() {
         this.treeRoot = null;
@@ -549,6 +584,36 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
 
     @Override
     public void trainOnInstanceImpl(Instance inst) {
+        trainOnInstanceImpl(inst, this.gracePeriodOption.getValue(),
+                this.memoryEstimatePeriodOption.getValue());
+    }
+
+    /**
+     * Trains on a batch with the grace period and the memory estimate period
+     * looked up once for the whole batch.
+     *
+     * @param batch the instances to be used for training
+     */
+    @Override
+    public void trainOnInstances(InstanceBatch batch) {
+        int gracePeriod = this.gracePeriodOption.getValue();
+        int memoryEstimatePeriod = this.memoryEstimatePeriodOption.getValue();
+        for (int i = 0; i < batch.numInstances(); i++) {
+            if (isTrainingInstance(batch, i)) {
+                this.trainingWeightSeenByModel += batch.weight(i);
+                trainOnInstanceImpl(batch.instance(i), gracePeriod, memoryEstimatePeriod);
+            }
+        }
+    }
+
+    /**
+     * Trains the tree with an instance, using the given option values.
+     *
+     * @param inst the instance to be used for training
+     * @param gracePeriod the weight a leaf should observe between split attempts
+     * @param memoryEstimatePeriod the instances between memory consumption checks
+     */
+    protected void trainOnInstanceImpl(Instance inst, int gracePeriod, int memoryEstimatePeriod) {
         if (this.treeRoot == null) {
             this.treeRoot = newLearningNode();
             this.activeLeafNodeCount = 1;
@@ -568,7 +633,7 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
                 ActiveLearningNode activeLearningNode = (ActiveLearningNode) learningNode;
                 double weightSeen = activeLearningNode.getWeightSeen();
                 if (weightSeen
-                        - activeLearningNode.getWeightSeenAtLastSplitEvaluation() >= this.gracePeriodOption.getValue()) {
+                        - activeLearningNode.getWeightSeenAtLastSplitEvaluation() >= gracePeriod) {
                     attemptToSplit(activeLearningNode, foundNode.parent,
                             foundNode.parentBranch);
                     activeLearningNode.setWeightSeenAtLastSplitEvaluation(weightSeen);
@@ -576,7 +641,7 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
             }
         }
         if (this.trainingWeightSeenByModel
-                % this.memoryEstimatePeriodOption.getValue() == 0) {
+                % memoryEstimatePeriod == 0) {
             estimateModelByteSizes();
         }
     }
@@ -660,6 +725,28 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
         return (AttributeClassObserver) numericClassObserver.copy();
     }
 
+    /**
+     * Creates the packed statistics of a learning node, if packedStatistics
+     * is set and the estimators are the default ones.
+     *
+     * @param inst the first instance learnt by the node
+     * @return the statistics, or null if the node should use an observer
+     * object per attribute
+     */
+    protected PackedAttributeClassObservers newPackedClassObservers(Instance inst) {
+        if (!this.packedStatisticsOption.isSet()) {
+            return null;
+        }
+        Object numericClassObserver = getPreparedClassOption(this.numericEstimatorOption);
+        Object nominalClassObserver = getPreparedClassOption(this.nominalEstimatorOption);
+        if ((numericClassObserver.getClass() != GaussianNumericAttributeClassObserver.class)
+                || (nominalClassObserver.getClass() != NominalAttributeClassObserver.class)) {
+            return null;
+        }
+        return new PackedAttributeClassObservers(inst.numClasses(),
+                ((GaussianNumericAttributeClassObserver) numericClassObserver).numBinsOption.getValue());
+    }
+
     protected void attemptToSplit(ActiveLearningNode node, SplitNode parent,
             int parentIndex) {
         if (!node.observedClassDistributionIsPure()) {
@@ -99,7 +99,7 @@ public class LimAttHoeffdingTree extends HoeffdingTree {
                 int instAttIndex = modelAttIndexToInstanceAttIndex(i, inst);
                 AttributeClassObserver obs = this.attributeObservers.get(i);
                 if (obs == null) {
-                    obs = inst.attribute(instAttIndex).isNominal() ? ht.newNominalClassObserver() : ht.newNumericClassObserver();
+                    obs = newAttributeClassObserver(inst, instAttIndex, ht);
                     this.attributeObservers.set(i, obs);
                 }
                 obs.observeAttributeClass(inst.value(instAttIndex), (int) inst.classValue(), inst.weight());
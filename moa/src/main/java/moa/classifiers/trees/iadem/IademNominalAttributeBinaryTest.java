@@ -29,8 +29,4 @@ public class IademNominalAttributeBinaryTest extends NominalAttributeBinaryTest
     public IademNominalAttributeBinaryTest(int attIndex, int attValue) {
         super(attIndex, attValue);
     }
-    
-    public int getAttValue() {
-        return this.attValue;
-    }
 }
@@ -28,8 +28,4 @@ public class IademNumericAttributeBinaryTest extends NumericAttributeBinaryTest
             boolean equalsPassesTest) {
         super(attIndex, attValue, equalsPassesTest);
     }
-
-    public boolean isEqualsPassesTest() {
-        return equalsPassesTest;
-    }
 }
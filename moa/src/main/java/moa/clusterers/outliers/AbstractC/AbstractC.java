@@ -20,9 +20,11 @@
 
 package moa.clusterers.outliers.AbstractC;
 
+import java.util.ArrayDeque;
 import java.util.Vector;
 import moa.clusterers.outliers.AbstractC.ISBIndex.ISBNode;
-import moa.clusterers.outliers.AbstractC.ISBIndex.ISBSearchResult;
+import moa.clusterers.outliers.utils.StreamObj;
+import moa.clusterers.outliers.utils.StreamObjIndex.ISBSearchResult;
 import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.FloatOption;
 import com.github.javacliparser.IntOption;
@@ -65,9 +67,9 @@ public class AbstractC extends AbstractCBase {
         
         objId = FIRST_OBJ_ID; // init object identifier
         // create fifo
-        windowNodes = new Vector<ISBNode>();
+        windowNodes = new ArrayDeque<ISBNode>();
         // create ISB
-        ISB = new ISBIndex(m_radius, m_Fraction);
+        ISB = new ISBIndex();
         
         // init statistics
         m_nBothInlierOutlier = 0;
@@ -79,12 +81,12 @@ public class AbstractC extends AbstractCBase {
         if (n == q) return;
         if (bTrace) Println("UpdateNeighbors: n.id: " + n.id + ", q.id: " + q.id);
         
-        int len = q.lt_cnt.size();
+        int len = q.LtCountsSize();
         for (int i = 0; i < len; i++) {
             // n.lt_cnt++
-            n.lt_cnt.set(i, n.lt_cnt.get(i) + 1);
+            n.IncLtCount(i);
             // q.lt_cnt++
-            q.lt_cnt.set(i, q.lt_cnt.get(i) + 1);
+            q.IncLtCount(i);
         }
     }
     
@@ -94,15 +96,15 @@ public class AbstractC extends AbstractCBase {
         double thr = m_Fraction * m_WindowSize;
         
         for (ISBNode node : windowNodes) {
-            if (node.lt_cnt.size() > 0) {
+            if (node.LtCountsSize() > 0) {
                 if (IsWinFull() || !waitWinFullOption.isSet()) {
-                    if (node.lt_cnt.get(0) < thr) {
+                    if (node.GetLtCount(0) < thr) {
                         SaveOutlier(node);
                     } else {
                         RemoveOutlier(node);
                     }
                 }
-                node.lt_cnt.remove(0);
+                node.RemoveFirstLtCount();
             } else {
                 if (bWarning) Println("OutputPatterns: " + node.id + ".lt_cnt is empty!");
             }
@@ -127,29 +129,25 @@ public class AbstractC extends AbstractCBase {
         
         objId++; // update object identifier (slide window)
         
-        // purge expired node
-        ISBNode nodeExpired = GetExpiredNode();
-        if (nodeExpired != null) {
-            // purge nodeExpired
+        // purge expired nodes
+        for (ISBNode nodeExpired : ISB.RemoveExpired(GetWindowStart())) {
             if (bTrace) { Print("nodeExpired: "); PrintNode(nodeExpired); }
             RemoveNode(nodeExpired);
         }
         
         // initialize nodeNew.lt_cnt
         if (bTrace) Println("initialize nodeNew");
-        for (int i = 0; i < m_WindowSize; i++) {
-            nodeNew.lt_cnt.add(1);
-        }        
+        nodeNew.InitLtCounts(m_WindowSize);
         AddNode(nodeNew); // add nodeNew to window and index
         if (bTrace) PrintWindow();
         
         // perform range query search
         if (bTrace) Println("Perform range query seach");
         nRangeQueriesExecuted++;
-        Vector<ISBIndex.ISBSearchResult> neighbors = ISB.RangeSearch(nodeNew, m_radius);
+        Vector<ISBSearchResult<ISBNode>> neighbors = ISB.RangeSearch(nodeNew, m_radius);
 
         // process each returned node
-        for (ISBSearchResult res : neighbors) {
+        for (ISBSearchResult<ISBNode> res : neighbors) {
             ISBNode node = res.node;
             UpdateNeighbors(nodeNew, node);
         }
@@ -159,7 +157,7 @@ public class AbstractC extends AbstractCBase {
         if (bTrace) {            
             PrintOutliers();
             for (ISBNode node : windowNodes) {
-                Print(node.id + ".lt_count: "); Print_lt_cnt(node.lt_cnt);
+                Print(node.id + ".lt_count: "); Print_lt_cnt(node);
             }
         }
     }
@@ -21,18 +21,18 @@
 
 package moa.clusterers.outliers.AbstractC;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Vector;
 import moa.clusterers.outliers.AbstractC.ISBIndex.ISBNode;
 import moa.clusterers.outliers.MyBaseOutlierDetector;
 
 public abstract class AbstractCBase extends MyBaseOutlierDetector {    
-    protected static final Long FIRST_OBJ_ID = 1L;
+    protected static final long FIRST_OBJ_ID = 1L;
     
     // object identifier increments with each new data stream object
-    protected Long objId;
+    protected long objId;
     // list used to find expired nodes
-    protected Vector<ISBNode> windowNodes; 
+    protected ArrayDeque<ISBNode> windowNodes; 
     protected ISBIndex ISB;
     protected int m_WindowSize;
     protected double m_radius;
@@ -115,12 +115,12 @@ public abstract class AbstractCBase extends MyBaseOutlierDetector {
         return sb.toString();
     }
     
-    Long GetWindowEnd() {
+    long GetWindowEnd() {
         return objId - 1;
     }
     
-    Long GetWindowStart() {
-        Long x = GetWindowEnd() - m_WindowSize + 1;
+    long GetWindowStart() {
+        long x = GetWindowEnd() - m_WindowSize + 1;
         if (x < FIRST_OBJ_ID) 
             x = FIRST_OBJ_ID;
         return x;
@@ -130,7 +130,7 @@ public abstract class AbstractCBase extends MyBaseOutlierDetector {
         return (GetWindowEnd() >= FIRST_OBJ_ID + m_WindowSize - 1);
     }
     
-    Long GetExpirationTime(ISBNode node) {
+    long GetExpirationTime(ISBNode node) {
         return node.id + m_WindowSize;
     }
     
@@ -152,18 +152,6 @@ public abstract class AbstractCBase extends MyBaseOutlierDetector {
             m_nOnlyOutlier++;
     }
     
-    ISBNode GetExpiredNode() {
-        if (windowNodes.size() <= 0)
-            return null;       
-        // get oldest node
-        ISBNode node = windowNodes.get(0);
-        // check if node has expired
-        if (node.id < GetWindowStart()) {
-            return node;
-        }        
-        return null;
-    }
-    
     void SaveOutlier(ISBNode node) {
         AddOutlier(new Outlier(node.inst, node.id, node));
         node.nOutlier++; // update statistics
@@ -184,9 +172,7 @@ public abstract class AbstractCBase extends MyBaseOutlierDetector {
     
     void PrintWindow() {
         Println("Window [" + GetWindowStart() + "-" + GetWindowEnd() + "]: ");
-        ISBNode node;
-        for (int i = 0; i < windowNodes.size(); i++) {
-            node = windowNodes.get(i);
+        for (ISBNode node : windowNodes) {
             Print("   Node: ");
             PrintNode(node);
         }
@@ -203,9 +189,9 @@ public abstract class AbstractCBase extends MyBaseOutlierDetector {
         Println(")");
     }
     
-    public void Print_lt_cnt(ArrayList<Integer> lt_cnt) {
-        for (int i = 0; i < lt_cnt.size(); i++) {
-            Print("(" + i + ": " + lt_cnt.get(i) + ") ");
+    public void Print_lt_cnt(ISBNode node) {
+        for (int i = 0; i < node.LtCountsSize(); i++) {
+            Print("(" + i + ": " + node.GetLtCount(i) + ") ");
         }
         Println("");
     }
@@ -20,6 +20,7 @@
 
 package moa.clusterers.outliers.Angiulli;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -27,7 +28,8 @@ import java.util.Random;
 import java.util.Set;
 import java.util.Vector;
 import moa.clusterers.outliers.Angiulli.ISBIndex.ISBNode;
-import moa.clusterers.outliers.Angiulli.ISBIndex.ISBSearchResult;
+import moa.clusterers.outliers.utils.StreamObj;
+import moa.clusterers.outliers.utils.StreamObjIndex.ISBSearchResult;
 import com.github.javacliparser.FloatOption;
 import com.github.javacliparser.IntOption;
 import com.yahoo.labs.samoa.instances.Instance;
@@ -35,10 +37,10 @@ import com.yahoo.labs.samoa.instances.Instance;
 
 public class ApproxSTORM extends STORMBase {
     public class ISBNodeAppr extends ISBNode {
-        public Long count_after, count_before;
+        public long count_after, count_before;
         public double fract_before;
         
-        public ISBNodeAppr(Instance inst, StreamObj obj, Long id, int k) {
+        public ISBNodeAppr(Instance inst, StreamObj obj, long id, int k) {
             super(inst, obj, id);
             m_k = k;
             count_after = 0L;
@@ -119,9 +121,9 @@ public class ApproxSTORM extends STORMBase {
         
         objId = FIRST_OBJ_ID; // init object identifier
         // create fifo
-        windowNodes = new Vector<ISBNode>();
+        windowNodes = new ArrayDeque<ISBNode>();
         // create ISB
-        ISB = new ISBIndex(m_radius, m_k);
+        ISB = new ISBIndex();
         // create safe_inliers list
         safe_inliers = new HashSet<ISBNode>();
         
@@ -185,7 +187,7 @@ public class ApproxSTORM extends STORMBase {
             return;        
        
         // get oldest node
-        ISBNode node = windowNodes.get(0);
+        ISBNode node = windowNodes.peekFirst();
         // check if node has expired
         if (node.id < GetWindowStart()) {
             if (bTrace) {
@@ -228,12 +230,12 @@ public class ApproxSTORM extends STORMBase {
         // perform range query search
         if (bTrace) Println("Perform range query seach:");
         nRangeQueriesExecuted++;
-        Vector<ISBIndex.ISBSearchResult> nodes = ISB.RangeSearch(nodeNew, m_radius);
+        Vector<ISBSearchResult<ISBNode>> nodes = ISB.RangeSearch(nodeNew, m_radius);
 
         // process each returned node
         int nSafeInliers;
-        Long count_si_before = 0L;
-        for (ISBSearchResult res : nodes) {
+        long count_si_before = 0L;
+        for (ISBSearchResult<ISBNode> res : nodes) {
             ISBNodeAppr n = (ISBNodeAppr) res.node;
             if (bTrace) {
                 Printf("   Found at d=%.2f: ", res.distance);
@@ -305,10 +307,9 @@ public class ApproxSTORM extends STORMBase {
     
     void SearchOutliers() {
         if (bTrace) Println("Invoke query: ");
-        ISBNodeAppr node;
         // process each node in the ISB (also in window)
-        for (int i = 0; i < windowNodes.size(); i++) {
-            node = (ISBNodeAppr) windowNodes.get(i);
+        for (ISBNode n : windowNodes) {
+            ISBNodeAppr node = (ISBNodeAppr) n;
             if (bTrace) {
                 Print("   Process node: ");
                 PrintNode(node);
@@ -20,12 +20,14 @@
  */
 package moa.clusterers.outliers.Angiulli;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.Vector;
 import moa.clusterers.outliers.Angiulli.ISBIndex.ISBNode;
-import moa.clusterers.outliers.Angiulli.ISBIndex.ISBSearchResult;
+import moa.clusterers.outliers.utils.StreamObj;
+import moa.clusterers.outliers.utils.StreamObjIndex.ISBSearchResult;
 import com.github.javacliparser.FloatOption;
 import com.github.javacliparser.IntOption;
 import com.yahoo.labs.samoa.instances.Instance;
@@ -43,14 +45,14 @@ public class ExactSTORM extends STORMBase {
         //   It must be able to perform a search in the list using e.g. <=.
         private ArrayList<Long> nn_before;
         
-        public ISBNodeExact(Instance inst, StreamObj obj, Long id, int k) {
+        public ISBNodeExact(Instance inst, StreamObj obj, long id, int k) {
             super(inst, obj, id);
             m_k = k;
             count_after = 0;
             nn_before = new ArrayList<Long>();
         }
         
-        public void AddPrecNeigh(Long id) {
+        public void AddPrecNeigh(long id) {
             int pos = Collections.binarySearch(nn_before, id);
             if (pos < 0) {
                 // item does not exist, so add it to the right position
@@ -58,7 +60,7 @@ public class ExactSTORM extends STORMBase {
             }
         }
         
-        public int CountPrecNeighs(Long sinceId) {
+        public int CountPrecNeighs(long sinceId) {
             if (nn_before.size() > 0) {
                 // get number of neighs with id >= sinceId
                 int startPos;
@@ -152,9 +154,9 @@ public class ExactSTORM extends STORMBase {
         
         objId = FIRST_OBJ_ID; // init object identifier
         // create fifo
-        windowNodes = new Vector<ISBNode>();
+        windowNodes = new ArrayDeque<ISBNode>();
         // create ISB
-        ISB = new ISBIndex(m_radius, m_k);
+        ISB = new ISBIndex();
         
         // init statistics
         m_nBothInlierOutlier = 0;
@@ -174,13 +176,8 @@ public class ExactSTORM extends STORMBase {
     }
     
     void DeleteExpiredNode() {
-        if (windowNodes.size() <= 0)
-            return;        
-       
-        // get oldest node
-        ISBNode node = windowNodes.get(0);
-        // check if node has expired
-        if (node.id < GetWindowStart()) {
+        // remove the expired nodes from ISB, all of them are in the window
+        for (ISBNode node : ISB.RemoveExpired(GetWindowStart())) {
             if (bTrace) {
                 Print("Delete expired node: ");
                 PrintNode(node);
@@ -219,10 +216,10 @@ public class ExactSTORM extends STORMBase {
         // perform range query search
         if (bTrace) Println("Perform range query seach:");
         nRangeQueriesExecuted++;
-        Vector<ISBIndex.ISBSearchResult> nodes = ISB.RangeSearch(nodeNew, m_radius);
+        Vector<ISBSearchResult<ISBNode>> nodes = ISB.RangeSearch(nodeNew, m_radius);
 
         // process each returned node
-        for (ISBSearchResult res : nodes) {
+        for (ISBSearchResult<ISBNode> res : nodes) {
             ISBNodeExact n = (ISBNodeExact) res.node;
             if (bTrace)  {
                 Printf("   Found at d=%.2f: ", res.distance);
@@ -251,10 +248,9 @@ public class ExactSTORM extends STORMBase {
     
     void SearchOutliers() {
         if (bTrace) Println("Invoke query: ");
-        ISBNodeExact node;
         // process each node in the ISB (also in window)
-        for (int i = 0; i < windowNodes.size(); i++) {
-            node = (ISBNodeExact) windowNodes.get(i);
+        for (ISBNode n : windowNodes) {
+            ISBNodeExact node = (ISBNodeExact) n;
             if (bTrace) {
                 Print("   Process node: ");
                 PrintNode(node);
@@ -20,7 +20,7 @@
 
 package moa.clusterers.outliers.Angiulli;
 
-import java.util.Vector;
+import java.util.ArrayDeque;
 import moa.clusterers.outliers.Angiulli.ISBIndex.ISBNode;
 import moa.clusterers.outliers.MyBaseOutlierDetector;
 import com.github.javacliparser.FlagOption;
@@ -28,12 +28,12 @@ import com.github.javacliparser.FlagOption;
 public abstract class STORMBase extends MyBaseOutlierDetector {   
     public FlagOption waitWinFullOption = new FlagOption("waitWinFull", 'a', "Output outliers when windows is full.");
      
-    protected static final Long FIRST_OBJ_ID = 1L;
+    protected static final long FIRST_OBJ_ID = 1L;
     
     // object identifier increments with each new data stream object
-    protected Long objId;
+    protected long objId;
     // list used to find expired nodes
-    protected Vector<ISBNode> windowNodes; 
+    protected ArrayDeque<ISBNode> windowNodes; 
     protected ISBIndex ISB;
     protected int m_WindowSize;
     protected double m_radius;
@@ -83,12 +83,12 @@ public abstract class STORMBase extends MyBaseOutlierDetector {
         return sb.toString();
     }
     
-    Long GetWindowEnd() {
+    long GetWindowEnd() {
         return objId - 1;
     }
     
-    Long GetWindowStart() {
-        Long x = GetWindowEnd() - m_WindowSize + 1;
+    long GetWindowStart() {
+        long x = GetWindowEnd() - m_WindowSize + 1;
         if (x < FIRST_OBJ_ID) 
             x = FIRST_OBJ_ID;
         return x;
@@ -137,9 +137,7 @@ public abstract class STORMBase extends MyBaseOutlierDetector {
     
     void PrintWindow() {
         Println("Window [" + GetWindowStart() + "-" + GetWindowEnd() + "]: ");
-        ISBNode node;
-        for (int i = 0; i < windowNodes.size(); i++) {
-            node = windowNodes.get(i);
+        for (ISBNode node : windowNodes) {
             Print("   Node: ");
             PrintNode(node);
         }
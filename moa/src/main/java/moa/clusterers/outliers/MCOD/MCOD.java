@@ -20,12 +20,14 @@
 
 package moa.clusterers.outliers.MCOD;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.TreeSet;
 import java.util.Vector;
 import moa.clusterers.outliers.MCOD.ISBIndex.ISBNode;
 import moa.clusterers.outliers.MCOD.ISBIndex.ISBNode.NodeType;
-import moa.clusterers.outliers.MCOD.ISBIndex.ISBSearchResult;
+import moa.clusterers.outliers.utils.StreamObj;
+import moa.clusterers.outliers.utils.StreamObjIndex.ISBSearchResult;
 import com.github.javacliparser.FloatOption;
 import com.github.javacliparser.IntOption;
 import com.yahoo.labs.samoa.instances.Instance;
@@ -64,13 +66,14 @@ public class MCOD extends MCODBase {
         
         objId = FIRST_OBJ_ID; // init object identifier
         // create nodes list of window
-        windowNodes = new Vector<ISBNode>();
+        windowNodes = new ArrayDeque<ISBNode>();
         // create ISB
-        ISB_PD = new ISBIndex(m_radius, m_k);
+        ISB_PD = new ISBIndex();
         // create helper sets for micro-cluster management
         setMC = new TreeSet<MicroCluster>();
         // micro-cluster index
         mtreeMC = new MTreeMicroClusters();
+        mcRangeResults = new MTreeMicroClusters.RangeResults<MicroCluster>();
         // create event queue
         eventQueue = new EventQueue();
         
@@ -187,9 +190,9 @@ public class MCOD extends MCODBase {
             // create helper sets for micro-cluster management
             ArrayList<ISBNode> setNC = new ArrayList<ISBNode>();
             ArrayList<ISBNode> setNNC = new ArrayList<ISBNode>();
-            Vector<ISBSearchResult> resultNodes;
+            Vector<ISBSearchResult<ISBNode>> resultNodes;
             resultNodes = ISB_PD.RangeSearch(nodeNew, 1.5 * m_radius); // 1.5 ###
-            for (ISBSearchResult sr : resultNodes) {
+            for (ISBSearchResult<ISBNode> sr : resultNodes) {
                 ISBNode q = sr.node;
                 if (sr.distance <= m_radius) {                    
                     // add q to neighs of nodeNew
@@ -292,7 +295,7 @@ public class MCOD extends MCODBase {
     void AddToEventQueue(ISBNode x, ISBNode nodeMinExp) {
         if (bTrace) Println("AddToEventQueue x.id: " + x.id); 
         if (nodeMinExp != null) {
-            Long expTime = GetExpirationTime(nodeMinExp);
+            long expTime = GetExpirationTime(nodeMinExp);
             eventQueue.Insert(x, expTime);
             if (bTrace) {
                 Print("x.nn_before: "); PrintNodeList(x.Get_nn_before());
@@ -20,7 +20,9 @@
 
 package moa.clusterers.outliers.MCOD;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
@@ -32,9 +34,9 @@ import moa.clusterers.outliers.MyBaseOutlierDetector;
 public abstract class MCODBase extends MyBaseOutlierDetector {    
     protected static class EventItem implements Comparable<EventItem> {
         public ISBNode node;
-        public Long timeStamp;
+        public long timeStamp;
 
-        public EventItem(ISBNode node, Long timeStamp) {
+        public EventItem(ISBNode node, long timeStamp) {
             this.node = node;
             this.timeStamp = timeStamp;
         }
@@ -62,7 +64,7 @@ public abstract class MCODBase extends MyBaseOutlierDetector {
             setEvents = new TreeSet<EventItem>();
         }
         
-        public void Insert(ISBNode node, Long expTime) {
+        public void Insert(ISBNode node, long expTime) {
             setEvents.add(new EventItem(node, expTime));
         }
         
@@ -84,15 +86,17 @@ public abstract class MCODBase extends MyBaseOutlierDetector {
         }
     }
     
-    protected static final Long FIRST_OBJ_ID = 1L;
+    protected static final long FIRST_OBJ_ID = 1L;
     
     // object identifier increments with each new data stream object
-    protected Long objId;
+    protected long objId;
     // list used to find expired nodes
-    protected Vector<ISBNode> windowNodes; 
+    protected ArrayDeque<ISBNode> windowNodes; 
     protected EventQueue eventQueue;
     // MTree index of micro-clusters
     protected MTreeMicroClusters mtreeMC;
+    // results of the range searches at mtreeMC
+    protected MTreeMicroClusters.RangeResults<MicroCluster> mcRangeResults;
     // set of micro-clusters (for trace)
     protected TreeSet<MicroCluster> setMC;
     // nodes treated as new nodes when a mc removed
@@ -190,12 +194,12 @@ public abstract class MCODBase extends MyBaseOutlierDetector {
         return sb.toString();
     }
     
-    Long GetWindowEnd() {
+    long GetWindowEnd() {
         return objId - 1;
     }
     
-    Long GetWindowStart() {
-        Long x = GetWindowEnd() - m_WindowSize + 1;
+    long GetWindowStart() {
+        long x = GetWindowEnd() - m_WindowSize + 1;
         if (x < FIRST_OBJ_ID) 
             x = FIRST_OBJ_ID;
         return x;
@@ -205,7 +209,7 @@ public abstract class MCODBase extends MyBaseOutlierDetector {
         return (GetWindowEnd() >= FIRST_OBJ_ID + m_WindowSize - 1);
     }
     
-    Long GetExpirationTime(ISBNode node) {
+    long GetExpirationTime(ISBNode node) {
         return node.id + m_WindowSize;
     }
     
@@ -222,7 +226,7 @@ public abstract class MCODBase extends MyBaseOutlierDetector {
     @Override
     protected boolean IsNodeIdInWin(long id) {
         int toleranceStart = 1;
-        Long start = GetWindowStart() - toleranceStart;
+        long start = GetWindowStart() - toleranceStart;
         if ( (start <= id) && (id <= GetWindowEnd()) )
             return true;
         else
@@ -253,7 +257,7 @@ public abstract class MCODBase extends MyBaseOutlierDetector {
         if (windowNodes.size() <= 0)
             return null;       
         // get oldest node
-        ISBNode node = windowNodes.get(0);
+        ISBNode node = windowNodes.peekFirst();
         // check if node has expired
         if (node.id < GetWindowStart()) {
             return node;
@@ -286,9 +290,9 @@ public abstract class MCODBase extends MyBaseOutlierDetector {
         // create a dummy mc in order to search w.r.t. nodeNew
         MicroCluster dummy = new MicroCluster(nodeNew);
         // query results are returned ascenting by distance
-        MTreeMicroClusters.Query query = mtreeMC.getNearestByRange(dummy, radius);
-        for (MTreeMicroClusters.ResultItem q : query) {            
-            results.add(new SearchResultMC(q.data, q.distance));
+        int nFound = mtreeMC.rangeSearch(dummy, radius, mcRangeResults);
+        for (int i = 0; i < nFound; i++) {
+            results.add(new SearchResultMC(mcRangeResults.getData(i), mcRangeResults.getDistance(i)));
         }        
         return results;
     }
@@ -307,9 +311,7 @@ public abstract class MCODBase extends MyBaseOutlierDetector {
     
     void PrintWindow() {
         Println("Window [" + GetWindowStart() + "-" + GetWindowEnd() + "]: ");
-        ISBNode node;
-        for (int i = 0; i < windowNodes.size(); i++) {
-            node = windowNodes.get(i);
+        for (ISBNode node : windowNodes) {
             Print("   Node: ");
             PrintNode(node);
         }
@@ -333,7 +335,7 @@ public abstract class MCODBase extends MyBaseOutlierDetector {
         Println("");
     }
     
-    public void PrintMCSet(Set<MicroCluster> set) {
+    public void PrintMCSet(Collection<MicroCluster> set) {
         for (MicroCluster n : set) {
             Print(n.mcc.id + " ");
         }
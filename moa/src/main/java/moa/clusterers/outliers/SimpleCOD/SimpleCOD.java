@@ -20,9 +20,11 @@
 
 package moa.clusterers.outliers.SimpleCOD;
 
+import java.util.ArrayDeque;
 import java.util.Vector;
 import moa.clusterers.outliers.SimpleCOD.ISBIndex.ISBNode;
-import moa.clusterers.outliers.SimpleCOD.ISBIndex.ISBSearchResult;
+import moa.clusterers.outliers.utils.StreamObj;
+import moa.clusterers.outliers.utils.StreamObjIndex.ISBSearchResult;
 import com.github.javacliparser.FloatOption;
 import com.github.javacliparser.IntOption;
 import com.yahoo.labs.samoa.instances.Instance;
@@ -60,9 +62,9 @@ public class SimpleCOD extends SimpleCODBase {
         
         objId = FIRST_OBJ_ID; // init object identifier
         // create nodes list of window
-        windowNodes = new Vector<ISBNode>();
+        windowNodes = new ArrayDeque<ISBNode>();
         // create ISB
-        ISB = new ISBIndex(m_radius, m_k);
+        ISB = new ISBIndex();
         // create event queue
         eventQueue = new EventQueue();
         
@@ -77,9 +79,9 @@ public class SimpleCOD extends SimpleCODBase {
         
         if (bTrace) Println("Perform R range query");    
         nRangeQueriesExecuted++;
-        Vector<ISBSearchResult> resultNodes;
+        Vector<ISBSearchResult<ISBNode>> resultNodes;
         resultNodes = ISB.RangeSearch(nodeNew, m_radius);
-        for (ISBSearchResult sr : resultNodes) {
+        for (ISBSearchResult<ISBNode> sr : resultNodes) {
             double distance = sr.distance;
             ISBNode q = sr.node;
             if ( (nodeNew != q) && (distance <= m_radius) ) {  
@@ -120,7 +122,7 @@ public class SimpleCOD extends SimpleCODBase {
     void AddToEventQueue(ISBNode x, ISBNode nodeMinExp) {
         if (bTrace) Println("AddToEventQueue x.id: " + x.id); 
         if (nodeMinExp != null) {
-            Long expTime = GetExpirationTime(nodeMinExp);
+            long expTime = GetExpirationTime(nodeMinExp);
             eventQueue.Insert(x, expTime);
             if (bTrace) {
                 Print("x.nn_before: "); PrintNodeList(x.Get_nn_before());
@@ -166,7 +168,6 @@ public class SimpleCOD extends SimpleCODBase {
     void ProcessExpiredNode(ISBNode nodeExpired) { 
         if (nodeExpired != null) {
             if (bTrace) Println("\nnodeExpired: " + nodeExpired.id);
-            ISB.Remove(nodeExpired); // remove nodeExpired from index
             RemoveNode(nodeExpired);
             ProcessEventQueue(nodeExpired);
         }
@@ -196,7 +197,10 @@ public class SimpleCOD extends SimpleCODBase {
         ISB.Insert(nodeNew);
         
         ProcessNewNode(nodeNew, true);
-        ProcessExpiredNode(GetExpiredNode());
+        // expired nodes are removed from index
+        for (ISBNode nodeExpired : ISB.RemoveExpired(GetWindowStart())) {
+            ProcessExpiredNode(nodeExpired);
+        }
         
         if (bTrace) {
             PrintOutliers();
@@ -19,6 +19,7 @@
  */
 package moa.clusterers.outliers.SimpleCOD;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
@@ -30,9 +31,9 @@ import moa.clusterers.outliers.SimpleCOD.ISBIndex.ISBNode;
 public abstract class SimpleCODBase extends MyBaseOutlierDetector {    
     protected static class EventItem implements Comparable<EventItem> {
         public ISBNode node;
-        public Long timeStamp;
+        public long timeStamp;
 
-        public EventItem(ISBNode node, Long timeStamp) {
+        public EventItem(ISBNode node, long timeStamp) {
             this.node = node;
             this.timeStamp = timeStamp;
         }
@@ -60,7 +61,7 @@ public abstract class SimpleCODBase extends MyBaseOutlierDetector {
             setEvents = new TreeSet<EventItem>();
         }
         
-        public void Insert(ISBNode node, Long expTime) {
+        public void Insert(ISBNode node, long expTime) {
             setEvents.add(new EventItem(node, expTime));
         }
         
@@ -82,12 +83,12 @@ public abstract class SimpleCODBase extends MyBaseOutlierDetector {
         }
     }
     
-    protected static final Long FIRST_OBJ_ID = 1L;
+    protected static final long FIRST_OBJ_ID = 1L;
     
     // object identifier increments with each new data stream object
-    protected Long objId;
+    protected long objId;
     // list used to find expired nodes
-    protected Vector<ISBNode> windowNodes; 
+    protected ArrayDeque<ISBNode> windowNodes; 
     protected EventQueue eventQueue;
     // index of objects
     protected ISBIndex ISB;
@@ -176,12 +177,12 @@ public abstract class SimpleCODBase extends MyBaseOutlierDetector {
         return sb.toString();
     }
     
-    Long GetWindowEnd() {
+    long GetWindowEnd() {
         return objId - 1;
     }
     
-    Long GetWindowStart() {
-        Long x = GetWindowEnd() - m_WindowSize + 1;
+    long GetWindowStart() {
+        long x = GetWindowEnd() - m_WindowSize + 1;
         if (x < FIRST_OBJ_ID) 
             x = FIRST_OBJ_ID;
         return x;
@@ -191,7 +192,7 @@ public abstract class SimpleCODBase extends MyBaseOutlierDetector {
         return (GetWindowEnd() >= FIRST_OBJ_ID + m_WindowSize - 1);
     }
     
-    Long GetExpirationTime(ISBNode node) {
+    long GetExpirationTime(ISBNode node) {
         return node.id + m_WindowSize;
     }
     
@@ -208,7 +209,7 @@ public abstract class SimpleCODBase extends MyBaseOutlierDetector {
     @Override
     protected boolean IsNodeIdInWin(long id) {
         int toleranceStart = 1;
-        Long start = GetWindowStart() - toleranceStart;
+        long start = GetWindowStart() - toleranceStart;
         if ( (start <= id) && (id <= GetWindowEnd()) )
             return true;
         else
@@ -235,18 +236,6 @@ public abstract class SimpleCODBase extends MyBaseOutlierDetector {
             m_nOnlyOutlier++;
     }
     
-    ISBNode GetExpiredNode() {
-        if (windowNodes.size() <= 0)
-            return null;       
-        // get oldest node
-        ISBNode node = windowNodes.get(0);
-        // check if node has expired
-        if (node.id < GetWindowStart()) {
-            return node;
-        }        
-        return null;
-    }
-    
     double GetEuclideanDist(ISBNode n1, ISBNode n2)
     {
         double diff;
@@ -261,9 +250,7 @@ public abstract class SimpleCODBase extends MyBaseOutlierDetector {
     
     void PrintWindow() {
         Println("Window [" + GetWindowStart() + "-" + GetWindowEnd() + "]: ");
-        ISBNode node;
-        for (int i = 0; i < windowNodes.size(); i++) {
-            node = windowNodes.get(i);
+        for (ISBNode node : windowNodes) {
             Print("   Node: ");
             PrintNode(node);
         }
@@ -18,7 +18,7 @@
  *    
  */
 
-package moa.clusterers.outliers.MCOD;
+package moa.clusterers.outliers.utils;
 
 import moa.clusterers.outliers.utils.mtree.DistanceFunctions.EuclideanCoordinate;
 
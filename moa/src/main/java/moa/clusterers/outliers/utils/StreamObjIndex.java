@@ -0,0 +1,227 @@
+/*
+ *    StreamObjIndex.java
+ *    Copyright (C) 2013 Aristotle University of Thessaloniki, Greece
+ *    @author D. Georgiadis, A. Gounaris, A. Papadopoulos, K. Tsichlas, Y. Manolopoulos
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *
+ */
+
+package moa.clusterers.outliers.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Vector;
+import com.yahoo.labs.samoa.instances.Instance;
+
+/**
+ * Metric index of the nodes of the sliding window shared by the distance-based
+ * outlier detectors (MCOD, SimpleCOD, AbstractC and STORM). The stream objects
+ * of the nodes are kept in an M-Tree for range searches, and the nodes are
+ * kept by increasing id, so the oldest slide of the window can be expired at
+ * once with RemoveExpired. A node removed with Remove stays queued by id until
+ * all the older nodes have been removed, so the queue holds at most the nodes
+ * from the oldest indexed one, whether or not RemoveExpired is used. Each
+ * detector extends Node with its own fields.
+ *
+ * @param <N> the type of the nodes
+ */
+public class StreamObjIndex<N extends StreamObjIndex.Node> {
+    public static class Node {
+        public Instance inst;
+        public StreamObj obj;
+        public long id;
+
+        // statistics
+        public int nOutlier;
+        public int nInlier;
+
+        // whether the node is in an index, and in its queue by id
+        boolean bIndexed;
+        boolean bQueued;
+
+        public Node(Instance inst, StreamObj obj, long id) {
+            this.inst = inst;
+            this.obj = obj;
+            this.id = id;
+
+            // init statistics
+            nOutlier = 0;
+            nInlier  = 0;
+        }
+    }
+
+    public static class ISBSearchResult<N> {
+        public N node;
+        public double distance;
+
+        public ISBSearchResult(N n, double distance) {
+            this.node = n;
+            this.distance = distance;
+        }
+    }
+
+    private static final Comparator<Node> ID_ORDER = new Comparator<Node>() {
+        @Override
+        public int compare(Node n1, Node n2) {
+            return Long.compare(n1.id, n2.id);
+        }
+    };
+
+    StreamObjMTree mtree;
+    // nodes referencing each stream object of the mtree
+    Map<StreamObj, List<N>> mapNodes;
+    StreamObjMTree.RangeResults<StreamObj> rangeResults;
+    // nodes by increasing id: removed nodes are dropped once they are the oldest
+    PriorityQueue<N> nodesById;
+    int nNodes;
+
+    public StreamObjIndex() {
+        mtree = new StreamObjMTree();
+        mapNodes = new HashMap<StreamObj, List<N>>();
+        rangeResults = new StreamObjMTree.RangeResults<StreamObj>();
+        nodesById = new PriorityQueue<N>(11, ID_ORDER);
+        nNodes = 0;
+    }
+
+    public int Size() {
+        return nNodes;
+    }
+
+    public int QueueSize() {
+        return nodesById.size();
+    }
+
+    public Vector<ISBSearchResult<N>> RangeSearch(N node, double radius) {
+        Vector<ISBSearchResult<N>> results = new Vector<ISBSearchResult<N>>();
+        // execute range search at mtree
+        int nFound = mtree.rangeSearch(node.obj, radius, rangeResults);
+        for (int j = 0; j < nFound; j++) {
+            // get distance of obj found within range from query
+            double d = rangeResults.getDistance(j);
+            // get all nodes referencing obj
+            List<N> nodes = MapGetNodes(rangeResults.getData(j));
+            for (int i = 0; i < nodes.size(); i++)
+                results.add(new ISBSearchResult<N>(nodes.get(i), d));
+        }
+        return results;
+    }
+
+    public void Insert(N node) {
+        if (node.bIndexed)
+            return;
+        // insert object of node at mtree
+        mtree.add(node.obj);
+        // insert node at map
+        MapInsert(node);
+        // a node inserted again may still be queued
+        if (!node.bQueued) {
+            nodesById.add(node);
+            node.bQueued = true;
+        }
+        node.bIndexed = true;
+        nNodes++;
+    }
+
+    public void Remove(N node) {
+        if (!node.bIndexed)
+            return;
+        // remove from map
+        MapDelete(node);
+        // check if stream object at mtree is still being referenced
+        if (MapCountObjRefs(node.obj) <= 0) {
+            // delete stream object from mtree
+            mtree.remove(node.obj);
+        }
+        node.bIndexed = false;
+        nNodes--;
+        DropRemovedNodes();
+    }
+
+    /**
+     * Removes the nodes of the index whose id is less than the start of the
+     * window, which are the oldest slide of the window.
+     *
+     * @param windowStart the id of the oldest node of the window
+     * @return the nodes removed, by increasing id
+     */
+    public List<N> RemoveExpired(long windowStart) {
+        List<N> expired = Collections.emptyList();
+        while (!nodesById.isEmpty() && (nodesById.peek().id < windowStart)) {
+            N node = nodesById.poll();
+            node.bQueued = false;
+            if (node.bIndexed) {
+                if (expired.isEmpty()) {
+                    expired = new ArrayList<N>(1);
+                }
+                Remove(node);
+                expired.add(node);
+            }
+        }
+        return expired;
+    }
+
+    public Vector<N> GetAllNodes() {
+        Vector<N> v = new Vector<N>(nNodes);
+        for (List<N> nodes : mapNodes.values()) {
+            v.addAll(nodes);
+        }
+        return v;
+    }
+
+    // drops the removed nodes older than all the indexed ones
+    void DropRemovedNodes() {
+        while (!nodesById.isEmpty() && !nodesById.peek().bIndexed) {
+            nodesById.poll().bQueued = false;
+        }
+    }
+
+    List<N> MapGetNodes(StreamObj obj) {
+        List<N> nodes = mapNodes.get(obj);
+        if (nodes == null)
+            return Collections.emptyList();
+        return nodes;
+    }
+
+    int MapCountObjRefs(StreamObj obj) {
+        List<N> nodes = mapNodes.get(obj);
+        if (nodes == null)
+            return 0;
+        return nodes.size();
+    }
+
+    void MapInsert(N node) {
+        List<N> nodes = mapNodes.get(node.obj);
+        if (nodes == null) {
+            nodes = new ArrayList<N>(1);
+            mapNodes.put(node.obj, nodes);
+        }
+        nodes.add(node);
+    }
+
+    void MapDelete(N node) {
+        List<N> nodes = mapNodes.get(node.obj);
+        if (nodes != null) {
+            nodes.remove(node);
+            if (nodes.isEmpty()) { // ### added
+                mapNodes.remove(node.obj);
+            }
+        }
+    }
+}
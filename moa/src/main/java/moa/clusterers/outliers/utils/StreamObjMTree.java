@@ -1,9 +1,8 @@
 /*
- *    MyMTree.java
+ *    StreamObjMTree.java
  *    Copyright (C) 2013 Aristotle University of Thessaloniki, Greece
  *    @author D. Georgiadis, A. Gounaris, A. Papadopoulos, K. Tsichlas, Y. Manolopoulos
  *
- *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
  *    You may obtain a copy of the License at
@@ -19,7 +18,7 @@
  *    
  */
 
-package moa.clusterers.outliers.AbstractC;
+package moa.clusterers.outliers.utils;
 
 import java.util.Set;
 import moa.clusterers.outliers.utils.mtree.ComposedSplitFunction;
@@ -31,8 +30,7 @@ import moa.clusterers.outliers.utils.mtree.PromotionFunction;
 import moa.clusterers.outliers.utils.mtree.utils.Pair;
 import moa.clusterers.outliers.utils.mtree.utils.Utils;
 
-
-class MyMTree extends MTree<StreamObj> {
+class StreamObjMTree extends MTree<StreamObj> {
 
     private static final PromotionFunction<StreamObj> nonRandomPromotion = new PromotionFunction<StreamObj>() {
 
@@ -42,7 +40,7 @@ class MyMTree extends MTree<StreamObj> {
         }
     };
 
-    MyMTree() {
+    StreamObjMTree() {
         super(2, DistanceFunctions.EUCLIDEAN,
                 new ComposedSplitFunction<StreamObj>(
                 nonRandomPromotion,
@@ -19,6 +19,7 @@ package moa.clusterers.outliers.utils.mtree;
 import moa.clusterers.outliers.utils.mtree.SplitFunction.SplitResult;
 
 import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -58,32 +59,100 @@ public class MTree<DATA> {
 	}
 	
 	
-	// Exception classes
-	private static class SplitNodeReplacement extends Exception {
-		// A subclass of Throwable cannot be generic.  :-(
-		// So, we have newNodes declared as Object[] instead of Node[].
-		private Object newNodes[];
-		
-		private SplitNodeReplacement(Object... newNodes) {
-			this.newNodes = newNodes;
+	/**
+	 * The results of a range query, reused from one query to the next.
+	 * 
+	 * <p>The results are sorted by non-decreasing distance to the query data
+	 * object, as the ones of {@link MTree#getNearestByRange(Object, double)},
+	 * and are kept in arrays that only grow, so that a query allocates no
+	 * object.
+	 */
+	public static class RangeResults<DATA> {
+		private Object[] data = new Object[16];
+		private double[] distances = new double[16];
+		private int size = 0;
+
+		/** @return The number of results. */
+		public int size() {
+			return size;
 		}
-	}
-	
-	private static class RootNodeReplacement extends Exception {
-		// A subclass of Throwable cannot be generic.  :-(
-		// So, we have newRoot declared as Object instead of Node.
-		private Object newRoot;
-		
-		private RootNodeReplacement(Object newRoot) {
-			this.newRoot = newRoot;
+
+		/**
+		 * @param i The index of the result, from 0 to {@code size() - 1}.
+		 * @return The data object of the result.
+		 */
+		@SuppressWarnings("unchecked")
+		public DATA getData(int i) {
+			return (DATA) data[i];
+		}
+
+		/**
+		 * @param i The index of the result, from 0 to {@code size() - 1}.
+		 * @return The distance from the result to the query data object.
+		 */
+		public double getDistance(int i) {
+			return distances[i];
+		}
+
+		private void clear() {
+			// drop the references to the data objects of the previous query
+			Arrays.fill(data, 0, size, null);
+			size = 0;
+		}
+
+		private void add(Object item, double distance) {
+			if(size == data.length) {
+				data = Arrays.copyOf(data, 2 * size);
+				distances = Arrays.copyOf(distances, 2 * size);
+			}
+			data[size] = item;
+			distances[size] = distance;
+			size++;
+		}
+
+		private void sort(int from, int to) {
+			// quicksort on the distances, insertion sort for the short ranges
+			while(to - from > 16) {
+				double pivot = distances[(from + to) >>> 1];
+				int i = from;
+				int j = to - 1;
+				while(i <= j) {
+					while(distances[i] < pivot) i++;
+					while(distances[j] > pivot) j--;
+					if(i <= j) {
+						swap(i++, j--);
+					}
+				}
+				if(j + 1 - from < to - i) {
+					sort(from, j + 1);
+					from = i;
+				} else {
+					sort(i, to);
+					to = j + 1;
+				}
+			}
+			for(int i = from + 1; i < to; i++) {
+				for(int j = i; j > from  &&  distances[j - 1] > distances[j]; j--) {
+					swap(j - 1, j);
+				}
+			}
+		}
+
+		private void swap(int i, int j) {
+			Object item = data[i];
+			data[i] = data[j];
+			data[j] = item;
+			double distance = distances[i];
+			distances[i] = distances[j];
+			distances[j] = distance;
 		}
 	}
 
-	
-	private static class NodeUnderCapacity extends Exception { }
-	
 
-	private static class DataNotFound extends Exception { }
+	// Results of removeData()
+	private static final int DATA_NOT_FOUND = 0;
+	private static final int DATA_REMOVED = 1;
+	private static final int NODE_UNDER_CAPACITY = 2;
 
 	/**
 	 * An {@link Iterable} class which can be iterated to fetch the results of a
@@ -280,6 +349,7 @@ public class MTree<DATA> {
 	protected DistanceFunction<? super DATA> distanceFunction;
 	protected SplitFunction<DATA> splitFunction;
 	protected Node root;
+	protected int size;
 	
 	
 	/**
@@ -338,6 +408,7 @@ public class MTree<DATA> {
 		this.distanceFunction = distanceFunction;
 		this.splitFunction = splitFunction;
 		this.root = null;
+		this.size = 0;
 	}
 	
 	
@@ -352,26 +423,21 @@ public class MTree<DATA> {
 	public void add(DATA data) {
 		if(root == null) {
 			root = new RootLeafNode(data);
-			try {
-				root.addData(data, 0);
-			} catch (SplitNodeReplacement e) {
-				throw new RuntimeException("Should never happen!");
-			}
+			Node[] newNodes = root.addData(data, 0);
+			assert newNodes == null;
 		} else {
 			double distance = distanceFunction.calculate(data, root.data);
-			try {
-				root.addData(data, distance);
-			} catch(SplitNodeReplacement e) {
+			Node[] newNodes = root.addData(data, distance);
+			if(newNodes != null) {
 				Node newRoot = new RootNode(data);
 				root = newRoot;
-				for(int i = 0; i < e.newNodes.length; i++) {
-					@SuppressWarnings("unchecked")
-					Node newNode = (Node) e.newNodes[i];
+				for(Node newNode : newNodes) {
 					distance = distanceFunction.calculate(root.data, newNode.data);
 					root.addChild(newNode, distance);
 				}
 			}
 		}
+		size++;
 	}
 
 
@@ -386,20 +452,65 @@ public class MTree<DATA> {
 		}
 		
 		double distanceToRoot = distanceFunction.calculate(data, root.data);
-		try {
-			root.removeData(data, distanceToRoot);
-		} catch(RootNodeReplacement e) {
-			@SuppressWarnings("unchecked")
-			Node newRoot = (Node) e.newRoot;
-			root = newRoot;
-		} catch(DataNotFound e) {
+		int result = root.removeData(data, distanceToRoot);
+		if(result == DATA_NOT_FOUND) {
 			return false;
-		} catch (NodeUnderCapacity e) {
-			throw new RuntimeException("Should have never happened", e);
 		}
+		if(result == NODE_UNDER_CAPACITY) {
+			root = root.newRootReplacement();
+		}
+		size--;
 		return true;
 	}
 
+	/**
+	 * @return The number of data objects indexed.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Performs a range query on the M-Tree, like {@link
+	 * #getNearestByRange(Object, double)}, but fetches all the results at once
+	 * into {@code results}, without allocating any object. This is the
+	 * cheapest way to find all the neighbors within a range.
+	 * @param queryData The query data object.
+	 * @param range     The maximum distance from {@code queryData} to fetched
+	 *                  neighbors.
+	 * @param results   The results, replaced by the ones of this query and
+	 *                  sorted by non-decreasing distance.
+	 * @return The number of results.
+	 */
+	public int rangeSearch(DATA queryData, double range, RangeResults<? super DATA> results) {
+		results.clear();
+		if(root != null) {
+			double distance = distanceFunction.calculate(queryData, root.data);
+			rangeSearch(root, distance, queryData, range, results);
+			results.sort(0, results.size);
+		}
+		return results.size;
+	}
+
+	private void rangeSearch(Node node, double distance, DATA queryData, double range,
+			RangeResults<? super DATA> results) {
+		// the same pruning as the iterator of Query, depth first
+		for(IndexItem child : node.children.values()) {
+			if(Math.abs(distance - child.distanceToParent) - child.radius <= range) {
+				double childDistance = distanceFunction.calculate(queryData, child.data);
+				if(childDistance - child.radius <= range) {
+					if(child instanceof MTree.Entry) {
+						results.add(child.data, childDistance);
+					} else {
+						@SuppressWarnings("unchecked")
+						Node childNode = (Node)child;
+						rangeSearch(childNode, childDistance, queryData, range, results);
+					}
+				}
+			}
+		}
+	}
+
 	/**
 	 * Performs a nearest-neighbors query on the M-Tree, constrained by distance.
 	 * @param queryData The query data object.
@@ -447,7 +558,8 @@ public class MTree<DATA> {
 	
 	
 	protected void _check() {
-		if(root != null) {
+		// the checks are assertions, but walk the whole tree
+		if(root != null  &&  MTree.class.desiredAssertionStatus()) {
 			root._check();
 		}
 	}
@@ -501,9 +613,13 @@ public class MTree<DATA> {
 			this.leafness = leafness;
 		}
 
-		private final void addData(DATA data, double distance) throws SplitNodeReplacement {
+		/**
+		 * @return The two nodes replacing this one if it was split, or
+		 *         {@code null}.
+		 */
+		private final Node[] addData(DATA data, double distance) {
 			doAddData(data, distance);
-			checkMaxCapacity();
+			return checkMaxCapacity();
 		}
 
 		int _check() {
@@ -535,11 +651,11 @@ public class MTree<DATA> {
 			leafness.doAddData(data, distance);
 		}
 
-		protected void doRemoveData(DATA data, double distance) throws DataNotFound {
-			leafness.doRemoveData(data, distance);
+		protected boolean doRemoveData(DATA data, double distance) {
+			return leafness.doRemoveData(data, distance);
 		}
 
-		private final void checkMaxCapacity() throws SplitNodeReplacement {
+		private final Node[] checkMaxCapacity() {
 			if(children.size() > MTree.this.maxNodeCapacity) {
 				DistanceFunction<? super DATA> cachedDistanceFunction = DistanceFunctions.cached(MTree.this.distanceFunction);
 				SplitResult<DATA> splitResult = MTree.this.splitFunction.process(children.keySet(), cachedDistanceFunction);
@@ -566,9 +682,11 @@ public class MTree<DATA> {
 				}
 				assert children.isEmpty();
 
-				throw new SplitNodeReplacement(newNode0, newNode1);
+				@SuppressWarnings("unchecked")
+				Node[] newNodes = (Node[]) new MTree.Node[] { newNode0, newNode1 };
+				return newNodes;
 			}
-
+			return null;
 		}
 
 		protected Node newSplitNodeReplacement(DATA data) {
@@ -579,11 +697,26 @@ public class MTree<DATA> {
 			leafness.addChild(child, distance);
 		}
 
-		void removeData(DATA data, double distance) throws RootNodeReplacement, NodeUnderCapacity, DataNotFound {
-			doRemoveData(data, distance);
+		/**
+		 * @return {@code DATA_NOT_FOUND}, {@code DATA_REMOVED}, or {@code
+		 *         NODE_UNDER_CAPACITY} if the data was removed and this node
+		 *         has too few children left.
+		 */
+		final int removeData(DATA data, double distance) {
+			if(!doRemoveData(data, distance)) {
+				return DATA_NOT_FOUND;
+			}
 			if(children.size() < getMinCapacity()) {
-				throw new NodeUnderCapacity();
+				return NODE_UNDER_CAPACITY;
 			}
+			return DATA_REMOVED;
+		}
+
+		/**
+		 * @return The node replacing this root when it is under capacity.
+		 */
+		Node newRootReplacement() {
+			throw new RuntimeException("Should not be called!");
 		}
 
 		protected int getMinCapacity() {
@@ -639,7 +772,7 @@ public class MTree<DATA> {
 	private interface Leafness<DATA> {
 		void doAddData(DATA data, double distance);
 		void addChild(MTree<DATA>.IndexItem child, double distance);
-		void doRemoveData(DATA data, double distance) throws DataNotFound;
+		boolean doRemoveData(DATA data, double distance);
 		MTree<DATA>.Node newSplitNodeReplacement(DATA data);
 		void _checkChildClass(MTree<DATA>.IndexItem child);
 	}
@@ -714,10 +847,8 @@ public class MTree<DATA> {
 		
 
 		@Override
-		public void doRemoveData(DATA data, double distance) throws DataNotFound {
-			if(thisNode.children.remove(data) == null) {
-				throw new DataNotFound();
-			}
+		public boolean doRemoveData(DATA data, double distance) {
+			return thisNode.children.remove(data) != null;
 		}
 
 		public void _checkChildClass(IndexItem child) {
@@ -764,17 +895,15 @@ public class MTree<DATA> {
 			                      : minRadiusIncreaseNeeded;
 			
 			Node child = chosen.node;
-			try {
-				child.addData(data, chosen.distance);
+			Node[] newNodes = child.addData(data, chosen.distance);
+			if(newNodes == null) {
 				thisNode.updateRadius(child);
-			} catch(SplitNodeReplacement e) {
+			} else {
 				// Replace current child with new nodes
 				IndexItem ii = thisNode.children.remove(child.data);
 				assert ii != null;
 				
-				for(int i = 0; i < e.newNodes.length; ++i) {
-					@SuppressWarnings("unchecked")
-					Node newChild = (Node) e.newNodes[i];
+				for(Node newChild : newNodes) {
 					distance = thisNode.mtree().distanceFunction.calculate(thisNode.data, newChild.data);
 					thisNode.addChild(newChild, distance);
 				}
@@ -814,15 +943,12 @@ public class MTree<DATA> {
 					}
 					newChild.children.clear();
 					
-					try {
-						existingChild.checkMaxCapacity();
-					} catch(SplitNodeReplacement e) {
+					Node[] newNodes = existingChild.checkMaxCapacity();
+					if(newNodes != null) {
 						IndexItem ii = thisNode.children.remove(existingChild.data);
 						assert ii != null;
 						
-						for(int i = 0; i < e.newNodes.length; ++i) {
-							@SuppressWarnings("unchecked")
-							Node newNode = (Node) e.newNodes[i];
+						for(Node newNode : newNodes) {
 							distance = thisNode.mtree().distanceFunction.calculate(thisNode.data, newNode.data);
 							newChildren.addFirst(new ChildWithDistance(newNode, distance));
 						}
@@ -840,31 +966,28 @@ public class MTree<DATA> {
 		}
 
 
-		public void doRemoveData(DATA data, double distance) throws DataNotFound {
+		public boolean doRemoveData(DATA data, double distance) {
 			for(IndexItem childItem : thisNode.children.values()) {
 				@SuppressWarnings("unchecked")
 				Node child = (Node)childItem;
 				if(Math.abs(distance - child.distanceToParent) <= child.radius) {
 					double distanceToChild = thisNode.mtree().distanceFunction.calculate(data, child.data);
 					if(distanceToChild <= child.radius) {
-						try {
-							child.removeData(data, distanceToChild);
+						int result = child.removeData(data, distanceToChild);
+						if(result == DATA_REMOVED) {
 							thisNode.updateRadius(child);
-							return;
-						} catch(DataNotFound e) {
-							// If DataNotFound was thrown, then the data was not found in the child
-						} catch(NodeUnderCapacity e) {
+							return true;
+						} else if(result == NODE_UNDER_CAPACITY) {
 							Node expandedChild = balanceChildren(child);
 							thisNode.updateRadius(expandedChild);
-							return;
-						} catch (RootNodeReplacement e) {
-							throw new RuntimeException("Should never happen!");
+							return true;
 						}
+						// Otherwise the data was not found in the child
 					}
 				}
 			}
 			
-			throw new DataNotFound();
+			return false;
 		}
 
 		
@@ -949,13 +1072,10 @@ public class MTree<DATA> {
 			super(data, new RootNodeTrait(), new LeafNodeTrait());
 		}
 		
-		void removeData(DATA data, double distance) throws RootNodeReplacement, DataNotFound {
-			try {
-				super.removeData(data, distance);
-			} catch (NodeUnderCapacity e) {
-				assert children.isEmpty();
-				throw new RootNodeReplacement(null);
-			}
+		@Override
+		Node newRootReplacement() {
+			assert children.isEmpty();
+			return null;
 		}
 		
 		protected int getMinCapacity() {
@@ -973,29 +1093,26 @@ public class MTree<DATA> {
 			super(data, new RootNodeTrait(), new NonLeafNodeTrait());
 		}
 		
-		void removeData(DATA data, double distance) throws RootNodeReplacement, NodeUnderCapacity, DataNotFound {
-			try {
-				super.removeData(data, distance);
-			} catch(NodeUnderCapacity e) {
-				// Promote the only child to root
-				@SuppressWarnings("unchecked")
-				Node theChild = (Node)(children.values().iterator().next());
-				Node newRoot;
-				if(theChild instanceof MTree.InternalNode) {
-					newRoot = new RootNode(theChild.data);
-				} else {
-					assert theChild instanceof MTree.LeafNode;
-					newRoot = new RootLeafNode(theChild.data);
-				}
-
-				for(IndexItem grandchild : theChild.children.values()) {
-					distance = MTree.this.distanceFunction.calculate(newRoot.data, grandchild.data);
-					newRoot.addChild(grandchild, distance);
-				}
-				theChild.children.clear();
+		@Override
+		Node newRootReplacement() {
+			// Promote the only child to root
+			@SuppressWarnings("unchecked")
+			Node theChild = (Node)(children.values().iterator().next());
+			Node newRoot;
+			if(theChild instanceof MTree.InternalNode) {
+				newRoot = new RootNode(theChild.data);
+			} else {
+				assert theChild instanceof MTree.LeafNode;
+				newRoot = new RootLeafNode(theChild.data);
+			}
 
-				throw new RootNodeReplacement(newRoot);
+			for(IndexItem grandchild : theChild.children.values()) {
+				double distance = MTree.this.distanceFunction.calculate(newRoot.data, grandchild.data);
+				newRoot.addChild(grandchild, distance);
 			}
+			theChild.children.clear();
+
+			return newRoot;
 		}
 		
 		
@@ -0,0 +1,471 @@
+/*
+ *    BoundedValueTree.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.core;
+
+import moa.AbstractMOAObject;
+
+/**
+ * Class for representing a balanced binary search tree of numeric values with
+ * a maximum number of nodes.
+ *
+ * <p>The tree is an AVL tree stored in primitive arrays: inserting a value
+ * takes O(log n) time. Every node holds a distinct value and the same number
+ * of statistics, accumulated by the caller for the values equal to the node
+ * value, and the weight of these values. When the tree is full and a new
+ * value comes, consecutive nodes are merged into groups of similar weight,
+ * which at least halves the number of nodes: the nodes are then close to
+ * quantiles of the values. A group keeps the value of its upper node and the
+ * lowest value merged into it, so the statistics of the values less than or
+ * equal to any remaining node value stay exact. A node added afterwards
+ * inside the values of a group is approximate: it takes the part of the
+ * weight and statistics of the group proportional to the part of the values
+ * of the group below its value, as if the merged values were uniform.</p>
+ *
+ * @version $Revision: 7 $
+ */
+public class BoundedValueTree extends AbstractMOAObject {
+
+    private static final long serialVersionUID = 1L;
+
+    protected static final int NONE = -1;
+
+    protected static final int INITIAL_CAPACITY = 16;
+
+    // an AVL tree of a billion nodes has a height below 45
+    protected static final int MAX_HEIGHT = 64;
+
+    protected int maxNodes;
+
+    protected int numStatistics;
+
+    protected int size = 0;
+
+    protected int root = NONE;
+
+    protected double[] values;
+
+    // the lowest value merged into each node, equal to its value if none was
+    protected double[] lowerBounds;
+
+    protected int[] left;
+
+    protected int[] right;
+
+    protected int[] height;
+
+    protected double[] weights;
+
+    protected double[] statistics;
+
+    protected int[] path = new int[MAX_HEIGHT];
+
+    public BoundedValueTree(int maxNodes, int numStatistics) {
+        if (maxNodes < 2) {
+            throw new IllegalArgumentException("At least two nodes are needed.");
+        }
+        this.maxNodes = maxNodes;
+        this.numStatistics = numStatistics;
+        int capacity = Math.min(maxNodes, INITIAL_CAPACITY);
+        this.values = new double[capacity];
+        this.lowerBounds = new double[capacity];
+        this.left = new int[capacity];
+        this.right = new int[capacity];
+        this.height = new int[capacity];
+        this.weights = new double[capacity];
+        this.statistics = new double[capacity * numStatistics];
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public int getMaxNodes() {
+        return this.maxNodes;
+    }
+
+    public int getNumStatistics() {
+        return this.numStatistics;
+    }
+
+    public double getValue(int node) {
+        return this.values[node];
+    }
+
+    /**
+     * Gets the lowest value merged into a node. The values merged into the
+     * node are between this bound and the node value.
+     *
+     * @param node the node
+     * @return the lower bound, equal to the node value if nothing was merged
+     */
+    public double getLowerBound(int node) {
+        return this.lowerBounds[node];
+    }
+
+    public double getWeight(int node) {
+        return this.weights[node];
+    }
+
+    /**
+     * Gets the statistics of all the nodes: those of a node start at
+     * node * getNumStatistics().
+     *
+     * @return the statistics, to be updated by the caller
+     */
+    public double[] getStatistics() {
+        return this.statistics;
+    }
+
+    /**
+     * Increases the number of statistics of every node, the new ones being
+     * zero.
+     *
+     * @param numStatistics the new number of statistics
+     */
+    public void setNumStatistics(int numStatistics) {
+        setBlockSize(1, numStatistics);
+    }
+
+    /**
+     * Increases the size of the blocks the statistics of every node are
+     * divided into, the new statistics of each block being zero.
+     *
+     * @param numBlocks the number of blocks of the statistics of a node
+     * @param blockSize the new number of statistics of a block
+     */
+    public void setBlockSize(int numBlocks, int blockSize) {
+        int oldBlockSize = this.numStatistics / numBlocks;
+        if (blockSize > oldBlockSize) {
+            int numStatistics = numBlocks * blockSize;
+            double[] newStatistics = new double[this.values.length * numStatistics];
+            for (int i = 0; i < this.size * numBlocks; i++) {
+                System.arraycopy(this.statistics, i * oldBlockSize,
+                        newStatistics, i * blockSize, oldBlockSize);
+            }
+            this.statistics = newStatistics;
+            this.numStatistics = numStatistics;
+        }
+    }
+
+    /**
+     * Adds a value to the node of the value, adding a node if the value is
+     * new.
+     *
+     * @param value the value, not NaN
+     * @param weight the weight of the value
+     * @return the node whose statistics must include the value
+     */
+    public int insert(double value, double weight) {
+        int node = find(value);
+        this.weights[node] += weight;
+        return node;
+    }
+
+    protected int find(double value) {
+        int depth = 0;
+        int node = this.root;
+        int next = NONE;
+        while (node != NONE) {
+            if (value == this.values[node]) {
+                return node;
+            }
+            this.path[depth++] = node;
+            if (value < this.values[node]) {
+                next = node;
+                node = this.left[node];
+            } else {
+                node = this.right[node];
+            }
+        }
+        if (this.size == this.maxNodes) {
+            mergeNodes();
+            return find(value);
+        }
+        if (this.size == this.values.length) {
+            grow();
+        }
+        node = this.size++;
+        this.values[node] = value;
+        this.lowerBounds[node] = value;
+        this.weights[node] = 0.0;
+        for (int s = 0; s < this.numStatistics; s++) {
+            this.statistics[node * this.numStatistics + s] = 0.0;
+        }
+        if ((next != NONE) && (this.lowerBounds[next] < value)) {
+            splitNode(next, node);
+        }
+        this.left[node] = NONE;
+        this.right[node] = NONE;
+        this.height[node] = 1;
+        if (depth == 0) {
+            this.root = node;
+            return node;
+        }
+        int parent = this.path[depth - 1];
+        if (value < this.values[parent]) {
+            this.left[parent] = node;
+        } else {
+            this.right[parent] = node;
+        }
+        // rebalance the ancestors from the bottom up
+        for (int i = depth - 1; i >= 0; i--) {
+            int subtree = this.path[i];
+            int balanced = balance(subtree);
+            if (i == 0) {
+                this.root = balanced;
+            } else if (this.left[this.path[i - 1]] == subtree) {
+                this.left[this.path[i - 1]] = balanced;
+            } else {
+                this.right[this.path[i - 1]] = balanced;
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Moves the part of the weight and statistics of a merged node that
+     * belongs below the value of a new node to the new node.
+     */
+    protected void splitNode(int merged, int node) {
+        double lowerBound = this.lowerBounds[merged];
+        double fraction = (this.values[node] - lowerBound)
+                / (this.values[merged] - lowerBound);
+        this.lowerBounds[node] = lowerBound;
+        this.lowerBounds[merged] = this.values[node];
+        double moved = fraction * this.weights[merged];
+        this.weights[node] = moved;
+        this.weights[merged] -= moved;
+        for (int s = 0; s < this.numStatistics; s++) {
+            moved = fraction * this.statistics[merged * this.numStatistics + s];
+            this.statistics[node * this.numStatistics + s] = moved;
+            this.statistics[merged * this.numStatistics + s] -= moved;
+        }
+    }
+
+    /**
+     * Gets the node with the smallest value greater than or equal to a value.
+     *
+     * @param value the value
+     * @return the node, or -1 if all the values are smaller
+     */
+    public int ceiling(double value) {
+        int result = NONE;
+        int node = this.root;
+        while (node != NONE) {
+            if (this.values[node] >= value) {
+                result = node;
+                node = this.left[node];
+            } else {
+                node = this.right[node];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the node with the largest value smaller than a value.
+     *
+     * @param value the value
+     * @return the node, or -1 if no value is smaller
+     */
+    public int lower(double value) {
+        int result = NONE;
+        int node = this.root;
+        while (node != NONE) {
+            if (this.values[node] < value) {
+                result = node;
+                node = this.right[node];
+            } else {
+                node = this.left[node];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the node with the smallest value greater than a value.
+     *
+     * @param value the value
+     * @return the node, or -1 if no value is greater
+     */
+    public int higher(double value) {
+        int result = NONE;
+        int node = this.root;
+        while (node != NONE) {
+            if (this.values[node] > value) {
+                result = node;
+                node = this.left[node];
+            } else {
+                node = this.right[node];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the nodes in the increasing order of their values.
+     *
+     * @return the nodes sorted by value
+     */
+    public int[] getSortedNodes() {
+        int[] sorted = new int[this.size];
+        int[] stack = new int[MAX_HEIGHT];
+        int count = 0;
+        int depth = 0;
+        int node = this.root;
+        while ((node != NONE) || (depth > 0)) {
+            while (node != NONE) {
+                stack[depth++] = node;
+                node = this.left[node];
+            }
+            node = stack[--depth];
+            sorted[count++] = node;
+            node = this.right[node];
+        }
+        return sorted;
+    }
+
+    protected int heightOf(int node) {
+        return node == NONE ? 0 : this.height[node];
+    }
+
+    protected void updateHeight(int node) {
+        this.height[node] = 1 + Math.max(heightOf(this.left[node]), heightOf(this.right[node]));
+    }
+
+    protected int rotateLeft(int node) {
+        int newRoot = this.right[node];
+        this.right[node] = this.left[newRoot];
+        this.left[newRoot] = node;
+        updateHeight(node);
+        updateHeight(newRoot);
+        return newRoot;
+    }
+
+    protected int rotateRight(int node) {
+        int newRoot = this.left[node];
+        this.left[node] = this.right[newRoot];
+        this.right[newRoot] = node;
+        updateHeight(node);
+        updateHeight(newRoot);
+        return newRoot;
+    }
+
+    protected int balance(int node) {
+        updateHeight(node);
+        int balance = heightOf(this.left[node]) - heightOf(this.right[node]);
+        if (balance > 1) {
+            if (heightOf(this.left[this.left[node]]) < heightOf(this.right[this.left[node]])) {
+                this.left[node] = rotateLeft(this.left[node]);
+            }
+            return rotateRight(node);
+        }
+        if (balance < -1) {
+            if (heightOf(this.right[this.right[node]]) < heightOf(this.left[this.right[node]])) {
+                this.right[node] = rotateRight(this.right[node]);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    protected void grow() {
+        int capacity = (int) Math.min((long) this.values.length * 2, this.maxNodes);
+        double[] newValues = new double[capacity];
+        double[] newLowerBounds = new double[capacity];
+        int[] newLeft = new int[capacity];
+        int[] newRight = new int[capacity];
+        int[] newHeight = new int[capacity];
+        double[] newWeights = new double[capacity];
+        double[] newStatistics = new double[capacity * this.numStatistics];
+        System.arraycopy(this.values, 0, newValues, 0, this.size);
+        System.arraycopy(this.lowerBounds, 0, newLowerBounds, 0, this.size);
+        System.arraycopy(this.left, 0, newLeft, 0, this.size);
+        System.arraycopy(this.right, 0, newRight, 0, this.size);
+        System.arraycopy(this.height, 0, newHeight, 0, this.size);
+        System.arraycopy(this.weights, 0, newWeights, 0, this.size);
+        System.arraycopy(this.statistics, 0, newStatistics, 0, this.size * this.numStatistics);
+        this.values = newValues;
+        this.lowerBounds = newLowerBounds;
+        this.left = newLeft;
+        this.right = newRight;
+        this.height = newHeight;
+        this.weights = newWeights;
+        this.statistics = newStatistics;
+    }
+
+    /**
+     * Merges consecutive nodes into groups of at most four times the mean
+     * weight of a node, and rebuilds a perfectly balanced tree. Two
+     * consecutive groups weigh more than this maximum, so there are at most
+     * half of the nodes plus one groups.
+     */
+    protected void mergeNodes() {
+        int[] sorted = getSortedNodes();
+        double totalWeight = 0.0;
+        for (int node : sorted) {
+            totalWeight += this.weights[node];
+        }
+        double maxGroupWeight = 4.0 * totalWeight / sorted.length;
+        double[] newValues = new double[this.values.length];
+        double[] newLowerBounds = new double[this.values.length];
+        double[] newWeights = new double[this.weights.length];
+        double[] newStatistics = new double[this.statistics.length];
+        int numNodes = 0;
+        int i = 0;
+        while (i < sorted.length) {
+            int offset = numNodes * this.numStatistics;
+            newLowerBounds[numNodes] = this.lowerBounds[sorted[i]];
+            double groupWeight = 0.0;
+            do {
+                int node = sorted[i++];
+                groupWeight += this.weights[node];
+                for (int s = 0; s < this.numStatistics; s++) {
+                    newStatistics[offset + s] += this.statistics[node * this.numStatistics + s];
+                }
+            } while ((i < sorted.length)
+                    && (groupWeight + this.weights[sorted[i]] <= maxGroupWeight));
+            newValues[numNodes] = this.values[sorted[i - 1]];
+            newWeights[numNodes] = groupWeight;
+            numNodes++;
+        }
+        this.values = newValues;
+        this.lowerBounds = newLowerBounds;
+        this.weights = newWeights;
+        this.statistics = newStatistics;
+        this.size = numNodes;
+        this.root = build(0, numNodes - 1);
+    }
+
+    // the nodes from..to are sorted by value
+    protected int build(int from, int to) {
+        if (from > to) {
+            return NONE;
+        }
+        int middle = (from + to) >>> 1;
+        this.left[middle] = build(from, middle - 1);
+        this.right[middle] = build(middle + 1, to);
+        updateHeight(middle);
+        return middle;
+    }
+
+    @Override
+    public void getDescription(StringBuilder sb, int indent) {
+        StringUtils.appendIndented(sb, indent, "Tree of " + this.size + " values");
+    }
+}
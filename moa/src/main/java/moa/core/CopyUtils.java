@@ -0,0 +1,307 @@
+/*
+ *    CopyUtils.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.core;
+
+import java.io.Externalizable;
+import java.io.NotSerializableException;
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Class implementing a deep copy of objects that does not serialize them.
+ *
+ * <p>copyObject gives the same copy as SerializeUtils.copyObject: the objects
+ * are created without calling their constructors, the non transient fields
+ * are copied, the transient ones are left to their default values, and an
+ * object referenced several times is copied once. Arrays, array lists,
+ * linked lists, hash maps and the classes outside the Java platform that only
+ * rely on the default serialization are copied field by field with
+ * reflection. Any other object, such as a class with a writeObject or
+ * readResolve method or a JDK class like Random, is copied by serializing it
+ * alone.</p>
+ *
+ * @version $Revision: 7 $
+ */
+public class CopyUtils {
+
+    protected static final String[] SERIALIZATION_METHODS = {"writeObject",
+        "readObject", "readObjectNoData", "writeReplace", "readResolve"};
+
+    /**
+     * How the objects of a class are copied.
+     */
+    protected static class ClassCopier {
+
+        protected final Constructor<?> constructor;
+
+        protected final Field[] fields;
+
+        protected final int kind;
+
+        public ClassCopier(Constructor<?> constructor, Field[] fields, int kind) {
+            this.constructor = constructor;
+            this.fields = fields;
+            this.kind = kind;
+        }
+    }
+
+    protected static final int FIELDS = 0;
+
+    protected static final int LIST = 1;
+
+    protected static final int MAP = 2;
+
+    protected static final ClassCopier SERIALIZED = new ClassCopier(null, null, FIELDS);
+
+    protected static final Map<Class<?>, ClassCopier> copiers = new ConcurrentHashMap<Class<?>, ClassCopier>();
+
+    protected static Object reflectionFactory;
+
+    protected static Method newConstructorForSerialization;
+
+    static {
+        try {
+            Class<?> factoryClass = Class.forName("sun.reflect.ReflectionFactory");
+            reflectionFactory = factoryClass.getMethod("getReflectionFactory").invoke(null);
+            newConstructorForSerialization = factoryClass.getMethod(
+                    "newConstructorForSerialization", Class.class, Constructor.class);
+        } catch (Exception e) {
+            // every object is serialized
+            reflectionFactory = null;
+        }
+    }
+
+    public static Object copyObject(Serializable obj) throws Exception {
+        return copy(obj, new IdentityHashMap<Object, Object>());
+    }
+
+    protected static Object copy(Object obj, Map<Object, Object> copies) throws Exception {
+        if (obj == null) {
+            return null;
+        }
+        Class<?> c = obj.getClass();
+        if (isImmutable(obj, c)) {
+            return obj;
+        }
+        Object copy = copies.get(obj);
+        if (copy != null) {
+            return copy;
+        }
+        if (c.isArray()) {
+            return copyArray(obj, c, copies);
+        }
+        ClassCopier copier = copiers.get(c);
+        if (copier == null) {
+            copier = createCopier(c);
+            copiers.put(c, copier);
+        }
+        if (copier == SERIALIZED) {
+            if (!(obj instanceof Serializable)) {
+                throw new NotSerializableException(c.getName());
+            }
+            copy = SerializeUtils.copyObject((Serializable) obj);
+            copies.put(obj, copy);
+            return copy;
+        }
+        if (copier.kind == MAP) {
+            return copyHashMap((HashMap<?, ?>) obj, copies);
+        }
+        copy = copier.constructor.newInstance();
+        copies.put(obj, copy);
+        if (copier.kind == LIST) {
+            @SuppressWarnings("unchecked")
+            Collection<Object> list = (Collection<Object>) copy;
+            for (Object element : (Collection<?>) obj) {
+                list.add(copy(element, copies));
+            }
+        } else {
+            for (Field field : copier.fields) {
+                copyField(field, obj, copy, copies);
+            }
+        }
+        return copy;
+    }
+
+    protected static boolean isImmutable(Object obj, Class<?> c) {
+        return c == String.class || c == Integer.class || c == Double.class
+                || c == Long.class || c == Boolean.class || c == Float.class
+                || c == Short.class || c == Byte.class || c == Character.class
+                || c == BigInteger.class || c == BigDecimal.class
+                || c == Class.class || obj instanceof Enum;
+    }
+
+    protected static Object copyArray(Object obj, Class<?> c, Map<Object, Object> copies) throws Exception {
+        Object copy;
+        if (c.getComponentType().isPrimitive()) {
+            if (obj instanceof double[]) {
+                copy = ((double[]) obj).clone();
+            } else if (obj instanceof int[]) {
+                copy = ((int[]) obj).clone();
+            } else if (obj instanceof long[]) {
+                copy = ((long[]) obj).clone();
+            } else if (obj instanceof boolean[]) {
+                copy = ((boolean[]) obj).clone();
+            } else if (obj instanceof float[]) {
+                copy = ((float[]) obj).clone();
+            } else if (obj instanceof byte[]) {
+                copy = ((byte[]) obj).clone();
+            } else if (obj instanceof short[]) {
+                copy = ((short[]) obj).clone();
+            } else {
+                copy = ((char[]) obj).clone();
+            }
+            copies.put(obj, copy);
+            return copy;
+        }
+        Object[] array = (Object[]) obj;
+        Object[] arrayCopy = (Object[]) Array.newInstance(c.getComponentType(), array.length);
+        copies.put(obj, arrayCopy);
+        for (int i = 0; i < array.length; i++) {
+            arrayCopy[i] = copy(array[i], copies);
+        }
+        return arrayCopy;
+    }
+
+    protected static Object copyHashMap(HashMap<?, ?> map, Map<Object, Object> copies) throws Exception {
+        // same capacity and order of insertion as HashMap.readObject, so that
+        // the copy iterates in the same order as a deserialized one
+        float capacity = (float) map.size() / 0.75f + 1.0f;
+        HashMap<Object, Object> copy = new HashMap<Object, Object>(
+                capacity < 16 ? 16 : capacity >= (1 << 30) ? (1 << 30) : (int) capacity);
+        copies.put(map, copy);
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            copy.put(copy(entry.getKey(), copies), copy(entry.getValue(), copies));
+        }
+        return copy;
+    }
+
+    protected static void copyField(Field field, Object obj, Object copy, Map<Object, Object> copies) throws Exception {
+        Class<?> type = field.getType();
+        if (!type.isPrimitive()) {
+            field.set(copy, copy(field.get(obj), copies));
+        } else if (type == double.class) {
+            field.setDouble(copy, field.getDouble(obj));
+        } else if (type == int.class) {
+            field.setInt(copy, field.getInt(obj));
+        } else if (type == long.class) {
+            field.setLong(copy, field.getLong(obj));
+        } else if (type == boolean.class) {
+            field.setBoolean(copy, field.getBoolean(obj));
+        } else if (type == float.class) {
+            field.setFloat(copy, field.getFloat(obj));
+        } else if (type == byte.class) {
+            field.setByte(copy, field.getByte(obj));
+        } else if (type == short.class) {
+            field.setShort(copy, field.getShort(obj));
+        } else {
+            field.setChar(copy, field.getChar(obj));
+        }
+    }
+
+    protected static ClassCopier createCopier(Class<?> c) {
+        if (c == ArrayList.class || c == LinkedList.class) {
+            try {
+                return new ClassCopier(c.getConstructor(), null, LIST);
+            } catch (NoSuchMethodException e) {
+                return SERIALIZED;
+            }
+        }
+        if (c == HashMap.class) {
+            return new ClassCopier(null, null, MAP);
+        }
+        if (reflectionFactory == null || isPlatformClass(c) || !Serializable.class.isAssignableFrom(c)
+                || Externalizable.class.isAssignableFrom(c) || Proxy.isProxyClass(c)
+                || c.isSynthetic() || c.getName().contains("$$Lambda")) {
+            return SERIALIZED;
+        }
+        try {
+            List<Field> fields = new ArrayList<Field>();
+            Class<?> k = c;
+            for (; k != Object.class && !isPlatformClass(k); k = k.getSuperclass()) {
+                if (!Serializable.class.isAssignableFrom(k) || hasSerializationMethods(k)) {
+                    return SERIALIZED;
+                }
+                for (Field field : k.getDeclaredFields()) {
+                    int modifiers = field.getModifiers();
+                    if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers)) {
+                        field.setAccessible(true);
+                        fields.add(field);
+                    }
+                }
+            }
+            if (k == ArrayList.class || k == LinkedList.class) {
+                // lists adding no state, such as AutoExpandVector
+                if (!fields.isEmpty()) {
+                    return SERIALIZED;
+                }
+                Constructor<?> constructor = c.getDeclaredConstructor();
+                constructor.setAccessible(true);
+                return new ClassCopier(constructor, null, LIST);
+            }
+            if (k != Object.class) {
+                return SERIALIZED;
+            }
+            Constructor<?> constructor = (Constructor<?>) newConstructorForSerialization.invoke(
+                    reflectionFactory, c, Object.class.getDeclaredConstructor());
+            constructor.setAccessible(true);
+            return new ClassCopier(constructor, fields.toArray(new Field[fields.size()]), FIELDS);
+        } catch (Exception e) {
+            return SERIALIZED;
+        } catch (LinkageError e) {
+            return SERIALIZED;
+        }
+    }
+
+    protected static boolean isPlatformClass(Class<?> c) {
+        String name = c.getName();
+        return name.startsWith("java.") || name.startsWith("javax.")
+                || name.startsWith("jdk.") || name.startsWith("sun.")
+                || name.startsWith("com.sun.");
+    }
+
+    protected static boolean hasSerializationMethods(Class<?> c) {
+        for (Method method : c.getDeclaredMethods()) {
+            for (String name : SERIALIZATION_METHODS) {
+                if (method.getName().equals(name)) {
+                    return true;
+                }
+            }
+        }
+        try {
+            c.getDeclaredField("serialPersistentFields");
+            return true;
+        } catch (NoSuchFieldException e) {
+            return false;
+        }
+    }
+}
@@ -40,6 +40,22 @@ public class GaussianEstimator extends AbstractMOAObject {
 
     public static final double NORMAL_CONSTANT = Math.sqrt(2 * Math.PI);
 
+    public GaussianEstimator() {
+    }
+
+    /**
+     * Creates an estimator from the statistics of the observed values.
+     *
+     * @param weightSum the total weight of the values
+     * @param mean the mean of the values
+     * @param varianceSum the sum of the squared differences to the mean
+     */
+    public GaussianEstimator(double weightSum, double mean, double varianceSum) {
+        this.weightSum = weightSum;
+        this.mean = mean;
+        this.varianceSum = varianceSum;
+    }
+
     public void addObservation(double value, double weight) {
         if (Double.isInfinite(value) || Double.isNaN(value)) {
             return;
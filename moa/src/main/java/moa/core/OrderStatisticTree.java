@@ -0,0 +1,352 @@
+/*
+ *    OrderStatisticTree.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.core;
+
+import java.util.Arrays;
+
+import moa.AbstractMOAObject;
+
+/**
+ * Class for representing a multiset of numeric values with two labels, 0 and
+ * 1, in a balanced binary search tree.
+ *
+ * <p>The tree is an AVL tree stored in primitive arrays, with a node per
+ * distinct value. Every node keeps the number of values of each label in its
+ * subtree and their sum, so adding or removing a value and finding the number
+ * and the sum of the values of a label less than, equal to or greater than a
+ * value take O(log n) time. The slots of the removed nodes are reused.</p>
+ *
+ * <p>rank() stores its results in the tree, read with the getters, so that
+ * no object is allocated.</p>
+ *
+ * @version $Revision: 7 $
+ */
+public class OrderStatisticTree extends AbstractMOAObject {
+
+    private static final long serialVersionUID = 1L;
+
+    protected static final int NONE = -1;
+
+    protected static final int INITIAL_CAPACITY = 16;
+
+    protected int size = 0;
+
+    protected int root = NONE;
+
+    // the removed nodes, linked by their left child
+    protected int free = NONE;
+
+    protected int numNodes = 0;
+
+    // the number of slots used, by the nodes and the removed nodes
+    protected int numSlots = 0;
+
+    protected double[] values = new double[INITIAL_CAPACITY];
+
+    protected int[] left = new int[INITIAL_CAPACITY];
+
+    protected int[] right = new int[INITIAL_CAPACITY];
+
+    protected int[] height = new int[INITIAL_CAPACITY];
+
+    // two per node: the numbers of values of each label equal to the node value
+    protected double[] counts = new double[2 * INITIAL_CAPACITY];
+
+    // two per node: the numbers of values of each label in the subtree
+    protected double[] subtreeCounts = new double[2 * INITIAL_CAPACITY];
+
+    // two per node: the sums of the values of each label in the subtree
+    protected double[] subtreeSums = new double[2 * INITIAL_CAPACITY];
+
+    // the results of rank(), two per array
+    protected double[] countLess = new double[2];
+
+    protected double[] countEqual = new double[2];
+
+    protected double[] countGreater = new double[2];
+
+    protected double[] sumGreater = new double[2];
+
+    /**
+     * Gets the number of values.
+     *
+     * @return the number of values
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Gets the number of distinct values.
+     *
+     * @return the number of nodes
+     */
+    public int getNumNodes() {
+        return this.numNodes;
+    }
+
+    public double getCount(int label) {
+        return this.root == NONE ? 0.0 : this.subtreeCounts[2 * this.root + label];
+    }
+
+    public double getSum(int label) {
+        return this.root == NONE ? 0.0 : this.subtreeSums[2 * this.root + label];
+    }
+
+    /**
+     * Adds a value.
+     *
+     * @param value the value, not NaN
+     * @param label the label of the value, 0 or 1
+     */
+    public void add(double value, int label) {
+        this.root = add(this.root, value, label);
+        this.size++;
+    }
+
+    /**
+     * Removes a value added before.
+     *
+     * @param value the value
+     * @param label the label it was added with
+     */
+    public void remove(double value, int label) {
+        this.root = remove(this.root, value, label);
+        this.size--;
+    }
+
+    /**
+     * Finds the numbers of values of each label less than, equal to and
+     * greater than a value, and the sums of the values greater than it.
+     *
+     * @param value the value
+     */
+    public void rank(double value) {
+        for (int label = 0; label < 2; label++) {
+            this.countLess[label] = 0.0;
+            this.countEqual[label] = 0.0;
+            this.countGreater[label] = 0.0;
+            this.sumGreater[label] = 0.0;
+        }
+        int node = this.root;
+        while (node != NONE) {
+            if (value < this.values[node]) {
+                for (int label = 0; label < 2; label++) {
+                    this.countGreater[label] += this.counts[2 * node + label]
+                            + subtreeCount(this.right[node], label);
+                    this.sumGreater[label] += this.counts[2 * node + label] * this.values[node]
+                            + subtreeSum(this.right[node], label);
+                }
+                node = this.left[node];
+            } else if (value > this.values[node]) {
+                for (int label = 0; label < 2; label++) {
+                    this.countLess[label] += this.counts[2 * node + label]
+                            + subtreeCount(this.left[node], label);
+                }
+                node = this.right[node];
+            } else {
+                for (int label = 0; label < 2; label++) {
+                    this.countLess[label] += subtreeCount(this.left[node], label);
+                    this.countEqual[label] = this.counts[2 * node + label];
+                    this.countGreater[label] += subtreeCount(this.right[node], label);
+                    this.sumGreater[label] += subtreeSum(this.right[node], label);
+                }
+                return;
+            }
+        }
+    }
+
+    public double getCountLess(int label) {
+        return this.countLess[label];
+    }
+
+    public double getCountEqual(int label) {
+        return this.countEqual[label];
+    }
+
+    public double getCountGreater(int label) {
+        return this.countGreater[label];
+    }
+
+    public double getSumGreater(int label) {
+        return this.sumGreater[label];
+    }
+
+    protected int add(int node, double value, int label) {
+        if (node == NONE) {
+            node = newNode(value);
+            this.counts[2 * node + label] = 1.0;
+            update(node);
+            return node;
+        }
+        // the arrays may grow while adding to a subtree
+        if (value < this.values[node]) {
+            int child = add(this.left[node], value, label);
+            this.left[node] = child;
+        } else if (value > this.values[node]) {
+            int child = add(this.right[node], value, label);
+            this.right[node] = child;
+        } else {
+            this.counts[2 * node + label] += 1.0;
+        }
+        return balance(node);
+    }
+
+    protected int remove(int node, double value, int label) {
+        if (node == NONE) {
+            throw new IllegalArgumentException("The value " + value + " was not added.");
+        }
+        if (value < this.values[node]) {
+            this.left[node] = remove(this.left[node], value, label);
+        } else if (value > this.values[node]) {
+            this.right[node] = remove(this.right[node], value, label);
+        } else {
+            this.counts[2 * node + label] -= 1.0;
+            if ((this.counts[2 * node] == 0.0) && (this.counts[2 * node + 1] == 0.0)) {
+                int leftChild = this.left[node];
+                int rightChild = this.right[node];
+                freeNode(node);
+                if (leftChild == NONE) {
+                    return rightChild;
+                }
+                if (rightChild == NONE) {
+                    return leftChild;
+                }
+                // the successor takes the place of the node
+                node = rightChild;
+                while (this.left[node] != NONE) {
+                    node = this.left[node];
+                }
+                this.right[node] = removeMin(rightChild);
+                this.left[node] = leftChild;
+            }
+        }
+        return balance(node);
+    }
+
+    protected int removeMin(int node) {
+        if (this.left[node] == NONE) {
+            return this.right[node];
+        }
+        this.left[node] = removeMin(this.left[node]);
+        return balance(node);
+    }
+
+    protected int newNode(double value) {
+        int node;
+        if (this.free != NONE) {
+            node = this.free;
+            this.free = this.left[node];
+        } else {
+            if (this.numSlots == this.values.length) {
+                grow();
+            }
+            node = this.numSlots++;
+        }
+        this.numNodes++;
+        this.values[node] = value;
+        this.left[node] = NONE;
+        this.right[node] = NONE;
+        this.counts[2 * node] = 0.0;
+        this.counts[2 * node + 1] = 0.0;
+        return node;
+    }
+
+    protected void freeNode(int node) {
+        this.left[node] = this.free;
+        this.free = node;
+        this.numNodes--;
+    }
+
+    protected void grow() {
+        int capacity = 2 * this.values.length;
+        this.values = Arrays.copyOf(this.values, capacity);
+        this.left = Arrays.copyOf(this.left, capacity);
+        this.right = Arrays.copyOf(this.right, capacity);
+        this.height = Arrays.copyOf(this.height, capacity);
+        this.counts = Arrays.copyOf(this.counts, 2 * capacity);
+        this.subtreeCounts = Arrays.copyOf(this.subtreeCounts, 2 * capacity);
+        this.subtreeSums = Arrays.copyOf(this.subtreeSums, 2 * capacity);
+    }
+
+    protected double subtreeCount(int node, int label) {
+        return node == NONE ? 0.0 : this.subtreeCounts[2 * node + label];
+    }
+
+    protected double subtreeSum(int node, int label) {
+        return node == NONE ? 0.0 : this.subtreeSums[2 * node + label];
+    }
+
+    protected int heightOf(int node) {
+        return node == NONE ? 0 : this.height[node];
+    }
+
+    protected void update(int node) {
+        int leftChild = this.left[node];
+        int rightChild = this.right[node];
+        this.height[node] = 1 + Math.max(heightOf(leftChild), heightOf(rightChild));
+        for (int label = 0; label < 2; label++) {
+            this.subtreeCounts[2 * node + label] = subtreeCount(leftChild, label)
+                    + this.counts[2 * node + label] + subtreeCount(rightChild, label);
+            this.subtreeSums[2 * node + label] = subtreeSum(leftChild, label)
+                    + this.counts[2 * node + label] * this.values[node]
+                    + subtreeSum(rightChild, label);
+        }
+    }
+
+    protected int rotateLeft(int node) {
+        int newRoot = this.right[node];
+        this.right[node] = this.left[newRoot];
+        this.left[newRoot] = node;
+        update(node);
+        update(newRoot);
+        return newRoot;
+    }
+
+    protected int rotateRight(int node) {
+        int newRoot = this.left[node];
+        this.left[node] = this.right[newRoot];
+        this.right[newRoot] = node;
+        update(node);
+        update(newRoot);
+        return newRoot;
+    }
+
+    protected int balance(int node) {
+        update(node);
+        int balance = heightOf(this.left[node]) - heightOf(this.right[node]);
+        if (balance > 1) {
+            if (heightOf(this.left[this.left[node]]) < heightOf(this.right[this.left[node]])) {
+                this.left[node] = rotateLeft(this.left[node]);
+            }
+            return rotateRight(node);
+        }
+        if (balance < -1) {
+            if (heightOf(this.right[this.right[node]]) < heightOf(this.left[this.right[node]])) {
+                this.right[node] = rotateRight(this.right[node]);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    @Override
+    public void getDescription(StringBuilder sb, int indent) {
+        StringUtils.appendIndented(sb, indent, "Tree of " + this.size + " values");
+    }
+}
@@ -19,10 +19,7 @@
  */
 package moa.evaluation;
 
-import java.util.Arrays;
-
 import moa.core.Example;
-import moa.core.Measurement;
 import com.yahoo.labs.samoa.instances.Instance;
 
 /**
@@ -71,13 +68,12 @@ public class ALWindowClassificationPerformanceEvaluator extends WindowClassifica
 
 	
 	@Override
-    public Measurement[] getPerformanceMeasurements() {
-		Measurement[] measurements = super.getPerformanceMeasurements(); 
-		measurements  = Arrays.copyOf(measurements, measurements.length + 2);
-		measurements[measurements.length - 2] = new Measurement("Abs Number of Label Acquisitions", getAbsNumOfAcqInst());
-		measurements[measurements.length - 1] = new Measurement("Rel Number of Label Acquisitions", getRelNumOfAcqInst());
-		return measurements;
-    }
+	protected int fillPerformanceMeasurements(String[] names, double[] values) {
+		int index = super.fillPerformanceMeasurements(names, values);
+		index = setMeasurement(names, values, index, "Abs Number of Label Acquisitions", values == null ? 0.0 : getAbsNumOfAcqInst());
+		index = setMeasurement(names, values, index, "Rel Number of Label Acquisitions", values == null ? 0.0 : getRelNumOfAcqInst());
+		return index;
+	}
 	
 	@Override
 	public void reset(int numClasses) {
@@ -34,7 +34,6 @@ import moa.options.AbstractOptionHandler;
 import moa.tasks.TaskMonitor;
 
 import java.io.Serializable;
-import java.util.ArrayList;
 
 /**
  * Classification evaluator that performs basic incremental evaluation.
@@ -158,44 +157,101 @@ public class BasicClassificationPerformanceEvaluator extends AbstractOptionHandl
 
     @Override
     public Measurement[] getPerformanceMeasurements() {
-        ArrayList<Measurement> measurements = new ArrayList<Measurement>();
-        measurements.add(new Measurement("classified instances", this.getTotalWeightObserved()));
-        measurements.add(new Measurement("classifications correct (percent)", this.getFractionCorrectlyClassified() * 100.0));
-        measurements.add(new Measurement("Kappa Statistic (percent)", this.getKappaStatistic() * 100.0));
-        measurements.add(new Measurement("Kappa Temporal Statistic (percent)", this.getKappaTemporalStatistic() * 100.0));
-        measurements.add(new Measurement("Kappa M Statistic (percent)", this.getKappaMStatistic() * 100.0));
+        int numMeasurements = fillPerformanceMeasurements(null, null);
+        String[] names = new String[numMeasurements];
+        double[] values = new double[numMeasurements];
+        fillPerformanceMeasurements(names, values);
+        Measurement[] result = new Measurement[numMeasurements];
+        for (int i = 0; i < numMeasurements; i++) {
+            result[i] = new Measurement(names[i], values[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Gets the names of the measurements, in the order of
+     * getPerformanceMeasurements. They only change with the options and the
+     * number of classes.
+     *
+     * @return the names of the measurements
+     */
+    public String[] getPerformanceMeasurementNames() {
+        String[] names = new String[fillPerformanceMeasurements(null, null)];
+        fillPerformanceMeasurements(names, null);
+        return names;
+    }
+
+    /**
+     * Gets the values of the measurements, in the order of
+     * getPerformanceMeasurements, without allocating any object when a
+     * large enough buffer is given.
+     *
+     * @param buffer the array to fill, or null
+     * @return the buffer, or a new array if it was too small
+     */
+    public double[] getPerformanceMeasurementValues(double[] buffer) {
+        int numMeasurements = fillPerformanceMeasurements(null, null);
+        if ((buffer == null) || (buffer.length < numMeasurements)) {
+            buffer = new double[numMeasurements];
+        }
+        fillPerformanceMeasurements(null, buffer);
+        return buffer;
+    }
+
+    /**
+     * Fills the names and the values of the measurements. Subclasses adding
+     * measurements override this method.
+     *
+     * @param names the array of the names, or null to skip them
+     * @param values the array of the values, or null to skip them
+     * @return the number of measurements
+     */
+    protected int fillPerformanceMeasurements(String[] names, double[] values) {
+        int index = 0;
+        index = setMeasurement(names, values, index, "classified instances", values == null ? 0.0 : this.getTotalWeightObserved());
+        index = setMeasurement(names, values, index, "classifications correct (percent)", values == null ? 0.0 : this.getFractionCorrectlyClassified() * 100.0);
+        index = setMeasurement(names, values, index, "Kappa Statistic (percent)", values == null ? 0.0 : this.getKappaStatistic() * 100.0);
+        index = setMeasurement(names, values, index, "Kappa Temporal Statistic (percent)", values == null ? 0.0 : this.getKappaTemporalStatistic() * 100.0);
+        index = setMeasurement(names, values, index, "Kappa M Statistic (percent)", values == null ? 0.0 : this.getKappaMStatistic() * 100.0);
         if (precisionRecallOutputOption.isSet()) 
-            measurements.add(new Measurement("F1 Score (percent)", 
-                    this.getF1Statistic() * 100.0));
+            index = setMeasurement(names, values, index, "F1 Score (percent)", 
+                    values == null ? 0.0 : this.getF1Statistic() * 100.0);
         if (f1PerClassOption.isSet()) {
             for (int i = 0; i < this.numClasses; i++) {
-                measurements.add(new Measurement("F1 Score for class " + i + 
-                        " (percent)", 100.0 * this.getF1Statistic(i)));
+                index = setMeasurement(names, values, index, names == null ? null : "F1 Score for class " + i + 
+                        " (percent)", values == null ? 0.0 : 100.0 * this.getF1Statistic(i));
             }
         }
         if (precisionRecallOutputOption.isSet())
-            measurements.add(new Measurement("Precision (percent)", 
-                this.getPrecisionStatistic() * 100.0));               
+            index = setMeasurement(names, values, index, "Precision (percent)", 
+                values == null ? 0.0 : this.getPrecisionStatistic() * 100.0);
         if (precisionPerClassOption.isSet()) {
             for (int i = 0; i < this.numClasses; i++) {
-                measurements.add(new Measurement("Precision for class " + i + 
-                        " (percent)", 100.0 * this.getPrecisionStatistic(i)));
+                index = setMeasurement(names, values, index, names == null ? null : "Precision for class " + i + 
+                        " (percent)", values == null ? 0.0 : 100.0 * this.getPrecisionStatistic(i));
             }
         }
         if (precisionRecallOutputOption.isSet())
-            measurements.add(new Measurement("Recall (percent)", 
-                this.getRecallStatistic() * 100.0));
+            index = setMeasurement(names, values, index, "Recall (percent)", 
+                values == null ? 0.0 : this.getRecallStatistic() * 100.0);
         if (recallPerClassOption.isSet()) {
             for (int i = 0; i < this.numClasses; i++) {
-                measurements.add(new Measurement("Recall for class " + i + 
-                        " (percent)", 100.0 * this.getRecallStatistic(i)));
+                index = setMeasurement(names, values, index, names == null ? null : "Recall for class " + i + 
+                        " (percent)", values == null ? 0.0 : 100.0 * this.getRecallStatistic(i));
             }
         }
+        return index;
+    }
 
-        Measurement[] result = new Measurement[measurements.size()];
-
-        return measurements.toArray(result);
-
+    protected static int setMeasurement(String[] names, double[] values, int index,
+            String name, double value) {
+        if (names != null) {
+            names[index] = name;
+        }
+        if (values != null) {
+            values[index] = value;
+        }
+        return index + 1;
     }
 
     public double getTotalWeightObserved() {
@@ -235,7 +291,7 @@ public class BasicClassificationPerformanceEvaluator extends AbstractOptionHandl
         }
     }
 
-    private double getKappaMStatistic() {
+    public double getKappaMStatistic() {
         if (this.getTotalWeightObserved() > 0.0) {
             double p0 = getFractionCorrectlyClassified();
             double pc = this.weightMajorityClassifier.estimation();
@@ -18,11 +18,10 @@
  */
 package moa.evaluation;
 
-import java.util.TreeSet;
-
 import moa.core.Example;
 import moa.core.Measurement;
 import moa.core.ObjectRepository;
+import moa.core.OrderStatisticTree;
 import moa.core.Utils;
 import moa.options.AbstractOptionHandler;
 
@@ -74,79 +73,24 @@ public class WindowAUCImbalancedPerformanceEvaluator extends
         }
     }
 	
+	/**
+	 * Estimator of the measures over the window. The scores of the window are
+	 * kept in an order-statistic tree, and the numerators of AUC and sAUC are
+	 * updated with the ranks of each score added or removed, so updating the
+	 * measures takes O(log w) time and reading them O(1).
+	 */
 	public class Estimator {
 
-		public class Score implements Comparable<Score> {
-			/**
-			 * Predicted score of the example
-			 */
-			protected double value;
-
-			/**
-			 * Age of example - position in the window where the example was
-			 * added
-			 */
-			protected int posWindow;
-
-			/**
-			 * True if example's true label is positive
-			 */
-			protected boolean isPositive;
-
-			/**
-			 * Constructor.
-			 * 
-			 * @param value
-			 *            score value
-			 * @param position
-			 *            score position in window (defines its age)
-			 * @param isPositive
-			 *            true if the example's true label is positive
-			 */
-			public Score(double value, int position, boolean isPositive) {
-				this.value = value;
-				this.posWindow = position;
-				this.isPositive = isPositive;
-			}
+		protected static final int NEGATIVE = 0;
 
-			/**
-			 * Sort descending based on score value.
-			 */
-			@Override
-			public int compareTo(Score o) {
-				if (o.value < this.value) {
-					return -1;
-				} else if (o.value > this.value){
-					return 1;
-				} else {
-					if (!o.isPositive && this.isPositive) {
-						return -1;
-					} else if (o.isPositive && !this.isPositive){
-						return 1;
-					} else {
-						if (o.posWindow > this.posWindow) {
-							return -1;
-						} else if (o.posWindow < this.posWindow){
-							return 1;
-						} else {
-							return 0;
-						}
-					}
-				}
-			}
-			
-			@Override
-			public boolean equals(Object o) {
-				return (o instanceof Score) && ((Score)o).posWindow == this.posWindow;
-			}
-		}
+		protected static final int POSITIVE = 1;
 
-		protected TreeSet<Score> sortedScores;
-		
-		protected TreeSet<Score> holdoutSortedScores;
+		protected OrderStatisticTree sortedScores;
+
+		protected double[] windowScores;
+
+		protected boolean[] windowIsPositive;
 
-		protected Score[] window;
-		
 		protected double[] predictions;
 
 		protected int posWindow;
@@ -156,38 +100,48 @@ public class WindowAUCImbalancedPerformanceEvaluator extends
 		protected double numPos;
 
 		protected double numNeg;
-		
-		protected double holdoutNumPos;
 
-		protected double holdoutNumNeg;
-		
+		// the sum over the negatives of the positives scored higher, plus half
+		// of the positives scored the same
+		protected double rankSum;
+
+		// the same with the scores of the positives instead of their numbers
+		protected double scoredRankSum;
+
+		// the sum over the positives of the scores of the negatives scored higher
+		protected double scoredNegativeRankSum;
+
+		protected double holdoutAUC;
+
 		protected double correctPredictions;
-		
+
 		protected double correctPositivePredictions;
-		
+
 	    protected double[] columnKappa;
 
 	    protected double[] rowKappa;
 
 		public Estimator(int sizeWindow) {
-			this.sortedScores = new TreeSet<Score>();
-			this.holdoutSortedScores = new TreeSet<Score>();
+			this.sortedScores = new OrderStatisticTree();
 			this.size = sizeWindow;
-			this.window = new Score[sizeWindow];
+			this.windowScores = new double[sizeWindow];
+			this.windowIsPositive = new boolean[sizeWindow];
 			this.predictions = new double[sizeWindow];
-			
+
 	        this.rowKappa = new double[numClasses];
 	        this.columnKappa = new double[numClasses];
 	        for (int i = 0; i < numClasses; i++) {
 	            this.rowKappa[i] = 0.0;
 	            this.columnKappa[i] = 0.0;
 	        }
-			
+
 			this.posWindow = 0;
 			this.numPos = 0;
 			this.numNeg = 0;
-			this.holdoutNumPos = 0;
-			this.holdoutNumNeg = 0;
+			this.rankSum = 0;
+			this.scoredRankSum = 0;
+			this.scoredNegativeRankSum = 0;
+			this.holdoutAUC = 0;
 			this.correctPredictions = 0;
 			this.correctPositivePredictions = 0;
 		}
@@ -195,180 +149,109 @@ public class WindowAUCImbalancedPerformanceEvaluator extends
 		public void add(double score, boolean isPositive, boolean correctPrediction) {
             // // periodically update holdout evaluation
 			if (size > 0 && posWindow % this.size == 0) {
-				this.holdoutSortedScores = new TreeSet<Score>();
-				
-				for (Score s : this.sortedScores) {
-					this.holdoutSortedScores.add(s);
-				}
-				
-				this.holdoutNumPos = this.numPos;
-				this.holdoutNumNeg = this.numNeg;
+				this.holdoutAUC = sortedScores.size() == 0 ? 0 : getAUC();
 			}
-			
-			// // if the window is used and it's full			
+
+			// // if the window is used and it's full
 			if (size > 0 && posWindow >= this.size) {
 				// // remove the oldest example
-				sortedScores.remove(window[posWindow % size]);
-				correctPredictions -= predictions[posWindow % size];
-				correctPositivePredictions -= window[posWindow % size].isPositive ? predictions[posWindow % size] : 0;
-				
-				if (window[posWindow % size].isPositive) {
+				int oldest = posWindow % size;
+				updateRankSums(windowScores[oldest], windowIsPositive[oldest], -1);
+				sortedScores.remove(windowScores[oldest], windowIsPositive[oldest] ? POSITIVE : NEGATIVE);
+				correctPredictions -= predictions[oldest];
+				correctPositivePredictions -= windowIsPositive[oldest] ? predictions[oldest] : 0;
+
+				if (windowIsPositive[oldest]) {
 					numPos--;
 				} else {
 					numNeg--;
 				}
-				
-				int oldestExampleTrueClass = window[posWindow % size].isPositive ? 1 : 0;
-	            int oldestExamplePredictedClass = predictions[posWindow % size] == 1.0 ? oldestExampleTrueClass : Math.abs(oldestExampleTrueClass - 1);  
-	            
+
+				int oldestExampleTrueClass = windowIsPositive[oldest] ? 1 : 0;
+	            int oldestExamplePredictedClass = predictions[oldest] == 1.0 ? oldestExampleTrueClass : Math.abs(oldestExampleTrueClass - 1);
+
 				this.rowKappa[oldestExamplePredictedClass] -= 1;
 	            this.columnKappa[oldestExampleTrueClass] -= 1;
 			}
-			
+
 			// // add new example
-			Score newScore = new Score(score, posWindow, isPositive);
-			sortedScores.add(newScore);
+			updateRankSums(score, isPositive, 1);
+			sortedScores.add(score, isPositive ? POSITIVE : NEGATIVE);
 			correctPredictions += correctPrediction ? 1 : 0;
 			correctPositivePredictions += correctPrediction && isPositive ? 1 : 0;
-			
+
             int trueClass = isPositive ? 1 : 0;
-            int predictedClass = correctPrediction ? trueClass : Math.abs(trueClass - 1);    
+            int predictedClass = correctPrediction ? trueClass : Math.abs(trueClass - 1);
             this.rowKappa[predictedClass] += 1;
             this.columnKappa[trueClass] += 1;
-			
-			if (newScore.isPositive) {
+
+			if (isPositive) {
 				numPos++;
 			} else {
 				numNeg++;
 			}
 
 			if (size > 0) {
-				window[posWindow % size] = newScore;
+				windowScores[posWindow % size] = score;
+				windowIsPositive[posWindow % size] = isPositive;
 				predictions[posWindow % size] = correctPrediction ? 1 : 0;
 			}
-			
-			//// posWindow needs to be always incremented to differentiate between examples in the red-black tree
+
 			posWindow++;
 		}
 
-		public double getAUC() {
-			double AUC = 0;
-			double c = 0;
-			double prevc = 0;
-			double lastPosScore = Double.MAX_VALUE;
-					
-			if (numPos == 0 || numNeg == 0) {
-				return 1;
-			}
-			
-			for (Score s : sortedScores){
-				if(s.isPositive) {			
-					if (s.value != lastPosScore) {
-						prevc = c;
-						lastPosScore = s.value;
-					}
-					
-					c += 1;
-				} else {
-					if (s.value == lastPosScore) {
-						// tie
-						AUC += ((double)(c + prevc))/2.0;
-					} else {
-						AUC += c;
-					}
-				}
+		/**
+		 * Updates the rank sums with the pairs of a score and the scores of the
+		 * other class in the window, when the score is added or removed. Ties
+		 * count for one half, as in the sorted order of the window the
+		 * positives come before the negatives of the same score.
+		 *
+		 * @param score the score
+		 * @param isPositive true if the example's true label is positive
+		 * @param sign 1 if the score is added, -1 if it is removed
+		 */
+		protected void updateRankSums(double score, boolean isPositive, int sign) {
+			sortedScores.rank(score);
+			if (isPositive) {
+				double negativesBelow = sortedScores.getCountLess(NEGATIVE)
+						+ sortedScores.getCountEqual(NEGATIVE) / 2.0;
+				rankSum += sign * negativesBelow;
+				scoredRankSum += sign * score * negativesBelow;
+				scoredNegativeRankSum += sign * sortedScores.getSumGreater(NEGATIVE);
+			} else {
+				double positivesAbove = sortedScores.getCountGreater(POSITIVE)
+						+ sortedScores.getCountEqual(POSITIVE) / 2.0;
+				rankSum += sign * positivesAbove;
+				scoredRankSum += sign * (sortedScores.getSumGreater(POSITIVE)
+						+ score * sortedScores.getCountEqual(POSITIVE) / 2.0);
+				scoredNegativeRankSum += sign * score * sortedScores.getCountLess(POSITIVE);
 			}
-			
-			return AUC / (numPos * numNeg);
 		}
-		
-		public double getHoldoutAUC() {
-			double AUC = 0;
-			double c = 0;
-			double prevc = 0;
-			double lastPosScore = Double.MAX_VALUE;
 
-			if (holdoutSortedScores.isEmpty()) {
-				return 0;
-			}
-			
-			if (holdoutNumPos == 0 || holdoutNumNeg == 0) {
+		public double getAUC() {
+			if (numPos == 0 || numNeg == 0) {
 				return 1;
 			}
 
-			for (Score s : holdoutSortedScores){
-				if(s.isPositive) {
-					if (s.value != lastPosScore) {
-						prevc = c;
-						lastPosScore = s.value;
-					}
-					
-					c += 1;
-				} else {
-					if (s.value == lastPosScore) {
-						// tie
-						AUC += ((double)(c + prevc))/2.0;
-					} else {
-						AUC += c;
-					}
-				}
-			}
-			
-			return AUC / (holdoutNumPos * holdoutNumNeg);
+			return rankSum / (numPos * numNeg);
+		}
+
+		public double getHoldoutAUC() {
+			return holdoutAUC;
 		}
 
 		public double getScoredAUC() {
-			double AOC = 0;
-			double AUC = 0;
-			double r = 0;
-			double prevr = 0;
-			double c = 0;
-			double prevc = 0;
 			double R_plus, R_minus;
-			double lastPosScore = Double.MAX_VALUE;
-			double lastNegScore = Double.MAX_VALUE;
-			
+
 			if (numPos == 0 || numNeg == 0) {
 				return 1;
 			}
-			
-			for (Score s : sortedScores){
-				if(s.isPositive) {
-					if (s.value != lastPosScore) {
-						prevc = c;
-						lastPosScore = s.value;
-					}
-					
-					c += s.value;
-					
-					if (s.value == lastNegScore) {
-						// tie
-						AOC += ((double)(r + prevr))/2.0;
-					} else {
-						AOC += r;
-					}
-				} else {
-					if (s.value != lastNegScore) {
-						prevr = r;
-						lastNegScore = s.value;
-					}
-					
-					r += s.value;
-					
-					if (s.value == lastPosScore) {
-						// tie
-						AUC += ((double)(c + prevc))/2.0;
-					} else {
-						AUC += c;
-					}
-				}
-			}
-			
-			R_minus = (numPos*r - AOC)/(numPos * numNeg);
-			R_plus = (AUC)/(numPos * numNeg);		
+
+			R_minus = (numPos * sortedScores.getSum(NEGATIVE) - scoredNegativeRankSum) / (numPos * numNeg);
+			R_plus = scoredRankSum / (numPos * numNeg);
 			return R_plus - R_minus;
 		}
-		
+
 		public double getRatio() {
 			if(numNeg == 0) {
 				return Double.MAX_VALUE;
@@ -19,6 +19,8 @@
  */
 package moa.learners;
 
+import java.util.List;
+
 import moa.MOAObject;
 import moa.core.Example;
 
@@ -95,6 +97,33 @@ public interface Learner<E extends Example> extends MOAObject, OptionHandler, AW
      */
     public double[] getVotesForInstance(E example);
 
+    /**
+     * Trains this learner incrementally using the given examples, in order.
+     * Learners can override it to amortise the cost of training on a batch.
+     *
+     * @param examples the examples to be used for training
+     */
+    public default void trainOnInstances(List<E> examples) {
+        for (E example : examples) {
+            trainOnInstance(example);
+        }
+    }
+
+    /**
+     * Predicts the class memberships for a batch of examples, using the
+     * same model for all of them.
+     *
+     * @param examples the examples to be classified
+     * @return an array containing the votes for each example
+     */
+    public default double[][] getVotesForInstances(List<E> examples) {
+        double[][] votes = new double[examples.size()][];
+        for (int i = 0; i < votes.length; i++) {
+            votes[i] = getVotesForInstance(examples.get(i));
+        }
+        return votes;
+    }
+
     /**
      * Gets the current measurements of this learner.
      *
@@ -102,6 +131,26 @@ public interface Learner<E extends Example> extends MOAObject, OptionHandler, AW
      */
     public Measurement[] getModelMeasurements();
 
+    /**
+     * Gets an estimate of the size of this learner in memory. Unlike
+     * measureByteSize, it does not need to walk the whole model every time,
+     * so evaluation tasks can call it at each sample.
+     *
+     * @return the estimated size in bytes
+     */
+    public default int estimateByteSize() {
+        return measureByteSize();
+    }
+
+    /**
+     * Sets whether estimateByteSize must return the exact size given by
+     * measureByteSize, for evaluations that report exact model sizes.
+     *
+     * @param exact true to measure the exact size at every call
+     */
+    public default void setExactByteSize(boolean exact) {
+    }
+
     /**
      * Gets the learners of this ensemble.
      * Returns null if this learner is a single learner.
@@ -20,7 +20,9 @@
 package moa.streams;
 
 import com.github.javacliparser.FileOption;
+import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.IntOption;
+import com.yahoo.labs.samoa.instances.FastArffLoader;
 import com.yahoo.labs.samoa.instances.Instances;
 import com.yahoo.labs.samoa.instances.InstancesHeader;
 import java.io.BufferedReader;
@@ -67,8 +69,13 @@ public class ArffFileStream extends AbstractOptionHandler implements
             "Class index of data. 0 for none or -1 for last attribute in file.",
             -1, -1, Integer.MAX_VALUE);
 
+    public FlagOption fastParserOption = new FlagOption("fastParser", 'p',
+            "Parse the file from memory-mapped bytes with FastArffLoader instead of a character reader.");
+
     protected Instances instances;
 
+    protected FastArffLoader fastArffLoader;
+
     protected Reader fileReader;
 
     protected boolean hitEndOfFile;
@@ -101,7 +108,9 @@ public class ArffFileStream extends AbstractOptionHandler implements
 
     @Override
     public long estimatedRemainingInstances() {
-        double progressFraction = this.fileProgressMonitor.getProgressFraction();
+        double progressFraction = this.fastArffLoader != null
+                ? this.fastArffLoader.getProgressFraction()
+                : this.fileProgressMonitor.getProgressFraction();
         if ((progressFraction > 0.0) && (this.numInstancesRead > 0)) {
             return (long) ((this.numInstancesRead / progressFraction) - this.numInstancesRead);
         }
@@ -130,14 +139,24 @@ public class ArffFileStream extends AbstractOptionHandler implements
         try {
             if (this.fileReader != null) {
                 this.fileReader.close();
+                this.fileReader = null;
+            }
+            if (this.fastArffLoader != null) {
+                this.fastArffLoader.close();
+                this.fastArffLoader = null;
             }
-            InputStream fileStream = new FileInputStream(this.arffFileOption.getFile());
-            this.fileProgressMonitor = new InputStreamProgressMonitor(
-                    fileStream);
-            this.fileReader = new BufferedReader(new InputStreamReader(
-                    this.fileProgressMonitor));
             int classIndex = this.classIndexOption.getValue();
-            this.instances = new Instances(this.fileReader, 1, classIndex);
+            if (this.fastParserOption.isSet()) {
+                this.fastArffLoader = FastArffLoader.open(this.arffFileOption.getFile(), classIndex);
+                this.instances = new Instances(this.fastArffLoader);
+            } else {
+                InputStream fileStream = new FileInputStream(this.arffFileOption.getFile());
+                this.fileProgressMonitor = new InputStreamProgressMonitor(
+                        fileStream);
+                this.fileReader = new BufferedReader(new InputStreamReader(
+                        this.fileProgressMonitor));
+                this.instances = new Instances(this.fileReader, 1, classIndex);
+            }
             if (classIndex < 0) {
 		this.instances.setClassIndex(this.instances.numAttributes() - 1);
             } else if (this.classIndexOption.getValue() > 0) {
@@ -164,6 +183,10 @@ public class ArffFileStream extends AbstractOptionHandler implements
                 this.fileReader.close();
                 this.fileReader = null;
             }
+            if (this.fastArffLoader != null) {
+                this.fastArffLoader.close();
+                this.fastArffLoader = null;
+            }
             return false;
         } catch (IOException ioe) {
             throw new RuntimeException(
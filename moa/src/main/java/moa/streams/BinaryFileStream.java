@@ -0,0 +1,335 @@
+/*
+ *    BinaryFileStream.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.streams;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import moa.core.InstanceExample;
+import moa.core.ObjectRepository;
+import moa.options.AbstractOptionHandler;
+import moa.tasks.TaskMonitor;
+
+import com.github.javacliparser.FileOption;
+import com.yahoo.labs.samoa.instances.DenseInstance;
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+
+/**
+ * Stream reader of binary stream files, written by WriteStreamToBinaryFile.
+ *
+ * The file starts with a prelude: magic number, version, flags and the number
+ * of instances, then the length and bytes of the serialized InstancesHeader,
+ * the number of attributes and one type byte per attribute. The instances
+ * follow in blocks, each made of the number of records, the stored length and
+ * the records, possibly compressed with Deflater. A record is the weight as a
+ * double followed by each value, as a double for numeric attributes and as an
+ * int for nominal ones (-1 if missing). Values are little endian.
+ *
+ * Uncompressed blocks are memory mapped, so that reading the stream does not
+ * parse any text and restarting it only reads the header again.
+ */
+public class BinaryFileStream extends AbstractOptionHandler implements
+        InstanceStream {
+
+    @Override
+    public String getPurposeString() {
+        return "A stream read from a binary stream file.";
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    public static final int MAGIC = 0x4D4F4142;
+
+    public static final int VERSION = 1;
+
+    public static final int FLAG_COMPRESSED = 1;
+
+    public static final byte TYPE_DOUBLE = 0;
+
+    public static final byte TYPE_INT = 1;
+
+    /**
+     * Size of magic number, version, flags and number of instances.
+     */
+    public static final int PRELUDE_SIZE = 20;
+
+    public static final int BLOCK_HEADER_SIZE = 8;
+
+    public static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    public FileOption binaryFileOption = new FileOption("binaryFile", 'f',
+            "Binary stream file to load.", null, "moab", false);
+
+    protected InstancesHeader header;
+
+    protected transient FileChannel channel;
+
+    protected long fileSize;
+
+    protected long nextBlockOffset;
+
+    protected long numInstances;
+
+    protected long numInstancesRead;
+
+    protected boolean compressed;
+
+    protected boolean[] isNominal;
+
+    protected int recordSize;
+
+    protected transient ByteBuffer block;
+
+    protected int numInBlock;
+
+    protected int indexInBlock;
+
+    protected transient Inflater inflater;
+
+    protected byte[] storedBytes;
+
+    protected byte[] blockBytes;
+
+    public BinaryFileStream() {
+    }
+
+    public BinaryFileStream(String binaryFileName) {
+        this.binaryFileOption.setValue(binaryFileName);
+        restart();
+    }
+
+    @Override
+    public void prepareForUseImpl(TaskMonitor monitor,
+            ObjectRepository repository) {
+        restart();
+    }
+
+    @Override
+    public InstancesHeader getHeader() {
+        return new InstancesHeader(this.header);
+    }
+
+    @Override
+    public long estimatedRemainingInstances() {
+        if (this.numInstances < 0) {
+            return -1;
+        }
+        return this.numInstances - this.numInstancesRead;
+    }
+
+    @Override
+    public boolean hasMoreInstances() {
+        if (this.indexInBlock < this.numInBlock || this.nextBlockOffset < this.fileSize) {
+            return true;
+        }
+        // the last block is mapped or inflated, so the file is no longer needed
+        if (this.channel != null) {
+            try {
+                this.channel.close();
+                this.channel = null;
+            } catch (IOException ioe) {
+                throw new RuntimeException(
+                        "BinaryFileStream failed to close the stream file.", ioe);
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public InstanceExample nextInstance() {
+        if (this.indexInBlock == this.numInBlock) {
+            readBlock();
+        }
+        ByteBuffer buffer = this.block;
+        int offset = this.indexInBlock * this.recordSize;
+        double weight = buffer.getDouble(offset);
+        offset += 8;
+        double[] values = new double[this.isNominal.length];
+        for (int i = 0; i < values.length; i++) {
+            if (this.isNominal[i]) {
+                int value = buffer.getInt(offset);
+                values[i] = value < 0 ? Double.NaN : value;
+                offset += 4;
+            } else {
+                values[i] = buffer.getDouble(offset);
+                offset += 8;
+            }
+        }
+        this.indexInBlock++;
+        this.numInstancesRead++;
+        Instance inst = new DenseInstance(weight, values);
+        inst.setDataset(this.header);
+        return new InstanceExample(inst);
+    }
+
+    @Override
+    public boolean isRestartable() {
+        return true;
+    }
+
+    @Override
+    public void restart() {
+        try {
+            if (this.channel != null) {
+                this.channel.close();
+                this.channel = null;
+            }
+            this.channel = new RandomAccessFile(this.binaryFileOption.getFile(), "r").getChannel();
+            readPrelude();
+        } catch (IOException ioe) {
+            closeAfterFailure();
+            throw new RuntimeException("BinaryFileStream restart failed.", ioe);
+        } catch (ClassNotFoundException cnfe) {
+            closeAfterFailure();
+            throw new RuntimeException("BinaryFileStream restart failed.", cnfe);
+        }
+    }
+
+    protected void readPrelude() throws IOException, ClassNotFoundException {
+        this.fileSize = this.channel.size();
+        ByteBuffer prelude = readFully(0, PRELUDE_SIZE + 4);
+        if (prelude.getInt() != MAGIC) {
+            throw new IOException("Not a binary stream file: " + this.binaryFileOption.getFile());
+        }
+        int version = prelude.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported binary stream version " + version);
+        }
+        this.compressed = (prelude.getInt() & FLAG_COMPRESSED) != 0;
+        this.numInstances = prelude.getLong();
+        int headerLength = prelude.getInt();
+        if (headerLength < 0 || PRELUDE_SIZE + 8L + headerLength > this.fileSize) {
+            throw new IOException("Invalid header in " + this.binaryFileOption.getFile());
+        }
+        ByteBuffer headerBytes = readFully(PRELUDE_SIZE + 4, headerLength + 4);
+        ObjectInputStream headerIn = new ObjectInputStream(new ByteArrayInputStream(
+                headerBytes.array(), 0, headerLength));
+        this.header = (InstancesHeader) headerIn.readObject();
+        headerIn.close();
+        headerBytes.position(headerLength);
+        int numAttributes = headerBytes.getInt();
+        if (numAttributes < 0) {
+            throw new IOException("Invalid header in " + this.binaryFileOption.getFile());
+        }
+        ByteBuffer types = readFully(PRELUDE_SIZE + 8 + headerLength, numAttributes);
+        this.isNominal = new boolean[numAttributes];
+        this.recordSize = 8;
+        for (int i = 0; i < numAttributes; i++) {
+            this.isNominal[i] = types.get(i) == TYPE_INT;
+            this.recordSize += this.isNominal[i] ? 4 : 8;
+        }
+        this.nextBlockOffset = PRELUDE_SIZE + 8 + headerLength + numAttributes;
+        this.numInBlock = 0;
+        this.indexInBlock = 0;
+        this.numInstancesRead = 0;
+    }
+
+    protected void closeAfterFailure() {
+        if (this.channel != null) {
+            try {
+                this.channel.close();
+            } catch (IOException ioe) {
+                // the failure being reported matters more
+            }
+            this.channel = null;
+        }
+    }
+
+    protected void readBlock() {
+        try {
+            ByteBuffer blockHeader = readFully(this.nextBlockOffset, BLOCK_HEADER_SIZE);
+            int numRecords = blockHeader.getInt();
+            int storedLength = blockHeader.getInt();
+            long dataOffset = this.nextBlockOffset + BLOCK_HEADER_SIZE;
+            long blockLength = (long) numRecords * this.recordSize;
+            // stored blocks hold their records as they are
+            if (numRecords < 0 || blockLength > BinaryStreamWriter.MAX_BLOCK_BYTES
+                    || storedLength < 0 || dataOffset + storedLength > this.fileSize
+                    || (!this.compressed && storedLength != blockLength)) {
+                throw new IOException("Invalid block at " + this.nextBlockOffset);
+            }
+            if (this.compressed) {
+                if (this.storedBytes == null || this.storedBytes.length < storedLength) {
+                    this.storedBytes = new byte[storedLength];
+                }
+                readFully(dataOffset, ByteBuffer.wrap(this.storedBytes, 0, storedLength));
+                int length = (int) blockLength;
+                if (this.blockBytes == null || this.blockBytes.length < length) {
+                    this.blockBytes = new byte[length];
+                }
+                if (this.inflater == null) {
+                    this.inflater = new Inflater();
+                }
+                this.inflater.reset();
+                this.inflater.setInput(this.storedBytes, 0, storedLength);
+                int inflated = 0;
+                while (inflated < length && !this.inflater.finished()) {
+                    inflated += this.inflater.inflate(this.blockBytes, inflated, length - inflated);
+                }
+                if (inflated != length) {
+                    throw new IOException("Truncated block at " + this.nextBlockOffset);
+                }
+                this.block = ByteBuffer.wrap(this.blockBytes, 0, length).order(BYTE_ORDER);
+            } else {
+                this.block = this.channel.map(FileChannel.MapMode.READ_ONLY, dataOffset, storedLength).order(BYTE_ORDER);
+            }
+            this.nextBlockOffset = dataOffset + storedLength;
+            this.numInBlock = numRecords;
+            this.indexInBlock = 0;
+        } catch (IOException ioe) {
+            throw new RuntimeException(
+                    "BinaryFileStream failed to read instance from stream.", ioe);
+        } catch (DataFormatException dfe) {
+            throw new RuntimeException(
+                    "BinaryFileStream failed to read instance from stream.", dfe);
+        }
+    }
+
+    protected ByteBuffer readFully(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(BYTE_ORDER);
+        readFully(position, buffer);
+        buffer.flip();
+        return buffer;
+    }
+
+    protected void readFully(long position, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (this.channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file " + this.binaryFileOption.getFile());
+            }
+        }
+    }
+
+    @Override
+    public void getDescription(StringBuilder sb, int indent) {
+        sb.append("BinaryFileStream: ");
+        sb.append(this.binaryFileOption.getFile().getName());
+        sb.append("\t NumInstancesRead: ");
+        sb.append(this.numInstancesRead);
+        sb.append("\t NumInstances: ");
+        sb.append(this.numInstances);
+    }
+}
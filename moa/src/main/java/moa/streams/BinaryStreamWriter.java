@@ -0,0 +1,242 @@
+/*
+ *    BinaryStreamWriter.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.streams;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+
+/**
+ * Writes instances in the binary format read by BinaryFileStream.
+ *
+ * The file starts with the serialized header, followed by blocks of fixed
+ * width records: the weight as a double, numeric values as doubles and
+ * nominal values as ints, with -1 for missing nominal values. Blocks can be
+ * compressed with Deflater. See BinaryFileStream for the layout.
+ *
+ * The number of instances is only written when the writer is closed, so the
+ * instances of a file that is being written, or was aborted, are not counted.
+ */
+public class BinaryStreamWriter implements Closeable {
+
+    /**
+     * Largest size of the records of a block, in bytes.
+     */
+    public static final int MAX_BLOCK_BYTES = 1 << 30;
+
+    protected File file;
+
+    protected FileChannel channel;
+
+    protected Deflater deflater;
+
+    protected boolean[] isNominal;
+
+    protected int recordSize;
+
+    protected int blockSize;
+
+    protected ByteBuffer block;
+
+    protected int numInBlock;
+
+    protected byte[] compressed;
+
+    protected long numWritten;
+
+    /**
+     * Creates the file and writes the header.
+     *
+     * @param file the destination file
+     * @param header the header of the instances
+     * @param blockSize the number of instances of each block
+     * @param compress true to compress the blocks
+     * @throws IOException if the file can not be written
+     * @throws IllegalArgumentException if the blocks would be larger than
+     * MAX_BLOCK_BYTES
+     */
+    public BinaryStreamWriter(File file, InstancesHeader header, int blockSize,
+            boolean compress) throws IOException {
+        int numAttributes = header.numAttributes();
+        this.isNominal = new boolean[numAttributes];
+        long recordBytes = 8;
+        for (int i = 0; i < numAttributes; i++) {
+            this.isNominal[i] = header.attribute(i).isNominal();
+            recordBytes += this.isNominal[i] ? 4 : 8;
+        }
+        if (blockSize < 1 || blockSize * recordBytes > MAX_BLOCK_BYTES) {
+            throw new IllegalArgumentException("Blocks of " + blockSize + " instances of "
+                    + recordBytes + " bytes are larger than " + MAX_BLOCK_BYTES + " bytes.");
+        }
+        this.recordSize = (int) recordBytes;
+        this.blockSize = blockSize;
+        this.file = file;
+        RandomAccessFile out = new RandomAccessFile(file, "rw");
+        out.setLength(0);
+        this.channel = out.getChannel();
+        if (compress) {
+            this.deflater = new Deflater(Deflater.BEST_SPEED);
+        }
+
+        ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+        ObjectOutputStream headerOut = new ObjectOutputStream(headerBytes);
+        headerOut.writeObject(header);
+        headerOut.close();
+        ByteBuffer prelude = ByteBuffer.allocate(BinaryFileStream.PRELUDE_SIZE + 4
+                + headerBytes.size() + 4 + numAttributes).order(BinaryFileStream.BYTE_ORDER);
+        prelude.putInt(BinaryFileStream.MAGIC);
+        prelude.putInt(BinaryFileStream.VERSION);
+        prelude.putInt(compress ? BinaryFileStream.FLAG_COMPRESSED : 0);
+        prelude.putLong(-1);
+        prelude.putInt(headerBytes.size());
+        prelude.put(headerBytes.toByteArray());
+        prelude.putInt(numAttributes);
+        for (int i = 0; i < numAttributes; i++) {
+            prelude.put(this.isNominal[i] ? BinaryFileStream.TYPE_INT : BinaryFileStream.TYPE_DOUBLE);
+        }
+        prelude.flip();
+        writeFully(prelude);
+
+        this.block = ByteBuffer.allocate(blockSize * this.recordSize).order(BinaryFileStream.BYTE_ORDER);
+    }
+
+    /**
+     * Appends an instance.
+     *
+     * @param inst the instance
+     * @throws IOException if the file can not be written
+     */
+    public void write(Instance inst) throws IOException {
+        ByteBuffer buffer = this.block;
+        buffer.putDouble(inst.weight());
+        for (int i = 0; i < this.isNominal.length; i++) {
+            double value = inst.value(i);
+            if (this.isNominal[i]) {
+                buffer.putInt(Double.isNaN(value) ? -1 : (int) value);
+            } else {
+                buffer.putDouble(value);
+            }
+        }
+        this.numWritten++;
+        if (++this.numInBlock == this.blockSize) {
+            flushBlock();
+        }
+    }
+
+    /**
+     * Num written.
+     *
+     * @return the number of instances written
+     */
+    public long numWritten() {
+        return this.numWritten;
+    }
+
+    protected void flushBlock() throws IOException {
+        if (this.numInBlock == 0) {
+            return;
+        }
+        this.block.flip();
+        int length = this.block.limit();
+        byte[] data = this.block.array();
+        int storedLength = length;
+        if (this.deflater != null) {
+            if (this.compressed == null) {
+                this.compressed = new byte[data.length + data.length / 100 + 64];
+            }
+            this.deflater.reset();
+            this.deflater.setInput(data, 0, length);
+            this.deflater.finish();
+            storedLength = 0;
+            while (!this.deflater.finished()) {
+                if (storedLength == this.compressed.length) {
+                    this.compressed = Arrays.copyOf(this.compressed, 2 * storedLength);
+                }
+                storedLength += this.deflater.deflate(this.compressed, storedLength,
+                        this.compressed.length - storedLength);
+            }
+            data = this.compressed;
+        }
+        ByteBuffer blockHeader = ByteBuffer.allocate(BinaryFileStream.BLOCK_HEADER_SIZE)
+                .order(BinaryFileStream.BYTE_ORDER);
+        blockHeader.putInt(this.numInBlock);
+        blockHeader.putInt(storedLength);
+        blockHeader.flip();
+        writeFully(blockHeader);
+        writeFully(ByteBuffer.wrap(data, 0, storedLength));
+        this.block.clear();
+        this.numInBlock = 0;
+    }
+
+    protected void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            this.channel.write(buffer);
+        }
+    }
+
+    /**
+     * Writes the last block and the number of instances, and closes the file.
+     *
+     * @throws IOException if the file can not be written
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.channel == null) {
+            return;
+        }
+        flushBlock();
+        ByteBuffer count = ByteBuffer.allocate(8).order(BinaryFileStream.BYTE_ORDER);
+        count.putLong(this.numWritten);
+        count.flip();
+        this.channel.position(BinaryFileStream.PRELUDE_SIZE - 8);
+        writeFully(count);
+        this.channel.close();
+        this.channel = null;
+        if (this.deflater != null) {
+            this.deflater.end();
+        }
+    }
+
+    /**
+     * Closes the file without completing it, and deletes it.
+     *
+     * @throws IOException if the file can not be deleted
+     */
+    public void abort() throws IOException {
+        if (this.channel != null) {
+            this.channel.close();
+            this.channel = null;
+            if (this.deflater != null) {
+                this.deflater.end();
+            }
+        }
+        if (this.file.exists() && !this.file.delete()) {
+            throw new IOException("Could not delete " + this.file);
+        }
+    }
+}
@@ -20,6 +20,8 @@
 package moa.streams;
 
 import com.github.javacliparser.FileOption;
+import com.github.javacliparser.FlagOption;
+import com.yahoo.labs.samoa.instances.FastArffLoader;
 import com.yahoo.labs.samoa.instances.Instances;
 import com.yahoo.labs.samoa.instances.InstancesHeader;
 import java.io.BufferedReader;
@@ -60,8 +62,13 @@ public class MultiTargetArffFileStream extends AbstractOptionHandler implements
             "Output attributes:  n for first n attributes,  -n for last n attributes  For example, 2 for the two first attributes, -2 for the two last attributes.",
 			"-1");
 
+    public FlagOption fastParserOption = new FlagOption("fastParser", 'p',
+            "Parse the file from memory-mapped bytes with FastArffLoader instead of a character reader.");
+
     protected Instances instances;
 
+    protected FastArffLoader fastArffLoader;
+
     protected Reader fileReader;
 
     protected boolean hitEndOfFile;
@@ -103,7 +110,9 @@ public class MultiTargetArffFileStream extends AbstractOptionHandler implements
 
     @Override
     public long estimatedRemainingInstances() {
-        double progressFraction = this.fileProgressMonitor.getProgressFraction();
+        double progressFraction = this.fastArffLoader != null
+                ? this.fastArffLoader.getProgressFraction()
+                : this.fileProgressMonitor.getProgressFraction();
         if ((progressFraction > 0.0) && (this.numInstancesRead > 0)) {
             return (long) ((this.numInstancesRead / progressFraction) - this.numInstancesRead);
         }
@@ -132,12 +141,22 @@ public class MultiTargetArffFileStream extends AbstractOptionHandler implements
         try {
             if (this.fileReader != null) {
                 this.fileReader.close();
+                this.fileReader = null;
+            }
+            if (this.fastArffLoader != null) {
+                this.fastArffLoader.close();
+                this.fastArffLoader = null;
+            }
+            if (this.fastParserOption.isSet()) {
+                this.fastArffLoader = FastArffLoader.open(this.arffFileOption.getFile(),
+                        this.outputAttributesOption.getRange());
+            } else {
+                InputStream fileStream = new FileInputStream(this.arffFileOption.getFile());
+                this.fileProgressMonitor = new InputStreamProgressMonitor(
+                        fileStream);
+                this.fileReader = new BufferedReader(new InputStreamReader(
+                        this.fileProgressMonitor));
             }
-            InputStream fileStream = new FileInputStream(this.arffFileOption.getFile());
-            this.fileProgressMonitor = new InputStreamProgressMonitor(
-                    fileStream);
-            this.fileReader = new BufferedReader(new InputStreamReader(
-                    this.fileProgressMonitor));
 			// jesse -----
 			/*int cs[] = this.outputAttributesOption.getRange(); 
 			if (cs.length == 1) {
@@ -153,7 +172,11 @@ public class MultiTargetArffFileStream extends AbstractOptionHandler implements
 			else {*/
 				// multi-label since cs[] contains _multipe_ class indices, e.g., cs[] = {9,10,11} 
 				// what to do here?
-			this.instances = new Instances(this.fileReader, this.outputAttributesOption.getRange());
+			if (this.fastArffLoader != null) {
+				this.instances = new Instances(this.fastArffLoader);
+			} else {
+				this.instances = new Instances(this.fileReader, this.outputAttributesOption.getRange());
+			}
 			//}
             this.numInstancesRead = 0;
             this.lastInstanceRead = null;
@@ -175,6 +198,10 @@ public class MultiTargetArffFileStream extends AbstractOptionHandler implements
                 this.fileReader.close();
                 this.fileReader = null;
             }
+            if (this.fastArffLoader != null) {
+                this.fastArffLoader.close();
+                this.fastArffLoader = null;
+            }
             return false;
         } catch (IOException ioe) {
             throw new RuntimeException(
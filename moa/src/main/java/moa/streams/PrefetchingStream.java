@@ -0,0 +1,367 @@
+/*
+ *    PrefetchingStream.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.streams;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.locks.LockSupport;
+
+import moa.core.Example;
+import moa.core.ObjectRepository;
+import moa.core.StringUtils;
+import moa.options.AbstractOptionHandler;
+import moa.options.ClassOption;
+import moa.tasks.TaskMonitor;
+
+import com.github.javacliparser.IntOption;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+
+/**
+ * Stream that reads another stream ahead on a background thread, so that
+ * reading, parsing or generating the instances overlaps with learning.
+ *
+ * The background thread calls hasMoreInstances() and nextInstance() of the
+ * wrapped stream and puts the examples in a bounded ring buffer, which the
+ * thread of the task empties. The buffer has a single producer and a single
+ * consumer, so it needs no lock: each side only writes its own index. A side
+ * that finds the buffer full or empty spins for a while, then parks until the
+ * other side wakes it up.
+ *
+ * The examples are returned in the same order as the wrapped stream returns
+ * them, and hasMoreInstances() is false once the wrapped stream has no more
+ * instances and the buffer is empty. Restarting stops the background thread,
+ * restarts the wrapped stream and drops the buffered examples. An exception
+ * thrown by the wrapped stream is thrown again by the next call that finds
+ * the buffer empty.
+ *
+ * While the background thread runs, it is the only one calling the wrapped
+ * stream: the header is taken from the wrapped stream when it is prepared or
+ * restarted, before the thread starts, and the thread publishes the number
+ * of remaining instances of the wrapped stream after each read. Stopping the
+ * thread interrupts it, in case the wrapped stream blocks, and waits at most
+ * a few seconds for it to end. The wrapped stream must return a new example
+ * for every call of nextInstance(), as the streams of MOA do.
+ * For example, to read an ARFF file ahead:
+ * -s (PrefetchingStream -s (ArffFileStream -f data.arff))
+ */
+public class PrefetchingStream extends AbstractOptionHandler implements
+        ExampleStream {
+
+    @Override
+    public String getPurposeString() {
+        return "A stream read ahead on a background thread.";
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    public ClassOption streamOption = new ClassOption("stream", 's',
+            "Stream to read ahead.", ExampleStream.class,
+            "generators.RandomTreeGenerator");
+
+    public IntOption bufferSizeOption = new IntOption("bufferSize", 'b',
+            "Maximum number of instances read ahead.", 1024, 1, 1 << 30);
+
+    protected ExampleStream stream;
+
+    // header of the wrapped stream, taken before the thread starts
+    protected InstancesHeader header;
+
+    // remaining instances of the wrapped stream before the thread starts
+    protected long remainingInstances;
+
+    protected transient Prefetcher prefetcher;
+
+    @Override
+    public void prepareForUseImpl(TaskMonitor monitor,
+            ObjectRepository repository) {
+        stopPrefetching();
+        this.stream = (ExampleStream) getPreparedClassOption(this.streamOption);
+        readWrappedState();
+    }
+
+    @Override
+    public long estimatedRemainingInstances() {
+        if (this.prefetcher == null) {
+            return this.remainingInstances;
+        }
+        long remaining = this.prefetcher.remainingInstances;
+        if (remaining >= 0) {
+            remaining += this.prefetcher.size();
+        }
+        return remaining;
+    }
+
+    @Override
+    public InstancesHeader getHeader() {
+        return this.header;
+    }
+
+    @Override
+    public boolean hasMoreInstances() {
+        return getPrefetcher().hasNext();
+    }
+
+    @Override
+    public boolean isRestartable() {
+        return this.stream.isRestartable();
+    }
+
+    @Override
+    public Example nextInstance() {
+        return getPrefetcher().next();
+    }
+
+    @Override
+    public void restart() {
+        stopPrefetching();
+        this.stream.restart();
+        readWrappedState();
+    }
+
+    @Override
+    public void getDescription(StringBuilder sb, int indent) {
+        StringUtils.appendIndent(sb, indent);
+        sb.append("Reading ahead up to ");
+        sb.append(this.bufferSizeOption.getValue());
+        sb.append(" instances of ");
+        sb.append(this.streamOption.getValueAsCLIString());
+    }
+
+    /**
+     * Reads the header and the number of remaining instances of the wrapped
+     * stream, while no thread reads it.
+     */
+    protected void readWrappedState() {
+        this.header = this.stream.getHeader();
+        this.remainingInstances = this.stream.estimatedRemainingInstances();
+    }
+
+    /**
+     * Gets the prefetcher of the stream, starting its thread the first time
+     * the stream is read after being prepared or restarted.
+     */
+    protected Prefetcher getPrefetcher() {
+        if (this.prefetcher == null) {
+            this.prefetcher = new Prefetcher(this, this.stream,
+                    this.bufferSizeOption.getValue(), this.remainingInstances);
+            this.prefetcher.start();
+        }
+        return this.prefetcher;
+    }
+
+    /**
+     * Stops the thread reading the wrapped stream, if any.
+     *
+     * @throws IllegalStateException if the thread is still reading the
+     * wrapped stream after being interrupted
+     */
+    protected void stopPrefetching() {
+        if (this.prefetcher != null) {
+            Prefetcher stopped = this.prefetcher;
+            this.prefetcher = null;
+            if (!stopped.stop()) {
+                throw new IllegalStateException(
+                        "The wrapped stream is still being read ahead");
+            }
+        }
+    }
+
+    /**
+     * Ring buffer filled by a background thread reading the wrapped stream.
+     *
+     * The thread only holds a weak reference to the PrefetchingStream, so
+     * that it ends when the stream is no longer used, e.g. when a task stops
+     * before the end of the stream.
+     */
+    protected static class Prefetcher implements Runnable {
+
+        // number of times the buffer is checked again before parking
+        protected static final int SPINS = 100;
+
+        // longest wait of the producer, which checks whether the stream is used
+        protected static final long PARK_NANOS = 10000000L;
+
+        // longest wait for the thread to end when stopping it
+        protected static final long STOP_TIMEOUT_MILLIS = 5000L;
+
+        protected final WeakReference<PrefetchingStream> owner;
+
+        protected final ExampleStream stream;
+
+        protected final Example[] buffer;
+
+        protected final int mask;
+
+        // index of the next example to take, only written by the consumer
+        protected volatile long head;
+
+        // index of the next example to put, only written by the producer
+        protected volatile long tail;
+
+        protected volatile boolean ended;
+
+        protected volatile boolean stopped;
+
+        protected volatile Throwable failure;
+
+        // remaining instances of the wrapped stream, after the last read
+        protected volatile long remainingInstances;
+
+        protected volatile Thread waitingConsumer;
+
+        protected volatile Thread waitingProducer;
+
+        protected Thread thread;
+
+        public Prefetcher(PrefetchingStream owner, ExampleStream stream,
+                int bufferSize, long remainingInstances) {
+            this.owner = new WeakReference<PrefetchingStream>(owner);
+            this.stream = stream;
+            this.remainingInstances = remainingInstances;
+            int capacity = Integer.highestOneBit(bufferSize);
+            if (capacity < bufferSize) {
+                capacity <<= 1;
+            }
+            this.buffer = new Example[capacity];
+            this.mask = capacity - 1;
+        }
+
+        public void start() {
+            this.thread = new Thread(this, "PrefetchingStream");
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+
+        /**
+         * Stops the thread and waits for it to end, i.e. for the current
+         * call to the wrapped stream to return. The thread is interrupted,
+         * so that a wrapped stream blocked waiting for instances returns.
+         *
+         * @return whether the thread has ended
+         */
+        public boolean stop() {
+            this.stopped = true;
+            this.thread.interrupt();
+            boolean interrupted = false;
+            long deadline = System.currentTimeMillis() + STOP_TIMEOUT_MILLIS;
+            long wait;
+            while (this.thread.isAlive()
+                    && (wait = deadline - System.currentTimeMillis()) > 0) {
+                try {
+                    this.thread.join(wait);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            return !this.thread.isAlive();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!this.stopped && this.stream.hasMoreInstances()) {
+                    Example example = this.stream.nextInstance();
+                    this.remainingInstances = this.stream.estimatedRemainingInstances();
+                    if (!put(example)) {
+                        break;
+                    }
+                }
+            } catch (Throwable e) {
+                this.failure = e;
+            } finally {
+                this.ended = true;
+                LockSupport.unpark(this.waitingConsumer);
+            }
+        }
+
+        protected boolean put(Example example) {
+            long t = this.tail;
+            int spins = 0;
+            while (t - this.head == this.buffer.length) {
+                if (this.stopped || this.owner.get() == null) {
+                    return false;
+                }
+                if (spins < SPINS) {
+                    spins++;
+                    Thread.yield();
+                } else {
+                    // the consumer wakes the producer up if it sees it waiting
+                    // after taking an example, or the producer sees it taken
+                    this.waitingProducer = Thread.currentThread();
+                    if (t - this.head == this.buffer.length && !this.stopped) {
+                        LockSupport.parkNanos(this, PARK_NANOS);
+                    }
+                    this.waitingProducer = null;
+                }
+            }
+            this.buffer[(int) t & this.mask] = example;
+            this.tail = t + 1;
+            LockSupport.unpark(this.waitingConsumer);
+            return true;
+        }
+
+        public boolean hasNext() {
+            long h = this.head;
+            int spins = 0;
+            while (h == this.tail) {
+                if (this.ended) {
+                    // the tail is final once the producer has ended
+                    if (h != this.tail) {
+                        return true;
+                    }
+                    if (this.failure != null) {
+                        throw new RuntimeException("Failed to read ahead the stream",
+                                this.failure);
+                    }
+                    return false;
+                }
+                if (spins < SPINS) {
+                    spins++;
+                    Thread.yield();
+                } else {
+                    this.waitingConsumer = Thread.currentThread();
+                    if (h == this.tail && !this.ended) {
+                        LockSupport.park(this);
+                    }
+                    this.waitingConsumer = null;
+                }
+            }
+            return true;
+        }
+
+        public Example next() {
+            if (!hasNext()) {
+                return null;
+            }
+            long h = this.head;
+            int index = (int) h & this.mask;
+            Example example = this.buffer[index];
+            this.buffer[index] = null;
+            this.head = h + 1;
+            LockSupport.unpark(this.waitingProducer);
+            return example;
+        }
+
+        public int size() {
+            long h = this.head;
+            return (int) (this.tail - h);
+        }
+    }
+}
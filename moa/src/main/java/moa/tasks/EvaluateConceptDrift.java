@@ -20,6 +20,7 @@
  */
 package moa.tasks;
 
+import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.FileOption;
 import com.github.javacliparser.IntOption;
 import com.yahoo.labs.samoa.instances.Instance;
@@ -90,6 +91,9 @@ public class EvaluateConceptDrift extends ConceptDriftMainTask{
     public FileOption dumpFileOption = new FileOption("dumpFile", 'd',
             "File to append intermediate csv results to.", null, "csv", true);
 
+    public FlagOption exactModelSizeOption = new FlagOption("exactModelSize", 'x',
+            "Measure the exact size of the model for RAM-Hours and the model size measurement instead of using its estimate.");
+
     /*public FileOption outputPredictionFileOption = new FileOption("outputPredictionFile", 'o',
             "File to append output predictions to.", null, "pred", true);*/
 
@@ -109,6 +113,7 @@ public class EvaluateConceptDrift extends ConceptDriftMainTask{
                 "learning evaluation instances");
 
         learner.setModelContext(stream.getHeader());
+        learner.setExactByteSize(this.exactModelSizeOption.isSet());
         int maxInstances = this.instanceLimitOption.getValue();
         long instancesProcessed = 0;
         int maxSeconds = this.timeLimitOption.getValue();
@@ -177,7 +182,7 @@ public class EvaluateConceptDrift extends ConceptDriftMainTask{
                 long evaluateTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
                 double time = TimingUtils.nanoTimeToSeconds(evaluateTime - evaluateStartTime);
                 double timeIncrement = TimingUtils.nanoTimeToSeconds(evaluateTime - lastEvaluateStartTime);
-                double RAMHoursIncrement = learner.measureByteSize() / (1024.0 * 1024.0 * 1024.0); //GBs
+                double RAMHoursIncrement = learner.estimateByteSize() / (1024.0 * 1024.0 * 1024.0); //GBs
                 RAMHoursIncrement *= (timeIncrement / 3600.0); //Hours
                 RAMHours += RAMHoursIncrement;
                 lastEvaluateStartTime = evaluateTime;
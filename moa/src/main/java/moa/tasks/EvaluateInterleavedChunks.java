@@ -33,6 +33,7 @@ import moa.evaluation.LearningPerformanceEvaluator;
 import moa.evaluation.preview.LearningCurve;
 import moa.learners.Learner;
 import moa.options.ClassOption;
+import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.FileOption;
 import com.github.javacliparser.IntOption;
 import moa.streams.ExampleStream;
@@ -120,6 +121,9 @@ public class EvaluateInterleavedChunks extends ClassificationMainTask {
 	public FileOption dumpFileOption = new FileOption("dumpFile", 'd',
 			"File to append intermediate csv reslts to.", null, "csv", true);
 
+	public FlagOption exactModelSizeOption = new FlagOption("exactModelSize", 'x',
+			"Measure the exact size of the model for RAM-Hours and the model size measurement instead of using its estimate.");
+
 	/**
 	 * Defines the task's result type.
 	 */
@@ -133,6 +137,7 @@ public class EvaluateInterleavedChunks extends ClassificationMainTask {
 		ExampleStream stream = (ExampleStream) getPreparedClassOption(this.streamOption);
 		LearningPerformanceEvaluator evaluator = (LearningPerformanceEvaluator) getPreparedClassOption(this.evaluatorOption);
 		learner.setModelContext(stream.getHeader());
+		learner.setExactByteSize(this.exactModelSizeOption.isSet());
 		int maxInstances = this.instanceLimitOption.getValue();
 		int chunkSize = this.chunkSizeOption.getValue();
 		long instancesProcessed = 0;
@@ -223,7 +228,7 @@ public class EvaluateInterleavedChunks extends ClassificationMainTask {
 			////Result output
 			if (instancesProcessed % this.sampleFrequencyOption.getValue() == 0) {
 				
-				double RAMHoursIncrement = learner.measureByteSize() / (1024.0 * 1024.0 * 1024.0); //GBs
+				double RAMHoursIncrement = learner.estimateByteSize() / (1024.0 * 1024.0 * 1024.0); //GBs
                 RAMHoursIncrement *= (TimingUtils.nanoTimeToSeconds(sampleTrainTime + sampleTestTime) / 3600.0); //Hours
                 RAMHours += RAMHoursIncrement;
 				
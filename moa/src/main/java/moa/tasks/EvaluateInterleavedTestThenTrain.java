@@ -36,6 +36,7 @@ import moa.evaluation.LearningPerformanceEvaluator;
 import moa.evaluation.preview.LearningCurve;
 import moa.learners.Learner;
 import moa.options.ClassOption;
+import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.FileOption;
 import com.github.javacliparser.IntOption;
 import moa.streams.ExampleStream;
@@ -94,6 +95,13 @@ public class EvaluateInterleavedTestThenTrain extends ClassificationMainTask {
     public FileOption dumpFileOption = new FileOption("dumpFile", 'd',
             "File to append intermediate csv reslts to.", null, "csv", true);
 
+    public FlagOption exactModelSizeOption = new FlagOption("exactModelSize", 'x',
+            "Measure the exact size of the model for RAM-Hours and the model size measurement instead of using its estimate.");
+
+    public IntOption batchSizeOption = new IntOption("batchSize", 'b',
+            "Number of instances tested and then trained on together (1 = test then train each instance in sequence).",
+            1, 1, Integer.MAX_VALUE);
+
     @Override
     public Class<?> getTaskResultType() {
         return LearningCurve.class;
@@ -116,6 +124,7 @@ public class EvaluateInterleavedTestThenTrain extends ClassificationMainTask {
         
         LearningPerformanceEvaluator evaluator = (LearningPerformanceEvaluator) getPreparedClassOption(this.evaluatorOption);
         learner.setModelContext(stream.getHeader());
+        learner.setExactByteSize(this.exactModelSizeOption.isSet());
         int maxInstances = this.instanceLimitOption.getValue();
         long instancesProcessed = 0;
         int maxSeconds = this.timeLimitOption.getValue();
@@ -144,25 +153,30 @@ public class EvaluateInterleavedTestThenTrain extends ClassificationMainTask {
         long evaluateStartTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
         long lastEvaluateStartTime = evaluateStartTime;
         double RAMHours = 0.0;
+        int batchSize = this.batchSizeOption.getValue();
+        ExampleBatch batch = new ExampleBatch(stream.getHeader(), batchSize);
         while (stream.hasMoreInstances()
                 && ((maxInstances < 0) || (instancesProcessed < maxInstances))
                 && ((maxSeconds < 0) || (secondsElapsed < maxSeconds))) {
-            Example trainInst = stream.nextInstance();
-            Example testInst = trainInst; //.copy();
-            //int trueClass = (int) trainInst.classValue();
-            //testInst.setClassMissing();
-            double[] prediction = learner.getVotesForInstance(testInst);
-            //evaluator.addClassificationAttempt(trueClass, prediction, testInst
-            //		.weight());
-            evaluator.addResult(testInst, prediction);
-            learner.trainOnInstance(trainInst);
-            instancesProcessed++;
+            int numExamples = batch.read(stream, ExampleBatch.nextBatchSize(batchSize,
+                    instancesProcessed, maxInstances, this.sampleFrequencyOption.getValue()));
+            double[][] predictions = batch.getVotes(learner);
+            for (int i = 0; i < numExamples; i++) {
+                Example testInst = batch.get(i); //.copy();
+                //int trueClass = (int) trainInst.classValue();
+                //testInst.setClassMissing();
+                //evaluator.addClassificationAttempt(trueClass, prediction, testInst
+                //		.weight());
+                evaluator.addResult(testInst, predictions[i]);
+            }
+            batch.trainOn(learner);
+            instancesProcessed += numExamples;
             if (instancesProcessed % this.sampleFrequencyOption.getValue() == 0
                   ||  stream.hasMoreInstances() == false) {
                 long evaluateTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
                 double time = TimingUtils.nanoTimeToSeconds(evaluateTime - evaluateStartTime);
                 double timeIncrement = TimingUtils.nanoTimeToSeconds(evaluateTime - lastEvaluateStartTime);
-                double RAMHoursIncrement = learner.measureByteSize() / (1024.0 * 1024.0 * 1024.0); //GBs
+                double RAMHoursIncrement = learner.estimateByteSize() / (1024.0 * 1024.0 * 1024.0); //GBs
                 RAMHoursIncrement *= (timeIncrement / 3600.0); //Hours
                 RAMHours += RAMHoursIncrement;
                 lastEvaluateStartTime = evaluateTime;
@@ -192,7 +206,8 @@ public class EvaluateInterleavedTestThenTrain extends ClassificationMainTask {
                     immediateResultStream.flush();
                 }
             }
-            if (instancesProcessed % INSTANCES_BETWEEN_MONITOR_UPDATES == 0) {
+            if (instancesProcessed / INSTANCES_BETWEEN_MONITOR_UPDATES
+                    != (instancesProcessed - numExamples) / INSTANCES_BETWEEN_MONITOR_UPDATES) {
                 if (monitor.taskShouldAbort()) {
                     return null;
                 }
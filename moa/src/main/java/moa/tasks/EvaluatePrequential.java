@@ -41,6 +41,7 @@ import moa.evaluation.LearningPerformanceEvaluator;
 import moa.learners.Learner;
 import moa.options.ClassOption;
 
+import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.FileOption;
 import com.github.javacliparser.FloatOption;
 import com.github.javacliparser.IntOption;
@@ -97,9 +98,16 @@ public class EvaluatePrequential extends ClassificationMainTask implements Capab
     public FileOption dumpFileOption = new FileOption("dumpFile", 'd',
             "File to append intermediate csv results to.", null, "csv", true);
 
+    public FlagOption exactModelSizeOption = new FlagOption("exactModelSize", 'x',
+            "Measure the exact size of the model for RAM-Hours and the model size measurement instead of using its estimate.");
+
     public FileOption outputPredictionFileOption = new FileOption("outputPredictionFile", 'o',
             "File to append output predictions to.", null, "pred", true);
 
+    public IntOption batchSizeOption = new IntOption("batchSize", 'b',
+            "Number of instances tested and then trained on together (1 = test then train each instance in sequence).",
+            1, 1, Integer.MAX_VALUE);
+
     //New for prequential method DEPRECATED
     public IntOption widthOption = new IntOption("width",
             'w', "Size of Window", 1000);
@@ -146,6 +154,7 @@ public class EvaluatePrequential extends ClassificationMainTask implements Capab
         //End New for prequential methods
 
         learner.setModelContext(stream.getHeader());
+        learner.setExactByteSize(this.exactModelSizeOption.isSet());
         int maxInstances = this.instanceLimitOption.getValue();
         long instancesProcessed = 0;
         int maxSeconds = this.timeLimitOption.getValue();
@@ -190,30 +199,37 @@ public class EvaluatePrequential extends ClassificationMainTask implements Capab
         long evaluateStartTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
         long lastEvaluateStartTime = evaluateStartTime;
         double RAMHours = 0.0;
+        int batchSize = this.batchSizeOption.getValue();
+        ExampleBatch batch = new ExampleBatch(stream.getHeader(), batchSize);
         while (stream.hasMoreInstances()
                 && ((maxInstances < 0) || (instancesProcessed < maxInstances))
                 && ((maxSeconds < 0) || (secondsElapsed < maxSeconds))) {
-            Example trainInst = stream.nextInstance();
-            Example testInst = (Example) trainInst; //.copy();
-            //testInst.setClassMissing();
-            double[] prediction = learner.getVotesForInstance(testInst);
-            // Output prediction
-            if (outputPredictionFile != null) {
-                int trueClass = (int) ((Instance) trainInst.getData()).classValue();
-                outputPredictionResultStream.println(Utils.maxIndex(prediction) + "," + (
-                 ((Instance) testInst.getData()).classIsMissing() == true ? " ? " : trueClass));
-            }
+            int numExamples = batch.read(stream, ExampleBatch.nextBatchSize(batchSize,
+                    instancesProcessed, maxInstances, this.sampleFrequencyOption.getValue()));
+            double[][] predictions = batch.getVotes(learner);
+            for (int i = 0; i < numExamples; i++) {
+                Example trainInst = batch.get(i);
+                Example testInst = (Example) trainInst; //.copy();
+                //testInst.setClassMissing();
+                double[] prediction = predictions[i];
+                // Output prediction
+                if (outputPredictionFile != null) {
+                    int trueClass = (int) ((Instance) trainInst.getData()).classValue();
+                    outputPredictionResultStream.println(Utils.maxIndex(prediction) + "," + (
+                     ((Instance) testInst.getData()).classIsMissing() == true ? " ? " : trueClass));
+                }
 
-            //evaluator.addClassificationAttempt(trueClass, prediction, testInst.weight());
-            evaluator.addResult(testInst, prediction);
-            learner.trainOnInstance(trainInst);
-            instancesProcessed++;
+                //evaluator.addClassificationAttempt(trueClass, prediction, testInst.weight());
+                evaluator.addResult(testInst, prediction);
+            }
+            batch.trainOn(learner);
+            instancesProcessed += numExamples;
             if (instancesProcessed % this.sampleFrequencyOption.getValue() == 0
                     || stream.hasMoreInstances() == false) {
                 long evaluateTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
                 double time = TimingUtils.nanoTimeToSeconds(evaluateTime - evaluateStartTime);
                 double timeIncrement = TimingUtils.nanoTimeToSeconds(evaluateTime - lastEvaluateStartTime);
-                double RAMHoursIncrement = learner.measureByteSize() / (1024.0 * 1024.0 * 1024.0); //GBs
+                double RAMHoursIncrement = learner.estimateByteSize() / (1024.0 * 1024.0 * 1024.0); //GBs
                 RAMHoursIncrement *= (timeIncrement / 3600.0); //Hours
                 RAMHours += RAMHoursIncrement;
                 lastEvaluateStartTime = evaluateTime;
@@ -242,7 +258,8 @@ public class EvaluatePrequential extends ClassificationMainTask implements Capab
                     immediateResultStream.flush();
                 }
             }
-            if (instancesProcessed % INSTANCES_BETWEEN_MONITOR_UPDATES == 0) {
+            if (instancesProcessed / INSTANCES_BETWEEN_MONITOR_UPDATES
+                    != (instancesProcessed - numExamples) / INSTANCES_BETWEEN_MONITOR_UPDATES) {
                 if (monitor.taskShouldAbort()) {
                     return null;
                 }
@@ -20,6 +20,7 @@
  */
 package moa.tasks;
 
+import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.FileOption;
 import com.github.javacliparser.IntOption;
 import com.github.javacliparser.MultiChoiceOption;
@@ -35,10 +36,16 @@ import moa.streams.ExampleStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.PrintStream;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Task for prequential cross-validation evaluation of a classifier on a stream by testing then training with each
@@ -94,6 +101,9 @@ public class EvaluatePrequentialCV extends ClassificationMainTask {
     public FileOption dumpFileOption = new FileOption("dumpFile", 'd',
             "File to append intermediate csv results to.", null, "csv", true);
 
+    public FlagOption exactModelSizeOption = new FlagOption("exactModelSize", 'x',
+            "Measure the exact size of the model for RAM-Hours and the model size measurement instead of using its estimate.");
+
     public IntOption numFoldsOption = new IntOption("numFolds", 'w',
             "The number of folds (e.g. distributed models) to be used.", 10, 1, Integer.MAX_VALUE);
 
@@ -108,6 +118,14 @@ public class EvaluatePrequentialCV extends ClassificationMainTask {
     public IntOption randomSeedOption = new IntOption("randomSeed", 'r',
             "Seed for random behaviour of the task.", 1);
 
+    public IntOption numberOfThreadsOption = new IntOption("numberOfThreads", 'j',
+            "Number of threads evaluating the folds (-1 = number of available processors).",
+            1, -1, Integer.MAX_VALUE);
+
+    public IntOption batchSizeOption = new IntOption("batchSize", 'b',
+            "Number of instances evaluated by the folds between two synchronizations of the threads.",
+            100, 1, Integer.MAX_VALUE);
+
 
     @Override
     public Class<?> getTaskResultType() {
@@ -129,6 +147,7 @@ public class EvaluatePrequentialCV extends ClassificationMainTask {
         for (int i = 0; i < learners.length; i++) {
             learners[i] = (Learner) baseLearner.copy();
             learners[i].setModelContext(stream.getHeader());
+            learners[i].setExactByteSize(this.exactModelSizeOption.isSet());
             evaluators[i] = (LearningPerformanceEvaluator) baseEvaluator.copy();
         }
 
@@ -162,96 +181,131 @@ public class EvaluatePrequentialCV extends ClassificationMainTask {
         long evaluateStartTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
         long lastEvaluateStartTime = evaluateStartTime;
         double RAMHours = 0.0;
-        while (stream.hasMoreInstances()
-                && ((maxInstances < 0) || (instancesProcessed < maxInstances))
-                && ((maxSeconds < 0) || (secondsElapsed < maxSeconds))) {
-            Example trainInst = stream.nextInstance();
-            Example testInst = (Example) trainInst; //.copy();
-            //testInst.setClassMissing();
-
-            for (int i = 0; i < learners.length; i++) {
-                evaluators[i].addResult(testInst, learners[i].getVotesForInstance(testInst));
-            }
-
-            for (int i = 0; i < learners.length; i++) {
-                int k = 1;
-                switch (this.validationMethodologyOption.getChosenIndex()) {
-                    case 0: //Cross-Validation;
-                        k = instancesProcessed % learners.length == i ? 0: 1; //Test all except one
-                        break;
-                    case 1: //Bootstrap;
-                        k = MiscUtils.poisson(1, random);
-                        break;
-                    case 2: //Split-Validation;
-                        k = instancesProcessed % learners.length == i ? 1: 0; //Test only one
-                        break;
-                }
-                if (k > 0) {
-                    Example weightedInst = (Example) trainInst.copy();
-                    weightedInst.setWeight(trainInst.weight() * k);
-                    learners[i].trainOnInstance(weightedInst);
+        int batchSize = this.batchSizeOption.getValue();
+        ExampleBatch batch = new ExampleBatch(stream.getHeader(), batchSize);
+        int[][] weights = new int[batchSize][learners.length];
+        List<FoldEvaluation> folds = new ArrayList<FoldEvaluation>(learners.length);
+        for (int i = 0; i < learners.length; i++) {
+            folds.add(new FoldEvaluation(learners[i], evaluators[i], batch, weights, i));
+        }
+        int numberOfThreads = this.numberOfThreadsOption.getValue();
+        if (numberOfThreads == -1) {
+            numberOfThreads = Runtime.getRuntime().availableProcessors();
+        }
+        numberOfThreads = Math.min(numberOfThreads, learners.length);
+        ExecutorService executor = numberOfThreads > 1 ? Executors.newFixedThreadPool(numberOfThreads) : null;
+        // CPU time of the folds evaluated by the worker threads
+        long workerTime = 0;
+        try {
+            while (stream.hasMoreInstances()
+                    && ((maxInstances < 0) || (instancesProcessed < maxInstances))
+                    && ((maxSeconds < 0) || (secondsElapsed < maxSeconds))) {
+                int numExamples = batch.read(stream, ExampleBatch.nextBatchSize(batchSize,
+                        instancesProcessed, maxInstances, this.sampleFrequencyOption.getValue()));
+
+                // The weights are drawn here, in the same order as a sequential
+                // run, so that the results do not depend on the number of threads
+                for (int j = 0; j < numExamples; j++) {
+                    for (int i = 0; i < learners.length; i++) {
+                        int k = 1;
+                        switch (this.validationMethodologyOption.getChosenIndex()) {
+                            case 0: //Cross-Validation;
+                                k = (instancesProcessed + j) % learners.length == i ? 0: 1; //Test all except one
+                                break;
+                            case 1: //Bootstrap;
+                                k = MiscUtils.poisson(1, random);
+                                break;
+                            case 2: //Split-Validation;
+                                k = (instancesProcessed + j) % learners.length == i ? 1: 0; //Test only one
+                                break;
+                        }
+                        weights[j][i] = k;
+                    }
                 }
-            }
 
-            instancesProcessed++;
-            if (instancesProcessed % this.sampleFrequencyOption.getValue() == 0
-                    || stream.hasMoreInstances() == false) {
-                long evaluateTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
-                double time = TimingUtils.nanoTimeToSeconds(evaluateTime - evaluateStartTime);
-                double timeIncrement = TimingUtils.nanoTimeToSeconds(evaluateTime - lastEvaluateStartTime);
-
-                for (int i = 0; i < learners.length; i++) {
-                    double RAMHoursIncrement = learners[i].measureByteSize() / (1024.0 * 1024.0 * 1024.0); //GBs
-                    RAMHoursIncrement *= (timeIncrement / 3600.0); //Hours
-                    RAMHours += RAMHoursIncrement;
+                if (executor != null) {
+                    for (Future<Void> future : executor.invokeAll(folds)) {
+                        future.get();
+                    }
+                    for (FoldEvaluation fold : folds) {
+                        workerTime += fold.evaluateTime;
+                    }
+                } else {
+                    for (FoldEvaluation fold : folds) {
+                        fold.call();
+                    }
                 }
 
-                lastEvaluateStartTime = evaluateTime;
-                learningCurve.insertEntry(new LearningEvaluation(
-                        getEvaluationMeasurements(
-                        new Measurement[]{
-                                new Measurement(
-                                        "learning evaluation instances",
-                                        instancesProcessed),
-                                new Measurement(
-                                        "evaluation time ("
-                                                + (preciseCPUTiming ? "cpu "
-                                                : "") + "seconds)",
-                                        time),
-                                new Measurement(
-                                        "model cost (RAM-Hours)",
-                                        RAMHours)
-                        }, evaluators)));
-
-                if (immediateResultStream != null) {
-                    if (firstDump) {
-                        immediateResultStream.println(learningCurve.headerToString());
-                        firstDump = false;
+                instancesProcessed += numExamples;
+                if (instancesProcessed % this.sampleFrequencyOption.getValue() == 0
+                        || stream.hasMoreInstances() == false) {
+                    long evaluateTime = TimingUtils.getNanoCPUTimeOfCurrentThread() + workerTime;
+                    double time = TimingUtils.nanoTimeToSeconds(evaluateTime - evaluateStartTime);
+                    double timeIncrement = TimingUtils.nanoTimeToSeconds(evaluateTime - lastEvaluateStartTime);
+
+                    for (int i = 0; i < learners.length; i++) {
+                        double RAMHoursIncrement = learners[i].estimateByteSize() / (1024.0 * 1024.0 * 1024.0); //GBs
+                        RAMHoursIncrement *= (timeIncrement / 3600.0); //Hours
+                        RAMHours += RAMHoursIncrement;
                     }
-                    immediateResultStream.println(learningCurve.entryToString(learningCurve.numEntries() - 1));
-                    immediateResultStream.flush();
-                }
-            }
-            if (instancesProcessed % INSTANCES_BETWEEN_MONITOR_UPDATES == 0) {
-                if (monitor.taskShouldAbort()) {
-                    return null;
-                }
-                long estimatedRemainingInstances = stream.estimatedRemainingInstances();
-                if (maxInstances > 0) {
-                    long maxRemaining = maxInstances - instancesProcessed;
-                    if ((estimatedRemainingInstances < 0)
-                            || (maxRemaining < estimatedRemainingInstances)) {
-                        estimatedRemainingInstances = maxRemaining;
+
+                    lastEvaluateStartTime = evaluateTime;
+                    learningCurve.insertEntry(new LearningEvaluation(
+                            getEvaluationMeasurements(
+                            new Measurement[]{
+                                    new Measurement(
+                                            "learning evaluation instances",
+                                            instancesProcessed),
+                                    new Measurement(
+                                            "evaluation time ("
+                                                    + (preciseCPUTiming ? "cpu "
+                                                    : "") + "seconds)",
+                                            time),
+                                    new Measurement(
+                                            "model cost (RAM-Hours)",
+                                            RAMHours)
+                            }, evaluators)));
+
+                    if (immediateResultStream != null) {
+                        if (firstDump) {
+                            immediateResultStream.println(learningCurve.headerToString());
+                            firstDump = false;
+                        }
+                        immediateResultStream.println(learningCurve.entryToString(learningCurve.numEntries() - 1));
+                        immediateResultStream.flush();
                     }
                 }
-                monitor.setCurrentActivityFractionComplete(estimatedRemainingInstances < 0 ? -1.0
-                        : (double) instancesProcessed
-                        / (double) (instancesProcessed + estimatedRemainingInstances));
-                if (monitor.resultPreviewRequested()) {
-                    monitor.setLatestResultPreview(learningCurve.copy());
+                if (instancesProcessed / INSTANCES_BETWEEN_MONITOR_UPDATES
+                        != (instancesProcessed - numExamples) / INSTANCES_BETWEEN_MONITOR_UPDATES) {
+                    if (monitor.taskShouldAbort()) {
+                        return null;
+                    }
+                    long estimatedRemainingInstances = stream.estimatedRemainingInstances();
+                    if (maxInstances > 0) {
+                        long maxRemaining = maxInstances - instancesProcessed;
+                        if ((estimatedRemainingInstances < 0)
+                                || (maxRemaining < estimatedRemainingInstances)) {
+                            estimatedRemainingInstances = maxRemaining;
+                        }
+                    }
+                    monitor.setCurrentActivityFractionComplete(estimatedRemainingInstances < 0 ? -1.0
+                            : (double) instancesProcessed
+                            / (double) (instancesProcessed + estimatedRemainingInstances));
+                    if (monitor.resultPreviewRequested()) {
+                        monitor.setLatestResultPreview(learningCurve.copy());
+                    }
+                    secondsElapsed = (int) TimingUtils.nanoTimeToSeconds(TimingUtils.getNanoCPUTimeOfCurrentThread()
+                            + workerTime - evaluateStartTime);
                 }
-                secondsElapsed = (int) TimingUtils.nanoTimeToSeconds(TimingUtils.getNanoCPUTimeOfCurrentThread()
-                        - evaluateStartTime);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException ex) {
+            throw new RuntimeException("Fold evaluation failed.", ex.getCause());
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
             }
         }
         if (immediateResultStream != null) {
@@ -279,4 +333,55 @@ public class EvaluatePrequentialCV extends ClassificationMainTask {
         }
         return measurementList.toArray(new Measurement[measurementList.size()]);
     }
+
+    /**
+     * Evaluation of one fold, run on each batch of examples: every example is
+     * used to test the learner of the fold and then to train it with the
+     * weight of the fold.
+     */
+    protected static class FoldEvaluation implements Callable<Void> {
+
+        protected Learner learner;
+
+        protected LearningPerformanceEvaluator evaluator;
+
+        protected ExampleBatch batch;
+
+        protected int[][] weights;
+
+        protected int fold;
+
+        /**
+         * CPU time spent on the last batch, in nanoseconds.
+         */
+        protected long evaluateTime;
+
+        public FoldEvaluation(Learner learner, LearningPerformanceEvaluator evaluator,
+                ExampleBatch batch, int[][] weights, int fold) {
+            this.learner = learner;
+            this.evaluator = evaluator;
+            this.batch = batch;
+            this.weights = weights;
+            this.fold = fold;
+        }
+
+        @Override
+        public Void call() {
+            long startTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
+            int numExamples = this.batch.size();
+            for (int j = 0; j < numExamples; j++) {
+                // each fold gets its own copy, as learners may modify examples
+                Example trainInst = this.batch.get(j).copy();
+                Example testInst = trainInst;
+                this.evaluator.addResult(testInst, this.learner.getVotesForInstance(testInst));
+                int k = this.weights[j][this.fold];
+                if (k > 0) {
+                    trainInst.setWeight(trainInst.weight() * k);
+                    this.learner.trainOnInstance(trainInst);
+                }
+            }
+            this.evaluateTime = TimingUtils.getNanoCPUTimeOfCurrentThread() - startTime;
+            return null;
+        }
+    }
 }
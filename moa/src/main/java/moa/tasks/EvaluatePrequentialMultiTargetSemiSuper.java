@@ -102,6 +102,8 @@ public class EvaluatePrequentialMultiTargetSemiSuper extends MultiTargetMainTask
                 'q',"How many instances between memory bound checks.", 100000, 0,Integer.MAX_VALUE);
     public FileOption dumpFileOption = new FileOption("dumpFile", 
                 'd',"File to append intermediate csv results to.", null, "csv", true);
+    public FlagOption exactModelSizeOption = new FlagOption("exactModelSize", 'x',
+                "Measure the exact size of the model for RAM-Hours and the model size measurement instead of using its estimate.");
     public FileOption outputPredictionFileOption = new FileOption("outputPredictionFile", 
                 'o',"File to append output predictions to.", null, "pred", true);
     public IntOption widthOption = new IntOption("width",
@@ -158,6 +160,7 @@ public class EvaluatePrequentialMultiTargetSemiSuper extends MultiTargetMainTask
         
         //End New for prequential methods
         learner.setModelContext(stream.getHeader());
+        learner.setExactByteSize(this.exactModelSizeOption.isSet());
         int maxInstances = this.instanceLimitOption.getValue();
         long instancesProcessed = 0;
         int maxSeconds = this.timeLimitOption.getValue();
@@ -309,7 +312,7 @@ public class EvaluatePrequentialMultiTargetSemiSuper extends MultiTargetMainTask
                 long evaluateTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
                 double time = TimingUtils.nanoTimeToSeconds(evaluateTime - evaluateStartTime);
                 double timeIncrement = TimingUtils.nanoTimeToSeconds(evaluateTime - lastEvaluateStartTime);
-                double RAMHoursIncrement = learner.measureByteSize() / (1024.0 * 1024.0 * 1024.0); //GBs
+                double RAMHoursIncrement = learner.estimateByteSize() / (1024.0 * 1024.0 * 1024.0); //GBs
                 RAMHoursIncrement *= (timeIncrement / 3600.0); //Hours
                 RAMHours += RAMHoursIncrement;
                 lastEvaluateStartTime = evaluateTime;
@@ -367,7 +370,7 @@ public class EvaluatePrequentialMultiTargetSemiSuper extends MultiTargetMainTask
         long evaluateTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
         double time = TimingUtils.nanoTimeToSeconds(evaluateTime - evaluateStartTime);
         double timeIncrement = TimingUtils.nanoTimeToSeconds(evaluateTime - lastEvaluateStartTime);
-        double RAMHoursIncrement = learner.measureByteSize() / (1024.0 * 1024.0 * 1024.0); //GBs
+        double RAMHoursIncrement = learner.estimateByteSize() / (1024.0 * 1024.0 * 1024.0); //GBs
         RAMHoursIncrement *= (timeIncrement / 3600.0); //Hours
         RAMHours += RAMHoursIncrement;
         lastEvaluateStartTime = evaluateTime;
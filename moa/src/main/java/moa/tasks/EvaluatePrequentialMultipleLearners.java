@@ -0,0 +1,379 @@
+/*
+ *    EvaluatePrequentialMultipleLearners.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.tasks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import moa.classifiers.Classifier;
+import moa.core.Example;
+import moa.core.Measurement;
+import moa.core.ObjectRepository;
+import moa.core.TimingUtils;
+import moa.core.Utils;
+import moa.evaluation.LearningEvaluation;
+import moa.evaluation.LearningPerformanceEvaluator;
+import moa.evaluation.preview.LearningCurve;
+import moa.learners.Learner;
+import moa.options.ClassOption;
+import moa.streams.ExampleStream;
+
+import com.github.javacliparser.FlagOption;
+import com.github.javacliparser.FileOption;
+import com.github.javacliparser.IntOption;
+import com.github.javacliparser.ListOption;
+import com.github.javacliparser.Option;
+import com.yahoo.labs.samoa.instances.Instance;
+
+/**
+ * Task for evaluating several learners on a stream by testing then training
+ * with each example in sequence, reading the stream only once.
+ *
+ * The examples are read in batches and every batch is handed to all the
+ * learners, each one with its own evaluator, on a pool of threads. Every
+ * learner tests then trains on its own copy of the examples, one by one, so
+ * learners that modify or keep the examples do not affect each other, and its
+ * learning curve is the one EvaluatePrequential would produce. It is written
+ * to its own dump file with the same columns. Evaluation time is the CPU time
+ * spent on each learner.
+ */
+public class EvaluatePrequentialMultipleLearners extends ClassificationMainTask {
+
+    @Override
+    public String getPurposeString() {
+        return "Evaluates several learners on one pass over a stream by testing then training with each example in sequence.";
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    public ListOption learnersOption = new ListOption("learners", 'l',
+            "Learners to train.",
+            new ClassOption("learner", ' ', "", Classifier.class, "bayes.NaiveBayes"),
+            new Option[]{
+                new ClassOption("", ' ', "", Classifier.class, "bayes.NaiveBayes"),
+                new ClassOption("", ' ', "", Classifier.class, "trees.HoeffdingTree")},
+            ',');
+
+    public ClassOption streamOption = new ClassOption("stream", 's',
+            "Stream to learn from.", ExampleStream.class,
+            "generators.RandomTreeGenerator");
+
+    public ClassOption evaluatorOption = new ClassOption("evaluator", 'e',
+            "Classification performance evaluation method, copied for each learner.",
+            LearningPerformanceEvaluator.class,
+            "WindowClassificationPerformanceEvaluator");
+
+    public IntOption instanceLimitOption = new IntOption("instanceLimit", 'i',
+            "Maximum number of instances to test/train on  (-1 = no limit).",
+            100000000, -1, Integer.MAX_VALUE);
+
+    public IntOption timeLimitOption = new IntOption("timeLimit", 't',
+            "Maximum number of seconds to test/train for (-1 = no limit).", -1,
+            -1, Integer.MAX_VALUE);
+
+    public IntOption sampleFrequencyOption = new IntOption("sampleFrequency",
+            'f',
+            "How many instances between samples of the learning performance.",
+            100000, 0, Integer.MAX_VALUE);
+
+    public FileOption dumpFileOption = new FileOption("dumpFile", 'd',
+            "File to append intermediate csv results to, the index of each learner is added to the name.",
+            null, "csv", true);
+
+    public FlagOption exactModelSizeOption = new FlagOption("exactModelSize", 'x',
+            "Measure the exact size of the model for RAM-Hours and the model size measurement instead of using its estimate.");
+
+    public FileOption outputPredictionFileOption = new FileOption("outputPredictionFile", 'o',
+            "File to append output predictions to, the index of each learner is added to the name.",
+            null, "pred", true);
+
+    public IntOption batchSizeOption = new IntOption("batchSize", 'b',
+            "Number of instances read from the stream and handed to the learners at a time.",
+            100, 1, Integer.MAX_VALUE);
+
+    public IntOption numberOfThreadsOption = new IntOption("numberOfThreads", 'j',
+            "Number of threads evaluating the learners (-1 = number of available processors).",
+            -1, -1, Integer.MAX_VALUE);
+
+    @Override
+    public Class<?> getTaskResultType() {
+        return String.class;
+    }
+
+    @Override
+    protected Object doMainTask(TaskMonitor monitor, ObjectRepository repository) {
+        ExampleStream stream = (ExampleStream) getPreparedClassOption(this.streamOption);
+        LearningPerformanceEvaluator evaluator = (LearningPerformanceEvaluator) getPreparedClassOption(this.evaluatorOption);
+        Option[] learnerOptions = this.learnersOption.getList();
+        boolean preciseCPUTiming = TimingUtils.enablePreciseTiming();
+        int batchSize = this.batchSizeOption.getValue();
+        ExampleBatch batch = new ExampleBatch(stream.getHeader(), batchSize);
+        List<LearnerEvaluation> evaluations = new ArrayList<LearnerEvaluation>();
+        for (int i = 0; i < learnerOptions.length; i++) {
+            monitor.setCurrentActivity("Materializing learner " + (i + 1) + "...", -1.0);
+            Learner learner = (Learner) ((ClassOption) learnerOptions[i]).materializeObject(monitor, repository);
+            if (monitor.taskShouldAbort()) {
+                return null;
+            }
+            learner.prepareForUse(monitor, repository);
+            learner.setModelContext(stream.getHeader());
+            learner.setExactByteSize(this.exactModelSizeOption.isSet());
+            evaluations.add(new LearnerEvaluation(learner,
+                    (LearningPerformanceEvaluator) evaluator.copy(), batch,
+                    this.sampleFrequencyOption.getValue(), preciseCPUTiming,
+                    openResultFile(this.dumpFileOption.getFile(), i),
+                    openResultFile(this.outputPredictionFileOption.getFile(), i)));
+        }
+
+        int numberOfThreads = this.numberOfThreadsOption.getValue();
+        if (numberOfThreads == -1) {
+            numberOfThreads = Runtime.getRuntime().availableProcessors();
+        }
+        numberOfThreads = Math.min(numberOfThreads, evaluations.size());
+        ExecutorService executor = numberOfThreads > 1 ? Executors.newFixedThreadPool(numberOfThreads) : null;
+
+        int maxInstances = this.instanceLimitOption.getValue();
+        long instancesProcessed = 0;
+        int maxSeconds = this.timeLimitOption.getValue();
+        int secondsElapsed = 0;
+        monitor.setCurrentActivity("Evaluating learners...", -1.0);
+        try {
+            while (stream.hasMoreInstances()
+                    && ((maxInstances < 0) || (instancesProcessed < maxInstances))
+                    && ((maxSeconds < 0) || (secondsElapsed < maxSeconds))) {
+                int numExamples = batch.read(stream,
+                        ExampleBatch.nextBatchSize(batchSize, instancesProcessed, maxInstances, 0));
+                boolean endOfStream = !stream.hasMoreInstances();
+                for (LearnerEvaluation evaluation : evaluations) {
+                    evaluation.endOfStream = endOfStream;
+                }
+                if (executor != null) {
+                    for (Future<Void> future : executor.invokeAll(evaluations)) {
+                        future.get();
+                    }
+                } else {
+                    for (LearnerEvaluation evaluation : evaluations) {
+                        evaluation.call();
+                    }
+                }
+                instancesProcessed += numExamples;
+                if (instancesProcessed / INSTANCES_BETWEEN_MONITOR_UPDATES
+                        != (instancesProcessed - numExamples) / INSTANCES_BETWEEN_MONITOR_UPDATES) {
+                    if (monitor.taskShouldAbort()) {
+                        return null;
+                    }
+                    long estimatedRemainingInstances = stream.estimatedRemainingInstances();
+                    if (maxInstances > 0) {
+                        long maxRemaining = maxInstances - instancesProcessed;
+                        if ((estimatedRemainingInstances < 0)
+                                || (maxRemaining < estimatedRemainingInstances)) {
+                            estimatedRemainingInstances = maxRemaining;
+                        }
+                    }
+                    monitor.setCurrentActivityFractionComplete(estimatedRemainingInstances < 0 ? -1.0
+                            : (double) instancesProcessed
+                            / (double) (instancesProcessed + estimatedRemainingInstances));
+                    if (monitor.resultPreviewRequested()) {
+                        monitor.setLatestResultPreview(resultsToString(evaluations));
+                    }
+                    long slowest = 0;
+                    for (LearnerEvaluation evaluation : evaluations) {
+                        slowest = Math.max(slowest, evaluation.evaluateTime);
+                    }
+                    secondsElapsed = (int) TimingUtils.nanoTimeToSeconds(slowest);
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException ex) {
+            throw new RuntimeException("Learner evaluation failed.", ex.getCause());
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+            for (LearnerEvaluation evaluation : evaluations) {
+                evaluation.close();
+            }
+        }
+        return resultsToString(evaluations);
+    }
+
+    protected String resultsToString(List<LearnerEvaluation> evaluations) {
+        StringBuilder sb = new StringBuilder();
+        Option[] learnerOptions = this.learnersOption.getList();
+        for (int i = 0; i < evaluations.size(); i++) {
+            sb.append("Learner ").append(i).append(": ")
+                    .append(((ClassOption) learnerOptions[i]).getValueAsCLIString()).append('\n');
+            sb.append(evaluations.get(i).learningCurve.toString()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Opens the result file of a learner, adding its index to the file name.
+     *
+     * @param file the file of the option
+     * @param index the index of the learner
+     * @return the stream to append to, or null if there is no file
+     */
+    protected static PrintStream openResultFile(File file, int index) {
+        if (file == null) {
+            return null;
+        }
+        String name = file.getName();
+        int extension = name.lastIndexOf('.');
+        name = extension > 0
+                ? name.substring(0, extension) + "n" + index + name.substring(extension)
+                : name + "n" + index;
+        File learnerFile = new File(file.getParentFile(), name);
+        try {
+            return new PrintStream(new FileOutputStream(learnerFile, learnerFile.exists()), true);
+        } catch (Exception ex) {
+            throw new RuntimeException(
+                    "Unable to open result file: " + learnerFile, ex);
+        }
+    }
+
+    /**
+     * Prequential evaluation of one learner, run on each batch of examples.
+     */
+    protected static class LearnerEvaluation implements Callable<Void> {
+
+        protected Learner learner;
+
+        protected LearningPerformanceEvaluator evaluator;
+
+        protected ExampleBatch batch;
+
+        protected LearningCurve learningCurve = new LearningCurve(
+                "learning evaluation instances");
+
+        protected boolean preciseCPUTiming;
+
+        protected PrintStream immediateResultStream;
+
+        protected PrintStream outputPredictionResultStream;
+
+        protected boolean firstDump = true;
+
+        protected long instancesProcessed;
+
+        /**
+         * CPU time spent on this learner, in nanoseconds.
+         */
+        protected long evaluateTime;
+
+        protected long lastEvaluateTime;
+
+        protected double RAMHours;
+
+        protected boolean endOfStream;
+
+        protected int sampleFrequency;
+
+        public LearnerEvaluation(Learner learner, LearningPerformanceEvaluator evaluator,
+                ExampleBatch batch, int sampleFrequency, boolean preciseCPUTiming,
+                PrintStream immediateResultStream, PrintStream outputPredictionResultStream) {
+            this.learner = learner;
+            this.evaluator = evaluator;
+            this.batch = batch;
+            this.sampleFrequency = sampleFrequency;
+            this.preciseCPUTiming = preciseCPUTiming;
+            this.immediateResultStream = immediateResultStream;
+            this.outputPredictionResultStream = outputPredictionResultStream;
+        }
+
+        @Override
+        public Void call() {
+            long startTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
+            int numExamples = this.batch.size();
+            for (int i = 0; i < numExamples; i++) {
+                // each learner gets its own copy, as learners may modify examples
+                Example trainInst = this.batch.get(i).copy();
+                Example testInst = trainInst;
+                double[] prediction = this.learner.getVotesForInstance(testInst);
+                if (this.outputPredictionResultStream != null) {
+                    int trueClass = (int) ((Instance) trainInst.getData()).classValue();
+                    this.outputPredictionResultStream.println(Utils.maxIndex(prediction) + "," + (
+                            ((Instance) testInst.getData()).classIsMissing() == true ? " ? " : trueClass));
+                }
+                this.evaluator.addResult(testInst, prediction);
+                this.learner.trainOnInstance(trainInst);
+                this.instancesProcessed++;
+                if ((this.sampleFrequency > 0 && this.instancesProcessed % this.sampleFrequency == 0)
+                        || (this.endOfStream && i == numExamples - 1)) {
+                    long evaluateTime = this.evaluateTime
+                            + TimingUtils.getNanoCPUTimeOfCurrentThread() - startTime;
+                    sample(evaluateTime);
+                }
+            }
+            this.evaluateTime += TimingUtils.getNanoCPUTimeOfCurrentThread() - startTime;
+            return null;
+        }
+
+        protected void sample(long evaluateTime) {
+            double time = TimingUtils.nanoTimeToSeconds(evaluateTime);
+            double timeIncrement = TimingUtils.nanoTimeToSeconds(evaluateTime - this.lastEvaluateTime);
+            double RAMHoursIncrement = this.learner.estimateByteSize() / (1024.0 * 1024.0 * 1024.0); //GBs
+            RAMHoursIncrement *= (timeIncrement / 3600.0); //Hours
+            this.RAMHours += RAMHoursIncrement;
+            this.lastEvaluateTime = evaluateTime;
+            this.learningCurve.insertEntry(new LearningEvaluation(
+                    new Measurement[]{
+                        new Measurement(
+                        "learning evaluation instances",
+                        this.instancesProcessed),
+                        new Measurement(
+                        "evaluation time ("
+                        + (this.preciseCPUTiming ? "cpu "
+                        : "") + "seconds)",
+                        time),
+                        new Measurement(
+                        "model cost (RAM-Hours)",
+                        this.RAMHours)
+                    },
+                    this.evaluator, this.learner));
+            if (this.immediateResultStream != null) {
+                if (this.firstDump) {
+                    this.immediateResultStream.println(this.learningCurve.headerToString());
+                    this.firstDump = false;
+                }
+                this.immediateResultStream.println(this.learningCurve.entryToString(this.learningCurve.numEntries() - 1));
+                this.immediateResultStream.flush();
+            }
+        }
+
+        public void close() {
+            if (this.immediateResultStream != null) {
+                this.immediateResultStream.close();
+            }
+            if (this.outputPredictionResultStream != null) {
+                this.outputPredictionResultStream.close();
+            }
+        }
+    }
+}
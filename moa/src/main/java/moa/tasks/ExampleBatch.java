@@ -0,0 +1,217 @@
+/*
+ *    ExampleBatch.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.tasks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import moa.classifiers.AbstractClassifier;
+import moa.classifiers.Classifier;
+import moa.core.Example;
+import moa.learners.Learner;
+import moa.streams.ExampleStream;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstanceBatch;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+
+/**
+ * Mini-batch of examples read from a stream, used by the evaluation tasks to
+ * test and train a learner on several examples at a time.
+ *
+ * Classifiers with column-wise implementations receive the batch as an
+ * InstanceBatch, whose columns are filled once per read and reused from one
+ * read to the next. The other learners receive the examples read, one by one
+ * for classifiers and as a list for other learners, so no columns are filled
+ * for them and they may keep the instances as they keep those of a stream. A
+ * batch of one example is passed to the single example methods, so that a
+ * batch size of 1 gives exactly the same results as before.
+ */
+public class ExampleBatch {
+
+    /** Whether a classifier class trains on the columns of a batch */
+    protected static final ClassValue<Boolean> TRAINS_ON_COLUMNS = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            return overridesBatchMethod(type, "trainOnInstances");
+        }
+    };
+
+    /** Whether a classifier class predicts from the columns of a batch */
+    protected static final ClassValue<Boolean> PREDICTS_FROM_COLUMNS = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            return overridesBatchMethod(type, "getVotesForInstances");
+        }
+    };
+
+    protected InstancesHeader header;
+
+    protected List<Example> examples;
+
+    protected InstanceBatch instances;
+
+    protected boolean instancesFilled;
+
+    /**
+     * Instantiates a new empty batch.
+     *
+     * @param header the header of the stream
+     * @param capacity the expected number of examples
+     */
+    public ExampleBatch(InstancesHeader header, int capacity) {
+        this.header = header;
+        this.examples = new ArrayList<Example>(capacity);
+    }
+
+    /**
+     * Removes the examples of the batch and reads new ones from the stream.
+     *
+     * @param stream the stream
+     * @param maxExamples the maximum number of examples to read
+     * @return the number of examples read
+     */
+    public int read(ExampleStream stream, int maxExamples) {
+        this.examples.clear();
+        this.instancesFilled = false;
+        while (this.examples.size() < maxExamples && stream.hasMoreInstances()) {
+            this.examples.add(stream.nextInstance());
+        }
+        return this.examples.size();
+    }
+
+    /**
+     * Gets the number of examples to read next, so that a batch never goes
+     * past the next sample point or the instance limit.
+     *
+     * @param batchSize the batch size option
+     * @param instancesProcessed the number of examples processed so far
+     * @param maxInstances the instance limit, negative for no limit
+     * @param sampleFrequency the sample frequency, zero or negative for none
+     * @return the number of examples of the next batch
+     */
+    public static int nextBatchSize(int batchSize, long instancesProcessed,
+            long maxInstances, long sampleFrequency) {
+        long size = batchSize;
+        if (sampleFrequency > 0) {
+            size = Math.min(size, sampleFrequency - instancesProcessed % sampleFrequency);
+        }
+        if (maxInstances >= 0) {
+            size = Math.min(size, maxInstances - instancesProcessed);
+        }
+        return (int) Math.max(size, 1);
+    }
+
+    /**
+     * Size.
+     *
+     * @return the number of examples of the batch
+     */
+    public int size() {
+        return this.examples.size();
+    }
+
+    /**
+     * Gets an example of the batch.
+     *
+     * @param index the index of the example
+     * @return the example
+     */
+    public Example get(int index) {
+        return this.examples.get(index);
+    }
+
+    /**
+     * Gets the predictions of the learner for all the examples of the batch.
+     *
+     * @param learner the learner
+     * @return the votes of each example
+     */
+    @SuppressWarnings("unchecked")
+    public double[][] getVotes(Learner learner) {
+        if (this.examples.size() == 1) {
+            return new double[][]{learner.getVotesForInstance(this.examples.get(0))};
+        }
+        if (learner instanceof Classifier) {
+            if (PREDICTS_FROM_COLUMNS.get(learner.getClass())) {
+                return ((Classifier) learner).getVotesForInstances(toInstanceBatch());
+            }
+            double[][] votes = new double[this.examples.size()][];
+            for (int i = 0; i < votes.length; i++) {
+                votes[i] = learner.getVotesForInstance(this.examples.get(i));
+            }
+            return votes;
+        }
+        return learner.getVotesForInstances(this.examples);
+    }
+
+    /**
+     * Trains the learner with all the examples of the batch.
+     *
+     * @param learner the learner
+     */
+    @SuppressWarnings("unchecked")
+    public void trainOn(Learner learner) {
+        if (this.examples.size() == 1) {
+            learner.trainOnInstance(this.examples.get(0));
+        } else if (learner instanceof Classifier) {
+            if (TRAINS_ON_COLUMNS.get(learner.getClass())) {
+                ((Classifier) learner).trainOnInstances(toInstanceBatch());
+            } else {
+                for (Example example : this.examples) {
+                    learner.trainOnInstance(example);
+                }
+            }
+        } else {
+            learner.trainOnInstances(this.examples);
+        }
+    }
+
+    /**
+     * Whether a classifier class overrides the row by row implementation of
+     * a batch method of AbstractClassifier.
+     */
+    protected static boolean overridesBatchMethod(Class<?> type, String name) {
+        try {
+            return type.getMethod(name, InstanceBatch.class).getDeclaringClass()
+                    != AbstractClassifier.class;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Fills the columnar batch with the examples read, once per read.
+     *
+     * @return the instance batch
+     */
+    protected InstanceBatch toInstanceBatch() {
+        if (!this.instancesFilled) {
+            if (this.instances == null) {
+                this.instances = new InstanceBatch(this.header, this.examples.size());
+            } else {
+                this.instances.clear();
+            }
+            for (Example example : this.examples) {
+                this.instances.add((Instance) example.getData());
+            }
+            this.instancesFilled = true;
+        }
+        return this.instances;
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ *    WriteStreamToBinaryFile.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.tasks;
+
+import java.io.File;
+import java.io.IOException;
+
+import moa.core.ObjectRepository;
+import moa.options.ClassOption;
+import moa.streams.BinaryStreamWriter;
+import com.github.javacliparser.FileOption;
+import com.github.javacliparser.FlagOption;
+import com.github.javacliparser.IntOption;
+import com.yahoo.labs.samoa.instances.Instance;
+import moa.streams.InstanceStream;
+
+/**
+ * Task to output a stream to a binary stream file, that can be read back with
+ * BinaryFileStream.
+ *
+ * @version $Revision: 7 $
+ */
+public class WriteStreamToBinaryFile extends AuxiliarMainTask {
+
+    @Override
+    public String getPurposeString() {
+        return "Outputs a stream to a binary stream file.";
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    public ClassOption streamOption = new ClassOption("stream", 's',
+            "Stream to write.", InstanceStream.class,
+            "generators.RandomTreeGenerator");
+
+    public FileOption binaryFileOption = new FileOption("binaryFile", 'f',
+            "Destination binary stream file.", null, "moab", true);
+
+    public IntOption maxInstancesOption = new IntOption("maxInstances", 'm',
+            "Maximum number of instances to write to file.", 10000000, 0,
+            Integer.MAX_VALUE);
+
+    public IntOption blockSizeOption = new IntOption("blockSize", 'b',
+            "Number of instances of each block of the file.", 4096, 1,
+            Integer.MAX_VALUE);
+
+    public FlagOption compressOption = new FlagOption("compress",
+            'z', "Compress the blocks of the file.");
+
+    @Override
+    protected Object doMainTask(TaskMonitor monitor, ObjectRepository repository) {
+        InstanceStream stream = (InstanceStream) getPreparedClassOption(this.streamOption);
+        File destFile = this.binaryFileOption.getFile();
+        if (destFile != null) {
+            // an aborted or failed file is deleted, not left looking complete
+            BinaryStreamWriter w = null;
+            boolean written = false;
+            try {
+                w = new BinaryStreamWriter(destFile, stream.getHeader(),
+                        this.blockSizeOption.getValue(), this.compressOption.isSet());
+                monitor.setCurrentActivityDescription("Writing stream to binary file");
+                int numWritten = 0;
+                while ((numWritten < this.maxInstancesOption.getValue())
+                        && stream.hasMoreInstances()) {
+                    if (monitor.taskShouldAbort()) {
+                        return null;
+                    }
+                    w.write((Instance) stream.nextInstance().getData());
+                    numWritten++;
+                }
+                w.close();
+                written = true;
+            } catch (Exception ex) {
+                throw new RuntimeException(
+                        "Failed writing to file " + destFile, ex);
+            } finally {
+                if (!written && w != null) {
+                    try {
+                        w.abort();
+                    } catch (IOException ex) {
+                        // keep the original outcome
+                    }
+                }
+            }
+            return "Stream written to binary file " + destFile;
+        }
+        throw new IllegalArgumentException("No destination file to write to.");
+    }
+
+    @Override
+    public Class<?> getTaskResultType() {
+        return String.class;
+    }
+}
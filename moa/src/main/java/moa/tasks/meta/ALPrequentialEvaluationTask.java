@@ -26,6 +26,7 @@ import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.FileOption;
 import com.github.javacliparser.IntOption;
 import com.yahoo.labs.samoa.instances.Instance;
@@ -91,6 +92,8 @@ public class ALPrequentialEvaluationTask extends ALMainTask {
 	
 	public FileOption dumpFileOption = new FileOption("dumpFile", 'd',
             "File to append intermediate csv results to.", null, "csv", true);
+	public FlagOption exactModelSizeOption = new FlagOption("exactModelSize", 'x',
+            "Measure the exact size of the model for RAM-Hours instead of using its estimate.");
 	
 	
 	/**
@@ -126,6 +129,7 @@ public class ALPrequentialEvaluationTask extends ALMainTask {
 				(ALClassifier) getPreparedClassOption(this.learnerOption);
 		learner.resetLearning();
 		learner.setModelContext(stream.getHeader());
+		learner.setExactByteSize(this.exactModelSizeOption.isSet());
 		
 		// get evaluator
         ALClassificationPerformanceEvaluator evaluator = (ALClassificationPerformanceEvaluator) 
@@ -196,7 +200,7 @@ public class ALPrequentialEvaluationTask extends ALMainTask {
                 double timeIncrement = TimingUtils.nanoTimeToSeconds(
                 		evaluateTime - lastEvaluateStartTime);
                 double RAMHoursIncrement = 
-                		learner.measureByteSize() / (1024.0 * 1024.0 * 1024.0); //GBs
+                		learner.estimateByteSize() / (1024.0 * 1024.0 * 1024.0); //GBs
                 RAMHoursIncrement *= (timeIncrement / 3600.0); //Hours
                 RAMHours += RAMHoursIncrement;
                 lastEvaluateStartTime = evaluateTime;
@@ -0,0 +1,109 @@
+package com.yahoo.labs.samoa.instances;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Test that FastArffLoader reads the same instances as ArffLoader
+ */
+public class FastArffLoaderTest {
+
+	private static final String ARFF = "% comment before the header\n"
+			+ "@relation test\n"
+			+ "@attribute x numeric\n"
+			+ "@attribute 'y z' numeric\n"
+			+ "@attribute colour {red, 'light blue', green}\n"
+			+ "@attribute class {a, b}\n"
+			+ "\n"
+			+ "@DATA\r\n"
+			+ "1.5, -2e-3, red, a\r\n"
+			+ "% a comment line\n"
+			+ "\n"
+			+ "0.1,123456789.123456789,'light blue',b % trailing comment\n"
+			+ "?, 7, ?, a\n"
+			+ "1e30, .25, \"green\", b\n"
+			+ "-0, 3.0000000000000004, purple, a\n"
+			+ "{0 4.5, 2 green, 3 b}\n"
+			+ "{1 -1}\n"
+			+ "2, 0x10p0, 'light\\ blue', a";
+
+	private static double[][] read(ArffLoader loader) {
+		List<double[]> rows = new ArrayList<double[]>();
+		Instance inst;
+		while ((inst = loader.readInstance()) != null) {
+			double[] row = new double[inst.numAttributes()];
+			for (int i = 0; i < row.length; i++) {
+				row[i] = inst.value(i);
+			}
+			rows.add(row);
+		}
+		return rows.toArray(new double[rows.size()][]);
+	}
+
+	private static void assertSameInstances(double[][] expected, double[][] actual) {
+		assertEquals(expected.length, actual.length);
+		for (int i = 0; i < expected.length; i++) {
+			assertArrayEquals(expected[i], actual[i], 0.0);
+		}
+	}
+
+	@Test
+	public void testSameAsArffLoader() throws IOException {
+		ArffLoader expected = new ArffLoader(new StringReader(ARFF), 0, -1);
+		FastArffLoader actual = new FastArffLoader(new ByteArrayInputStream(ARFF.getBytes()), -1);
+		assertEquals(expected.getStructure().numAttributes(), actual.getStructure().numAttributes());
+		assertEquals(expected.getStructure().classIndex(), actual.getStructure().classIndex());
+		assertEquals("y z", actual.getStructure().attribute(1).name());
+		double[][] rows = read(actual);
+		assertSameInstances(read(expected), rows);
+		assertEquals(8, rows.length);
+		assertEquals(3, actual.getStructure().attribute(2).numValues() - 1);
+		actual.close();
+	}
+
+	@Test
+	public void testValues() throws IOException {
+		FastArffLoader loader = new FastArffLoader(new ByteArrayInputStream(ARFF.getBytes()), -1);
+		double[][] rows = read(loader);
+		assertEquals(8, rows.length);
+		assertTrue(Double.isNaN(rows[2][0]));
+		assertEquals(0.0, rows[5][1], 0.0);
+		assertEquals(-1.0, rows[6][1], 0.0);
+		assertEquals(16.0, rows[7][1], 0.0);
+		assertEquals(1.0, rows[7][2], 0.0);
+		loader.close();
+	}
+
+	@Test
+	public void testMappedFile() throws IOException {
+		File file = new File(ClassLoader.getSystemResource("moa/classifiers/data/regression.arff").getPath());
+		ArffLoader expected = new ArffLoader(new BufferedReader(new InputStreamReader(new FileInputStream(file))), 0, -1);
+		FastArffLoader actual = FastArffLoader.open(file, -1);
+		assertSameInstances(read(expected), read(actual));
+		assertEquals(1.0, actual.getProgressFraction(), 0.0);
+		actual.close();
+	}
+
+	@Test
+	public void testMultiTarget() throws IOException {
+		File file = new File(ClassLoader.getSystemResource("moa/classifiers/data/small_regression.arff").getPath());
+		ArffLoader expected = new MultiTargetArffLoader(new BufferedReader(new InputStreamReader(new FileInputStream(file))), new Range("4-6"));
+		FastArffLoader actual = FastArffLoader.open(file, new Range("4-6"));
+		assertEquals(3, actual.range.getStart());
+		assertEquals(5, actual.range.getEnd());
+		assertEquals(expected.getStructure().numOutputAttributes(), actual.getStructure().numOutputAttributes());
+		assertSameInstances(read(expected), read(actual));
+		actual.close();
+	}
+}
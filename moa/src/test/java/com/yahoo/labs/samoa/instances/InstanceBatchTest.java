@@ -0,0 +1,115 @@
+package com.yahoo.labs.samoa.instances;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the columnar storage and the row views of InstanceBatch
+ */
+public class InstanceBatchTest {
+	private static double EPS=0.00000001;
+	private InstancesHeader header;
+	private InstanceBatch batch;
+
+	@Before
+	public void setUp() {
+		List<Attribute> attributes = new ArrayList<Attribute>();
+		attributes.add(new Attribute("num1"));
+		attributes.add(new Attribute("num2"));
+		List<String> labels = new ArrayList<String>();
+		labels.add("a");
+		labels.add("b");
+		attributes.add(new Attribute("class", labels));
+		header = new InstancesHeader(new Instances("batch", attributes, 0));
+		header.setClassIndex(2);
+		batch = new InstanceBatch(header, 2);
+	}
+
+	@Test
+	public void testColumns() {
+		batch.add(1.0, new double[]{0.5, -1.0, 1});
+		batch.add(2.0, new double[]{1.5, Double.NaN, 0});
+		batch.add(3.0, new double[]{2.5, 3.0, 1});
+		assertEquals(3, batch.numInstances());
+		assertTrue(batch.capacity() >= 3);
+		assertEquals(2.5, batch.attributeColumn(0)[2], EPS);
+		assertEquals(2.0, batch.weightColumn()[1], EPS);
+		assertEquals(0, batch.classColumn()[1], EPS);
+		assertEquals(1, batch.classValue(2), EPS);
+	}
+
+	@Test
+	public void testViews() {
+		Instance inst = new DenseInstance(4.0, new double[]{7.0, 8.0, 1});
+		inst.setDataset(header);
+		batch.add(inst);
+		batch.add(1.0, new double[]{0.5, Double.NaN, 0});
+
+		Instance view = batch.instance(1);
+		assertEquals(3, view.numAttributes());
+		assertEquals(2, view.numClasses());
+		assertEquals(0, view.classValue(), EPS);
+		assertTrue(view.isMissing(1));
+		assertEquals(4.0, batch.instance(0).weight(), EPS);
+
+		view.setValue(0, 9.0);
+		view.setWeight(0.25);
+		assertEquals(9.0, batch.value(1, 0), EPS);
+		assertEquals(0.25, batch.weight(1), EPS);
+
+		Instance copy = view.copy();
+		batch.setValue(1, 0, -9.0);
+		assertEquals(9.0, copy.value(0), EPS);
+		assertEquals(0.25, copy.weight(), EPS);
+		assertEquals(-9.0, view.value(0), EPS);
+	}
+
+	@Test
+	public void testClearReusesViews() {
+		batch.add(1.0, new double[]{0.5, 1.0, 0});
+		Instance view = batch.instance(0);
+		batch.clear();
+		assertTrue(batch.isEmpty());
+		batch.add(2.0, new double[]{1.5, 2.0, 1});
+		assertSame(view, batch.instance(0));
+		assertEquals(1.5, view.value(0), EPS);
+		assertEquals(2.0, view.weight(), EPS);
+	}
+
+	@Test
+	public void testSparseInstance() {
+		Instance inst = new SparseInstance(1.0, new double[]{3.0, 1}, new int[]{1, 2}, 3);
+		inst.setDataset(header);
+		batch.add(1.0, new double[]{5.0, 5.0, 0});
+		batch.clear();
+		batch.add(inst);
+		assertEquals(0.0, batch.value(0, 0), EPS);
+		assertEquals(3.0, batch.value(0, 1), EPS);
+		assertEquals(1, batch.classValue(0), EPS);
+		assertEquals(0.0, batch.instance(0).value(0), EPS);
+		assertEquals(3.0, batch.instance(0).value(1), EPS);
+	}
+
+	@Test
+	public void testInstancesAddedAreCopied() {
+		Instance inst = new DenseInstance(1.0, new double[]{7.0, 8.0, 1});
+		inst.setDataset(header);
+		batch.add(inst);
+		Instance view = batch.instance(0);
+		assertNotSame(inst, view);
+		assertEquals(7.0, view.value(0), EPS);
+
+		// the view writes the columns, and not the instance added
+		view.setValue(0, 6.0);
+		view.setWeight(0.5);
+		assertEquals(6.0, batch.value(0, 0), EPS);
+		assertEquals(0.5, batch.weight(0), EPS);
+		assertEquals(7.0, inst.value(0), EPS);
+		assertEquals(1.0, inst.weight(), EPS);
+	}
+}
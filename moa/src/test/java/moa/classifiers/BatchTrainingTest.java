@@ -0,0 +1,218 @@
+package moa.classifiers;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import moa.classifiers.bayes.NaiveBayes;
+import moa.classifiers.functions.Perceptron;
+import moa.classifiers.functions.SGD;
+import moa.classifiers.multilabel.MultilabelHoeffdingTree;
+import moa.classifiers.trees.HoeffdingTree;
+import moa.streams.ExampleStream;
+import moa.streams.MultiTargetArffFileStream;
+import moa.streams.generators.RandomRBFGenerator;
+import moa.streams.generators.RandomTreeGenerator;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstanceBatch;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+import com.yahoo.labs.samoa.instances.SparseInstance;
+
+/**
+ * Test that training and predicting on mini-batches gives the same models and
+ * votes as training and predicting one instance at a time, with sparse rows,
+ * missing values, missing classes and zero weights in the batches
+ */
+public class BatchTrainingTest {
+
+	private static final int NUM_INSTANCES = 3000;
+
+	private static final int BATCH_SIZE = 17;
+
+	/**
+	 * Reads instances from a stream, making some of them sparse, giving some
+	 * missing values or a missing class, and a zero weight to others.
+	 */
+	private static List<Instance> instances(ExampleStream stream, boolean missingClasses) {
+		Random random = new Random(7);
+		List<Instance> instances = new ArrayList<Instance>();
+		for (int i = 0; i < NUM_INSTANCES; i++) {
+			Instance inst = (Instance) stream.nextInstance().getData();
+			if (i % 5 == 0) {
+				inst = sparse(inst);
+			}
+			if (i % 7 == 0) {
+				int att = random.nextInt(inst.numAttributes());
+				if (att != inst.classIndex()) {
+					inst.setMissing(att);
+				}
+			}
+			if (missingClasses && i % 11 == 0) {
+				inst.setMissing(inst.classIndex());
+			}
+			if (i % 13 == 0) {
+				inst.setWeight(0.0);
+			} else if (i % 3 == 0) {
+				inst.setWeight(0.5 + random.nextDouble());
+			}
+			instances.add(inst);
+		}
+		return instances;
+	}
+
+	private static Instance sparse(Instance dense) {
+		int numValues = 0;
+		for (int i = 0; i < dense.numAttributes(); i++) {
+			if (dense.value(i) != 0.0) {
+				numValues++;
+			}
+		}
+		int[] indices = new int[numValues];
+		double[] values = new double[numValues];
+		for (int i = 0, j = 0; i < dense.numAttributes(); i++) {
+			if (dense.value(i) != 0.0) {
+				indices[j] = i;
+				values[j++] = dense.value(i);
+			}
+		}
+		Instance inst = new SparseInstance(dense.weight(), values, indices, dense.numAttributes());
+		inst.setDataset(dense.dataset());
+		return inst;
+	}
+
+	/**
+	 * Tests and trains one classifier on batches and a copy of it one
+	 * instance at a time, comparing their votes before each batch and their
+	 * models at the end.
+	 */
+	private static void assertSameAsSequential(Classifier classifier, InstancesHeader header,
+			List<Instance> instances) {
+		Classifier batchLearner = classifier.copy();
+		Classifier sequentialLearner = classifier.copy();
+		batchLearner.setModelContext(header);
+		batchLearner.prepareForUse();
+		sequentialLearner.setModelContext(header);
+		sequentialLearner.prepareForUse();
+
+		InstanceBatch batch = new InstanceBatch(header, BATCH_SIZE);
+		for (int start = 0; start < instances.size(); start += BATCH_SIZE) {
+			int end = Math.min(start + BATCH_SIZE, instances.size());
+			batch.clear();
+			for (int i = start; i < end; i++) {
+				batch.add(instances.get(i));
+			}
+
+			double[][] batchVotes = batchLearner.getVotesForInstances(batch);
+			assertEquals(end - start, batchVotes.length);
+			for (int i = start; i < end; i++) {
+				double[] votes = sequentialLearner.getVotesForInstance(instances.get(i));
+				assertArrayEquals("votes of instance " + i, votes, batchVotes[i - start], 1e-12);
+			}
+
+			batchLearner.trainOnInstances(batch);
+			for (int i = start; i < end; i++) {
+				sequentialLearner.trainOnInstance(instances.get(i));
+			}
+			assertEquals(sequentialLearner.trainingWeightSeenByModel(),
+					batchLearner.trainingWeightSeenByModel(), 1e-9);
+		}
+
+		StringBuilder expected = new StringBuilder();
+		((AbstractClassifier) sequentialLearner).getModelDescription(expected, 0);
+		StringBuilder actual = new StringBuilder();
+		((AbstractClassifier) batchLearner).getModelDescription(actual, 0);
+		assertEquals(expected.toString(), actual.toString());
+	}
+
+	private static void assertSameAsSequential(Classifier classifier, ExampleStream stream) {
+		assertSameAsSequential(classifier, stream.getHeader(), instances(stream, true));
+	}
+
+	private static RandomTreeGenerator randomTree() {
+		RandomTreeGenerator stream = new RandomTreeGenerator();
+		stream.prepareForUse();
+		return stream;
+	}
+
+	private static RandomRBFGenerator binaryRBF() {
+		RandomRBFGenerator stream = new RandomRBFGenerator();
+		stream.numClassesOption.setValue(2);
+		stream.prepareForUse();
+		return stream;
+	}
+
+	@Test
+	public void testNaiveBayes() {
+		assertSameAsSequential(new NaiveBayes(), randomTree());
+	}
+
+	@Test
+	public void testPerceptron() {
+		assertSameAsSequential(new Perceptron(), binaryRBF());
+	}
+
+	@Test
+	public void testSGD() {
+		assertSameAsSequential(new SGD(), binaryRBF());
+	}
+
+	@Test
+	public void testHoeffdingTree() {
+		HoeffdingTree tree = new HoeffdingTree();
+		tree.gracePeriodOption.setValue(50);
+		assertSameAsSequential(tree, randomTree());
+	}
+
+	@Test
+	public void testMultilabelHoeffdingTree() throws IOException {
+		// three binary labels, the first one sometimes missing
+		File file = File.createTempFile("moa", ".arff");
+		file.deleteOnExit();
+		Random random = new Random(3);
+		PrintWriter writer = new PrintWriter(new FileWriter(file));
+		writer.println("@relation multilabel");
+		for (int i = 0; i < 4; i++) {
+			writer.println("@attribute x" + i + " numeric");
+		}
+		for (int i = 0; i < 3; i++) {
+			writer.println("@attribute y" + i + " {0,1}");
+		}
+		writer.println("@data");
+		for (int i = 0; i < NUM_INSTANCES; i++) {
+			double[] x = new double[4];
+			StringBuilder line = new StringBuilder();
+			for (int j = 0; j < x.length; j++) {
+				x[j] = random.nextGaussian();
+				line.append(x[j]).append(',');
+			}
+			line.append(i % 11 == 0 ? "?" : x[0] > 0 ? "1" : "0").append(',');
+			line.append(x[1] + x[2] > 0 ? "1" : "0").append(',');
+			line.append(random.nextInt(2));
+			writer.println(line);
+		}
+		writer.close();
+
+		MultiTargetArffFileStream stream = new MultiTargetArffFileStream(file.getPath(), "5-7");
+		stream.prepareForUse();
+		List<Instance> instances = new ArrayList<Instance>();
+		while (stream.hasMoreInstances()) {
+			Instance inst = (Instance) stream.nextInstance().getData();
+			if (instances.size() % 13 == 0) {
+				inst.setWeight(0.0);
+			}
+			instances.add(inst);
+		}
+		MultilabelHoeffdingTree tree = new MultilabelHoeffdingTree();
+		tree.gracePeriodOption.setValue(50);
+		assertSameAsSequential(tree, stream.getHeader(), instances);
+	}
+}
@@ -0,0 +1,172 @@
+package moa.classifiers;
+
+import static org.junit.Assert.*;
+
+import moa.core.Measurement;
+import moa.streams.generators.RandomRBFGenerator;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Instance;
+
+/**
+ * Test that model size estimates measure models on a bounded schedule,
+ * include the parts of ensembles outside their members, and are exact when
+ * requested
+ */
+public class EstimateByteSizeTest {
+
+	/** A model whose size grows with its training weight */
+	private static class MeasuredModel extends AbstractClassifier {
+
+		private static final long serialVersionUID = 1L;
+
+		int numMeasures = 0;
+
+		@Override
+		public int measureByteSize() {
+			this.numMeasures++;
+			return 1000 + (int) this.trainingWeightSeenByModel;
+		}
+
+		@Override
+		public double[] getVotesForInstance(Instance inst) {
+			return new double[0];
+		}
+
+		@Override
+		public void resetLearningImpl() {
+		}
+
+		@Override
+		public void trainOnInstanceImpl(Instance inst) {
+		}
+
+		@Override
+		protected Measurement[] getModelMeasurementsImpl() {
+			return null;
+		}
+
+		@Override
+		public void getModelDescription(StringBuilder out, int indent) {
+		}
+
+		@Override
+		public boolean isRandomizable() {
+			return false;
+		}
+	}
+
+	/** An ensemble holding a drift detector of a growing size besides its members */
+	private static class MeasuredEnsemble extends MeasuredModel {
+
+		private static final long serialVersionUID = 1L;
+
+		MeasuredModel[] members = {new MeasuredModel(), new MeasuredModel()};
+
+		@Override
+		public int measureByteSize() {
+			this.numMeasures++;
+			int byteSize = 500 + (int) this.trainingWeightSeenByModel;
+			for (MeasuredModel member : this.members) {
+				byteSize += member.measureByteSize();
+			}
+			return byteSize;
+		}
+
+		@Override
+		public void trainOnInstanceImpl(Instance inst) {
+			for (MeasuredModel member : this.members) {
+				member.trainOnInstance(inst);
+			}
+		}
+
+		@Override
+		public Classifier[] getSubClassifiers() {
+			return this.members;
+		}
+	}
+
+	private static Instance[] instances(int numInstances) {
+		RandomRBFGenerator stream = new RandomRBFGenerator();
+		stream.prepareForUse();
+		Instance[] instances = new Instance[numInstances];
+		for (int i = 0; i < numInstances; i++) {
+			instances[i] = stream.nextInstance().getData();
+		}
+		return instances;
+	}
+
+	@Test
+	public void testMeasureSchedule() {
+		MeasuredModel model = new MeasuredModel();
+		model.prepareForUse();
+		int lastMeasure = 0;
+		for (Instance inst : instances(300000)) {
+			model.trainOnInstance(inst);
+			int estimate = model.estimateByteSize();
+			if (model.numMeasures > lastMeasure) {
+				lastMeasure = model.numMeasures;
+				assertEquals(1000 + model.trainingWeightSeenByModel(), estimate, 0.0);
+			}
+			// never older than the doubling of the weight or the interval
+			double actual = 1000 + model.trainingWeightSeenByModel();
+			assertTrue(actual - estimate <= Math.min(estimate - 1000,
+					AbstractClassifier.MAX_BYTE_SIZE_MEASURE_INTERVAL));
+		}
+		// 17 doublings up to the interval, then one measure per interval
+		assertTrue(model.numMeasures <= 20);
+		model.resetLearning();
+		assertEquals(1000, model.estimateByteSize());
+	}
+
+	@Test
+	public void testUntrainedModel() {
+		MeasuredModel model = new MeasuredModel();
+		model.prepareForUse();
+		for (int i = 0; i < 10; i++) {
+			assertEquals(1000, model.estimateByteSize());
+		}
+		assertEquals(1, model.numMeasures);
+		model.trainOnInstance(instances(1)[0]);
+		assertEquals(1001, model.estimateByteSize());
+		assertEquals(2, model.numMeasures);
+	}
+
+	@Test
+	public void testEnsemble() {
+		MeasuredEnsemble ensemble = new MeasuredEnsemble();
+		ensemble.prepareForUse();
+		for (MeasuredModel member : ensemble.members) {
+			member.prepareForUse();
+		}
+		for (Instance inst : instances(1000)) {
+			ensemble.trainOnInstance(inst);
+		}
+		// the members and the detector of the ensemble
+		assertEquals(500 + 1000 + 2 * (1000 + 1000), ensemble.estimateByteSize());
+	}
+
+	@Test
+	public void testExactSize() {
+		MeasuredEnsemble ensemble = new MeasuredEnsemble();
+		ensemble.prepareForUse();
+		for (MeasuredModel member : ensemble.members) {
+			member.prepareForUse();
+		}
+		ensemble.setExactByteSize(true);
+		Instance[] instances = instances(100);
+		for (Instance inst : instances) {
+			ensemble.trainOnInstance(inst);
+			assertEquals(ensemble.measureByteSize(), ensemble.estimateByteSize());
+		}
+		Measurement[] measurements = ensemble.getModelMeasurements();
+		assertEquals(ensemble.measureByteSize(), Measurement.getMeasurementNamed(
+				"model serialized size (bytes)", measurements).getValue(), 0.0);
+		for (MeasuredModel member : ensemble.members) {
+			int numMeasures = member.numMeasures;
+			member.estimateByteSize();
+			assertEquals(numMeasures + 1, member.numMeasures);
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package moa.classifiers.core;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import moa.classifiers.core.attributeclassobservers.AttributeClassObserver;
+import moa.classifiers.core.attributeclassobservers.GaussianNumericAttributeClassObserver;
+import moa.classifiers.core.attributeclassobservers.NominalAttributeClassObserver;
+import moa.classifiers.core.splitcriteria.InfoGainSplitCriterion;
+import moa.core.AutoExpandVector;
+
+import org.junit.Test;
+
+/**
+ * Test that evaluating the attributes in parallel gives the suggestions of a
+ * sequential evaluation, in the same order
+ */
+public class ParallelSplitEvaluationTest {
+
+	@Test
+	public void testSameSuggestions() {
+		Random random = new Random(1);
+		AutoExpandVector<AttributeClassObserver> observers = new AutoExpandVector<AttributeClassObserver>();
+		double[] classDist = new double[3];
+		for (int a = 0; a < 50; a++) {
+			if (a % 7 != 3) {
+				observers.set(a, a % 2 == 0 ? new GaussianNumericAttributeClassObserver()
+						: new NominalAttributeClassObserver());
+			}
+		}
+		for (int t = 0; t < 500; t++) {
+			int classVal = random.nextInt(classDist.length);
+			classDist[classVal]++;
+			for (int a = 0; a < observers.size(); a++) {
+				AttributeClassObserver obs = observers.get(a);
+				if (obs != null) {
+					double value = a % 2 == 0 ? random.nextGaussian() + classVal * (a % 5)
+							: (random.nextInt(4) + classVal * (a % 3)) % 4;
+					obs.observeAttributeClass(value, classVal, 1.0);
+				}
+			}
+		}
+		InfoGainSplitCriterion criterion = new InfoGainSplitCriterion();
+		AttributeSplitSuggestion[] sequential = ParallelSplitEvaluation.getBestSplitSuggestions(
+				observers, criterion, classDist, false, false);
+		AttributeSplitSuggestion[] parallel = ParallelSplitEvaluation.getBestSplitSuggestions(
+				observers, criterion, classDist, false, true);
+		assertEquals(observers.size(), parallel.length);
+		for (int a = 0; a < observers.size(); a++) {
+			if (observers.get(a) == null) {
+				assertNull(parallel[a]);
+			} else {
+				assertEquals(sequential[a].merit, parallel[a].merit, 0.0);
+				assertArrayEquals(sequential[a].splitTest.getAttsTestDependsOn(),
+						parallel[a].splitTest.getAttsTestDependsOn());
+				assertEquals(a, parallel[a].splitTest.getAttsTestDependsOn()[0]);
+			}
+		}
+	}
+}
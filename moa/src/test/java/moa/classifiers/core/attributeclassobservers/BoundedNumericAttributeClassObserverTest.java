@@ -0,0 +1,117 @@
+package moa.classifiers.core.attributeclassobservers;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import com.yahoo.labs.samoa.instances.Instance;
+
+import moa.classifiers.core.AttributeSplitSuggestion;
+import moa.classifiers.core.conditionaltests.NumericAttributeBinaryTest;
+import moa.classifiers.core.splitcriteria.GiniSplitCriterion;
+import moa.classifiers.core.splitcriteria.InfoGainSplitCriterion;
+import moa.classifiers.core.splitcriteria.SplitCriterion;
+import moa.classifiers.trees.HoeffdingTree;
+import moa.core.Utils;
+import moa.streams.generators.RandomRBFGenerator;
+
+import org.junit.Test;
+
+/**
+ * Test that the bounded observer finds the split of the binary tree observer
+ * until it is full, and stays bounded on sorted values
+ */
+public class BoundedNumericAttributeClassObserverTest {
+
+	@Test
+	public void testSameSplitAsBinaryTree() {
+		Random random = new Random(1);
+		SplitCriterion[] criteria = {new InfoGainSplitCriterion(), new GiniSplitCriterion()};
+		BinaryTreeNumericAttributeClassObserver expected = new BinaryTreeNumericAttributeClassObserver();
+		BoundedNumericAttributeClassObserver actual = new BoundedNumericAttributeClassObserver();
+		double[] preSplitDist = new double[3];
+		for (int t = 0; t < 500; t++) {
+			int classVal = random.nextInt(preSplitDist.length);
+			double value = random.nextInt(200) + 20 * classVal;
+			expected.observeAttributeClass(value, classVal, 1.0);
+			actual.observeAttributeClass(value, classVal, 1.0);
+			preSplitDist[classVal]++;
+			if (t % 50 == 49) {
+				for (SplitCriterion criterion : criteria) {
+					AttributeSplitSuggestion e = expected.getBestEvaluatedSplitSuggestion(criterion, preSplitDist, 0, true);
+					AttributeSplitSuggestion a = actual.getBestEvaluatedSplitSuggestion(criterion, preSplitDist, 0, true);
+					assertEquals(e.merit, a.merit, 1e-12);
+					assertEquals(((NumericAttributeBinaryTest) e.splitTest).getSplitValue(),
+							((NumericAttributeBinaryTest) a.splitTest).getSplitValue(), 0.0);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testSortedValues() {
+		BoundedNumericAttributeClassObserver obs = new BoundedNumericAttributeClassObserver();
+		obs.maxNodesOption.setValue(20);
+		double[] preSplitDist = new double[2];
+		for (int t = 0; t < 10000; t++) {
+			int classVal = t < 6000 ? 0 : 1;
+			obs.observeAttributeClass(t, classVal, 1.0);
+			preSplitDist[classVal]++;
+		}
+		assertTrue(obs.tree.size() <= 20);
+		AttributeSplitSuggestion best = obs.getBestEvaluatedSplitSuggestion(new InfoGainSplitCriterion(), preSplitDist, 0, true);
+		assertEquals(5999.0, ((NumericAttributeBinaryTest) best.splitTest).getSplitValue(), 1000.0);
+		assertArrayEquals(preSplitDist, new double[]{best.resultingClassDistributionFromSplit(0)[0]
+				+ best.resultingClassDistributionFromSplit(1)[0], best.resultingClassDistributionFromSplit(0)[1]
+				+ best.resultingClassDistributionFromSplit(1)[1]}, 0.0);
+	}
+
+	@Test
+	public void testDensity() {
+		Random random = new Random(2);
+		BoundedNumericAttributeClassObserver obs = new BoundedNumericAttributeClassObserver();
+		obs.maxNodesOption.setValue(50);
+		for (int t = 0; t < 5000; t++) {
+			int classVal = random.nextInt(2);
+			obs.observeAttributeClass(random.nextGaussian() + 4 * classVal, classVal, 1.0);
+		}
+		assertEquals(0.0, obs.probabilityOfAttributeValueGivenClass(0.0, 2), 0.0);
+		for (int classVal = 0; classVal < 2; classVal++) {
+			// the density integrates to about one
+			double integral = 0.0;
+			for (double x = -10.0; x < 15.0; x += 0.01) {
+				double density = obs.probabilityOfAttributeValueGivenClass(x, classVal);
+				assertTrue(density > 0.0);
+				integral += 0.01 * density;
+			}
+			assertEquals(1.0, integral, 0.05);
+		}
+		assertTrue(obs.probabilityOfAttributeValueGivenClass(0.0, 0) > 10 * obs.probabilityOfAttributeValueGivenClass(0.0, 1));
+		assertTrue(obs.probabilityOfAttributeValueGivenClass(4.0, 1) > 10 * obs.probabilityOfAttributeValueGivenClass(4.0, 0));
+		obs.prepareForUse();
+		assertEquals(0.0, obs.probabilityOfAttributeValueGivenClass(0.0, 0), 0.0);
+	}
+
+	@Test
+	public void testNaiveBayesLeaves() {
+		HoeffdingTree tree = new HoeffdingTree();
+		tree.numericEstimatorOption.setValueViaCLIString("BoundedNumericAttributeClassObserver");
+		tree.leafpredictionOption.setChosenLabel("NB");
+		RandomRBFGenerator stream = new RandomRBFGenerator();
+		stream.prepareForUse();
+		tree.setModelContext(stream.getHeader());
+		tree.prepareForUse();
+		for (int t = 0; t < 2000; t++) {
+			tree.trainOnInstance(stream.nextInstance().getData());
+		}
+		int correct = 0;
+		for (int t = 0; t < 1000; t++) {
+			Instance inst = stream.nextInstance().getData();
+			if (Utils.maxIndex(tree.getVotesForInstance(inst)) == (int) inst.classValue()) {
+				correct++;
+			}
+		}
+		// a leaf with no density predicts the majority class, about half right
+		assertTrue(correct > 600);
+	}
+}
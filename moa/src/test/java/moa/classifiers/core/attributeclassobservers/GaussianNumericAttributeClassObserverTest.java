@@ -0,0 +1,82 @@
+package moa.classifiers.core.attributeclassobservers;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import moa.classifiers.core.AttributeSplitSuggestion;
+import moa.classifiers.core.conditionaltests.NumericAttributeBinaryTest;
+import moa.classifiers.core.splitcriteria.GiniSplitCriterion;
+import moa.classifiers.core.splitcriteria.InfoGainSplitCriterion;
+import moa.classifiers.core.splitcriteria.InfoGainSplitCriterionMultilabel;
+import moa.classifiers.core.splitcriteria.SplitCriterion;
+
+import org.junit.Test;
+
+/**
+ * Test that the best split of the Gaussian observer is the one found by
+ * evaluating every split point suggestion with the split criterion
+ */
+public class GaussianNumericAttributeClassObserverTest {
+
+	private static AttributeSplitSuggestion getExpectedSplit(GaussianNumericAttributeClassObserver obs,
+			SplitCriterion criterion, double[] preSplitDist) {
+		AttributeSplitSuggestion bestSuggestion = null;
+		for (double splitValue : obs.getSplitPointSuggestions()) {
+			double[][] postSplitDists = obs.getClassDistsResultingFromBinarySplit(splitValue);
+			double merit = criterion.getMeritOfSplit(preSplitDist, postSplitDists);
+			if ((bestSuggestion == null) || (merit > bestSuggestion.merit)) {
+				bestSuggestion = new AttributeSplitSuggestion(
+						new NumericAttributeBinaryTest(0, splitValue, true), postSplitDists, merit);
+			}
+		}
+		return bestSuggestion;
+	}
+
+	private static void assertSameSplit(GaussianNumericAttributeClassObserver obs,
+			SplitCriterion criterion, double[] preSplitDist) {
+		AttributeSplitSuggestion e = getExpectedSplit(obs, criterion, preSplitDist);
+		AttributeSplitSuggestion a = obs.getBestEvaluatedSplitSuggestion(criterion, preSplitDist, 0, false);
+		if (e == null) {
+			assertNull(a);
+			return;
+		}
+		assertEquals(Double.doubleToLongBits(e.merit), Double.doubleToLongBits(a.merit));
+		assertEquals(((NumericAttributeBinaryTest) e.splitTest).getSplitValue(),
+				((NumericAttributeBinaryTest) a.splitTest).getSplitValue(), 0.0);
+		assertEquals(e.numSplits(), a.numSplits());
+		for (int i = 0; i < e.numSplits(); i++) {
+			assertArrayEquals(e.resultingClassDistributionFromSplit(i),
+					a.resultingClassDistributionFromSplit(i), 0.0);
+		}
+	}
+
+	@Test
+	public void testSameSplits() {
+		Random random = new Random(1);
+		SplitCriterion[] criteria = {new InfoGainSplitCriterion(),
+				new GiniSplitCriterion(), new InfoGainSplitCriterionMultilabel()};
+		for (int run = 0; run < 20; run++) {
+			GaussianNumericAttributeClassObserver obs = new GaussianNumericAttributeClassObserver();
+			int numClasses = 2 + random.nextInt(5);
+			double[] preSplitDist = new double[numClasses];
+			assertNull(obs.getBestEvaluatedSplitSuggestion(criteria[0], preSplitDist, 0, false));
+			for (int t = 0; t < 300; t++) {
+				// some classes are never observed, and some have a single value
+				int classVal = random.nextInt(numClasses);
+				if (classVal % 3 == 2) {
+					continue;
+				}
+				double value = classVal == 1 ? 0.5 : random.nextGaussian() + classVal * (run % 4);
+				double weight = 1 + random.nextInt(3);
+				obs.observeAttributeClass(value, classVal, weight);
+				preSplitDist[classVal] += weight;
+				if (t % 10 == 0) {
+					for (SplitCriterion criterion : criteria) {
+						assertSameSplit(obs, criterion, preSplitDist);
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,125 @@
+package moa.classifiers.core.attributeclassobservers;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Random;
+
+import moa.classifiers.core.AttributeSplitSuggestion;
+import moa.classifiers.core.splitcriteria.InfoGainSplitCriterion;
+import moa.classifiers.core.splitcriteria.SplitCriterion;
+
+import org.junit.Test;
+
+/**
+ * Test that the packed observers give the same statistics and splits as the
+ * Gaussian and nominal observers
+ */
+public class PackedAttributeClassObserversTest {
+
+	private static final int NUM_CLASSES = 3;
+
+	private static byte[] serialize(Serializable obj) {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			ObjectOutputStream out = new ObjectOutputStream(bytes);
+			out.writeObject(obj);
+			out.close();
+			return bytes.toByteArray();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static void assertSameSplit(AttributeClassObserver expected,
+			AttributeClassObserver actual, boolean binaryOnly) {
+		SplitCriterion criterion = new InfoGainSplitCriterion();
+		double[] preSplitDist = {10.0, 20.0, 5.0, 1.0};
+		AttributeSplitSuggestion e = expected.getBestEvaluatedSplitSuggestion(criterion, preSplitDist, 2, binaryOnly);
+		AttributeSplitSuggestion a = actual.getBestEvaluatedSplitSuggestion(criterion, preSplitDist, 2, binaryOnly);
+		if (e == null) {
+			assertNull(a);
+			return;
+		}
+		assertEquals(e.merit, a.merit, 0.0);
+		assertArrayEquals(serialize(e.splitTest), serialize(a.splitTest));
+		assertEquals(e.numSplits(), a.numSplits());
+		for (int i = 0; i < e.numSplits(); i++) {
+			assertArrayEquals(e.resultingClassDistributionFromSplit(i),
+					a.resultingClassDistributionFromSplit(i), 0.0);
+		}
+	}
+
+	@Test
+	public void testNumeric() {
+		Random random = new Random(1);
+		PackedAttributeClassObservers packed = new PackedAttributeClassObservers(NUM_CLASSES, 10);
+		AttributeClassObserver[] expected = new AttributeClassObserver[4];
+		AttributeClassObserver[] actual = new AttributeClassObserver[4];
+		for (int a = 0; a < expected.length; a++) {
+			expected[a] = new GaussianNumericAttributeClassObserver();
+			actual[a] = packed.newNumericClassObserver();
+		}
+		for (int t = 0; t < 2000; t++) {
+			for (int a = 0; a < expected.length; a++) {
+				// classes beyond the number of classes given to the packed observers
+				int classVal = t < 1000 ? random.nextInt(NUM_CLASSES) : random.nextInt(NUM_CLASSES + 2);
+				double value = random.nextDouble() < 0.05 ? Double.NaN : random.nextGaussian() * (a + 1) + classVal;
+				double weight = 1 + random.nextInt(3);
+				expected[a].observeAttributeClass(value, classVal, weight);
+				actual[a].observeAttributeClass(value, classVal, weight);
+			}
+			if (t % 100 == 0) {
+				for (int a = 0; a < expected.length; a++) {
+					for (int c = 0; c < NUM_CLASSES + 3; c++) {
+						double value = random.nextGaussian();
+						assertEquals(expected[a].probabilityOfAttributeValueGivenClass(value, c),
+								actual[a].probabilityOfAttributeValueGivenClass(value, c), 0.0);
+					}
+					assertSameSplit(expected[a], actual[a], false);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testNominal() {
+		Random random = new Random(2);
+		PackedAttributeClassObservers packed = new PackedAttributeClassObservers(NUM_CLASSES, 10);
+		AttributeClassObserver[] expected = new AttributeClassObserver[4];
+		AttributeClassObserver[] actual = new AttributeClassObserver[4];
+		for (int a = 0; a < expected.length; a++) {
+			expected[a] = new NominalAttributeClassObserver();
+			actual[a] = packed.newNominalClassObserver(a + 2);
+		}
+		for (int t = 0; t < 2000; t++) {
+			for (int a = 0; a < expected.length; a++) {
+				// values and classes beyond the ones given to the packed observers
+				int classVal = t < 1000 ? random.nextInt(NUM_CLASSES) : random.nextInt(NUM_CLASSES + 2);
+				double value = random.nextDouble() < 0.05 ? Double.NaN
+						: random.nextInt(t < 500 ? a + 2 : a + 4);
+				double weight = 1 + random.nextInt(3);
+				expected[a].observeAttributeClass(value, classVal, weight);
+				actual[a].observeAttributeClass(value, classVal, weight);
+			}
+			if (t % 100 == 0) {
+				for (int a = 0; a < expected.length; a++) {
+					for (int c = 0; c < NUM_CLASSES + 3; c++) {
+						double value = random.nextInt(a + 5);
+						assertEquals(expected[a].probabilityOfAttributeValueGivenClass(value, c),
+								actual[a].probabilityOfAttributeValueGivenClass(value, c), 0.0);
+					}
+					assertEquals(((NominalAttributeClassObserver) expected[a]).totalWeightOfClassObservations(),
+							((PackedAttributeClassObservers.NominalObserver) actual[a]).totalWeightOfClassObservations(), 0.0);
+					assertEquals(((NominalAttributeClassObserver) expected[a]).weightOfObservedMissingValues(),
+							((PackedAttributeClassObservers.NominalObserver) actual[a]).weightOfObservedMissingValues(), 0.0);
+					assertSameSplit(expected[a], actual[a], false);
+					assertSameSplit(expected[a], actual[a], true);
+				}
+			}
+		}
+	}
+}
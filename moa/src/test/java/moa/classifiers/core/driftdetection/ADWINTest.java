@@ -0,0 +1,51 @@
+package moa.classifiers.core.driftdetection;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test that ADWIN keeps the statistics of its window and shrinks it after an
+ * abrupt change
+ */
+public class ADWINTest {
+
+	private static final int CHANGE_POINT = 10000;
+
+	@Test
+	public void testAbruptChange() {
+		Random random = new Random(1);
+		ADWIN adwin = new ADWIN();
+		double[] inputs = new double[2 * CHANGE_POINT];
+		int firstDetection = -1;
+		for (int t = 0; t < inputs.length; t++) {
+			inputs[t] = random.nextDouble() < (t < CHANGE_POINT ? 0.2 : 0.8) ? 1 : 0;
+			if (adwin.setInput(inputs[t]) && t >= CHANGE_POINT && firstDetection < 0) {
+				firstDetection = t;
+			}
+			double total = 0;
+			for (int i = t - adwin.getWidth() + 1; i <= t; i++) {
+				total += inputs[i];
+			}
+			assertEquals(total, adwin.getTotal(), 1e-6);
+		}
+		assertTrue(firstDetection >= CHANGE_POINT);
+		assertTrue(firstDetection < CHANGE_POINT + 500);
+		assertTrue(adwin.getWidth() < inputs.length - CHANGE_POINT + 500);
+		assertEquals(0.8, adwin.getEstimation(), 0.05);
+	}
+
+	@Test
+	public void testStationaryStream() {
+		Random random = new Random(2);
+		ADWIN adwin = new ADWIN(1e-5);
+		for (int t = 0; t < 50000; t++) {
+			adwin.setInput(random.nextDouble() < 0.3 ? 1 : 0);
+		}
+		assertEquals(0, adwin.getNumberDetections());
+		assertEquals(50000, adwin.getWidth());
+		assertEquals(0.3, adwin.getEstimation(), 0.01);
+	}
+}
@@ -0,0 +1,70 @@
+package moa.classifiers.core.splitcriteria;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import moa.core.Utils;
+
+import org.junit.Test;
+
+/**
+ * Test that the information gain is the one computed from its definition,
+ * for integer and fractional weights and different numbers of classes
+ */
+public class InfoGainSplitCriterionTest {
+
+	private static double entropy(double[] dist) {
+		double entropy = 0.0;
+		double sum = 0.0;
+		for (double d : dist) {
+			if (d > 0.0) {
+				entropy -= d * Utils.log2(d);
+				sum += d;
+			}
+		}
+		return sum > 0.0 ? (entropy + sum * Utils.log2(sum)) / sum : 0.0;
+	}
+
+	private static double merit(double[] preSplitDist, double[][] postSplitDists, double minFrac) {
+		if (InfoGainSplitCriterion.numSubsetsGreaterThanFrac(postSplitDists, minFrac) < 2) {
+			return Double.NEGATIVE_INFINITY;
+		}
+		double totalWeight = 0.0;
+		double[] distWeights = new double[postSplitDists.length];
+		for (int i = 0; i < postSplitDists.length; i++) {
+			distWeights[i] = Utils.sum(postSplitDists[i]);
+			totalWeight += distWeights[i];
+		}
+		double entropy = 0.0;
+		for (int i = 0; i < postSplitDists.length; i++) {
+			entropy += distWeights[i] * entropy(postSplitDists[i]);
+		}
+		return entropy(preSplitDist) - entropy / totalWeight;
+	}
+
+	@Test
+	public void testMerit() {
+		Random random = new Random(1);
+		InfoGainSplitCriterion criterion = new InfoGainSplitCriterion();
+		for (int numClasses : new int[]{2, 10, 100, 500}) {
+			for (int run = 0; run < 200; run++) {
+				int numBranches = 2 + random.nextInt(3);
+				double[][] postSplitDists = new double[numBranches][numClasses];
+				double[] preSplitDist = new double[numClasses];
+				for (int b = 0; b < numBranches; b++) {
+					for (int c = 0; c < numClasses; c++) {
+						double scale = run % 3 == 0 ? 10.0 : 10000.0;
+						double weight = random.nextInt(4) == 0 ? 0.0 : random.nextInt((int) scale);
+						postSplitDists[b][c] = run % 2 == 0 ? weight : weight * random.nextDouble();
+						preSplitDist[c] += postSplitDists[b][c];
+					}
+				}
+				double expected = merit(preSplitDist, postSplitDists, 0.01);
+				assertEquals(Double.doubleToLongBits(expected),
+						Double.doubleToLongBits(criterion.getMeritOfSplit(preSplitDist, postSplitDists)));
+				assertEquals(entropy(preSplitDist), InfoGainSplitCriterion.computeEntropy(preSplitDist), 0.0);
+			}
+		}
+	}
+}
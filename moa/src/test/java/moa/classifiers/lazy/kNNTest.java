@@ -0,0 +1,49 @@
+package moa.classifiers.lazy;
+
+import static org.junit.Assert.*;
+
+import moa.classifiers.Classifier;
+import moa.streams.generators.RandomTreeGenerator;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Instance;
+
+/**
+ * Test that kNN keeping its KDTree across training steps votes as with the
+ * linear search. The attributes are all nominal, so that the distances do not
+ * depend on the ranges the tree was built with
+ */
+public class kNNTest {
+
+	private static final int NUM_INSTANCES = 3000;
+
+	@Test
+	public void testKDTree() {
+		checkSameVotes(new kNN(), new kNN(), "-k 5 -w 300");
+	}
+
+	@Test
+	public void testKDTreeWithEvictions() {
+		checkSameVotes(new kNNwithPAW(), new kNNwithPAW(), "-k 5 -w 300");
+	}
+
+	private static void checkSameVotes(Classifier linear, Classifier kdTree, String options) {
+		RandomTreeGenerator generator = new RandomTreeGenerator();
+		generator.numNumericsOption.setValue(0);
+		generator.numNominalsOption.setValue(8);
+		generator.prepareForUse();
+		linear.getOptions().setViaCLIString(options + " -n LinearNN");
+		kdTree.getOptions().setViaCLIString(options + " -n KDTree");
+		linear.setModelContext(generator.getHeader());
+		kdTree.setModelContext(generator.getHeader());
+		linear.prepareForUse();
+		kdTree.prepareForUse();
+		for (int i = 0; i < NUM_INSTANCES; i++) {
+			Instance inst = generator.nextInstance().getData();
+			assertArrayEquals(linear.getVotesForInstance(inst), kdTree.getVotesForInstance(inst), 0.0);
+			linear.trainOnInstance(inst);
+			kdTree.trainOnInstance(inst);
+		}
+	}
+}
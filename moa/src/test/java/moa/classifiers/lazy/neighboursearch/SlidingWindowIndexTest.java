@@ -0,0 +1,108 @@
+package moa.classifiers.lazy.neighboursearch;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import moa.streams.generators.RandomTreeGenerator;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.Instances;
+
+/**
+ * Test that SlidingWindowIndex finds the same neighbours as LinearNNSearch
+ * over the instances of the window, and keeps the ids of its instances
+ */
+public class SlidingWindowIndexTest {
+
+	private static final int WINDOW_SIZE = 200;
+
+	private static final int NUM_INSTANCES = 1000;
+
+	@Test
+	public void testSameNeighboursAsLinearSearch() throws Exception {
+		RandomTreeGenerator generator = new RandomTreeGenerator();
+		generator.prepareForUse();
+		Random random = new Random(1);
+		SlidingWindowIndex index = new SlidingWindowIndex(generator.getHeader());
+		Instances window = new Instances(generator.getHeader(), 0);
+		for (int i = 0; i < NUM_INSTANCES; i++) {
+			Instance inst = generator.nextInstance().getData();
+			if (random.nextDouble() < 0.05) {
+				inst.setMissing(random.nextInt(inst.numAttributes() - 1));
+			}
+			if (i > 0) {
+				int k = 1 + random.nextInt(10);
+				int[] neighbours = index.kNearestNeighbours(inst, Math.min(k, index.size()));
+				Instances expected = new LinearNNSearch(window).kNearestNeighbours(inst, Math.min(k, window.numInstances()));
+				assertEquals(expected.numInstances(), neighbours.length);
+				for (int j = 0; j < neighbours.length; j++) {
+					assertArrayEquals(expected.instance(j).toDoubleArray(),
+							index.instance(neighbours[j]).toDoubleArray(), 0.0);
+				}
+			}
+			if (index.size() == WINDOW_SIZE) {
+				index.removeOldest();
+				window.delete(0);
+			}
+			index.add(inst);
+			window.add(inst);
+		}
+		assertEquals(window.numInstances(), index.size());
+	}
+
+	@Test
+	public void testRemoveAll() {
+		RandomTreeGenerator generator = new RandomTreeGenerator();
+		generator.prepareForUse();
+		SlidingWindowIndex index = new SlidingWindowIndex(generator.getHeader());
+		Instances window = new Instances(generator.getHeader(), 0);
+		for (int i = 0; i < 50; i++) {
+			Instance inst = generator.nextInstance().getData();
+			index.add(inst);
+			window.add(inst);
+		}
+		boolean[] removed = new boolean[index.size()];
+		for (int i = index.size() - 1; i >= 0; i--) {
+			removed[i] = i % 3 == 0;
+			if (removed[i]) {
+				window.delete(i);
+			}
+		}
+		index.removeAll(removed);
+		assertEquals(window.numInstances(), index.size());
+		for (int i = 0; i < index.size(); i++) {
+			assertArrayEquals(window.instance(i).toDoubleArray(), index.instance(i).toDoubleArray(), 0.0);
+			assertEquals(window.instance(i).classValue(), index.classValue(i), 0.0);
+		}
+	}
+
+	@Test
+	public void testIds() {
+		RandomTreeGenerator generator = new RandomTreeGenerator();
+		generator.prepareForUse();
+		SlidingWindowIndex index = new SlidingWindowIndex(generator.getHeader());
+		for (int i = 0; i < 40; i++) {
+			index.add(generator.nextInstance().getData());
+		}
+		index.removeOldest();
+		boolean[] removed = new boolean[index.size()];
+		for (int i = 0; i < removed.length; i++) {
+			removed[i] = i % 3 == 0;
+		}
+		index.removeAll(removed);
+		assertEquals(26, index.size());
+		for (int i = 0; i < index.size(); i++) {
+			assertEquals(1 + i + i / 2 + 1, index.id(i));
+			assertEquals(i, index.position(index.id(i)));
+		}
+		assertEquals(0, index.position(0));
+		assertEquals(2, index.position(4));
+		assertEquals(index.size(), index.position(40));
+		index.clear();
+		index.add(generator.nextInstance().getData());
+		assertEquals(40, index.id(0));
+	}
+}
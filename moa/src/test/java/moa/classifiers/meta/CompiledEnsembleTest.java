@@ -0,0 +1,81 @@
+package moa.classifiers.meta;
+
+import static org.junit.Assert.*;
+
+import moa.classifiers.Classifier;
+import moa.classifiers.bayes.NaiveBayes;
+import moa.streams.generators.RandomTreeGenerator;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Instance;
+
+/**
+ * Test that a compiled ensemble makes the same predictions as the trained
+ * ensemble, one instance at a time and in batches
+ */
+public class CompiledEnsembleTest {
+
+	private static final int NUM_TRAINING_INSTANCES = 3000;
+
+	private static final int NUM_TEST_INSTANCES = 300;
+
+	@Test
+	public void testAdaptiveRandomForest() {
+		checkSameVotes(new AdaptiveRandomForest(), "-s 5");
+		checkSameVotes(new AdaptiveRandomForest(), "-s 5 -w");
+	}
+
+	@Test
+	public void testBagging() {
+		checkSameVotes(new OzaBag(), "-s 5");
+		checkSameVotes(new OzaBagAdwin(), "-s 5");
+		checkSameVotes(new LeveragingBag(), "-s 5");
+	}
+
+	@Test
+	public void testOzaBoost() {
+		checkSameVotes(new OzaBoost(), "-s 5");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnsupportedMembers() {
+		OzaBag bag = new OzaBag();
+		bag.getOptions().setViaCLIString("-l bayes.NaiveBayes -s 2");
+		train(bag);
+		CompiledEnsemble.compile(bag);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnsupportedClassifier() {
+		CompiledEnsemble.compile(new NaiveBayes());
+	}
+
+	private static RandomTreeGenerator train(Classifier ensemble) {
+		RandomTreeGenerator generator = new RandomTreeGenerator();
+		generator.prepareForUse();
+		ensemble.setModelContext(generator.getHeader());
+		ensemble.prepareForUse();
+		for (int i = 0; i < NUM_TRAINING_INSTANCES; i++) {
+			ensemble.trainOnInstance(generator.nextInstance().getData());
+		}
+		return generator;
+	}
+
+	private static void checkSameVotes(Classifier ensemble, String options) {
+		ensemble.getOptions().setViaCLIString(options);
+		RandomTreeGenerator generator = train(ensemble);
+		CompiledEnsemble compiled = CompiledEnsemble.compile(ensemble);
+		assertTrue(compiled.getEnsembleSize() > 0);
+		Instance[] instances = new Instance[NUM_TEST_INSTANCES];
+		for (int i = 0; i < NUM_TEST_INSTANCES; i++) {
+			instances[i] = generator.nextInstance().getData();
+		}
+		double[][] batchVotes = compiled.getVotesForInstances(instances);
+		for (int i = 0; i < NUM_TEST_INSTANCES; i++) {
+			double[] votes = ensemble.getVotesForInstance(instances[i]);
+			assertArrayEquals(votes, compiled.getVotesForInstance(instances[i]), 0.0);
+			assertArrayEquals(votes, batchVotes[i], 0.0);
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package moa.classifiers.meta;
+
+import static org.junit.Assert.*;
+
+import moa.classifiers.Classifier;
+import moa.streams.generators.RandomTreeGenerator;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Instance;
+
+/**
+ * Test that ensembles running their members on several threads make the same
+ * predictions as with a single thread, and that the threads end once the
+ * ensemble is discarded
+ */
+public class EnsembleWorkersTest {
+
+	private static final int NUM_INSTANCES = 2000;
+
+	@Test
+	public void testAdaptiveRandomForest() {
+		checkSameVotes(new AdaptiveRandomForest(), new AdaptiveRandomForest(), "-s 5", "-s 5 -j 3");
+		checkSameVotes(new AdaptiveRandomForest(), new AdaptiveRandomForest(), "-s 5", "-s 5 -j 3 -b 10");
+	}
+
+	@Test
+	public void testBagging() {
+		checkSameVotes(new OzaBag(), new OzaBag(), "-s 5", "-s 5 -j 3");
+		checkSameVotes(new OzaBagAdwin(), new OzaBagAdwin(), "-s 5", "-s 5 -j 3");
+		checkSameVotes(new LeveragingBag(), new LeveragingBag(), "-s 5", "-s 5 -j 3");
+	}
+
+	@Test
+	public void testThreadsEnd() throws InterruptedException {
+		int numThreads = countWorkerThreads();
+		train(new AdaptiveRandomForest(), "-s 5 -j 3 -b 10", 100);
+		train(new OzaBag(), "-s 5 -j 3", 100);
+		assertTrue(countWorkerThreads() >= numThreads + 6);
+		for (int i = 0; i < 100 && countWorkerThreads() > numThreads; i++) {
+			System.gc();
+			Thread.sleep(100);
+		}
+		assertEquals(numThreads, countWorkerThreads());
+	}
+
+	private static RandomTreeGenerator prepare(Classifier ensemble, String options) {
+		RandomTreeGenerator generator = new RandomTreeGenerator();
+		generator.prepareForUse();
+		ensemble.getOptions().setViaCLIString(options);
+		ensemble.setModelContext(generator.getHeader());
+		ensemble.prepareForUse();
+		return generator;
+	}
+
+	private static void train(Classifier ensemble, String options, int numInstances) {
+		RandomTreeGenerator generator = prepare(ensemble, options);
+		for (int i = 0; i < numInstances; i++) {
+			Instance inst = generator.nextInstance().getData();
+			ensemble.getVotesForInstance(inst);
+			ensemble.trainOnInstance(inst);
+		}
+	}
+
+	private static void checkSameVotes(Classifier sequential, Classifier parallel,
+			String sequentialOptions, String parallelOptions) {
+		RandomTreeGenerator generator = prepare(sequential, sequentialOptions);
+		prepare(parallel, parallelOptions);
+		for (int i = 0; i < NUM_INSTANCES; i++) {
+			Instance inst = generator.nextInstance().getData();
+			assertArrayEquals(sequential.getVotesForInstance(inst),
+					parallel.getVotesForInstance(inst), 0.0);
+			sequential.trainOnInstance(inst);
+			parallel.trainOnInstance(inst);
+		}
+		parallel.resetLearning();
+	}
+
+	private static int countWorkerThreads() {
+		int count = 0;
+		for (Thread thread : Thread.getAllStackTraces().keySet()) {
+			if (thread.getName().startsWith("EnsembleWorker-") && thread.isAlive()) {
+				count++;
+			}
+		}
+		return count;
+	}
+}
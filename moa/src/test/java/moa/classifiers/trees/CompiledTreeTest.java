@@ -0,0 +1,138 @@
+package moa.classifiers.trees;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import moa.classifiers.Classifier;
+import moa.classifiers.bayes.NaiveBayes;
+import moa.core.InstanceExample;
+import moa.streams.generators.RandomTreeGenerator;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Attribute;
+import com.yahoo.labs.samoa.instances.DenseInstance;
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.Instances;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+
+/**
+ * Test that a compiled tree makes the same predictions as the trained tree
+ */
+public class CompiledTreeTest {
+
+	private static final int NUM_TRAINING_INSTANCES = 5000;
+
+	private static final int NUM_TEST_INSTANCES = 500;
+
+	@Test
+	public void testHoeffdingTree() {
+		checkSameVotes(new HoeffdingTree(), "");
+		checkSameVotes(new HoeffdingTree(), "-l MC");
+		checkSameVotes(new HoeffdingTree(), "-l NB -b");
+	}
+
+	@Test
+	public void testHoeffdingAdaptiveTree() {
+		checkSameVotes(new HoeffdingAdaptiveTree(), "");
+		checkSameVotes(new HoeffdingAdaptiveTree(), "-l MC");
+	}
+
+	@Test
+	public void testEFDT() {
+		checkSameVotes(new EFDT(), "");
+	}
+
+	@Test
+	public void testFIMTDD() {
+		Random random = new Random(1);
+		List<Attribute> attributes = new ArrayList<Attribute>();
+		for (int i = 0; i < 3; i++) {
+			attributes.add(new Attribute("x" + i));
+		}
+		attributes.add(new Attribute("y"));
+		Instances data = new Instances("regression", attributes, 0);
+		data.setClassIndex(3);
+		InstancesHeader header = new InstancesHeader(data);
+		FIMTDD tree = new FIMTDD();
+		tree.gracePeriodOption.setValue(50);
+		tree.setModelContext(header);
+		tree.prepareForUse();
+		for (int i = 0; i < NUM_TRAINING_INSTANCES; i++) {
+			tree.trainOnInstance(nextRegressionInstance(header, random));
+		}
+		CompiledTree compiled = CompiledTree.compile(tree);
+		assertTrue(compiled.getNumNodes() > 1);
+		for (int i = 0; i < NUM_TEST_INSTANCES; i++) {
+			Instance inst = nextRegressionInstance(header, random);
+			assertArrayEquals(tree.getVotesForInstance(inst), compiled.getVotesForInstance(inst), 0.0);
+		}
+	}
+
+	@Test
+	public void testTrainingDoesNotChangeTheModel() {
+		RandomTreeGenerator generator = new RandomTreeGenerator();
+		generator.prepareForUse();
+		HoeffdingTree tree = new HoeffdingTree();
+		tree.setModelContext(generator.getHeader());
+		tree.prepareForUse();
+		for (int i = 0; i < NUM_TRAINING_INSTANCES; i++) {
+			tree.trainOnInstance(generator.nextInstance().getData());
+		}
+		CompiledTree compiled = CompiledTree.compile(tree);
+		int numNodes = compiled.getNumNodes();
+		Instance inst = generator.nextInstance().getData();
+		double[] votes = compiled.getVotesForInstance(inst);
+		for (int i = 0; i < NUM_TEST_INSTANCES; i++) {
+			compiled.trainOnInstance(generator.nextInstance().getData());
+		}
+		assertEquals(numNodes, compiled.getNumNodes());
+		assertArrayEquals(votes, compiled.getVotesForInstance(inst), 0.0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnsupportedClassifier() {
+		CompiledTree.compile(new NaiveBayes());
+	}
+
+	private static void checkSameVotes(Classifier tree, String options) {
+		RandomTreeGenerator generator = new RandomTreeGenerator();
+		generator.prepareForUse();
+		Random random = new Random(1);
+		tree.getOptions().setViaCLIString(options);
+		tree.setModelContext(generator.getHeader());
+		tree.prepareForUse();
+		for (int i = 0; i < NUM_TRAINING_INSTANCES; i++) {
+			tree.trainOnInstance(nextInstance(generator, random));
+		}
+		CompiledTree compiled = CompiledTree.compile(tree);
+		assertTrue(compiled.getNumNodes() > 1);
+		for (int i = 0; i < NUM_TEST_INSTANCES; i++) {
+			Instance inst = nextInstance(generator, random);
+			assertArrayEquals(tree.getVotesForInstance(inst), compiled.getVotesForInstance(inst), 0.0);
+		}
+	}
+
+	private static Instance nextInstance(RandomTreeGenerator generator, Random random) {
+		InstanceExample example = generator.nextInstance();
+		Instance inst = example.getData();
+		if (random.nextDouble() < 0.05) {
+			inst.setMissing(random.nextInt(inst.numAttributes() - 1));
+		}
+		return inst;
+	}
+
+	private static Instance nextRegressionInstance(InstancesHeader header, Random random) {
+		double[] values = new double[4];
+		for (int i = 0; i < 3; i++) {
+			values[i] = random.nextDouble();
+		}
+		values[3] = (values[0] > 0.5 ? 2.0 * values[1] : -values[2]) + 0.1 * random.nextGaussian();
+		Instance inst = new DenseInstance(1.0, values);
+		inst.setDataset(header);
+		return inst;
+	}
+}
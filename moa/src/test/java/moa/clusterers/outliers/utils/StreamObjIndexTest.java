@@ -0,0 +1,99 @@
+package moa.clusterers.outliers.utils;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import moa.clusterers.outliers.MyBaseOutlierDetector;
+import moa.clusterers.outliers.Angiulli.ApproxSTORM;
+import moa.clusterers.outliers.MCOD.MCOD;
+import moa.streams.generators.RandomRBFGenerator;
+
+import org.junit.Test;
+
+/**
+ * Test that StreamObjIndex expires the oldest nodes, and that its queue of
+ * nodes by id stays bounded by the window for the detectors that only insert
+ * and remove nodes
+ */
+public class StreamObjIndexTest {
+
+	private static final int WINDOW_SIZE = 100;
+
+	private static class IndexedMCOD extends MCOD {
+
+		private static final long serialVersionUID = 1L;
+
+		int queueSize() {
+			return this.ISB_PD.QueueSize();
+		}
+	}
+
+	private static class IndexedApproxSTORM extends ApproxSTORM {
+
+		private static final long serialVersionUID = 1L;
+
+		int queueSize() {
+			return this.ISB.QueueSize();
+		}
+	}
+
+	private static StreamObjIndex.Node node(long id) {
+		return new StreamObjIndex.Node(null, new StreamObj(new double[]{id}), id);
+	}
+
+	@Test
+	public void testRemoveExpired() {
+		StreamObjIndex<StreamObjIndex.Node> index = new StreamObjIndex<StreamObjIndex.Node>();
+		StreamObjIndex.Node[] nodes = new StreamObjIndex.Node[10];
+		for (int i = 0; i < nodes.length; i++) {
+			nodes[i] = node(i);
+			index.Insert(nodes[i]);
+		}
+		index.Remove(nodes[2]);
+		index.Remove(nodes[0]);
+		assertEquals(9, index.QueueSize());
+		List<StreamObjIndex.Node> expired = index.RemoveExpired(5);
+		assertEquals(3, expired.size());
+		assertSame(nodes[1], expired.get(0));
+		assertSame(nodes[3], expired.get(1));
+		assertSame(nodes[4], expired.get(2));
+		assertEquals(5, index.Size());
+		assertEquals(5, index.QueueSize());
+		assertEquals(1, index.RangeSearch(nodes[7], 0.5).size());
+		index.Insert(nodes[4]);
+		index.Remove(nodes[6]);
+		index.Insert(nodes[6]);
+		assertEquals(6, index.QueueSize());
+	}
+
+	// the window holds the new node along with the last WINDOW_SIZE ones
+	private static void run(MyBaseOutlierDetector detector) {
+		detector.windowSizeOption.setValue(WINDOW_SIZE);
+		detector.prepareForUse();
+		RandomRBFGenerator stream = new RandomRBFGenerator();
+		stream.numAttsOption.setValue(2);
+		stream.prepareForUse();
+		for (int i = 0; i < 50 * WINDOW_SIZE; i++) {
+			detector.processNewInstanceImpl(stream.nextInstance().getData());
+		}
+	}
+
+	@Test
+	public void testMCODQueueBounded() {
+		IndexedMCOD detector = new IndexedMCOD();
+		detector.radiusOption.setValue(0.3);
+		detector.kOption.setValue(5);
+		run(detector);
+		assertTrue(detector.queueSize() <= WINDOW_SIZE + 1);
+	}
+
+	@Test
+	public void testApproxSTORMQueueBounded() {
+		IndexedApproxSTORM detector = new IndexedApproxSTORM();
+		detector.radiusOption.setValue(0.3);
+		detector.kOption.setValue(5);
+		run(detector);
+		assertTrue(detector.queueSize() <= WINDOW_SIZE + 1);
+	}
+}
@@ -0,0 +1,79 @@
+package moa.clusterers.outliers.utils.mtree;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test that the range searches of the M-Tree find the data objects a linear
+ * scan finds, sorted by distance, while data objects are added and removed
+ */
+public class MTreeTest {
+
+	@Test
+	public void testRangeSearchWhileAddingAndRemoving() {
+		Random random = new Random(1);
+		MTree<List<Integer>> tree = new MTree<List<Integer>>(2,
+				DistanceFunctions.EUCLIDEAN_INTEGER_LIST, null);
+		MTree.RangeResults<List<Integer>> results = new MTree.RangeResults<List<Integer>>();
+		List<List<Integer>> added = new ArrayList<List<Integer>>();
+		for (int i = 0; i < 3000; i++) {
+			if (!added.isEmpty() && random.nextInt(3) == 0) {
+				List<Integer> data = added.remove(random.nextInt(added.size()));
+				assertTrue(tree.remove(data));
+				assertFalse(tree.remove(data));
+			} else {
+				List<Integer> data = Arrays.asList(random.nextInt(100), random.nextInt(100));
+				if (added.contains(data)) {
+					continue;
+				}
+				added.add(data);
+				tree.add(data);
+			}
+			tree._check();
+			assertEquals(added.size(), tree.size());
+
+			List<Integer> query = Arrays.asList(random.nextInt(100), random.nextInt(100));
+			double range = random.nextInt(30);
+			List<Double> expected = new ArrayList<Double>();
+			for (List<Integer> data : added) {
+				double distance = DistanceFunctions.EUCLIDEAN_INTEGER_LIST.calculate(query, data);
+				if (distance <= range) {
+					expected.add(distance);
+				}
+			}
+			Collections.sort(expected);
+
+			assertEquals(expected.size(), tree.rangeSearch(query, range, results));
+			int n = 0;
+			for (MTree<List<Integer>>.ResultItem item : tree.getNearestByRange(query, range)) {
+				assertEquals(expected.get(n), results.getDistance(n), 0.0);
+				assertEquals(item.distance, results.getDistance(n), 0.0);
+				assertEquals(item.distance, DistanceFunctions.EUCLIDEAN_INTEGER_LIST.calculate(
+						query, results.getData(n)), 0.0);
+				n++;
+			}
+			assertEquals(expected.size(), n);
+		}
+	}
+
+	@Test
+	public void testEmptyTree() {
+		MTree<List<Integer>> tree = new MTree<List<Integer>>(2,
+				DistanceFunctions.EUCLIDEAN_INTEGER_LIST, null);
+		MTree.RangeResults<List<Integer>> results = new MTree.RangeResults<List<Integer>>();
+		assertEquals(0, tree.rangeSearch(Arrays.asList(0, 0), 10.0, results));
+		assertFalse(tree.remove(Arrays.asList(0, 0)));
+		tree.add(Arrays.asList(1, 1));
+		assertEquals(1, tree.rangeSearch(Arrays.asList(0, 0), 10.0, results));
+		assertTrue(tree.remove(Arrays.asList(1, 1)));
+		assertEquals(0, tree.size());
+		assertEquals(0, tree.rangeSearch(Arrays.asList(0, 0), 10.0, results));
+	}
+}
@@ -0,0 +1,161 @@
+package moa.core;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test that the bounded value tree stays balanced and sorted, and keeps the
+ * exact statistics of the values less than or equal to each node value
+ */
+public class BoundedValueTreeTest {
+
+	private static void check(BoundedValueTree tree, List<Double> inserted, boolean exact) {
+		int[] sorted = tree.getSortedNodes();
+		assertEquals(tree.size(), sorted.length);
+		assertTrue(tree.size() <= tree.getMaxNodes());
+		// height of an AVL tree
+		assertTrue(tree.heightOf(tree.root) <= 1.45 * Math.log(tree.size() + 2) / Math.log(2));
+		double cumulative = 0.0;
+		for (int i = 0; i < sorted.length; i++) {
+			double value = tree.getValue(sorted[i]);
+			if (i > 0) {
+				assertTrue(tree.getValue(sorted[i - 1]) < value);
+			}
+			cumulative += tree.getStatistics()[sorted[i] * tree.getNumStatistics()];
+			int expected = 0;
+			for (double v : inserted) {
+				if (v <= value) {
+					expected++;
+				}
+			}
+			if (exact) {
+				assertEquals(expected, cumulative, 0.0);
+			}
+		}
+		assertEquals(inserted.size(), cumulative, exact ? 0.0 : 1e-9);
+	}
+
+	@Test
+	public void testRandomValues() {
+		Random random = new Random(1);
+		// the first tree is never full
+		BoundedValueTree[] trees = {new BoundedValueTree(1000, 1), new BoundedValueTree(100, 1)};
+		List<Double> inserted = new ArrayList<Double>();
+		for (int i = 0; i < 2000; i++) {
+			double value = random.nextInt(500) / 10.0;
+			for (BoundedValueTree tree : trees) {
+				int node = tree.insert(value, 1);
+				tree.getStatistics()[node * tree.getNumStatistics()]++;
+			}
+			inserted.add(value);
+			if (i % 50 == 0) {
+				check(trees[0], inserted, true);
+				check(trees[1], inserted, false);
+			}
+		}
+		assertEquals(new HashSet<Double>(inserted).size(), trees[0].size());
+		check(trees[0], inserted, true);
+		check(trees[1], inserted, false);
+	}
+
+	@Test
+	public void testSortedValues() {
+		BoundedValueTree tree = new BoundedValueTree(64, 1);
+		List<Double> inserted = new ArrayList<Double>();
+		for (int i = 0; i < 1000; i++) {
+			int node = tree.insert(i, 1);
+			tree.getStatistics()[node * tree.getNumStatistics()]++;
+			inserted.add((double) i);
+			check(tree, inserted, true);
+		}
+		// the largest value is always kept
+		int[] sorted = tree.getSortedNodes();
+		assertEquals(999.0, tree.getValue(sorted[sorted.length - 1]), 0.0);
+	}
+
+	@Test
+	public void testMergedStatistics() {
+		Random random = new Random(2);
+		BoundedValueTree tree = new BoundedValueTree(200, 1);
+		double[] inserted = new double[20000];
+		for (int i = 0; i < inserted.length; i++) {
+			inserted[i] = random.nextGaussian();
+			int node = tree.insert(inserted[i], 1);
+			tree.getStatistics()[node * tree.getNumStatistics()]++;
+		}
+		// the statistics of the merged values stay close to the exact ones
+		Arrays.sort(inserted);
+		double cumulative = 0.0;
+		for (int node : tree.getSortedNodes()) {
+			cumulative += tree.getStatistics()[node * tree.getNumStatistics()];
+			int expected = 0;
+			while ((expected < inserted.length) && (inserted[expected] <= tree.getValue(node))) {
+				expected++;
+			}
+			assertEquals(expected, cumulative, 0.05 * inserted.length);
+			assertTrue(tree.getLowerBound(node) <= tree.getValue(node));
+		}
+	}
+
+	@Test
+	public void testBlockSize() {
+		BoundedValueTree tree = new BoundedValueTree(10, 2);
+		for (int i = 0; i < 5; i++) {
+			int offset = tree.insert(i, 1) * tree.getNumStatistics();
+			tree.getStatistics()[offset] = i;
+			tree.getStatistics()[offset + 1] = -i;
+		}
+		tree.setBlockSize(2, 3);
+		assertEquals(6, tree.getNumStatistics());
+		for (int node : tree.getSortedNodes()) {
+			int offset = node * tree.getNumStatistics();
+			double value = tree.getValue(node);
+			assertArrayEquals(new double[]{value, 0.0, 0.0, -value, 0.0, 0.0},
+					Arrays.copyOfRange(tree.getStatistics(), offset, offset + 6), 0.0);
+		}
+	}
+
+	@Test
+	public void testNeighbours() {
+		Random random = new Random(3);
+		BoundedValueTree tree = new BoundedValueTree(30, 1);
+		for (int t = 0; t < 1000; t++) {
+			tree.insert(random.nextInt(500), 1.0);
+		}
+		int[] sorted = tree.getSortedNodes();
+		for (int t = 0; t < 1000; t++) {
+			double value = random.nextDouble() * 600 - 50;
+			int ceiling = -1;
+			int lower = -1;
+			int higher = -1;
+			for (int node : sorted) {
+				double v = tree.getValue(node);
+				if (v < value) {
+					lower = node;
+				}
+				if ((v >= value) && (ceiling < 0)) {
+					ceiling = node;
+				}
+				if ((v > value) && (higher < 0)) {
+					higher = node;
+				}
+			}
+			assertEquals(ceiling, tree.ceiling(value));
+			assertEquals(lower, tree.lower(value));
+			assertEquals(higher, tree.higher(value));
+		}
+		for (int i = 0; i < sorted.length; i++) {
+			double v = tree.getValue(sorted[i]);
+			assertEquals(sorted[i], tree.ceiling(v));
+			assertEquals(i > 0 ? sorted[i - 1] : -1, tree.lower(v));
+			assertEquals(i < sorted.length - 1 ? sorted[i + 1] : -1, tree.higher(v));
+		}
+	}
+}
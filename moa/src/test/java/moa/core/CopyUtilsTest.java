@@ -0,0 +1,104 @@
+package moa.core;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+import moa.classifiers.Classifier;
+import moa.classifiers.meta.OzaBagAdwin;
+import moa.classifiers.trees.HoeffdingAdaptiveTree;
+import moa.classifiers.trees.HoeffdingTree;
+import moa.evaluation.BasicClassificationPerformanceEvaluator;
+import moa.evaluation.WindowClassificationPerformanceEvaluator;
+import moa.streams.generators.RandomRBFGenerator;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Instance;
+
+/**
+ * Test that CopyUtils copies models like a serialization round trip
+ */
+public class CopyUtilsTest {
+
+	private static byte[] serialize(Serializable obj) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(obj);
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	private static void assertSameCopy(Serializable obj) throws Exception {
+		Object copy = CopyUtils.copyObject(obj);
+		assertNotSame(obj, copy);
+		assertSame(obj.getClass(), copy.getClass());
+		assertArrayEquals(serialize((Serializable) SerializeUtils.copyObject(obj)), serialize((Serializable) copy));
+	}
+
+	private static Classifier train(Classifier learner, RandomRBFGenerator stream, int numInstances) {
+		learner.prepareForUse();
+		learner.setModelContext(stream.getHeader());
+		for (int i = 0; i < numInstances; i++) {
+			learner.trainOnInstance(stream.nextInstance().getData());
+		}
+		return learner;
+	}
+
+	@Test
+	public void testClassifiers() throws Exception {
+		RandomRBFGenerator stream = new RandomRBFGenerator();
+		stream.prepareForUse();
+		assertSameCopy(train(new HoeffdingTree(), stream, 5000));
+		assertSameCopy(train(new HoeffdingAdaptiveTree(), stream, 5000));
+		assertSameCopy(train(new OzaBagAdwin(), stream, 2000));
+	}
+
+	@Test
+	public void testEvaluators() throws Exception {
+		RandomRBFGenerator stream = new RandomRBFGenerator();
+		stream.prepareForUse();
+		Classifier learner = train(new HoeffdingTree(), stream, 1000);
+		BasicClassificationPerformanceEvaluator basic = new BasicClassificationPerformanceEvaluator();
+		WindowClassificationPerformanceEvaluator window = new WindowClassificationPerformanceEvaluator();
+		for (int i = 0; i < 1000; i++) {
+			Instance inst = stream.nextInstance().getData();
+			double[] votes = learner.getVotesForInstance(inst);
+			basic.addResult(new InstanceExample(inst), votes);
+			window.addResult(new InstanceExample(inst), votes);
+		}
+		assertSameCopy(basic);
+		assertSameCopy(window);
+	}
+
+	@Test
+	public void testCopyIsIndependent() throws Exception {
+		RandomRBFGenerator stream = new RandomRBFGenerator();
+		stream.prepareForUse();
+		Classifier learner = train(new HoeffdingTree(), stream, 2000);
+		byte[] before = serialize(learner);
+		Classifier copy = (Classifier) learner.copy();
+		for (int i = 0; i < 2000; i++) {
+			copy.trainOnInstance(stream.nextInstance().getData());
+		}
+		assertArrayEquals(before, serialize(learner));
+	}
+
+	@Test
+	public void testSharedReferences() throws Exception {
+		DoubleVector shared = new DoubleVector(new double[]{1, 2, 3});
+		AutoExpandVector<DoubleVector> vector = new AutoExpandVector<DoubleVector>();
+		vector.add(shared);
+		vector.add(shared);
+		vector.set(4, new DoubleVector());
+		@SuppressWarnings("unchecked")
+		AutoExpandVector<DoubleVector> copy = (AutoExpandVector<DoubleVector>) CopyUtils.copyObject(vector);
+		assertEquals(vector.size(), copy.size());
+		assertNotSame(shared, copy.get(0));
+		assertSame(copy.get(0), copy.get(1));
+		assertNull(copy.get(2));
+		assertArrayEquals(shared.getArrayRef(), copy.get(0).getArrayRef(), 0.0);
+	}
+}
@@ -0,0 +1,65 @@
+package moa.core;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test that the order-statistic tree stays balanced and ranks the values as
+ * a list of the added values does, while values are added and removed
+ */
+public class OrderStatisticTreeTest {
+
+	@Test
+	public void testRanksWhileAddingAndRemoving() {
+		Random random = new Random(1);
+		OrderStatisticTree tree = new OrderStatisticTree();
+		List<double[]> added = new ArrayList<double[]>();
+		for (int i = 0; i < 5000; i++) {
+			if (!added.isEmpty() && random.nextInt(3) == 0) {
+				double[] value = added.remove(random.nextInt(added.size()));
+				tree.remove(value[0], (int) value[1]);
+			} else {
+				double[] value = new double[]{random.nextInt(50) / 50.0, random.nextInt(2)};
+				added.add(value);
+				tree.add(value[0], (int) value[1]);
+			}
+			assertEquals(added.size(), tree.size());
+			// height of an AVL tree
+			assertTrue(tree.heightOf(tree.root) <= 1.45 * Math.log(tree.getNumNodes() + 2) / Math.log(2));
+			double rankedValue = random.nextInt(52) / 50.0;
+			tree.rank(rankedValue);
+			for (int label = 0; label < 2; label++) {
+				double less = 0, equal = 0, greater = 0, sumGreater = 0;
+				for (double[] value : added) {
+					if ((int) value[1] == label) {
+						if (value[0] < rankedValue) {
+							less++;
+						} else if (value[0] == rankedValue) {
+							equal++;
+						} else {
+							greater++;
+							sumGreater += value[0];
+						}
+					}
+				}
+				assertEquals(less, tree.getCountLess(label), 0.0);
+				assertEquals(equal, tree.getCountEqual(label), 0.0);
+				assertEquals(greater, tree.getCountGreater(label), 0.0);
+				assertEquals(sumGreater, tree.getSumGreater(label), 1e-9);
+				assertEquals(less + equal + greater, tree.getCount(label), 0.0);
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRemoveMissingValue() {
+		OrderStatisticTree tree = new OrderStatisticTree();
+		tree.add(0.5, 1);
+		tree.remove(0.25, 1);
+	}
+}
@@ -0,0 +1,61 @@
+package moa.evaluation;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import moa.core.InstanceExample;
+import moa.core.Measurement;
+import moa.streams.generators.RandomTreeGenerator;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Instance;
+
+/**
+ * Test that the names and the values of the measurements read without
+ * building them are those of getPerformanceMeasurements
+ */
+public class BasicClassificationPerformanceEvaluatorTest {
+
+	@Test
+	public void testSameMeasurements() {
+		checkSameMeasurements(new BasicClassificationPerformanceEvaluator(), "");
+		checkSameMeasurements(new BasicClassificationPerformanceEvaluator(), "-o -p -r -f");
+		checkSameMeasurements(new WindowClassificationPerformanceEvaluator(), "-w 100 -o -f");
+		checkSameMeasurements(new FadingFactorClassificationPerformanceEvaluator(), "-p");
+		checkSameMeasurements(new EWMAClassificationPerformanceEvaluator(), "-r");
+	}
+
+	private static void checkSameMeasurements(BasicClassificationPerformanceEvaluator evaluator, String options) {
+		evaluator.getOptions().setViaCLIString(options);
+		evaluator.prepareForUse();
+		RandomTreeGenerator generator = new RandomTreeGenerator();
+		generator.prepareForUse();
+		Random random = new Random(1);
+		double[] buffer = new double[0];
+		for (int i = 0; i < 1000; i++) {
+			Instance inst = generator.nextInstance().getData();
+			double[] votes = new double[inst.numClasses()];
+			votes[random.nextDouble() < 0.7 ? (int) inst.classValue() : random.nextInt(votes.length)] = 1.0;
+			evaluator.addResult(new InstanceExample(inst), votes);
+			if (i % 100 == 0) {
+				Measurement[] measurements = evaluator.getPerformanceMeasurements();
+				String[] names = evaluator.getPerformanceMeasurementNames();
+				double[] values = evaluator.getPerformanceMeasurementValues(buffer);
+				if (buffer.length > 0) {
+					assertSame(buffer, values);
+				}
+				buffer = values;
+				assertEquals(measurements.length, names.length);
+				assertEquals(measurements.length, values.length);
+				for (int j = 0; j < measurements.length; j++) {
+					assertEquals(measurements[j].getName(), names[j]);
+					assertEquals(measurements[j].getValue(), values[j], 0.0);
+				}
+				assertEquals(measurements[1].getValue(), evaluator.getFractionCorrectlyClassified() * 100.0, 0.0);
+				assertEquals(measurements[4].getValue(), evaluator.getKappaMStatistic() * 100.0, 0.0);
+			}
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package moa.evaluation;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import moa.core.InstanceExample;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Attribute;
+import com.yahoo.labs.samoa.instances.DenseInstance;
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.Instances;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+
+/**
+ * Test that the window AUC is the fraction of the pairs of a positive and a
+ * negative example of the window where the positive one is scored higher,
+ * ties counting for one half
+ */
+public class WindowAUCImbalancedPerformanceEvaluatorTest {
+
+	private static final int WINDOW_SIZE = 100;
+
+	@Test
+	public void testAUCOfTheWindow() {
+		List<Attribute> attributes = new ArrayList<Attribute>();
+		attributes.add(new Attribute("x"));
+		attributes.add(new Attribute("class", Arrays.asList("negative", "positive")));
+		Instances data = new Instances("binary", attributes, 0);
+		data.setClassIndex(1);
+		InstancesHeader header = new InstancesHeader(data);
+		WindowAUCImbalancedPerformanceEvaluator evaluator = new WindowAUCImbalancedPerformanceEvaluator();
+		evaluator.widthOption.setValue(WINDOW_SIZE);
+		evaluator.prepareForUse();
+		Random random = new Random(1);
+		List<double[]> window = new ArrayList<double[]>();
+		for (int i = 0; i < 1000; i++) {
+			boolean isPositive = random.nextDouble() < 0.3;
+			double score = Math.round(10 * random.nextDouble() + (isPositive ? 2 : 0)) / 12.0;
+			Instance inst = new DenseInstance(1.0, new double[]{0, isPositive ? 1 : 0});
+			inst.setDataset(header);
+			evaluator.addResult(new InstanceExample(inst), new double[]{1 - score, score});
+			window.add(new double[]{score, isPositive ? 1 : 0});
+			if (window.size() > WINDOW_SIZE) {
+				window.remove(0);
+			}
+			double pairs = 0, rankSum = 0;
+			for (double[] positive : window) {
+				for (double[] negative : window) {
+					if ((positive[1] == 1) && (negative[1] == 0)) {
+						pairs++;
+						rankSum += positive[0] > negative[0] ? 1.0 : positive[0] == negative[0] ? 0.5 : 0.0;
+					}
+				}
+			}
+			assertEquals(pairs > 0 ? rankSum / pairs : 1.0, evaluator.getAucEstimator().getAUC(), 1e-12);
+		}
+	}
+}
@@ -0,0 +1,201 @@
+package moa.streams;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import moa.streams.generators.RandomTreeGenerator;
+import moa.tasks.NullMonitor;
+import moa.tasks.WriteStreamToBinaryFile;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Instance;
+
+/**
+ * Test that BinaryFileStream reads back the instances written by
+ * BinaryStreamWriter, rejects invalid blocks and closes its file, and that
+ * WriteStreamToBinaryFile only leaves complete files
+ */
+public class BinaryFileStreamTest {
+
+	private static final int NUM_INSTANCES = 10000;
+
+	private void roundTrip(boolean compress) throws IOException {
+		File file = File.createTempFile("moa", ".moab");
+		file.deleteOnExit();
+		RandomTreeGenerator generator = new RandomTreeGenerator();
+		generator.prepareForUse();
+		BinaryStreamWriter writer = new BinaryStreamWriter(file, generator.getHeader(), 1000, compress);
+		for (int i = 0; i < NUM_INSTANCES; i++) {
+			Instance inst = generator.nextInstance().getData();
+			if (i == 5) {
+				inst.setMissing(0);
+				inst.setMissing(6);
+				inst.setWeight(2.5);
+			}
+			writer.write(inst);
+		}
+		writer.close();
+
+		BinaryFileStream stream = new BinaryFileStream(file.getPath());
+		assertEquals(generator.getHeader().numAttributes(), stream.getHeader().numAttributes());
+		assertEquals(generator.getHeader().classIndex(), stream.getHeader().classIndex());
+		assertEquals(NUM_INSTANCES, stream.estimatedRemainingInstances());
+		for (int pass = 0; pass < 2; pass++) {
+			generator.restart();
+			int numRead = 0;
+			while (stream.hasMoreInstances()) {
+				Instance expected = generator.nextInstance().getData();
+				Instance actual = stream.nextInstance().getData();
+				if (numRead == 5) {
+					assertTrue(actual.isMissing(0));
+					assertTrue(actual.isMissing(6));
+					assertEquals(2.5, actual.weight(), 0.0);
+				} else {
+					assertArrayEquals(expected.toDoubleArray(), actual.toDoubleArray(), 0.0);
+					assertEquals(expected.weight(), actual.weight(), 0.0);
+				}
+				assertEquals(expected.classValue(), actual.classValue(), 0.0);
+				numRead++;
+			}
+			assertEquals(NUM_INSTANCES, numRead);
+			assertEquals(0, stream.estimatedRemainingInstances());
+			assertNull(stream.channel);
+			stream.restart();
+		}
+	}
+
+	@Test
+	public void testUncompressed() throws IOException {
+		roundTrip(false);
+	}
+
+	@Test
+	public void testCompressed() throws IOException {
+		roundTrip(true);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBlockTooLarge() throws IOException {
+		File file = File.createTempFile("moa", ".moab");
+		file.deleteOnExit();
+		RandomTreeGenerator generator = new RandomTreeGenerator();
+		generator.prepareForUse();
+		new BinaryStreamWriter(file, generator.getHeader(), Integer.MAX_VALUE, false);
+	}
+
+	private static File writeFile(boolean compress) throws IOException {
+		File file = File.createTempFile("moa", ".moab");
+		file.deleteOnExit();
+		RandomTreeGenerator generator = new RandomTreeGenerator();
+		generator.prepareForUse();
+		BinaryStreamWriter writer = new BinaryStreamWriter(file, generator.getHeader(), 100, compress);
+		for (int i = 0; i < 1000; i++) {
+			writer.write(generator.nextInstance().getData());
+		}
+		writer.close();
+		return file;
+	}
+
+	private static void checkInvalidBlock(File file) {
+		BinaryFileStream stream = new BinaryFileStream(file.getPath());
+		try {
+			while (stream.hasMoreInstances()) {
+				stream.nextInstance();
+			}
+			fail("invalid block read");
+		} catch (RuntimeException e) {
+			assertTrue(e.getCause() instanceof IOException);
+			assertTrue(e.getCause().getMessage().startsWith("Invalid block"));
+		}
+	}
+
+	// sets the number of records or the stored length of the first block
+	private static void corruptFirstBlock(File file, int field, int value) throws IOException {
+		long blockOffset = new BinaryFileStream(file.getPath()).nextBlockOffset;
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		raf.seek(blockOffset + 4 * field);
+		raf.writeInt(Integer.reverseBytes(value));
+		raf.close();
+	}
+
+	@Test
+	public void testInvalidBlocks() throws IOException {
+		for (boolean compress : new boolean[]{false, true}) {
+			File file = writeFile(compress);
+			corruptFirstBlock(file, 0, -1);
+			checkInvalidBlock(file);
+
+			file = writeFile(compress);
+			corruptFirstBlock(file, 1, Integer.MAX_VALUE);
+			checkInvalidBlock(file);
+
+			file = writeFile(compress);
+			RandomAccessFile raf = new RandomAccessFile(file, "rw");
+			raf.setLength(raf.length() - 10);
+			raf.close();
+			checkInvalidBlock(file);
+		}
+		// a stored block must hold exactly its records
+		File file = writeFile(false);
+		corruptFirstBlock(file, 0, 99);
+		checkInvalidBlock(file);
+	}
+
+	@Test
+	public void testRestartFailureClosesFile() throws IOException {
+		File file = File.createTempFile("moa", ".moab");
+		file.deleteOnExit();
+		FileOutputStream out = new FileOutputStream(file);
+		out.write(new byte[64]);
+		out.close();
+		BinaryFileStream stream = new BinaryFileStream();
+		stream.binaryFileOption.setValue(file.getPath());
+		try {
+			stream.restart();
+			fail("not a binary stream file");
+		} catch (RuntimeException e) {
+			assertTrue(e.getCause() instanceof IOException);
+		}
+		assertNull(stream.channel);
+	}
+
+	private static WriteStreamToBinaryFile writeTask(File file) {
+		WriteStreamToBinaryFile task = new WriteStreamToBinaryFile();
+		task.binaryFileOption.setValue(file.getPath());
+		task.maxInstancesOption.setValue(1000);
+		task.blockSizeOption.setValue(100);
+		task.prepareForUse();
+		return task;
+	}
+
+	@Test
+	public void testTask() throws IOException {
+		File file = File.createTempFile("moa", ".moab");
+		file.deleteOnExit();
+		writeTask(file).doTask();
+		BinaryFileStream stream = new BinaryFileStream(file.getPath());
+		assertEquals(1000, stream.estimatedRemainingInstances());
+	}
+
+	@Test
+	public void testAbortedTask() throws IOException {
+		File file = File.createTempFile("moa", ".moab");
+		file.deleteOnExit();
+		// aborts after some blocks have been written
+		NullMonitor monitor = new NullMonitor() {
+			int numChecks = 0;
+
+			@Override
+			public boolean taskShouldAbort() {
+				return ++this.numChecks > 500;
+			}
+		};
+		assertNull(writeTask(file).doTask(monitor, null));
+		assertFalse(file.exists());
+	}
+}
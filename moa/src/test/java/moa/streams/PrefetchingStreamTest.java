@@ -0,0 +1,210 @@
+package moa.streams;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+
+import moa.core.Example;
+import moa.core.ObjectRepository;
+import moa.options.AbstractOptionHandler;
+import moa.streams.generators.RandomRBFGenerator;
+import moa.tasks.TaskMonitor;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+
+/**
+ * Test that PrefetchingStream returns the instances of the stream it wraps,
+ * in the same order, before and after restarting it
+ */
+public class PrefetchingStreamTest {
+
+	private PrefetchingStream prefetch(String stream, int bufferSize) {
+		PrefetchingStream prefetching = new PrefetchingStream();
+		prefetching.streamOption.setValueViaCLIString(stream);
+		prefetching.bufferSizeOption.setValue(bufferSize);
+		prefetching.prepareForUse();
+		return prefetching;
+	}
+
+	private void assertSameInstance(Instance expected, Instance actual) {
+		assertArrayEquals(expected.toDoubleArray(), actual.toDoubleArray(), 0.0);
+		assertEquals(expected.weight(), actual.weight(), 0.0);
+	}
+
+	@Test
+	public void testGenerator() {
+		PrefetchingStream stream = prefetch("generators.RandomRBFGenerator", 3);
+		RandomRBFGenerator generator = new RandomRBFGenerator();
+		generator.prepareForUse();
+		assertEquals(generator.getHeader().numAttributes(), stream.getHeader().numAttributes());
+		for (int pass = 0; pass < 3; pass++) {
+			// stop after a different number of instances on each pass
+			for (int i = 0; i < 1000 * (pass + 1); i++) {
+				assertTrue(stream.hasMoreInstances());
+				assertSameInstance(generator.nextInstance().getData(),
+						(Instance) stream.nextInstance().getData());
+			}
+			stream.restart();
+			generator.restart();
+		}
+	}
+
+	@Test
+	public void testFileStream() {
+		String file = ClassLoader.getSystemResource(
+				"moa/classifiers/data/small_classification.arff").getPath();
+		ArffFileStream expected = new ArffFileStream(file, -1);
+		PrefetchingStream stream = prefetch("ArffFileStream -f " + file, 2);
+		for (int pass = 0; pass < 2; pass++) {
+			int numRead = 0;
+			while (expected.hasMoreInstances()) {
+				assertTrue(stream.hasMoreInstances());
+				assertSameInstance(expected.nextInstance().getData(),
+						(Instance) stream.nextInstance().getData());
+				numRead++;
+			}
+			assertFalse(stream.hasMoreInstances());
+			assertFalse(stream.hasMoreInstances());
+			assertNull(stream.nextInstance());
+			assertTrue(numRead > 0);
+			expected.restart();
+			stream.restart();
+		}
+	}
+
+	/**
+	 * Generator that fails when it is called by two threads at once, and
+	 * that can block in nextInstance() until it is interrupted.
+	 */
+	public static class CheckedStream extends AbstractOptionHandler implements ExampleStream {
+
+		private static final long serialVersionUID = 1L;
+
+		protected RandomRBFGenerator generator = new RandomRBFGenerator();
+
+		protected volatile Thread caller;
+
+		protected volatile boolean concurrentCall;
+
+		protected volatile boolean block;
+
+		protected final CountDownLatch blocked = new CountDownLatch(1);
+
+		@Override
+		protected void prepareForUseImpl(TaskMonitor monitor, ObjectRepository repository) {
+			this.generator.prepareForUse();
+		}
+
+		protected void enter() {
+			if (this.caller != null) {
+				this.concurrentCall = true;
+			}
+			this.caller = Thread.currentThread();
+			Thread.yield();
+		}
+
+		protected void exit() {
+			this.caller = null;
+		}
+
+		@Override
+		public InstancesHeader getHeader() {
+			enter();
+			try {
+				return this.generator.getHeader();
+			} finally {
+				exit();
+			}
+		}
+
+		@Override
+		public long estimatedRemainingInstances() {
+			enter();
+			exit();
+			return -1;
+		}
+
+		@Override
+		public boolean hasMoreInstances() {
+			return true;
+		}
+
+		@Override
+		public Example nextInstance() {
+			enter();
+			try {
+				if (this.block) {
+					this.blocked.countDown();
+					try {
+						new CountDownLatch(1).await();
+					} catch (InterruptedException e) {
+						throw new RuntimeException(e);
+					}
+				}
+				return this.generator.nextInstance();
+			} finally {
+				exit();
+			}
+		}
+
+		@Override
+		public boolean isRestartable() {
+			return true;
+		}
+
+		@Override
+		public void restart() {
+			enter();
+			this.generator.restart();
+			exit();
+		}
+
+		@Override
+		public void getDescription(StringBuilder sb, int indent) {
+		}
+	}
+
+	@Test
+	public void testWrappedStreamReadByOneThread() {
+		CheckedStream wrapped = new CheckedStream();
+		PrefetchingStream stream = new PrefetchingStream();
+		stream.streamOption.setCurrentObject(wrapped);
+		stream.bufferSizeOption.setValue(4);
+		stream.prepareForUse();
+		wrapped = (CheckedStream) stream.stream;
+		for (int i = 0; i < 10000; i++) {
+			assertNotNull(stream.getHeader());
+			assertEquals(-1, stream.estimatedRemainingInstances());
+			assertNotNull(stream.nextInstance());
+		}
+		stream.restart();
+		assertFalse(wrapped.concurrentCall);
+	}
+
+	@Test(timeout = 60000)
+	public void testRestartWhileBlocked() throws InterruptedException {
+		CheckedStream wrapped = new CheckedStream();
+		PrefetchingStream stream = new PrefetchingStream();
+		stream.streamOption.setCurrentObject(wrapped);
+		stream.prepareForUse();
+		wrapped = (CheckedStream) stream.stream;
+		wrapped.block = true;
+		assertFalse(stream.estimatedRemainingInstances() > 0);
+		stream.getPrefetcher();
+		wrapped.blocked.await();
+		wrapped.block = false;
+		stream.restart();
+		assertTrue(stream.hasMoreInstances());
+		assertNotNull(stream.nextInstance());
+	}
+
+	@Test
+	public void testDescription() {
+		StringBuilder sb = new StringBuilder();
+		prefetch("generators.RandomRBFGenerator", 8).getDescription(sb, 0);
+		assertTrue(sb.toString().contains("RandomRBFGenerator"));
+	}
+}
@@ -0,0 +1,98 @@
+package moa.tasks;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import moa.classifiers.Classifier;
+import moa.classifiers.trees.HoeffdingTree;
+import moa.evaluation.preview.LearningCurve;
+import moa.tasks.EvaluatePrequentialMultipleLearnersTest.ModifyingNaiveBayes;
+
+import org.junit.Test;
+
+/**
+ * Test that the learning curves of the cross-validated prequential
+ * evaluations do not depend on the number of threads evaluating the folds,
+ * even when the learners modify the examples they train on
+ */
+public class EvaluatePrequentialCVTest {
+
+	private static Classifier[] learners() {
+		HoeffdingTree tree = new HoeffdingTree();
+		tree.gracePeriodOption.setValue(50);
+		return new Classifier[]{new ModifyingNaiveBayes(), tree};
+	}
+
+	/** Gets the entries of a curve without the measurements depending on time */
+	private static List<String> entries(LearningCurve curve) {
+		List<String> entries = new ArrayList<String>();
+		for (int i = 0; i < curve.numEntries(); i++) {
+			StringBuilder entry = new StringBuilder();
+			for (int j = 0; j < curve.getEntryMeasurementCount(i); j++) {
+				String name = curve.getMeasurementName(j);
+				if (!name.contains("time") && !name.contains("RAM-Hours")) {
+					entry.append(curve.getMeasurement(i, j)).append(',');
+				}
+			}
+			entries.add(entry.toString());
+		}
+		return entries;
+	}
+
+	private static LearningCurve runCV(Classifier learner, int validationMethodology,
+			int numberOfThreads, int batchSize) {
+		EvaluatePrequentialCV task = new EvaluatePrequentialCV();
+		task.learnerOption.setCurrentObject(learner.copy());
+		task.streamOption.setValueViaCLIString("generators.RandomTreeGenerator");
+		task.evaluatorOption.setValueViaCLIString("BasicClassificationPerformanceEvaluator");
+		task.instanceLimitOption.setValue(5000);
+		task.sampleFrequencyOption.setValue(1000);
+		task.numFoldsOption.setValue(4);
+		task.validationMethodologyOption.setChosenIndex(validationMethodology);
+		task.numberOfThreadsOption.setValue(numberOfThreads);
+		task.batchSizeOption.setValue(batchSize);
+		task.prepareForUse();
+		return (LearningCurve) task.doTask();
+	}
+
+	private static LearningCurve runDelayedCV(Classifier learner, int validationMethodology,
+			int numberOfThreads, int batchSize) {
+		EvaluatePrequentialDelayedCV task = new EvaluatePrequentialDelayedCV();
+		task.learnerOption.setCurrentObject(learner.copy());
+		task.streamOption.setValueViaCLIString("generators.RandomTreeGenerator");
+		task.evaluatorOption.setValueViaCLIString("BasicClassificationPerformanceEvaluator");
+		task.delayLengthOption.setValue(50);
+		task.instanceLimitOption.setValue(5000);
+		task.sampleFrequencyOption.setValue(1000);
+		task.numFoldsOption.setValue(4);
+		task.validationMethodologyOption.setChosenIndex(validationMethodology);
+		task.numberOfThreadsOption.setValue(numberOfThreads);
+		task.batchSizeOption.setValue(batchSize);
+		task.prepareForUse();
+		return (LearningCurve) task.doTask();
+	}
+
+	@Test
+	public void testCV() {
+		for (Classifier learner : learners()) {
+			for (int validationMethodology = 0; validationMethodology < 3; validationMethodology++) {
+				List<String> expected = entries(runCV(learner, validationMethodology, 1, 7));
+				assertEquals(5, expected.size());
+				assertEquals(expected, entries(runCV(learner, validationMethodology, 3, 100)));
+			}
+		}
+	}
+
+	@Test
+	public void testDelayedCV() {
+		for (Classifier learner : learners()) {
+			for (int validationMethodology = 0; validationMethodology < 3; validationMethodology++) {
+				List<String> expected = entries(runDelayedCV(learner, validationMethodology, 1, 7));
+				assertEquals(5, expected.size());
+				assertEquals(expected, entries(runDelayedCV(learner, validationMethodology, 3, 100)));
+			}
+		}
+	}
+}
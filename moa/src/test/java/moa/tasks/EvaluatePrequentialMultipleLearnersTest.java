@@ -0,0 +1,146 @@
+package moa.tasks;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import moa.classifiers.Classifier;
+import moa.classifiers.bayes.NaiveBayes;
+import moa.classifiers.trees.HoeffdingTree;
+import moa.options.ClassOption;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.javacliparser.Option;
+import com.yahoo.labs.samoa.instances.Instance;
+
+/**
+ * Test that the learning curve of each learner evaluated together is the one
+ * of a separate prequential evaluation, even when a learner modifies the
+ * examples it trains on
+ */
+public class EvaluatePrequentialMultipleLearnersTest {
+
+	/** A learner changing the first value of the examples it trains on */
+	public static class ModifyingNaiveBayes extends NaiveBayes {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public void trainOnInstance(Instance inst) {
+			super.trainOnInstance(inst);
+			inst.setValue(0, inst.value(0) + 1.0);
+		}
+	}
+
+	private File dir;
+
+	@Before
+	public void setUp() throws IOException {
+		this.dir = File.createTempFile("multiple", "");
+		this.dir.delete();
+		this.dir.mkdir();
+	}
+
+	@After
+	public void tearDown() {
+		for (File file : this.dir.listFiles()) {
+			file.delete();
+		}
+		this.dir.delete();
+	}
+
+	private static Classifier[] learners() {
+		HoeffdingTree tree = new HoeffdingTree();
+		tree.gracePeriodOption.setValue(50);
+		return new Classifier[]{new ModifyingNaiveBayes(), tree, new NaiveBayes()};
+	}
+
+	private static ClassOption learnerOption(Classifier learner) {
+		ClassOption option = new ClassOption("learner", ' ', "", Classifier.class, "bayes.NaiveBayes");
+		option.setCurrentObject(learner);
+		return option;
+	}
+
+	/** Reads a dump file without the columns depending on time */
+	private static List<String> readCurve(File file) throws IOException {
+		List<String> rows = new ArrayList<String>();
+		BufferedReader reader = new BufferedReader(new FileReader(file));
+		try {
+			List<Integer> timeColumns = new ArrayList<Integer>();
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] columns = line.split(",");
+				if (rows.isEmpty()) {
+					for (int i = 0; i < columns.length; i++) {
+						if (columns[i].contains("time") || columns[i].contains("RAM-Hours")) {
+							timeColumns.add(i);
+						}
+					}
+				}
+				StringBuilder row = new StringBuilder();
+				for (int i = 0; i < columns.length; i++) {
+					if (!timeColumns.contains(i)) {
+						row.append(columns[i]).append(',');
+					}
+				}
+				rows.add(row.toString());
+			}
+		} finally {
+			reader.close();
+		}
+		return rows;
+	}
+
+	private void checkSameCurves(int numberOfThreads, int batchSize) throws IOException {
+		Classifier[] learners = learners();
+		for (int i = 0; i < learners.length; i++) {
+			EvaluatePrequential task = new EvaluatePrequential();
+			task.learnerOption.setCurrentObject(learners[i].copy());
+			task.streamOption.setValueViaCLIString("generators.RandomTreeGenerator");
+			task.evaluatorOption.setValueViaCLIString("BasicClassificationPerformanceEvaluator");
+			task.instanceLimitOption.setValue(5000);
+			task.sampleFrequencyOption.setValue(1000);
+			task.dumpFileOption.setValue(new File(this.dir, "single" + i + ".csv").getPath());
+			task.prepareForUse();
+			task.doTask();
+		}
+		EvaluatePrequentialMultipleLearners task = new EvaluatePrequentialMultipleLearners();
+		Option[] options = new Option[learners.length];
+		for (int i = 0; i < learners.length; i++) {
+			options[i] = learnerOption(learners[i]);
+		}
+		task.learnersOption.setList(options);
+		task.streamOption.setValueViaCLIString("generators.RandomTreeGenerator");
+		task.evaluatorOption.setValueViaCLIString("BasicClassificationPerformanceEvaluator");
+		task.instanceLimitOption.setValue(5000);
+		task.sampleFrequencyOption.setValue(1000);
+		task.numberOfThreadsOption.setValue(numberOfThreads);
+		task.batchSizeOption.setValue(batchSize);
+		task.dumpFileOption.setValue(new File(this.dir, "multiple.csv").getPath());
+		task.prepareForUse();
+		task.doTask();
+		for (int i = 0; i < learners.length; i++) {
+			List<String> expected = readCurve(new File(this.dir, "single" + i + ".csv"));
+			assertEquals(6, expected.size());
+			assertEquals(expected, readCurve(new File(this.dir, "multiplen" + i + ".csv")));
+		}
+	}
+
+	@Test
+	public void testOneThread() throws IOException {
+		checkSameCurves(1, 7);
+	}
+
+	@Test
+	public void testThreads() throws IOException {
+		checkSameCurves(3, 100);
+	}
+}